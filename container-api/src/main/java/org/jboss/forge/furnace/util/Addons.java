@@ -22,10 +22,7 @@ public class Addons
    {
       try
       {
-         while (!addon.getStatus().isStarted())
-         {
-            Thread.sleep(10);
-         }
+         awaitStatus(addon, true, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
       }
       catch (Exception e)
       {
@@ -39,10 +36,7 @@ public class Addons
       {
          try
          {
-            while (addon.getStatus().isStarted())
-            {
-               Thread.sleep(10);
-            }
+            awaitStatus(addon, false, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
          }
          catch (Exception e)
          {
@@ -53,55 +47,56 @@ public class Addons
 
    public static void waitUntilStarted(Addon addon, int quantity, TimeUnit unit) throws TimeoutException
    {
-      long start = System.currentTimeMillis();
-      while (!addon.getStatus().isStarted())
+      try
       {
-         if (System.currentTimeMillis() > (start + TimeUnit.MILLISECONDS.convert(quantity, unit)))
-         {
+         if (!awaitStatus(addon, true, quantity, unit))
             throw new TimeoutException("Timeout expired waiting for [" + addon + "] to start.");
-         }
+      }
+      catch (InterruptedException e)
+      {
+         throw new ContainerException("Addon [" + addon + "] was not started.", e);
+      }
+   }
 
+   public static void waitUntilStopped(Addon addon, int quantity, TimeUnit unit) throws TimeoutException
+   {
+      if (addon != null)
+      {
          try
          {
-            Thread.sleep(10);
-         }
-         catch (RuntimeException re)
-         {
-            throw re;
+            if (!awaitStatus(addon, false, quantity, unit))
+               throw new TimeoutException("Timeout expired waiting for [" + addon + "] to stop.");
          }
-         catch (Exception e)
+         catch (InterruptedException e)
          {
-            throw new ContainerException("Addon [" + addon + "] was not started.", e);
+            throw new ContainerException("Addon [" + addon + "] was not stopped.", e);
          }
       }
    }
 
-   public static void waitUntilStopped(Addon addon, int quantity, TimeUnit unit) throws TimeoutException
+   /**
+    * Block until the given {@link Addon} is started, or stopped, on a status transition if the {@link Addon} signals
+    * them (see {@link AwaitableAddon}), or by polling its status otherwise.
+    */
+   private static boolean awaitStatus(Addon addon, boolean started, long timeout, TimeUnit unit)
+            throws InterruptedException
    {
-      if (addon != null)
+      if (addon instanceof AwaitableAddon)
       {
-         long start = System.currentTimeMillis();
-         while (addon.getStatus().isStarted())
-         {
-            if (System.currentTimeMillis() > (start + TimeUnit.MILLISECONDS.convert(quantity, unit)))
-            {
-               throw new TimeoutException("Timeout expired waiting for [" + addon + "] to stop.");
-            }
+         if (started)
+            return ((AwaitableAddon) addon).awaitStarted(timeout, unit);
+         return ((AwaitableAddon) addon).awaitStopped(timeout, unit);
+      }
 
-            try
-            {
-               Thread.sleep(10);
-            }
-            catch (RuntimeException re)
-            {
-               throw re;
-            }
-            catch (Exception e)
-            {
-               throw new ContainerException("Addon [" + addon + "] was not stopped.", e);
-            }
-         }
+      long remaining = unit.toNanos(timeout);
+      long deadline = System.nanoTime() + remaining;
+      while (addon.getStatus().isStarted() != started)
+      {
+         if (remaining <= 0)
+            return false;
+         Thread.sleep(Math.min(10, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+         remaining = deadline - System.nanoTime();
       }
+      return true;
    }
-
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonStatus;
+
+/**
+ * Implemented by the container's {@link Addon} instances, so that {@link Addons} can block on {@link AddonStatus}
+ * transitions instead of polling. Internal; use {@link Addons} instead.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface AwaitableAddon
+{
+   /**
+    * Block until this {@link Addon} is {@link AddonStatus#isStarted()}, or until the given timeout elapses.
+    *
+    * @return <code>true</code> if this {@link Addon} is started, <code>false</code> if the timeout elapsed first.
+    */
+   boolean awaitStarted(long timeout, TimeUnit unit) throws InterruptedException;
+
+   /**
+    * Block until this {@link Addon} is no longer {@link AddonStatus#isStarted()}, or until the given timeout elapses.
+    *
+    * @return <code>true</code> if this {@link Addon} is stopped, <code>false</code> if the timeout elapsed first.
+    */
+   boolean awaitStopped(long timeout, TimeUnit unit) throws InterruptedException;
+}
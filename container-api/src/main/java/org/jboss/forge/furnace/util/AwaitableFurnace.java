@@ -0,0 +1,30 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.forge.furnace.ContainerStatus;
+import org.jboss.forge.furnace.Furnace;
+
+/**
+ * Implemented by the container's {@link Furnace}, so that {@link Furnaces} can block until it is stable instead of
+ * polling. Internal; use {@link Furnaces} instead.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface AwaitableFurnace
+{
+   /**
+    * Block until this {@link Furnace} container is no longer {@link ContainerStatus#isStarting()}, or until the given
+    * timeout elapses.
+    *
+    * @return <code>true</code> if this {@link Furnace} container is no longer starting, <code>false</code> if the
+    *         timeout elapsed first.
+    */
+   boolean awaitStable(long timeout, TimeUnit unit) throws InterruptedException;
+}
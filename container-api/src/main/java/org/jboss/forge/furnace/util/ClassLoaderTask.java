@@ -0,0 +1,26 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.util;
+
+/**
+ * A task to be executed via {@link ClassLoaders#executeIn(ClassLoader, ClassLoaderTask, Object, Object)}. Unlike a
+ * {@link java.util.concurrent.Callable}, its inputs are passed as arguments, so a single instance may be reused for
+ * every execution instead of being allocated to capture them.
+ * 
+ * @param <A> the type of the first argument
+ * @param <B> the type of the second argument
+ * @param <T> the result type
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface ClassLoaderTask<A, B, T>
+{
+   /**
+    * Execute this task with the given arguments, and return the result, if any.
+    */
+   T call(A first, B second) throws Exception;
+}
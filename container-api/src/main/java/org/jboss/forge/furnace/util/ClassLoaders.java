@@ -15,28 +15,56 @@ public class ClassLoaders
 {
    private static Logger log = Logger.getLogger(ClassLoaders.class.getName());
 
+   private static final ClassLoaderTask<Callable<Object>, Void, Object> CALLABLE_TASK = new ClassLoaderTask<Callable<Object>, Void, Object>()
+   {
+      @Override
+      public Object call(Callable<Object> task, Void unused) throws Exception
+      {
+         return task.call();
+      }
+   };
+
    /**
     * Execute the given {@link Callable} in the {@link ClassLoader} provided. Return the result, if any.
     */
+   @SuppressWarnings({ "unchecked", "rawtypes" })
    public static <T> T executeIn(ClassLoader loader, Callable<T> task) throws Exception
    {
       if (task == null)
          return null;
 
-      if (log.isLoggable(Level.FINE))
+      return (T) executeIn(loader, CALLABLE_TASK, (Callable) task, null);
+   }
+
+   /**
+    * Execute the given {@link ClassLoaderTask} with the given arguments in the {@link ClassLoader} provided. Return the
+    * result, if any. If the current {@link Thread#getContextClassLoader()} is already the given {@link ClassLoader},
+    * the task is executed directly.
+    */
+   public static <A, B, T> T executeIn(ClassLoader loader, ClassLoaderTask<A, B, T> task, A first, B second)
+            throws Exception
+   {
+      if (task == null)
+         return null;
+
+      ClassLoader original = SecurityActions.getContextClassLoader();
+      if (original == loader)
+         return task.call(first, second);
+
+      boolean fine = log.isLoggable(Level.FINE);
+      if (fine)
       {
          log.fine("ClassLoader [" + loader + "] task began.");
       }
-      ClassLoader original = SecurityActions.getContextClassLoader();
       try
       {
          SecurityActions.setContextClassLoader(loader);
-         return task.call();
+         return task.call(first, second);
       }
       finally
       {
          SecurityActions.setContextClassLoader(original);
-         if (log.isLoggable(Level.FINE))
+         if (fine)
          {
             log.fine("ClassLoader [" + loader + "] task ended.");
          }
@@ -48,14 +76,7 @@ public class ClassLoaders
       Assert.notNull(loader, "Class loader to inspect must not be null.");
       Assert.notNull(type, "Class to find must not be null.");
 
-      try
-      {
-         return loader.loadClass(type.getName()).equals(type);
-      }
-      catch (ClassNotFoundException e)
-      {
-         return false;
-      }
+      return type.equals(ClassVisibilityCache.lookup(loader, type.getName()));
    }
 
    public static boolean containsClass(ClassLoader loader, String type)
@@ -63,15 +84,7 @@ public class ClassLoaders
       Assert.notNull(loader, "Class loader to inspect must not be null.");
       Assert.notNull(type, "Class to find must not be null.");
 
-      try
-      {
-         loader.loadClass(type);
-         return true;
-      }
-      catch (ClassNotFoundException e)
-      {
-         return false;
-      }
+      return ClassVisibilityCache.lookup(loader, type) != null;
    }
 
    public static Class<?> loadClass(ClassLoader loader, String typeName)
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers which class names are (and are not) visible from a given {@link ClassLoader}, so that repeated
+ * {@link ClassLoaders#containsClass(ClassLoader, String)} queries do not need to call {@link ClassLoader#loadClass(String)}
+ * and, for negative answers, throw and catch a {@link ClassNotFoundException} each time.
+ * <p>
+ * Lookups do not lock. {@link ClassLoader} instances and found {@link Class} types are only weakly referenced. Entries must be evicted via
+ * {@link #evict(ClassLoader)} when a {@link ClassLoader} is released, since other {@link ClassLoader} instances may
+ * then see different types (or none) for the same names.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public final class ClassVisibilityCache
+{
+   private static final Object NOT_FOUND = new Object();
+
+   private static final ConcurrentWeakIdentityMap<ClassLoader, ConcurrentMap<String, Object>> cache =
+            new ConcurrentWeakIdentityMap<ClassLoader, ConcurrentMap<String, Object>>();
+
+   private static final AtomicLong hits = new AtomicLong();
+   private static final AtomicLong misses = new AtomicLong();
+
+   private ClassVisibilityCache()
+   {
+   }
+
+   /**
+    * Get the {@link Class} with the given name as seen by the given {@link ClassLoader}, or <code>null</code> if it is
+    * not visible.
+    */
+   static Class<?> lookup(ClassLoader loader, String typeName)
+   {
+      ConcurrentMap<String, Object> types = getTypes(loader);
+      Object value = types.get(typeName);
+      if (value == NOT_FOUND)
+      {
+         hits.incrementAndGet();
+         return null;
+      }
+      else if (value != null)
+      {
+         Class<?> result = (Class<?>) ((WeakReference<?>) value).get();
+         if (result != null)
+         {
+            hits.incrementAndGet();
+            return result;
+         }
+      }
+
+      misses.incrementAndGet();
+      Class<?> result = null;
+      try
+      {
+         result = loader.loadClass(typeName);
+         types.put(typeName, new WeakReference<Class<?>>(result));
+      }
+      catch (ClassNotFoundException e)
+      {
+         types.put(typeName, NOT_FOUND);
+      }
+      return result;
+   }
+
+   /**
+    * Evict all answers cached for the given {@link ClassLoader}, all answers referring to types it defines, and all
+    * negative answers, which may no longer hold once the given {@link ClassLoader} has been replaced.
+    */
+   public static void evict(ClassLoader loader)
+   {
+      cache.remove(loader);
+      for (ConcurrentMap<String, Object> types : cache.values())
+      {
+         Iterator<Entry<String, Object>> iterator = types.entrySet().iterator();
+         while (iterator.hasNext())
+         {
+            Object value = iterator.next().getValue();
+            if (value == NOT_FOUND)
+               iterator.remove();
+            else
+            {
+               Class<?> type = (Class<?>) ((WeakReference<?>) value).get();
+               if (type == null || type.getClassLoader() == loader)
+                  iterator.remove();
+            }
+         }
+      }
+   }
+
+   /**
+    * Returns the number of lookups answered from this cache.
+    */
+   public static long getHitCount()
+   {
+      return hits.get();
+   }
+
+   /**
+    * Returns the number of lookups that required a call to {@link ClassLoader#loadClass(String)}.
+    */
+   public static long getMissCount()
+   {
+      return misses.get();
+   }
+
+   private static ConcurrentMap<String, Object> getTypes(ClassLoader loader)
+   {
+      ConcurrentMap<String, Object> result = cache.get(loader);
+      if (result == null)
+      {
+         result = new ConcurrentHashMap<String, Object>();
+         ConcurrentMap<String, Object> existing = cache.putIfAbsent(loader, result);
+         if (existing != null)
+            result = existing;
+      }
+      return result;
+   }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A concurrent map whose keys are compared by identity and only weakly referenced, so that mapping a {@link Class} or
+ * {@link ClassLoader} does not prevent it from being collected. Lookups do not lock; entries of collected keys are
+ * purged when new entries are added.
+ * <p>
+ * As with {@link java.util.WeakHashMap}, values must not strongly reference their own keys.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public final class ConcurrentWeakIdentityMap<K, V>
+{
+   private final ConcurrentMap<Object, V> map = new ConcurrentHashMap<Object, V>();
+   private final ReferenceQueue<K> queue = new ReferenceQueue<K>();
+
+   /**
+    * Get the value mapped to the given key, or <code>null</code> if there is none.
+    */
+   public V get(K key)
+   {
+      return map.get(new LookupKey(key));
+   }
+
+   /**
+    * Map the given value to the given key, unless a value is already mapped to it.
+    *
+    * @return the value previously mapped to the given key, or <code>null</code> if the given value was mapped.
+    */
+   public V putIfAbsent(K key, V value)
+   {
+      purge();
+      return map.putIfAbsent(new WeakKey<K>(key, queue), value);
+   }
+
+   /**
+    * Map the given new value to the given key, only if the given old value is currently mapped to it.
+    *
+    * @return <code>true</code> if the value was replaced.
+    */
+   public boolean replace(K key, V oldValue, V newValue)
+   {
+      return map.replace(new LookupKey(key), oldValue, newValue);
+   }
+
+   /**
+    * Remove the value mapped to the given key, if any.
+    */
+   public V remove(K key)
+   {
+      return map.remove(new LookupKey(key));
+   }
+
+   /**
+    * Returns a snapshot of the keys of this map that have not been collected.
+    */
+   public List<K> keys()
+   {
+      purge();
+      List<K> result = new ArrayList<K>();
+      for (Object key : map.keySet())
+      {
+         @SuppressWarnings("unchecked")
+         K referent = ((WeakKey<K>) key).get();
+         if (referent != null)
+            result.add(referent);
+      }
+      return result;
+   }
+
+   /**
+    * Returns a snapshot of the values of this map.
+    */
+   public List<V> values()
+   {
+      return new ArrayList<V>(map.values());
+   }
+
+   private void purge()
+   {
+      Reference<? extends K> reference;
+      while ((reference = queue.poll()) != null)
+      {
+         map.remove(reference);
+      }
+   }
+
+   private static Object referent(Object key)
+   {
+      return key instanceof LookupKey ? ((LookupKey) key).referent : ((WeakKey<?>) key).get();
+   }
+
+   private static final class WeakKey<K> extends WeakReference<K>
+   {
+      private final int hash;
+
+      public WeakKey(K referent, ReferenceQueue<K> queue)
+      {
+         super(referent, queue);
+         this.hash = System.identityHashCode(referent);
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return hash;
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if (this == obj)
+            return true;
+         if (!(obj instanceof WeakKey || obj instanceof LookupKey))
+            return false;
+         Object referent = get();
+         return referent != null && referent == referent(obj);
+      }
+   }
+
+   private static final class LookupKey
+   {
+      private final Object referent;
+
+      public LookupKey(Object referent)
+      {
+         this.referent = referent;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return System.identityHashCode(referent);
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if (this == obj)
+            return true;
+         if (!(obj instanceof WeakKey || obj instanceof LookupKey))
+            return false;
+         return referent == referent(obj);
+      }
+   }
+}
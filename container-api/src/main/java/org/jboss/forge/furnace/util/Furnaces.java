@@ -0,0 +1,44 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.forge.furnace.ContainerStatus;
+import org.jboss.forge.furnace.Furnace;
+import org.jboss.forge.furnace.exception.ContainerException;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class Furnaces
+{
+   /**
+    * Block until the given {@link Furnace} container is no longer {@link ContainerStatus#isStarting()}.
+    */
+   public static void waitUntilStable(Furnace furnace)
+   {
+      try
+      {
+         if (furnace instanceof AwaitableFurnace)
+         {
+            ((AwaitableFurnace) furnace).awaitStable(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+         }
+         else
+         {
+            while (furnace.getStatus().isStarting())
+            {
+               Thread.sleep(10);
+            }
+         }
+      }
+      catch (Exception e)
+      {
+         throw new ContainerException("Furnace [" + furnace + "] did not become stable.", e);
+      }
+   }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.util;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonDependency;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonStatus;
+import org.jboss.forge.furnace.event.EventManager;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+import org.jboss.forge.furnace.spi.ServiceRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddonsTest
+{
+   @Test
+   public void testPollsAddonsThatDoNotSignalTransitions() throws Exception
+   {
+      final StubAddon addon = new StubAddon();
+      new Thread()
+      {
+         @Override
+         public void run()
+         {
+            try
+            {
+               Thread.sleep(50);
+            }
+            catch (InterruptedException e)
+            {
+               Thread.currentThread().interrupt();
+            }
+            addon.status = AddonStatus.STARTED;
+         }
+      }.start();
+
+      Addons.waitUntilStarted(addon, 5, TimeUnit.SECONDS);
+      Assert.assertTrue(addon.getStatus().isStarted());
+      Addons.waitUntilStarted(addon);
+   }
+
+   @Test(expected = TimeoutException.class)
+   public void testPollingTimesOut() throws Exception
+   {
+      Addons.waitUntilStarted(new StubAddon(), 50, TimeUnit.MILLISECONDS);
+   }
+
+   @Test
+   public void testBlocksOnAwaitableAddons() throws Exception
+   {
+      AwaitableStubAddon addon = new AwaitableStubAddon();
+      Addons.waitUntilStarted(addon, 5, TimeUnit.SECONDS);
+      Addons.waitUntilStopped(addon, 5, TimeUnit.SECONDS);
+      Assert.assertEquals(1, addon.startedCalls);
+      Assert.assertEquals(1, addon.stoppedCalls);
+   }
+
+   private static class StubAddon implements Addon
+   {
+      volatile AddonStatus status = AddonStatus.LOADED;
+
+      @Override
+      public AddonId getId()
+      {
+         return AddonId.from("com.example:stub", "1.0.0.Final");
+      }
+
+      @Override
+      public ClassLoader getClassLoader()
+      {
+         return null;
+      }
+
+      @Override
+      public EventManager getEventManager()
+      {
+         return null;
+      }
+
+      @Override
+      public ServiceRegistry getServiceRegistry()
+      {
+         return null;
+      }
+
+      @Override
+      public AddonRepository getRepository()
+      {
+         return null;
+      }
+
+      @Override
+      public AddonStatus getStatus()
+      {
+         return status;
+      }
+
+      @Override
+      public Set<AddonDependency> getDependencies()
+      {
+         return Collections.emptySet();
+      }
+
+      @Override
+      public Future<Void> getFuture()
+      {
+         return null;
+      }
+   }
+
+   private static class AwaitableStubAddon extends StubAddon implements AwaitableAddon
+   {
+      int startedCalls;
+      int stoppedCalls;
+
+      @Override
+      public boolean awaitStarted(long timeout, TimeUnit unit)
+      {
+         startedCalls++;
+         return true;
+      }
+
+      @Override
+      public boolean awaitStopped(long timeout, TimeUnit unit)
+      {
+         stoppedCalls++;
+         return true;
+      }
+   }
+}
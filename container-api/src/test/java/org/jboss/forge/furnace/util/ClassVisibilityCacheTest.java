@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.util;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClassVisibilityCacheTest
+{
+   @Test
+   public void testPositiveAndNegativeAnswersAreCached()
+   {
+      ClassLoader loader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+      String missing = getClass().getName() + "$DoesNotExist";
+
+      Assert.assertTrue(ClassLoaders.containsClass(loader, getClass()));
+      Assert.assertFalse(ClassLoaders.containsClass(loader, missing));
+
+      long misses = ClassVisibilityCache.getMissCount();
+      long hits = ClassVisibilityCache.getHitCount();
+      Assert.assertTrue(ClassLoaders.containsClass(loader, getClass().getName()));
+      Assert.assertFalse(ClassLoaders.containsClass(loader, missing));
+      Assert.assertTrue(ClassLoaders.containsClass(loader, String.class.getName()));
+      Assert.assertEquals(misses + 1, ClassVisibilityCache.getMissCount());
+      Assert.assertEquals(hits + 2, ClassVisibilityCache.getHitCount());
+   }
+
+   @Test
+   public void testEvictionDropsNegativeAnswers()
+   {
+      ClassLoader loader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+      String missing = getClass().getName() + "$DoesNotExist";
+
+      Assert.assertFalse(ClassLoaders.containsClass(loader, missing));
+      ClassVisibilityCache.evict(new URLClassLoader(new URL[0]));
+
+      long misses = ClassVisibilityCache.getMissCount();
+      Assert.assertFalse(ClassLoaders.containsClass(loader, missing));
+      Assert.assertEquals(misses + 1, ClassVisibilityCache.getMissCount());
+   }
+}
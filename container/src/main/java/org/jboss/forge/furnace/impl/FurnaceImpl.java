@@ -14,6 +14,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,7 +22,9 @@ import org.jboss.forge.furnace.ContainerStatus;
 import org.jboss.forge.furnace.Furnace;
 import org.jboss.forge.furnace.addons.AddonRegistry;
 import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.impl.addons.AddonActivationPolicy;
 import org.jboss.forge.furnace.impl.addons.AddonLifecycleManager;
+import org.jboss.forge.furnace.impl.addons.AddonRepositoryChangeMonitor;
 import org.jboss.forge.furnace.impl.addons.AddonRegistryImpl;
 import org.jboss.forge.furnace.impl.addons.AddonRepositoryImpl;
 import org.jboss.forge.furnace.impl.addons.ImmutableAddonRepository;
@@ -31,6 +34,7 @@ import org.jboss.forge.furnace.repositories.AddonRepositoryMode;
 import org.jboss.forge.furnace.spi.ContainerLifecycleListener;
 import org.jboss.forge.furnace.spi.ListenerRegistration;
 import org.jboss.forge.furnace.util.Assert;
+import org.jboss.forge.furnace.util.AwaitableFurnace;
 import org.jboss.forge.furnace.versions.Version;
 import org.jboss.modules.Module;
 import org.jboss.modules.log.StreamModuleLogger;
@@ -38,7 +42,7 @@ import org.jboss.modules.log.StreamModuleLogger;
 /**
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public class FurnaceImpl implements Furnace
+public class FurnaceImpl implements Furnace, AwaitableFurnace
 {
    {
       if (System.getProperty("modules.ignore.jdk.factory") == null)
@@ -47,6 +51,8 @@ public class FurnaceImpl implements Furnace
 
    private static Logger logger = Logger.getLogger(FurnaceImpl.class.getName());
 
+   private static final long STARTING_RETRY_DELAY = 25;
+
    private volatile boolean alive = false;
    private volatile ContainerStatus status = ContainerStatus.STOPPED;
 
@@ -59,8 +65,12 @@ public class FurnaceImpl implements Furnace
 
    private List<AddonRepository> repositories = new ArrayList<AddonRepository>();
    private Map<AddonRepository, Integer> lastRepoVersionSeen = new HashMap<AddonRepository, Integer>();
+   private Map<AddonRepository, Long> lastRepoModifiedSeen = new HashMap<AddonRepository, Long>();
+   private final AddonRepositoryChangeMonitor changeMonitor = new AddonRepositoryChangeMonitor();
+   private final AddonActivationPolicy activationPolicy = new AddonActivationPolicy();
 
-   private final LockManager lock = new LockManagerImpl();
+   private final LockManager lock = Boolean.getBoolean(ScopedLockManagerImpl.SCOPED_LOCKING_PROPERTY)
+            ? new ScopedLockManagerImpl() : new LockManagerImpl();
 
    private String[] args;
 
@@ -143,16 +153,20 @@ public class FurnaceImpl implements Furnace
          getAddonRegistry();
          do
          {
-            boolean dirty = false;
-            if (!getLifecycleManager().isStartingAddons())
+            boolean startingAddons = getLifecycleManager().isStartingAddons();
+            if (!startingAddons)
             {
+               boolean dirty = false;
                for (AddonRepository repository : repositories)
                {
                   int repoVersion = repository.getVersion();
-                  if (repoVersion > lastRepoVersionSeen.get(repository))
+                  long repoLastModified = repository.getLastModified().getTime();
+                  if (repoVersion > lastRepoVersionSeen.get(repository)
+                           || repoLastModified != lastRepoModifiedSeen.get(repository))
                   {
                      logger.log(Level.INFO, "Detected changes in repository [" + repository + "].");
                      lastRepoVersionSeen.put(repository, repoVersion);
+                     lastRepoModifiedSeen.put(repository, repoLastModified);
                      dirty = true;
                   }
                }
@@ -172,14 +186,23 @@ public class FurnaceImpl implements Furnace
                }
             }
             status = ContainerStatus.STARTED;
-            
-            Thread.sleep(100);
+
+            if (alive && serverMode)
+            {
+               /*
+                * Repository changes made in this process wake the container immediately. Changes made by other
+                * processes are detected at the poll interval, and changes seen while addons are starting are retried
+                * once the debounce window has elapsed.
+                */
+               changeMonitor.awaitChange(startingAddons ? Math.max(changeMonitor.getDebounce(), STARTING_RETRY_DELAY)
+                        : changeMonitor.getPollInterval());
+            }
          }
          while (alive && serverMode);
 
-         while (alive && getLifecycleManager().isStartingAddons())
+         while (alive && !getLifecycleManager().awaitStartingAddons(100, TimeUnit.MILLISECONDS))
          {
-            Thread.sleep(100);
+            // Re-check whether this container has been stopped while addons are starting
          }
       }
       catch (Exception e)
@@ -245,6 +268,7 @@ public class FurnaceImpl implements Furnace
    public Furnace stop()
    {
       alive = false;
+      changeMonitor.wake();
       return this;
    }
 
@@ -350,13 +374,14 @@ public class FurnaceImpl implements Furnace
             throw new IllegalArgumentException("There is already a repository defined with this path: " + directory);
          }
       }
-      AddonRepository repository = AddonRepositoryImpl.forDirectory(this, directory);
+      AddonRepository repository = AddonRepositoryImpl.forDirectory(this, directory, changeMonitor);
 
       if (mode.isImmutable())
          repository = new ImmutableAddonRepository(repository);
 
       this.repositories.add(repository);
       lastRepoVersionSeen.put(repository, 0);
+      lastRepoModifiedSeen.put(repository, 0L);
 
       return repository;
    }
@@ -384,11 +409,35 @@ public class FurnaceImpl implements Furnace
       return startingAddons ? ContainerStatus.STARTING : status;
    }
 
+   @Override
+   public boolean awaitStable(long timeout, TimeUnit unit) throws InterruptedException
+   {
+      if (!alive)
+         return true;
+      return getLifecycleManager().awaitStartingAddons(timeout, unit);
+   }
+
    public List<ContainerLifecycleListener> getRegisteredListeners()
    {
       return Collections.unmodifiableList(registeredListeners);
    }
 
+   /**
+    * Get the {@link AddonRepositoryChangeMonitor} used to wake this container when its repositories change.
+    */
+   public AddonRepositoryChangeMonitor getRepositoryChangeMonitor()
+   {
+      return changeMonitor;
+   }
+
+   /**
+    * Get the {@link AddonActivationPolicy} deciding which addons of this container are activated lazily.
+    */
+   public AddonActivationPolicy getActivationPolicy()
+   {
+      return activationPolicy;
+   }
+
    public AddonLifecycleManager getAddonLifecycleManager()
    {
       return getLifecycleManager();
@@ -400,7 +449,7 @@ public class FurnaceImpl implements Furnace
       return getLifecycleManager().toString();
    }
 
-   private AddonLifecycleManager getLifecycleManager()
+   private synchronized AddonLifecycleManager getLifecycleManager()
    {
       if (manager == null)
          manager = new AddonLifecycleManager(this);
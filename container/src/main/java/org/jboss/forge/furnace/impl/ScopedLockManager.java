@@ -0,0 +1,34 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.Lock;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.lock.LockManager;
+import org.jboss.forge.furnace.lock.LockMode;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+
+/**
+ * A {@link LockManager} that can also lock a single scope, such as an {@link AddonRepository} or an {@link Addon}.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface ScopedLockManager extends LockManager
+{
+   /**
+    * Perform the given {@link Callable} task after acquiring a {@link Lock} of the given {@link LockMode} type in the
+    * lock domain identified by the given scope. Return the result, if any.
+    * <p>
+    * Implementations may allow tasks in different scopes to proceed concurrently, but a task performed via
+    * {@link #performLocked(LockMode, Callable)} in {@link LockMode#WRITE} always excludes tasks in every scope.
+    * Implementations may also require nested scopes to be locked in a fixed order, as {@link ScopedLockManagerImpl}
+    * does.
+    */
+   <T> T performLocked(Object scope, LockMode mode, Callable<T> task);
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.jboss.forge.furnace.exception.ContainerException;
+import org.jboss.forge.furnace.impl.addons.AddonLifecycleManager;
+import org.jboss.forge.furnace.impl.addons.AddonStateManager;
+import org.jboss.forge.furnace.lock.LockManager;
+import org.jboss.forge.furnace.lock.LockMode;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+import org.jboss.forge.furnace.util.Assert;
+import org.jboss.forge.furnace.util.ConcurrentWeakIdentityMap;
+
+/**
+ * A {@link LockManager} with a separate lock domain for each scope (such as each repository, the lifecycle graph, and
+ * the state of each addon), so that a writer in one scope does not block readers in any other.
+ * <p>
+ * Locks are hierarchical: a scoped task holds a shared lock on the global domain in addition to its scoped lock, so an
+ * unscoped {@link LockMode#WRITE} task still excludes every scoped task. No lock is fair, so readers do not queue
+ * behind writers waiting in other scopes.
+ * <p>
+ * A {@link LockMode#READ} lock cannot be upgraded. Acquiring a {@link LockMode#WRITE} lock in a scope (or in the
+ * global domain) while holding only a {@link LockMode#READ} lock in that scope fails with a {@link ContainerException}
+ * rather than deadlocking.
+ * <p>
+ * The lock domains are ordered: the lifecycle graph ({@link AddonLifecycleManager}), then addon state
+ * ({@link AddonStateManager}), then each {@link AddonRepository}. While holding a lock in one domain, a thread may only
+ * acquire locks in the same or a later domain; acquiring a lock in an earlier domain fails with a
+ * {@link ContainerException} rather than risking a deadlock with a thread acquiring them in order. Locks already held
+ * by the current thread may always be re-acquired, and scopes outside of these domains are not ordered.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class ScopedLockManagerImpl implements ScopedLockManager
+{
+   /**
+    * System property which, when set to <code>true</code>, makes the container use a {@link ScopedLockManagerImpl}
+    * instead of a single global lock.
+    */
+   public static final String SCOPED_LOCKING_PROPERTY = "furnace.lock.scoped";
+
+   private final ReentrantReadWriteLock global = new ReentrantReadWriteLock();
+
+   /**
+    * The number of locks the current thread holds in each {@link Domain}.
+    */
+   private final ThreadLocal<int[]> held = new ThreadLocal<int[]>()
+   {
+      @Override
+      protected int[] initialValue()
+      {
+         return new int[Domain.values().length];
+      }
+   };
+
+   /**
+    * The lock of each scope. Scopes are compared by identity, and looking up the lock of a scope does not block.
+    */
+   private final ConcurrentWeakIdentityMap<Object, ReentrantReadWriteLock> scopes =
+            new ConcurrentWeakIdentityMap<Object, ReentrantReadWriteLock>();
+
+   @Override
+   public <T> T performLocked(LockMode mode, Callable<T> task)
+   {
+      Assert.notNull(mode, "LockMode must not be null.");
+      Assert.notNull(task, "Task to perform must not be null.");
+
+      Lock lock = obtainLock(global, mode, "global");
+      lock.lock();
+      try
+      {
+         return call(mode, task);
+      }
+      finally
+      {
+         lock.unlock();
+      }
+   }
+
+   @Override
+   public <T> T performLocked(Object scope, LockMode mode, Callable<T> task)
+   {
+      if (scope == null)
+         return performLocked(mode, task);
+
+      Assert.notNull(mode, "LockMode must not be null.");
+      Assert.notNull(task, "Task to perform must not be null.");
+
+      ReentrantReadWriteLock scopeLock = getScopeLock(scope);
+      Domain domain = Domain.of(scope);
+      if (domain != null)
+         assertOrdered(scopeLock, domain, scope);
+
+      Lock lock = obtainLock(scopeLock, mode, scope);
+      Lock globalLock = global.readLock();
+      globalLock.lock();
+      try
+      {
+         lock.lock();
+         if (domain != null)
+            held.get()[domain.ordinal()]++;
+         try
+         {
+            return call(mode, task);
+         }
+         finally
+         {
+            if (domain != null)
+               held.get()[domain.ordinal()]--;
+            lock.unlock();
+         }
+      }
+      finally
+      {
+         globalLock.unlock();
+      }
+   }
+
+   private ReentrantReadWriteLock getScopeLock(Object scope)
+   {
+      ReentrantReadWriteLock result = scopes.get(scope);
+      if (result == null)
+      {
+         ReentrantReadWriteLock created = new ReentrantReadWriteLock();
+         result = scopes.putIfAbsent(scope, created);
+         if (result == null)
+            result = created;
+      }
+      return result;
+   }
+
+   /**
+    * Ensure that the current thread holds no lock in a {@link Domain} after the given one, unless it already holds the
+    * given lock.
+    */
+   private void assertOrdered(ReentrantReadWriteLock scopeLock, Domain domain, Object scope)
+   {
+      if (scopeLock.isWriteLockedByCurrentThread() || scopeLock.getReadHoldCount() > 0)
+         return;
+
+      int[] counts = held.get();
+      for (Domain later : Domain.values())
+      {
+         if (later.compareTo(domain) > 0 && counts[later.ordinal()] > 0)
+            throw new ContainerException("Cannot acquire a lock in scope [" + scope + "] of the [" + domain
+                     + "] domain while holding a lock in the [" + later + "] domain. Locks must be acquired in the "
+                     + "order " + Arrays.toString(Domain.values()) + ".");
+      }
+   }
+
+   private Lock obtainLock(ReentrantReadWriteLock readWriteLock, LockMode mode, Object scope)
+   {
+      if (LockMode.READ.equals(mode))
+         return readWriteLock.readLock();
+
+      if (!readWriteLock.isWriteLockedByCurrentThread() && readWriteLock.getReadHoldCount() > 0)
+         throw new ContainerException("Cannot acquire a [" + LockMode.WRITE + "] lock in scope [" + scope
+                  + "] while holding a [" + LockMode.READ + "] lock in the same scope.");
+
+      return readWriteLock.writeLock();
+   }
+
+   /**
+    * The ordered lock domains, in the order in which their locks must be acquired.
+    */
+   enum Domain
+   {
+      GRAPH, ADDON_STATE, REPOSITORY;
+
+      /**
+       * Get the {@link Domain} of the given scope, or <code>null</code> if it is not in an ordered {@link Domain}.
+       */
+      static Domain of(Object scope)
+      {
+         if (scope instanceof AddonLifecycleManager)
+            return GRAPH;
+         else if (scope instanceof AddonStateManager)
+            return ADDON_STATE;
+         else if (scope instanceof AddonRepository)
+            return REPOSITORY;
+         return null;
+      }
+   }
+
+   private <T> T call(LockMode mode, Callable<T> task)
+   {
+      try
+      {
+         return task.call();
+      }
+      catch (RuntimeException e)
+      {
+         throw e;
+      }
+      catch (Exception e)
+      {
+         throw new ContainerException("Failed to execute task in LockMode [" + mode + "]", e);
+      }
+   }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+import org.jboss.forge.furnace.util.Assert;
+
+/**
+ * Decides whether each {@link Addon} is activated eagerly (loaded and started as soon as it is enabled) or lazily.
+ * <p>
+ * A lazy {@link Addon} is only resolved in the addon graph. It is loaded and started the first time services of a type
+ * it defines, or of a type defined by one of its dependencies, are requested from an
+ * {@link org.jboss.forge.furnace.addons.AddonRegistry}, or when an {@link Addon} that depends on it is started.
+ * <p>
+ * Lazy activation may be configured for all addons, per {@link AddonRepository}, or per {@link Addon} name. A setting
+ * for an {@link Addon} name takes precedence over a setting for its {@link AddonRepository}, which takes precedence
+ * over the default.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class AddonActivationPolicy
+{
+   /**
+    * System property which, when set to <code>true</code>, activates all addons lazily by default.
+    */
+   public static final String LAZY_PROPERTY = "furnace.activation.lazy";
+
+   /**
+    * System property listing the root directories of {@link AddonRepository} instances whose addons are activated
+    * lazily, separated by {@link File#pathSeparator}.
+    */
+   public static final String LAZY_REPOSITORIES_PROPERTY = "furnace.activation.lazyRepositories";
+
+   /**
+    * System property listing the comma-separated names of addons that are activated lazily.
+    */
+   public static final String LAZY_ADDONS_PROPERTY = "furnace.activation.lazyAddons";
+
+   /**
+    * System property listing the comma-separated names of addons that are activated eagerly.
+    */
+   public static final String EAGER_ADDONS_PROPERTY = "furnace.activation.eagerAddons";
+
+   private volatile boolean lazy = Boolean.getBoolean(LAZY_PROPERTY);
+   private final Map<File, Boolean> repositories = new ConcurrentHashMap<File, Boolean>();
+   private final Map<String, Boolean> addons = new ConcurrentHashMap<String, Boolean>();
+
+   public AddonActivationPolicy()
+   {
+      for (String path : split(System.getProperty(LAZY_REPOSITORIES_PROPERTY), File.pathSeparator))
+      {
+         repositories.put(new File(path).getAbsoluteFile(), true);
+      }
+      for (String name : split(System.getProperty(LAZY_ADDONS_PROPERTY), ","))
+      {
+         addons.put(name, true);
+      }
+      for (String name : split(System.getProperty(EAGER_ADDONS_PROPERTY), ","))
+      {
+         addons.put(name, false);
+      }
+   }
+
+   /**
+    * Returns <code>true</code> if the {@link Addon} with the given {@link AddonId}, deployed in the given
+    * {@link AddonRepository} (which may be <code>null</code> if unknown), should be activated lazily.
+    */
+   public boolean isLazy(AddonRepository repository, AddonId id)
+   {
+      Assert.notNull(id, "AddonId must not be null.");
+
+      Boolean result = addons.get(id.getName());
+      if (result == null && repository != null)
+         result = repositories.get(repository.getRootDirectory().getAbsoluteFile());
+      if (result == null)
+         result = lazy;
+      return result;
+   }
+
+   /**
+    * Returns <code>true</code> if any {@link Addon} may be activated lazily.
+    */
+   public boolean isLazyEnabled()
+   {
+      return lazy || addons.containsValue(true) || repositories.containsValue(true);
+   }
+
+   /**
+    * Set whether addons are activated lazily unless otherwise configured.
+    */
+   public void setLazy(boolean lazy)
+   {
+      this.lazy = lazy;
+   }
+
+   /**
+    * Set whether addons deployed in the given {@link AddonRepository} are activated lazily.
+    */
+   public void setLazy(AddonRepository repository, boolean lazy)
+   {
+      Assert.notNull(repository, "AddonRepository must not be null.");
+      repositories.put(repository.getRootDirectory().getAbsoluteFile(), lazy);
+   }
+
+   /**
+    * Set whether addons with the given name are activated lazily.
+    */
+   public void setLazy(String addonName, boolean lazy)
+   {
+      Assert.notNull(addonName, "Addon name must not be null.");
+      addons.put(addonName, lazy);
+   }
+
+   private static List<String> split(String value, String separator)
+   {
+      List<String> result = new ArrayList<String>();
+      if (value != null)
+      {
+         for (String element : value.split(Pattern.quote(separator)))
+         {
+            if (!element.trim().isEmpty())
+               result.add(element.trim());
+         }
+      }
+      return result;
+   }
+}
@@ -8,21 +8,22 @@ package org.jboss.forge.furnace.impl.addons;
 
 import java.util.Set;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.jboss.forge.furnace.addons.Addon;
 import org.jboss.forge.furnace.addons.AddonDependency;
 import org.jboss.forge.furnace.addons.AddonId;
 import org.jboss.forge.furnace.addons.AddonStatus;
 import org.jboss.forge.furnace.event.EventManager;
-import org.jboss.forge.furnace.impl.util.NullFuture;
 import org.jboss.forge.furnace.repositories.AddonRepository;
 import org.jboss.forge.furnace.spi.ServiceRegistry;
 import org.jboss.forge.furnace.util.Assert;
+import org.jboss.forge.furnace.util.AwaitableAddon;
 
 /**
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public class AddonImpl implements Addon
+public class AddonImpl implements Addon, AwaitableAddon
 {
    private final AddonId id;
    private AddonStateManager manager;
@@ -81,24 +82,19 @@ public class AddonImpl implements Addon
    @Override
    public AddonStatus getStatus()
    {
-      AddonStatus result = AddonStatus.MISSING;
-
-      if (getClassLoader() != null)
-         result = AddonStatus.LOADED;
-
-      if (getFuture() != null)
-      {
-         if (!(getFuture() instanceof NullFuture))
-         {
-            if (getFuture().isDone())
-               result = AddonStatus.STARTED;
+      return manager.getStatusOf(this);
+   }
 
-            if (getFuture().isCancelled())
-               result = AddonStatus.FAILED;
-         }
-      }
+   @Override
+   public boolean awaitStarted(long timeout, TimeUnit unit) throws InterruptedException
+   {
+      return manager.awaitStatus(this, true, timeout, unit);
+   }
 
-      return result;
+   @Override
+   public boolean awaitStopped(long timeout, TimeUnit unit) throws InterruptedException
+   {
+      return manager.awaitStatus(this, false, timeout, unit);
    }
 
    @Override
@@ -6,14 +6,21 @@
  */
 package org.jboss.forge.furnace.impl.addons;
 
+import java.io.File;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -24,18 +31,20 @@ import org.jboss.forge.furnace.addons.AddonId;
 import org.jboss.forge.furnace.addons.AddonRegistry;
 import org.jboss.forge.furnace.addons.AddonView;
 import org.jboss.forge.furnace.impl.FurnaceImpl;
-import org.jboss.forge.furnace.impl.graph.CompleteAddonGraph;
+import org.jboss.forge.furnace.impl.ScopedLockManager;
+import org.jboss.forge.furnace.impl.graph.AddonDependencyEdge;
+import org.jboss.forge.furnace.impl.graph.AddonVertex;
 import org.jboss.forge.furnace.impl.graph.MasterGraph;
 import org.jboss.forge.furnace.impl.graph.MasterGraphChangeHandler;
-import org.jboss.forge.furnace.impl.graph.OptimizedAddonGraph;
 import org.jboss.forge.furnace.impl.modules.AddonModuleLoader;
-import org.jboss.forge.furnace.lock.LockManager;
+import org.jboss.forge.furnace.impl.util.Locks;
 import org.jboss.forge.furnace.lock.LockMode;
 import org.jboss.forge.furnace.repositories.AddonRepository;
 import org.jboss.forge.furnace.util.AddonFilters;
 import org.jboss.forge.furnace.util.Assert;
 import org.jboss.forge.furnace.util.Callables;
 import org.jboss.forge.furnace.util.Sets;
+import org.jgrapht.DirectedGraph;
 
 /**
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
@@ -44,15 +53,62 @@ public class AddonLifecycleManager
 {
    private static final Logger logger = Logger.getLogger(AddonLifecycleManager.class.getName());
 
-   private final LockManager lock;
+   /**
+    * System property specifying the number of threads used to start addons. Defaults to the number of available
+    * processors.
+    */
+   public static final String STARTUP_THREADS_PROPERTY = "furnace.startup.threads";
+
+   /**
+    * System property specifying the maximum number of addons stopped concurrently during shutdown, not counting those
+    * that were abandoned after timing out. Defaults to the number of available processors.
+    */
+   public static final String SHUTDOWN_THREADS_PROPERTY = "furnace.shutdown.threads";
+
+   /**
+    * System property specifying the time in milliseconds an addon may take to run its pre-shutdown and stop tasks
+    * during shutdown before it is interrupted, and its dependencies are stopped regardless. Defaults to 10000.
+    */
+   public static final String SHUTDOWN_TIMEOUT_PROPERTY = "furnace.shutdown.timeout";
+
+   /**
+    * System property specifying the time in milliseconds after which an addon stopping during shutdown is
+    * reported as slow. Defaults to 1000.
+    */
+   public static final String SHUTDOWN_SLOW_PROPERTY = "furnace.shutdown.slowThreshold";
+
+   /**
+    * System property specifying whether the master graph is printed at INFO level each time it is rebuilt. Defaults to
+    * false.
+    */
+   public static final String PRINT_GRAPH_PROPERTY = "furnace.debug.printGraph";
+
+   /**
+    * System property specifying a directory in which the addon graph of each view is stored and, on startup, loaded
+    * from when no descriptor of its repositories has changed. The graph cache is disabled if not set.
+    */
+   public static final String GRAPH_CACHE_DIR_PROPERTY = "furnace.graph.cache.dir";
+
+   private final ScopedLockManager lock;
    private FurnaceImpl furnace;
    private AddonLoader loader;
    private AddonStateManager stateManager;
+   private final LazyAddonActivator activator;
 
    private Set<Addon> addons = Sets.getConcurrentSet();
    private final Set<AddonView> views = Sets.getConcurrentSet();
    private final AtomicInteger starting = new AtomicInteger(-1);
-   private final ExecutorService executor = Executors.newCachedThreadPool();
+   private final Object startingMonitor = new Object();
+   private final AddonStartupExecutor executor = newStartupExecutor();
+   private final AddonStartupScheduler scheduler = new AddonStartupScheduler(executor);
+
+   private final ThreadPoolExecutor graphExecutor = newGraphExecutor();
+
+   /*
+    * The update from which the master graph was last built, and the number of updates applied. Guarded by the lock.
+    */
+   private MasterGraphUpdate lastUpdate;
+   private int generation;
 
    private AddonModuleLoader moduleLoader;
 
@@ -61,11 +117,12 @@ public class AddonLifecycleManager
       Assert.notNull(furnace, "Furnace instance must not be null.");
 
       this.furnace = furnace;
-      this.lock = furnace.getLockManager();
+      this.lock = Locks.scoped(furnace.getLockManager());
       this.stateManager = new AddonStateManager(lock);
       this.moduleLoader = new AddonModuleLoader(furnace, this, stateManager);
       this.stateManager.setModuleLoader(moduleLoader);
       this.loader = new AddonLoader(furnace, this, stateManager, moduleLoader);
+      this.activator = new LazyAddonActivator(furnace.getActivationPolicy());
 
       logger.log(Level.FINE, "Instantiated AddonRTegistryImpl: " + this);
    }
@@ -81,7 +138,7 @@ public class AddonLifecycleManager
 
    public Set<Addon> getOrphanAddons(final AddonId id)
    {
-      return lock.performLocked(LockMode.READ, new Callable<Set<Addon>>()
+      return lock.performLocked(this, LockMode.READ, new Callable<Set<Addon>>()
       {
          @Override
          public Set<Addon> call() throws Exception
@@ -102,7 +159,7 @@ public class AddonLifecycleManager
    public Addon getAddon(final AddonView view, final AddonId id)
    {
       Assert.notNull(id, "AddonId must not be null.");
-      return lock.performLocked(LockMode.READ, new Callable<Addon>()
+      return lock.performLocked(this, LockMode.READ, new Callable<Addon>()
       {
          private Addon result;
 
@@ -136,7 +193,7 @@ public class AddonLifecycleManager
 
    public Set<Addon> getAddons(final AddonView view, final AddonFilter filter)
    {
-      return lock.performLocked(LockMode.READ, new Callable<Set<Addon>>()
+      return lock.performLocked(this, LockMode.READ, new Callable<Set<Addon>>()
       {
          @Override
          public Set<Addon> call() throws Exception
@@ -155,41 +212,142 @@ public class AddonLifecycleManager
       });
    }
 
+   /**
+    * Rebuild the {@link MasterGraph} from the current state of all {@link AddonView} instances, and hot-swap the
+    * {@link Addon} instances that changed. The graphs of changed {@link AddonView} instances are built concurrently
+    * without holding the lock, which is only held to swap in the new {@link MasterGraph}.
+    */
    public void forceUpdate()
    {
-      lock.performLocked(LockMode.WRITE, new Callable<Void>()
+      boolean print = Boolean.getBoolean(PRINT_GRAPH_PROPERTY);
+      String cacheDir = System.getProperty(GRAPH_CACHE_DIR_PROPERTY);
+      File cache = cacheDir == null || cacheDir.trim().isEmpty() ? null : new File(cacheDir);
+      boolean applied = false;
+      while (!applied)
       {
+         MasterGraphUpdate update = newUpdate();
+         update.prepare(graphExecutor, print, cache);
+         applied = apply(update);
+      }
+   }
 
+   /**
+    * Create an update of the current {@link AddonView} instances, following the last applied update.
+    */
+   MasterGraphUpdate newUpdate()
+   {
+      return lock.performLocked(this, LockMode.READ, new Callable<MasterGraphUpdate>()
+      {
          @Override
-         public Void call() throws Exception
+         public MasterGraphUpdate call() throws Exception
          {
-            MasterGraph master = new MasterGraph();
-
-            int i = 0;
-            for (AddonView view : views)
-            {
-               if (starting.get() == -1)
-                  starting.set(0);
-
-               OptimizedAddonGraph graph = new OptimizedAddonGraph(view,
-                        new CompleteAddonGraph(view.getRepositories()).getGraph());
+            return new MasterGraphUpdate(generation, views, lastUpdate);
+         }
+      });
+   }
 
-               master.merge(graph);
+   /**
+    * Install the {@link MasterGraph} of the given prepared update, and hot-swap the {@link Addon} instances that
+    * changed, unless another update was applied since it was created.
+    *
+    * @return <code>true</code> if the update was applied, <code>false</code> if it must be created and prepared again.
+    */
+   boolean apply(final MasterGraphUpdate update)
+   {
+      return lock.performLocked(this, LockMode.WRITE, new Callable<Boolean>()
+      {
+         @Override
+         public Boolean call() throws Exception
+         {
+            /*
+             * Another update was applied while this one was prepared, and may reflect newer repository state.
+             */
+            if (update.getGeneration() != generation)
+               return false;
 
-               logger.log(Level.INFO, " ------------ MASTER GRAPH v" + i++ + "------------ ");
-               logger.log(Level.INFO, master.toString());
-            }
+            if (!update.getViews().isEmpty() && starting.get() == -1)
+               starting.set(0);
 
             MasterGraph last = stateManager.getCurrentGraph();
+            MasterGraph master = update.getMaster();
+            boolean incremental = last != null && update.isIncremental(lastUpdate);
+
+            generation++;
+            lastUpdate = update;
             stateManager.setCurrentGraph(master);
 
-            new MasterGraphChangeHandler(AddonLifecycleManager.this, last, master).hotSwapChanges();
+            if (incremental)
+               new MasterGraphChangeHandler(AddonLifecycleManager.this, last, master, update.getChanged())
+                        .hotSwapChanges();
+            else
+               new MasterGraphChangeHandler(AddonLifecycleManager.this, last, master).hotSwapChanges();
+            activator.graphChanged(master);
 
-            return null;
+            return true;
          }
       });
    }
 
+   /**
+    * Notify this manager that the given {@link AddonVertex} of the current {@link MasterGraph} has been assigned its
+    * {@link Addon}.
+    */
+   public void addonAssigned(AddonVertex vertex)
+   {
+      stateManager.indexViews(vertex);
+   }
+
+   /**
+    * Returns <code>true</code> if the {@link Addon} of the given {@link AddonVertex} should be loaded and started when
+    * it is enabled. {@link Addon} instances that are activated lazily (see {@link AddonActivationPolicy}) are only
+    * active once they have been activated on demand, or when an active {@link Addon} depends on them.
+    */
+   public boolean isActive(AddonVertex vertex)
+   {
+      return activator.isActive(vertex);
+   }
+
+   /**
+    * Activate, start, and wait for any lazily activated {@link Addon} instances in the given {@link AddonView} that may
+    * provide services of the given type. The type may be <code>null</code> if only its name is known.
+    */
+   public void activateProviders(final AddonView view, final Class<?> type, final String typeName)
+   {
+      if (!activator.isActivationRequired(view, typeName))
+         return;
+
+      final Set<Addon> activated = lock.performLocked(this, LockMode.WRITE, new Callable<Set<Addon>>()
+      {
+         @Override
+         public Set<Addon> call() throws Exception
+         {
+            MasterGraph graph = stateManager.getCurrentGraph();
+            Set<Addon> result = activator.activateProviders(graph, view, type, typeName);
+            if (!result.isEmpty())
+            {
+               logger.log(Level.FINE, "Activating addons " + result + " on demand for type [" + typeName + "]");
+               new MasterGraphChangeHandler(AddonLifecycleManager.this, graph, graph).activateChanges();
+            }
+            return result;
+         }
+      });
+
+      if (!activated.isEmpty())
+      {
+         /*
+          * Services may be requested while an addon is starting, so wait without holding a startup thread.
+          */
+         executor.block(new Runnable()
+         {
+            @Override
+            public void run()
+            {
+               activator.awaitStarted(activated);
+            }
+         });
+      }
+   }
+
    public void loadAddon(Addon addon)
    {
       try
@@ -207,30 +365,107 @@ public class AddonLifecycleManager
       Callables.call(new StopAddonCallable(stateManager, addon));
    }
 
+   /**
+    * Stop all {@link Addon} instances, in reverse dependency order. {@link Addon} instances that do not depend on each
+    * other are stopped in parallel. See {@link #SHUTDOWN_TIMEOUT_PROPERTY} and {@link #SHUTDOWN_SLOW_PROPERTY}.
+    */
    public void stopAll()
    {
-      lock.performLocked(LockMode.WRITE, new Callable<Void>()
+      final Map<Addon, Set<Addon>> dependencies = lock.performLocked(this, LockMode.WRITE,
+               new Callable<Map<Addon, Set<Addon>>>()
+               {
+                  @Override
+                  public Map<Addon, Set<Addon>> call() throws Exception
+                  {
+                     graphExecutor.shutdownNow();
+                     List<Runnable> waiting = executor.shutdownNow();
+                     if (waiting != null && !waiting.isEmpty())
+                        logger.info("(" + waiting.size()
+                                 + ") addons were aborted while loading due to forced shutdown.");
+                     return getDependencies();
+                  }
+               });
+
+      /*
+       * Addons are stopped outside of the lock, since their pre-shutdown and stop tasks run on other threads and may
+       * themselves need to read the registry.
+       */
+      try
       {
-         @Override
-         public Void call() throws Exception
+         newShutdownScheduler().stop(dependencies, new AddonShutdownScheduler.StopTaskFactory()
          {
-            for (Addon addon : addons)
+            @Override
+            public Callable<Void> create(Addon addon)
             {
-               stopAddon(addon);
+               return new StopAddonCallable(stateManager, addon);
             }
+         });
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         logger.warning("Interrupted while stopping addons. Remaining addons were not stopped.");
+      }
+      finally
+      {
+         starting.set(-1);
+         startingChanged();
+      }
+   }
+
+   /**
+    * Returns each known {@link Addon}, mapped to the {@link Addon} instances it depends on in the current
+    * {@link MasterGraph}.
+    */
+   private Map<Addon, Set<Addon>> getDependencies()
+   {
+      Map<Addon, Set<Addon>> result = new LinkedHashMap<Addon, Set<Addon>>();
+      for (Addon addon : addons)
+      {
+         result.put(addon, new HashSet<Addon>());
+      }
 
-            List<Runnable> waiting = executor.shutdownNow();
-            if (waiting != null && !waiting.isEmpty())
-               logger.info("(" + waiting.size() + ") addons were aborted while loading due to forced shutdown.");
-            starting.set(-1);
-            return null;
+      MasterGraph graph = stateManager.getCurrentGraph();
+      if (graph != null)
+      {
+         DirectedGraph<AddonVertex, AddonDependencyEdge> directedGraph = graph.getGraph();
+         for (AddonVertex vertex : directedGraph.vertexSet())
+         {
+            Set<Addon> dependencies = result.get(vertex.getAddon());
+            if (dependencies != null)
+            {
+               for (AddonDependencyEdge edge : directedGraph.outgoingEdgesOf(vertex))
+               {
+                  Addon dependency = directedGraph.getEdgeTarget(edge).getAddon();
+                  if (dependency != null)
+                     dependencies.add(dependency);
+               }
+            }
          }
-      });
+      }
+      return result;
+   }
+
+   private static AddonShutdownScheduler newShutdownScheduler()
+   {
+      int threads = Integer.getInteger(SHUTDOWN_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+      long timeout = Long.getLong(SHUTDOWN_TIMEOUT_PROPERTY, 10000);
+      long slow = Long.getLong(SHUTDOWN_SLOW_PROPERTY, 1000);
+      return new AddonShutdownScheduler(Math.max(threads, 1), timeout, slow);
    }
 
    public void finishedStarting(Addon addon)
    {
-      starting.decrementAndGet();
+      if (starting.decrementAndGet() <= 0)
+         startingChanged();
+   }
+
+   private void startingChanged()
+   {
+      synchronized (startingMonitor)
+      {
+         startingMonitor.notifyAll();
+      }
    }
 
    /**
@@ -244,6 +479,29 @@ public class AddonLifecycleManager
       return starting.get() > 0;
    }
 
+   /**
+    * Block until no {@link Addon} instances are being started, or until the given timeout elapses.
+    *
+    * @return <code>true</code> if no {@link Addon} instances are being started, <code>false</code> if the timeout
+    *         elapsed first.
+    */
+   public boolean awaitStartingAddons(long timeout, TimeUnit unit) throws InterruptedException
+   {
+      long remaining = unit.toNanos(timeout);
+      long deadline = System.nanoTime() + remaining;
+      synchronized (startingMonitor)
+      {
+         while (isStartingAddons())
+         {
+            if (remaining <= 0)
+               return false;
+            TimeUnit.NANOSECONDS.timedWait(startingMonitor, remaining);
+            remaining = deadline - System.nanoTime();
+         }
+      }
+      return true;
+   }
+
    public void dispose(AddonView view)
    {
       furnace.disposeAddonView(view);
@@ -252,7 +510,47 @@ public class AddonLifecycleManager
    public void startAddon(Addon addon)
    {
       Assert.notNull(addon, "Addon to start must not be null.");
-      Callables.call(new StartEnabledAddonCallable(furnace, this, stateManager, executor, starting, addon));
+      startAddons(Collections.singletonMap(addon, Collections.<Addon> emptySet()));
+   }
+
+   /**
+    * Start the given {@link Addon} instances. Each {@link Addon} is started only once the given dependencies, if they
+    * are being started, have finished starting. Entries must be ordered such that dependencies precede their
+    * dependents.
+    */
+   public void startAddons(Map<Addon, Set<Addon>> dependencies)
+   {
+      Assert.notNull(dependencies, "Addons to start must not be null.");
+      AddonStartupScheduler.Batch batch = scheduler.newBatch();
+      for (Entry<Addon, Set<Addon>> entry : dependencies.entrySet())
+      {
+         Callables.call(new StartEnabledAddonCallable(furnace, this, stateManager, scheduler, batch, starting,
+                  entry.getKey(), entry.getValue()));
+      }
+      batch.submit();
+   }
+
+   /**
+    * Returns <code>true</code> if no further {@link Addon} instances may be started.
+    */
+   public boolean isShutdown()
+   {
+      return executor.isShutdown();
+   }
+
+   private static AddonStartupExecutor newStartupExecutor()
+   {
+      int threads = Integer.getInteger(STARTUP_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+      return new AddonStartupExecutor(Math.max(threads, 2));
+   }
+
+   private static ThreadPoolExecutor newGraphExecutor()
+   {
+      int threads = Runtime.getRuntime().availableProcessors();
+      ThreadPoolExecutor result = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+               new LinkedBlockingQueue<Runnable>(), new GraphThreadFactory());
+      result.allowCoreThreadTimeOut(true);
+      return result;
    }
 
    public AddonView getRootView()
@@ -314,4 +612,16 @@ public class AddonLifecycleManager
       return builder.toString();
    }
 
+   private static class GraphThreadFactory implements ThreadFactory
+   {
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable)
+      {
+         Thread result = new Thread(runnable, "furnace-graph-" + count.incrementAndGet());
+         result.setDaemon(true);
+         return result;
+      }
+   }
 }
@@ -21,6 +21,8 @@ import org.jboss.forge.furnace.addons.AddonFilter;
 import org.jboss.forge.furnace.addons.AddonId;
 import org.jboss.forge.furnace.addons.AddonRegistry;
 import org.jboss.forge.furnace.addons.AddonStatus;
+import org.jboss.forge.furnace.impl.ScopedLockManager;
+import org.jboss.forge.furnace.impl.util.Locks;
 import org.jboss.forge.furnace.lock.LockManager;
 import org.jboss.forge.furnace.lock.LockMode;
 import org.jboss.forge.furnace.repositories.AddonRepository;
@@ -36,7 +38,7 @@ public class AddonRegistryImpl implements AddonRegistry
 {
    private static final Logger logger = Logger.getLogger(AddonRegistryImpl.class.getName());
 
-   private final LockManager lock;
+   private final ScopedLockManager lock;
    private List<AddonRepository> repositories;
 
    private AddonLifecycleManager manager;
@@ -51,7 +53,7 @@ public class AddonRegistryImpl implements AddonRegistry
       Assert.notNull(repositories, "AddonRepository list must not be null.");
       Assert.isTrue(repositories.size() > 0, "AddonRepository list must not be empty.");
 
-      this.lock = lock;
+      this.lock = Locks.scoped(lock);
       this.manager = manager;
       this.repositories = repositories;
       this.name = name;
@@ -69,7 +71,7 @@ public class AddonRegistryImpl implements AddonRegistry
    public Addon getAddon(final AddonId id)
    {
       Assert.notNull(id, "AddonId must not be null.");
-      return lock.performLocked(LockMode.READ, new Callable<Addon>()
+      return lock.performLocked(manager, LockMode.READ, new Callable<Addon>()
       {
          @Override
          public Addon call() throws Exception
@@ -88,7 +90,7 @@ public class AddonRegistryImpl implements AddonRegistry
    @Override
    public Set<Addon> getAddons(final AddonFilter filter)
    {
-      return lock.performLocked(LockMode.READ, new Callable<Set<Addon>>()
+      return lock.performLocked(manager, LockMode.READ, new Callable<Set<Addon>>()
       {
          @Override
          public Set<Addon> call() throws Exception
@@ -115,19 +117,28 @@ public class AddonRegistryImpl implements AddonRegistry
    @Override
    public <T> Imported<T> getServices(final Class<T> type)
    {
-      return new ImportedImpl<T>(this, lock, type);
+      return new ImportedImpl<T>(this, manager, lock, type);
    }
 
    @Override
    public <T> Imported<T> getServices(final String typeName)
    {
-      return new ImportedImpl<T>(this, lock, typeName);
+      return new ImportedImpl<T>(this, manager, lock, typeName);
+   }
+
+   /**
+    * Activate any lazily activated {@link Addon} instances in this view that may provide services of the given type.
+    * The type may be <code>null</code> if only its name is known.
+    */
+   void activateProviders(Class<?> type, String typeName)
+   {
+      manager.activateProviders(this, type, typeName);
    }
 
    @Override
    public Set<Class<?>> getExportedTypes()
    {
-      return lock.performLocked(LockMode.READ, new Callable<Set<Class<?>>>()
+      return lock.performLocked(manager, LockMode.READ, new Callable<Set<Class<?>>>()
       {
          @Override
          public Set<Class<?>> call() throws Exception
@@ -149,7 +160,7 @@ public class AddonRegistryImpl implements AddonRegistry
    @Override
    public <T> Set<Class<T>> getExportedTypes(final Class<T> type)
    {
-      return lock.performLocked(LockMode.READ, new Callable<Set<Class<T>>>()
+      return lock.performLocked(manager, LockMode.READ, new Callable<Set<Class<T>>>()
       {
          @Override
          public Set<Class<T>> call() throws Exception
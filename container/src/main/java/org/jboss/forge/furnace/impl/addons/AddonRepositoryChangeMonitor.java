@@ -0,0 +1,138 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import org.jboss.forge.furnace.repositories.AddonRepository;
+
+/**
+ * Wakes the container when an {@link AddonRepository} changes, coalescing bursts of changes into a single wake-up.
+ * <p>
+ * Changes made in this process are signalled directly via {@link #repositoryChanged(AddonRepository)}. Changes made by
+ * other processes cannot be signalled, so {@link #awaitChange(long)} also returns once the given timeout has elapsed,
+ * allowing the caller to check repositories for external changes at that interval.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class AddonRepositoryChangeMonitor
+{
+   /**
+    * System property specifying, in milliseconds, how long to wait for further changes after a change is signalled.
+    */
+   public static final String DEBOUNCE_PROPERTY = "furnace.repository.debounce";
+
+   /**
+    * System property specifying, in milliseconds, how often to check repositories for changes made by other
+    * processes.
+    */
+   public static final String POLL_INTERVAL_PROPERTY = "furnace.repository.pollInterval";
+
+   private static final long DEFAULT_DEBOUNCE = 20;
+   private static final long DEFAULT_POLL_INTERVAL = 1000;
+
+   /**
+    * Bursts of changes are never coalesced for longer than this many debounce windows.
+    */
+   private static final int MAX_DEBOUNCE_WINDOWS = 10;
+
+   private final Object mutex = new Object();
+   private long signalled = 0;
+   private long seen = 0;
+
+   private volatile long debounce = Long.getLong(DEBOUNCE_PROPERTY, DEFAULT_DEBOUNCE);
+   private volatile long pollInterval = Long.getLong(POLL_INTERVAL_PROPERTY, DEFAULT_POLL_INTERVAL);
+
+   /**
+    * Signal that the given {@link AddonRepository} has changed.
+    */
+   public void repositoryChanged(AddonRepository repository)
+   {
+      wake();
+   }
+
+   /**
+    * Wake any thread waiting in {@link #awaitChange(long)}.
+    */
+   public void wake()
+   {
+      synchronized (mutex)
+      {
+         signalled++;
+         mutex.notifyAll();
+      }
+   }
+
+   /**
+    * Wait until a change is signalled, or the given timeout elapses. Once a change is signalled, keep waiting until no
+    * further change has been signalled for the duration of the debounce window.
+    *
+    * @return <code>true</code> if one or more changes were signalled, <code>false</code> if the timeout elapsed.
+    */
+   public boolean awaitChange(long timeout) throws InterruptedException
+   {
+      synchronized (mutex)
+      {
+         long deadline = System.currentTimeMillis() + timeout;
+         long remaining = timeout;
+         while (signalled == seen && remaining > 0)
+         {
+            mutex.wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+         }
+
+         if (signalled == seen)
+            return false;
+
+         long window = debounce;
+         if (window > 0)
+         {
+            long latest = System.currentTimeMillis() + window * MAX_DEBOUNCE_WINDOWS;
+            long last;
+            do
+            {
+               last = signalled;
+               mutex.wait(window);
+            }
+            while (signalled != last && System.currentTimeMillis() < latest);
+         }
+
+         seen = signalled;
+         return true;
+      }
+   }
+
+   /**
+    * Get the debounce window, in milliseconds.
+    */
+   public long getDebounce()
+   {
+      return debounce;
+   }
+
+   /**
+    * Set the debounce window, in milliseconds. A value of <code>0</code> disables coalescing.
+    */
+   public void setDebounce(long debounce)
+   {
+      this.debounce = debounce;
+   }
+
+   /**
+    * Get the interval, in milliseconds, at which repositories should be checked for changes made by other processes.
+    */
+   public long getPollInterval()
+   {
+      return pollInterval;
+   }
+
+   /**
+    * Set the interval, in milliseconds, at which repositories should be checked for changes made by other processes.
+    */
+   public void setPollInterval(long pollInterval)
+   {
+      this.pollInterval = pollInterval;
+   }
+}
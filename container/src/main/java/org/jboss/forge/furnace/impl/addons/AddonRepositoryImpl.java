@@ -19,13 +19,16 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jboss.forge.furnace.Furnace;
 import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.impl.ScopedLockManager;
 import org.jboss.forge.furnace.impl.util.Files;
-import org.jboss.forge.furnace.lock.LockManager;
+import org.jboss.forge.furnace.impl.util.Locks;
 import org.jboss.forge.furnace.lock.LockMode;
 import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
 import org.jboss.forge.furnace.repositories.AddonRepository;
@@ -63,20 +66,47 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
    private static final String REGISTRY_DESCRIPTOR_NAME = "installed.xml";
    private static final String ADDON_DESCRIPTOR_FILENAME = "addon.xml";
 
+   /**
+    * The name of the directory, within each addon directory, holding proxy types generated when the addon is deployed.
+    */
+   public static final String PROXY_CLASSES_DIR_NAME = ".proxies";
+
    private static final String DEPENDENCY_TAG_NAME = "dependency";
    private static final String DEPENDENCIES_TAG_NAME = "dependencies";
 
-   private LockManager lock;
+   /**
+    * The system property that, when <code>true</code>, creates a {@link RepositoryIndex} for every repository.
+    * Repositories that already have an index keep it up to date regardless.
+    */
+   public static final String INDEX_PROPERTY = "furnace.repository.index";
+
+   /*
+    * A descriptor may fail to parse while another process is writing it, so retry a few times before giving up.
+    */
+   private static final int MAX_PARSE_ATTEMPTS = 10;
+   private static final long PARSE_RETRY_DELAY = 50;
+
+   private final ScopedLockManager lock;
+   private final AddonRepositoryChangeMonitor changeMonitor;
 
    public static MutableAddonRepository forDirectory(Furnace forge, File dir)
    {
-      return new AddonRepositoryImpl(forge.getLockManager(), dir);
+      return new AddonRepositoryImpl(forge, dir, null);
+   }
+
+   /**
+    * Get a repository for the given directory, which signals the given {@link AddonRepositoryChangeMonitor} each time
+    * its enabled addons change.
+    */
+   public static MutableAddonRepository forDirectory(Furnace forge, File dir,
+            AddonRepositoryChangeMonitor changeMonitor)
+   {
+      return new AddonRepositoryImpl(forge, dir, changeMonitor);
    }
 
    public static MutableAddonRepository forDefaultDirectory(Furnace forge)
    {
-      return new AddonRepositoryImpl(forge.getLockManager(), new File(OperatingSystemUtils.getUserHomePath(),
-               DEFAULT_ADDON_DIR));
+      return new AddonRepositoryImpl(forge, new File(OperatingSystemUtils.getUserHomePath(), DEFAULT_ADDON_DIR), null);
    }
 
    public static Version getRuntimeAPIVersion()
@@ -106,19 +136,28 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
 
    private int version = 1;
 
-   private AddonRepositoryImpl(LockManager lock, File dir)
+   /*
+    * The parsed registry and addon descriptors, and the listed addon resources, each valid while the file or directory
+    * it was read from is unchanged.
+    */
+   private volatile Registry registry;
+   private final ConcurrentMap<AddonId, Descriptor> descriptors = new ConcurrentHashMap<AddonId, Descriptor>();
+   private final ConcurrentMap<AddonId, Resources> resources = new ConcurrentHashMap<AddonId, Resources>();
+
+   private AddonRepositoryImpl(Furnace furnace, File dir, AddonRepositoryChangeMonitor changeMonitor)
    {
       // TODO Assert.notNull(lock, "LockManager must not be null.");
       Assert.notNull(dir, "Addon directory must not be null.");
       this.addonDir = dir;
-      this.lock = lock;
+      this.lock = Locks.scoped(furnace.getLockManager());
+      this.changeMonitor = changeMonitor;
    }
 
    @Override
    public boolean deploy(final AddonId addon, final Iterable<AddonDependencyEntry> dependencies,
             final Iterable<File> resources)
    {
-      return lock.performLocked(LockMode.WRITE, new Callable<Boolean>()
+      return lock.performLocked(this, LockMode.WRITE, new Callable<Boolean>()
       {
          @Override
          public Boolean call() throws Exception
@@ -143,6 +182,8 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
                         Files.copyFileToDirectory(resource, addonSlotDir);
                      }
                   }
+                  ExportedProxyGenerator.generate(listAddonResources(addonSlotDir), new File(addonSlotDir,
+                           PROXY_CLASSES_DIR_NAME));
                }
                /*
                 * Write out the addon module dependency configuration
@@ -184,7 +225,10 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
                finally
                {
                   Streams.closeQuietly(fos);
+                  descriptors.remove(addon);
+                  AddonRepositoryImpl.this.resources.remove(addon);
                }
+               updateIndex();
                return true;
             }
             catch (IOException io)
@@ -199,7 +243,7 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
    @Override
    public boolean disable(final AddonId addon)
    {
-      return lock.performLocked(LockMode.WRITE, new Callable<Boolean>()
+      return lock.performLocked(this, LockMode.WRITE, new Callable<Boolean>()
       {
          @Override
          public Boolean call() throws Exception
@@ -235,7 +279,7 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
    @Override
    public boolean enable(final AddonId addon)
    {
-      return lock.performLocked(LockMode.WRITE, new Callable<Boolean>()
+      return lock.performLocked(this, LockMode.WRITE, new Callable<Boolean>()
       {
          @Override
          public Boolean call() throws Exception
@@ -272,7 +316,7 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
       Assert.notNull(found.getVersion(), "Addon version must be specified.");
       Assert.notNull(found.getName(), "Addon name must be specified.");
 
-      return lock.performLocked(LockMode.READ, new Callable<File>()
+      return lock.performLocked(this, LockMode.READ, new Callable<File>()
       {
          @Override
          public File call() throws Exception
@@ -286,16 +330,22 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
    @Override
    public Set<AddonDependencyEntry> getAddonDependencies(final AddonId addon)
    {
-      return lock.performLocked(LockMode.READ, new Callable<Set<AddonDependencyEntry>>()
+      return lock.performLocked(this, LockMode.READ, new Callable<Set<AddonDependencyEntry>>()
       {
          @Override
          public Set<AddonDependencyEntry> call() throws Exception
          {
-            Set<AddonDependencyEntry> result = new HashSet<AddonDependencyEntry>();
             File descriptor = getAddonDescriptor(addon);
 
+            Descriptor cached = descriptors.get(addon);
+            if (cached != null && cached.isCurrent(descriptor))
+               return cached.dependencies;
+
+            Set<AddonDependencyEntry> result = new HashSet<AddonDependencyEntry>();
             try
             {
+               long lastModified = descriptor.lastModified();
+               long length = descriptor.length();
                Node installed = getXmlRoot(descriptor);
 
                List<Node> children = installed.get("dependencies/dependency");
@@ -311,13 +361,17 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
                               );
                   }
                }
+
+               cached = new Descriptor(lastModified, length, result);
+               descriptors.put(addon, cached);
+               return cached.dependencies;
             }
             catch (FileNotFoundException e)
             {
                // already removed
             }
 
-            return result;
+            return Collections.unmodifiableSet(result);
          }
       });
    }
@@ -325,7 +379,7 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
    @Override
    public File getAddonDescriptor(final AddonId addon)
    {
-      return lock.performLocked(LockMode.READ, new Callable<File>()
+      return lock.performLocked(this, LockMode.READ, new Callable<File>()
       {
          @Override
          public File call() throws Exception
@@ -362,7 +416,7 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
 
    private File getAddonDescriptorFile(final AddonId addon)
    {
-      return lock.performLocked(LockMode.READ, new Callable<File>()
+      return lock.performLocked(this, LockMode.READ, new Callable<File>()
       {
 
          @Override
@@ -376,35 +430,69 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
    @Override
    public List<File> getAddonResources(final AddonId found)
    {
-      return lock.performLocked(LockMode.READ, new Callable<List<File>>()
+      return lock.performLocked(this, LockMode.READ, new Callable<List<File>>()
       {
          @Override
          public List<File> call() throws Exception
          {
             File dir = getAddonBaseDir(found);
-            if (dir.exists())
+            List<File> result = new ArrayList<File>();
+            for (String name : getResources(found).names)
             {
-               File[] files = dir.listFiles(new FileFilter()
-               {
-                  @Override
-                  public boolean accept(File pathname)
-                  {
-                     return pathname.isDirectory() || pathname.getName().endsWith(".jar");
-                  }
-               });
-               return Arrays.asList(files);
+               result.add(new File(dir, name));
             }
-            return Collections.emptyList();
+            return result;
          }
       });
    }
 
+   /**
+    * Returns the listed resources of the given addon, listing its directory again if it has changed since it was last
+    * listed.
+    */
+   private Resources getResources(AddonId addon)
+   {
+      File dir = getAddonBaseDir(addon);
+
+      Resources cached = resources.get(addon);
+      if (cached != null && cached.isCurrent(dir))
+         return cached;
+
+      long lastModified = dir.lastModified();
+      List<String> names = new ArrayList<String>();
+      for (File resource : listAddonResources(dir))
+      {
+         names.add(resource.getName());
+      }
+      cached = new Resources(lastModified, names);
+      resources.put(addon, cached);
+      return cached;
+   }
+
+   private static List<File> listAddonResources(File dir)
+   {
+      if (dir.exists())
+      {
+         File[] files = dir.listFiles(new FileFilter()
+         {
+            @Override
+            public boolean accept(File pathname)
+            {
+               return (pathname.isDirectory() && !PROXY_CLASSES_DIR_NAME.equals(pathname.getName()))
+                        || pathname.getName().endsWith(".jar");
+            }
+         });
+         return Arrays.asList(files);
+      }
+      return Collections.emptyList();
+   }
+
    @Override
    public File getRootDirectory()
    {
       if (!addonDir.exists() || !addonDir.isDirectory())
       {
-         lock.performLocked(LockMode.READ, new Callable<File>()
+         lock.performLocked(this, LockMode.READ, new Callable<File>()
          {
             @Override
             public File call() throws Exception
@@ -422,9 +510,51 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
       return addonDir;
    }
 
+   /**
+    * Returns the registry file and the descriptor file of each deployed addon of this repository, whether enabled or
+    * not. Together, their modification times and sizes identify the state of this repository.
+    */
+   public List<File> getDescriptorFiles()
+   {
+      return lock.performLocked(this, LockMode.READ, new Callable<List<File>>()
+      {
+         @Override
+         public List<File> call() throws Exception
+         {
+            List<File> result = new ArrayList<File>();
+            result.add(new File(addonDir, REGISTRY_DESCRIPTOR_NAME));
+
+            File[] dirs = addonDir.listFiles(new FileFilter()
+            {
+               @Override
+               public boolean accept(File pathname)
+               {
+                  return pathname.isDirectory();
+               }
+            });
+            if (dirs != null)
+            {
+               Arrays.sort(dirs);
+               for (File dir : dirs)
+               {
+                  File descriptor = new File(dir, ADDON_DESCRIPTOR_FILENAME);
+                  if (descriptor.isFile())
+                     result.add(descriptor);
+               }
+            }
+            return result;
+         }
+      });
+   }
+
+   private File getIndexFile()
+   {
+      return new File(getRootDirectory(), RepositoryIndex.INDEX_FILENAME);
+   }
+
    private File getRepositoryRegistryFile()
    {
-      return lock.performLocked(LockMode.READ, new Callable<File>()
+      return lock.performLocked(this, LockMode.READ, new Callable<File>()
       {
          @Override
          public File call() throws Exception
@@ -460,7 +590,7 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
    @Override
    public boolean isDeployed(final AddonId addon)
    {
-      return lock.performLocked(LockMode.READ, new Callable<Boolean>()
+      return lock.performLocked(this, LockMode.READ, new Callable<Boolean>()
       {
          @Override
          public Boolean call() throws Exception
@@ -476,20 +606,12 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
    @Override
    public boolean isEnabled(final AddonId addon)
    {
-      return lock.performLocked(LockMode.READ, new Callable<Boolean>()
+      return lock.performLocked(this, LockMode.READ, new Callable<Boolean>()
       {
          @Override
          public Boolean call() throws Exception
          {
-            List<AddonId> enabled = listEnabledCompatibleWithVersion(getRuntimeAPIVersion());
-
-            for (AddonId id : enabled)
-            {
-               if (id.equals(addon))
-                  return true;
-            }
-
-            return false;
+            return getRegistry().compatible.contains(addon);
          }
       });
    }
@@ -497,56 +619,162 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
    @Override
    public List<AddonId> listEnabled()
    {
-      return lock.performLocked(LockMode.READ, new Callable<List<AddonId>>()
+      return lock.performLocked(this, LockMode.READ, new Callable<List<AddonId>>()
       {
          @Override
          public List<AddonId> call() throws Exception
          {
-            List<AddonId> result = new ArrayList<AddonId>();
-            File registryFile = getRepositoryRegistryFile();
-            try
-            {
-               Node installed = getXmlRoot(registryFile);
-               if (installed == null)
-               {
-                  return Collections.emptyList();
-               }
-               List<Node> list = installed.get("addon");
-               for (Node addon : list)
-               {
-                  AddonId entry = AddonId.from(addon.getAttribute(ATTR_NAME),
-                           addon.getAttribute(ATTR_VERSION),
-                           addon.getAttribute(ATTR_API_VERSION));
-                  result.add(entry);
-               }
-            }
-            catch (XMLParserException e)
-            {
-               throw new RuntimeException("Invalid syntax in [" + registryFile.getAbsolutePath()
-                        + "] - Please delete this file and restart Furnace", e);
-            }
-            catch (FileNotFoundException e)
-            {
-               // this is OK, no addons installed
-            }
-            return result;
+            return new ArrayList<AddonId>(getRegistry().enabled);
          }
       });
    }
 
+   /**
+    * Returns the parsed registry, reading it again if this repository or the registry file has changed since it was
+    * last read. The registry is read from the {@link RepositoryIndex} of this repository if it was written for the
+    * current registry file, and parsed from the registry file otherwise.
+    */
+   private Registry getRegistry() throws InterruptedException
+   {
+      int currentVersion = version;
+      File registryFile = getRepositoryRegistryFile();
+
+      Registry result = registry;
+      if (result == null || !result.isCurrent(currentVersion, registryFile))
+      {
+         RepositoryIndex index = RepositoryIndex.read(getIndexFile());
+         if (index != null && index.isCurrent(registryFile))
+            result = readRegistry(currentVersion, index);
+         else
+            result = parseRegistry(currentVersion, registryFile);
+         registry = result;
+      }
+      return result;
+   }
+
+   private Registry parseRegistry(int currentVersion, File registryFile) throws InterruptedException
+   {
+      long lastModified = registryFile.lastModified();
+      long length = registryFile.length();
+      List<AddonId> enabled = new ArrayList<AddonId>();
+      try
+      {
+         Node installed = getXmlRoot(registryFile);
+         for (Node addon : installed.get("addon"))
+         {
+            AddonId entry = AddonId.from(addon.getAttribute(ATTR_NAME),
+                     addon.getAttribute(ATTR_VERSION),
+                     addon.getAttribute(ATTR_API_VERSION));
+            enabled.add(entry);
+         }
+      }
+      catch (XMLParserException e)
+      {
+         throw new RuntimeException("Invalid syntax in [" + registryFile.getAbsolutePath()
+                  + "] - Please delete this file and restart Furnace", e);
+      }
+      catch (FileNotFoundException e)
+      {
+         // this is OK, no addons installed
+      }
+      return new Registry(currentVersion, lastModified, length, enabled);
+   }
+
+   /**
+    * Read the registry from the given {@link RepositoryIndex}, also caching the addon descriptors and resources it
+    * holds. These are still checked against their files before use, since they may have changed independently.
+    */
+   private Registry readRegistry(int currentVersion, RepositoryIndex index)
+   {
+      List<AddonId> enabled = new ArrayList<AddonId>();
+      for (RepositoryIndex.Entry entry : index.getEntries())
+      {
+         enabled.add(entry.id);
+         if (entry.dependencies != null)
+            descriptors.putIfAbsent(entry.id, new Descriptor(entry.descriptorLastModified, entry.descriptorLength,
+                     entry.dependencies));
+         if (entry.resources != null)
+            resources.putIfAbsent(entry.id, new Resources(entry.resourcesLastModified, entry.resources));
+      }
+      return new Registry(currentVersion, index.getRegistryLastModified(), index.getRegistryLength(), enabled);
+   }
+
+   /**
+    * Rebuild the {@link RepositoryIndex} of this repository from its registry and addon descriptor files, creating it
+    * if it does not exist.
+    *
+    * @return the number of enabled addons indexed.
+    */
+   public int rebuildIndex()
+   {
+      return lock.performLocked(this, LockMode.WRITE, new Callable<Integer>()
+      {
+         @Override
+         public Integer call() throws Exception
+         {
+            getIndexFile().delete();
+            registry = null;
+            descriptors.clear();
+            resources.clear();
+            return writeIndex();
+         }
+      });
+   }
+
+   /**
+    * Write the {@link RepositoryIndex} of this repository if it has one, or if {@link #INDEX_PROPERTY} is set.
+    */
+   private void updateIndex() throws InterruptedException
+   {
+      if (Boolean.getBoolean(INDEX_PROPERTY) || getIndexFile().exists())
+         writeIndex();
+   }
+
+   private int writeIndex() throws InterruptedException
+   {
+      File registryFile = getRepositoryRegistryFile();
+      Registry current = getRegistry();
+      List<RepositoryIndex.Entry> entries = new ArrayList<RepositoryIndex.Entry>();
+      for (AddonId addon : current.enabled)
+      {
+         Descriptor descriptor = null;
+         if (getAddonDescriptorFile(addon).isFile())
+         {
+            getAddonDependencies(addon);
+            descriptor = descriptors.get(addon);
+         }
+         Resources listed = getResources(addon);
+
+         if (descriptor == null)
+            entries.add(new RepositoryIndex.Entry(addon, 0, 0, null, listed.lastModified, listed.names));
+         else
+            entries.add(new RepositoryIndex.Entry(addon, descriptor.lastModified, descriptor.length,
+                     descriptor.dependencies, listed.lastModified, listed.names));
+      }
+
+      try
+      {
+         long checksum = RepositoryIndex.checksum(registryFile);
+         new RepositoryIndex(current.lastModified, current.length, checksum, entries).write(getIndexFile());
+      }
+      catch (IOException e)
+      {
+         logger.log(Level.FINE, "Could not read registry [" + registryFile + "]", e);
+         getIndexFile().delete();
+      }
+      return entries.size();
+   }
+
    @Override
    public List<AddonId> listEnabledCompatibleWithVersion(final Version version)
    {
-      return lock.performLocked(LockMode.READ, new Callable<List<AddonId>>()
+      return lock.performLocked(this, LockMode.READ, new Callable<List<AddonId>>()
       {
          @Override
          public List<AddonId> call() throws Exception
          {
-            List<AddonId> list = listEnabled();
-            List<AddonId> result = list;
-
-            result = new ArrayList<AddonId>();
-            for (AddonId entry : list)
+            List<AddonId> result = new ArrayList<AddonId>();
+            for (AddonId entry : getRegistry().enabled)
             {
                if (version == null || entry.getApiVersion() == null
                         || Versions.isApiCompatible(version, entry.getApiVersion()))
@@ -562,13 +790,15 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
    @Override
    public boolean undeploy(final AddonId addon)
    {
-      return lock.performLocked(LockMode.WRITE, new Callable<Boolean>()
+      return lock.performLocked(this, LockMode.WRITE, new Callable<Boolean>()
       {
          @Override
          public Boolean call() throws Exception
          {
             File dir = getAddonBaseDir(addon);
             disable(addon);
+            descriptors.remove(addon);
+            resources.remove(addon);
             return Files.delete(dir, true);
          }
       });
@@ -576,27 +806,26 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
 
    private Node getXmlRoot(File registryFile) throws FileNotFoundException, InterruptedException
    {
-      Node installed = null;
-
-      while (installed == null)
+      for (int attempt = 1;; attempt++)
       {
          try
          {
-            installed = XMLParser.parse(registryFile);
+            return XMLParser.parse(registryFile);
          }
          catch (XMLParserException e)
          {
+            if (attempt == MAX_PARSE_ATTEMPTS)
+               throw e;
             logger.log(Level.WARNING, "Error occurred while parsing [" + registryFile + "]", e);
+            Thread.sleep(PARSE_RETRY_DELAY);
          }
       }
-
-      return installed;
    }
 
    @Override
    public Date getLastModified()
    {
-      return lock.performLocked(LockMode.READ, new Callable<Date>()
+      return lock.performLocked(this, LockMode.READ, new Callable<Date>()
       {
          @Override
          public Date call() throws Exception
@@ -612,7 +841,7 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
       return version;
    }
 
-   private void saveRegistryFile(Node installed) throws FileNotFoundException
+   private void saveRegistryFile(Node installed) throws FileNotFoundException, InterruptedException
    {
       FileOutputStream outStream = null;
       try
@@ -626,6 +855,10 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
       {
          Streams.closeQuietly(outStream);
       }
+      updateIndex();
+
+      if (changeMonitor != null)
+         changeMonitor.repositoryChanged(this);
    }
 
    private void incrementVersion()
@@ -633,6 +866,83 @@ public final class AddonRepositoryImpl implements MutableAddonRepository
       version++;
    }
 
+   /**
+    * The enabled addons of a parsed registry file.
+    */
+   private static class Registry
+   {
+      private final int version;
+      private final long lastModified;
+      private final long length;
+      private final List<AddonId> enabled;
+      private final Set<AddonId> compatible = new HashSet<AddonId>();
+
+      public Registry(int version, long lastModified, long length, List<AddonId> enabled)
+      {
+         this.version = version;
+         this.lastModified = lastModified;
+         this.length = length;
+         this.enabled = Collections.unmodifiableList(enabled);
+
+         Version runtimeVersion = getRuntimeAPIVersion();
+         for (AddonId entry : enabled)
+         {
+            if (runtimeVersion == null || entry.getApiVersion() == null
+                     || Versions.isApiCompatible(runtimeVersion, entry.getApiVersion()))
+            {
+               compatible.add(entry);
+            }
+         }
+      }
+
+      public boolean isCurrent(int version, File file)
+      {
+         return this.version == version && lastModified == file.lastModified() && length == file.length();
+      }
+   }
+
+   /**
+    * The dependencies of a parsed addon descriptor file.
+    */
+   private static class Descriptor
+   {
+      private final long lastModified;
+      private final long length;
+      private final Set<AddonDependencyEntry> dependencies;
+
+      public Descriptor(long lastModified, long length, Set<AddonDependencyEntry> dependencies)
+      {
+         this.lastModified = lastModified;
+         this.length = length;
+         this.dependencies = Collections.unmodifiableSet(dependencies);
+      }
+
+      public boolean isCurrent(File file)
+      {
+         return lastModified == file.lastModified() && length == file.length();
+      }
+   }
+
+   /**
+    * The resource names of a listed addon directory.
+    */
+   private static class Resources
+   {
+      private final long lastModified;
+      private final List<String> names;
+
+      public Resources(long lastModified, List<String> names)
+      {
+         this.lastModified = lastModified;
+         this.names = Collections.unmodifiableList(names);
+      }
+
+      public boolean isCurrent(File dir)
+      {
+         return lastModified == dir.lastModified();
+      }
+   }
+
    @Override
    public String toString()
    {
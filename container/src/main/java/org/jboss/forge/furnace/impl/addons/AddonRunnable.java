@@ -11,7 +11,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.ServiceLoader;
 import java.util.Set;
-import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,7 +24,7 @@ import org.jboss.forge.furnace.impl.util.Iterators;
 import org.jboss.forge.furnace.lifecycle.AddonLifecycleProvider;
 import org.jboss.forge.furnace.lifecycle.ControlType;
 import org.jboss.forge.furnace.repositories.AddonRepository;
-import org.jboss.forge.furnace.util.Addons;
+import org.jboss.forge.furnace.util.ClassLoaderTask;
 import org.jboss.forge.furnace.util.ClassLoaders;
 
 /**
@@ -35,6 +36,7 @@ public final class AddonRunnable implements Runnable
    private static final Logger logger = Logger.getLogger(AddonRunnable.class.getName());
 
    private boolean shutdownRequested = false;
+   private final AtomicBoolean finished = new AtomicBoolean();
    private Furnace furnace;
    private Addon addon;
 
@@ -43,6 +45,81 @@ public final class AddonRunnable implements Runnable
 
    private AddonLifecycleProviderEntry lifecycleProviderEntry;
 
+   private final ClassLoaderTask<AddonLifecycleProvider, Addon, Void> startTask = new ClassLoaderTask<AddonLifecycleProvider, Addon, Void>()
+   {
+      @Override
+      public Void call(AddonLifecycleProvider lifecycleProvider, Addon lifecycleProviderAddon) throws Exception
+      {
+         lifecycleProvider.initialize(furnace, furnace.getAddonRegistry(getRepositories()), lifecycleProviderAddon);
+         lifecycleProvider.start(addon);
+         stateManager.setServiceRegistry(addon, lifecycleProvider.getServiceRegistry(addon));
+         stateManager.setEventManager(addon, lifecycleProvider.getEventManager(addon));
+
+         /*
+          * Dependencies have started, since the AddonStartupScheduler only runs this start once theirs completed.
+          */
+         lifecycleProvider.postStartup(addon);
+         return null;
+      }
+   };
+
+   private final ClassLoaderTask<AddonLifecycleProvider, Addon, Void> stopTask = new ClassLoaderTask<AddonLifecycleProvider, Addon, Void>()
+   {
+      @Override
+      public Void call(AddonLifecycleProvider lifecycleProvider, Addon stopping) throws Exception
+      {
+         try
+         {
+            lifecycleProvider.preShutdown(stopping);
+         }
+         catch (Throwable e)
+         {
+            logger.log(Level.FINE, "Failed to execute pre-shutdown task for [" + stopping + "]", e);
+         }
+         lifecycleProvider.stop(stopping);
+         return null;
+      }
+   };
+
+   private final ClassLoaderTask<ClassLoader, Void, AddonLifecycleProviderEntry> detectTask = new ClassLoaderTask<ClassLoader, Void, AddonLifecycleProviderEntry>()
+   {
+      @Override
+      public AddonLifecycleProviderEntry call(ClassLoader classLoader, Void unused) throws Exception
+      {
+         AddonLifecycleProviderEntry result = null;
+
+         ServiceLoader<AddonLifecycleProvider> serviceLoader = ServiceLoader.load(
+                  AddonLifecycleProvider.class, classLoader);
+
+         Iterator<AddonLifecycleProvider> iterator = serviceLoader.iterator();
+         if (serviceLoader != null && iterator.hasNext())
+         {
+            AddonLifecycleProvider provider = iterator.next();
+
+            if (ClassLoaders.ownsClass(classLoader, provider.getClass()))
+            {
+               ControlType controlType = provider.getControlType();
+               if (ControlType.ALL.equals(controlType))
+               {
+                  result = new AddonLifecycleProviderEntry(addon, provider);
+               }
+               if (ControlType.SELF.equals(controlType))
+               {
+                  result = new AddonLifecycleProviderEntry(addon, provider);
+               }
+
+               if (result != null && iterator.hasNext())
+               {
+                  throw new ContainerException("Expected only one [" + AddonLifecycleProvider.class.getName()
+                           + "] but found multiple. Remove all but one redundant container implementations: " +
+                           Iterators.asList(serviceLoader));
+               }
+            }
+         }
+         return result;
+      }
+   };
+
    public AddonRunnable(Furnace furnace, AddonLifecycleManager lifecycleManager, AddonStateManager stateManager,
             Addon addon)
    {
@@ -66,28 +143,8 @@ public final class AddonRunnable implements Runnable
          lifecycleProviderEntry = detectLifecycleProvider();
          if (lifecycleProviderEntry != null)
          {
-            final AddonLifecycleProvider lifecycleProvider = lifecycleProviderEntry.getProvider();
-            ClassLoaders.executeIn(addon.getClassLoader(), new Callable<Void>()
-            {
-               @Override
-               public Void call() throws Exception
-               {
-                  lifecycleProvider.initialize(furnace, furnace.getAddonRegistry(getRepositories()),
-                           lifecycleProviderEntry.getAddon());
-                  lifecycleProvider.start(addon);
-                  stateManager.setServiceRegistry(addon, lifecycleProvider.getServiceRegistry(addon));
-                  stateManager.setEventManager(addon, lifecycleProvider.getEventManager(addon));
-
-                  for (AddonDependency dependency : addon.getDependencies())
-                  {
-                     if (dependency.getDependency().getStatus().isLoaded())
-                        Addons.waitUntilStarted(dependency.getDependency());
-                  }
-
-                  lifecycleProvider.postStartup(addon);
-                  return null;
-               }
-            });
+            ClassLoaders.executeIn(addon.getClassLoader(), startTask, lifecycleProviderEntry.getProvider(),
+                     lifecycleProviderEntry.getAddon());
          }
 
          logger.info(">> Started container [" + addon.getId() + "] - " + (System.currentTimeMillis() - start) + "ms");
@@ -107,12 +164,32 @@ public final class AddonRunnable implements Runnable
       }
       finally
       {
-         lifecycleManager.finishedStarting(addon);
+         finish();
          currentThread.setName(name);
          currentThread.setContextClassLoader(null);
       }
    }
 
+   /**
+    * Notify the {@link AddonLifecycleManager} that this {@link AddonRunnable} is no longer starting its {@link Addon},
+    * whether it has run or was cancelled before running. Only the first call has any effect.
+    */
+   void finish()
+   {
+      if (finished.compareAndSet(false, true))
+         lifecycleManager.finishedStarting(addon);
+   }
+
+   /**
+    * Notify this {@link AddonRunnable} that the {@link Future} starting its {@link Addon} has completed, and wake any
+    * threads waiting for the {@link Addon} to start.
+    */
+   void completed()
+   {
+      finish();
+      stateManager.statusChanged(addon);
+   }
+
    protected AddonRepository[] getRepositories()
    {
       Set<AddonRepository> repositories = stateManager.getViewsOf(addon).iterator().next().getRepositories();
@@ -129,24 +206,7 @@ public final class AddonRunnable implements Runnable
 
          if (lifecycleProviderEntry != null)
          {
-            final AddonLifecycleProvider lifecycleProvider = lifecycleProviderEntry.getProvider();
-            ClassLoaders.executeIn(addon.getClassLoader(), new Callable<Void>()
-            {
-               @Override
-               public Void call() throws Exception
-               {
-                  try
-                  {
-                     lifecycleProvider.preShutdown(addon);
-                  }
-                  catch (Throwable e)
-                  {
-                     logger.log(Level.FINE, "Failed to execute pre-shutdown task for [" + addon + "]", e);
-                  }
-                  lifecycleProvider.stop(addon);
-                  return null;
-               }
-            });
+            ClassLoaders.executeIn(addon.getClassLoader(), stopTask, lifecycleProviderEntry.getProvider(), addon);
          }
 
          logger.info("<< Stopped container [" + addon.getId() + "] - " + (System.currentTimeMillis() - start) + "ms");
@@ -173,47 +233,10 @@ public final class AddonRunnable implements Runnable
    private AddonLifecycleProviderEntry detectLifecycleProviderLocal()
    {
       AddonLifecycleProviderEntry result = null;
-      final ClassLoader classLoader = addon.getClassLoader();
+      ClassLoader classLoader = addon.getClassLoader();
       try
       {
-         result = ClassLoaders.executeIn(classLoader, new Callable<AddonLifecycleProviderEntry>()
-         {
-            @Override
-            public AddonLifecycleProviderEntry call() throws Exception
-            {
-               AddonLifecycleProviderEntry result = null;
-
-               ServiceLoader<AddonLifecycleProvider> serviceLoader = ServiceLoader.load(
-                        AddonLifecycleProvider.class, classLoader);
-
-               Iterator<AddonLifecycleProvider> iterator = serviceLoader.iterator();
-               if (serviceLoader != null && iterator.hasNext())
-               {
-                  AddonLifecycleProvider provider = iterator.next();
-
-                  if (ClassLoaders.ownsClass(classLoader, provider.getClass()))
-                  {
-                     ControlType controlType = provider.getControlType();
-                     if (ControlType.ALL.equals(controlType))
-                     {
-                        result = new AddonLifecycleProviderEntry(addon, provider);
-                     }
-                     if (ControlType.SELF.equals(controlType))
-                     {
-                        result = new AddonLifecycleProviderEntry(addon, provider);
-                     }
-
-                     if (result != null && iterator.hasNext())
-                     {
-                        throw new ContainerException("Expected only one [" + AddonLifecycleProvider.class.getName()
-                                 + "] but found multiple. Remove all but one redundant container implementations: " +
-                                 Iterators.asList(serviceLoader));
-                     }
-                  }
-               }
-               return result;
-            }
-         });
+         result = ClassLoaders.executeIn(classLoader, detectTask, classLoader, null);
       }
       catch (Throwable e)
       {
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.forge.furnace.addons.Addon;
+
+/**
+ * Stops {@link Addon} instances in reverse dependency order: each {@link Addon} is stopped only once every
+ * {@link Addon} that depends on it has stopped, while independent {@link Addon} instances are stopped in parallel.
+ * <p>
+ * An {@link Addon} that does not stop within the per-addon timeout is interrupted and reported, and its dependencies are
+ * stopped without waiting further, so that a single hung {@link Addon} cannot block shutdown. Each {@link Addon} is
+ * stopped on its own thread, and an abandoned {@link Addon} no longer counts towards the number stopped concurrently,
+ * so its thread being kept by an {@link Addon} that ignores interruption does not hold up the others. {@link Addon}
+ * instances that take longer than the slow threshold to stop are reported once shutdown completes.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+final class AddonShutdownScheduler
+{
+   private static final Logger logger = Logger.getLogger(AddonShutdownScheduler.class.getName());
+
+   private final int threads;
+   private final long timeout;
+   private final long slowThreshold;
+
+   /**
+    * @param threads the maximum number of {@link Addon} instances stopped concurrently, not counting abandoned ones
+    * @param timeout the time in milliseconds after which a stopping {@link Addon} is abandoned
+    * @param slowThreshold the time in milliseconds after which a stopping {@link Addon} is reported as slow
+    */
+   public AddonShutdownScheduler(int threads, long timeout, long slowThreshold)
+   {
+      this.threads = threads;
+      this.timeout = timeout;
+      this.slowThreshold = slowThreshold;
+   }
+
+   /**
+    * Stop the given {@link Addon} instances using the given {@link Callable} factory, and block until all have stopped
+    * or been abandoned. The given map contains, for each {@link Addon}, the {@link Addon} instances it depends on.
+    * Dependencies that are not themselves keys of the map are ignored.
+    */
+   public void stop(Map<Addon, Set<Addon>> dependencies, StopTaskFactory factory) throws InterruptedException
+   {
+      if (dependencies.isEmpty())
+         return;
+
+      long start = System.nanoTime();
+
+      /*
+       * Count, for each addon, the addons that depend on it and must therefore stop first.
+       */
+      Map<Addon, Set<Addon>> dependents = new HashMap<Addon, Set<Addon>>();
+      for (Addon addon : dependencies.keySet())
+      {
+         dependents.put(addon, new HashSet<Addon>());
+      }
+      for (Entry<Addon, Set<Addon>> entry : dependencies.entrySet())
+      {
+         for (Addon dependency : entry.getValue())
+         {
+            if (dependents.containsKey(dependency) && !dependency.equals(entry.getKey()))
+               dependents.get(dependency).add(entry.getKey());
+         }
+      }
+      breakCycles(dependencies, dependents);
+
+      Map<Addon, Integer> waitingFor = new HashMap<Addon, Integer>();
+      LinkedList<Addon> ready = new LinkedList<Addon>();
+      for (Entry<Addon, Set<Addon>> entry : dependents.entrySet())
+      {
+         waitingFor.put(entry.getKey(), entry.getValue().size());
+         if (entry.getValue().isEmpty())
+            ready.add(entry.getKey());
+      }
+
+      final BlockingQueue<StopTask> completions = new LinkedBlockingQueue<StopTask>();
+      Map<Addon, StopTask> running = new HashMap<Addon, StopTask>();
+      Map<Addon, Long> times = new HashMap<Addon, Long>();
+      List<Addon> abandoned = new ArrayList<Addon>();
+
+      ThreadFactory threadFactory = new ShutdownThreadFactory();
+      try
+      {
+         int remaining = dependencies.size();
+         while (remaining > 0)
+         {
+            while (!ready.isEmpty() && running.size() < threads)
+            {
+               Addon addon = ready.removeFirst();
+               StopTask task = new StopTask(addon, factory.create(addon), completions);
+               running.put(addon, task);
+               threadFactory.newThread(task).start();
+            }
+
+            List<StopTask> finished = new ArrayList<StopTask>();
+            StopTask completed = completions.poll(getNextDeadline(running.values()), TimeUnit.NANOSECONDS);
+            if (completed != null)
+            {
+               finished.add(completed);
+               completions.drainTo(finished);
+            }
+
+            for (StopTask task : running.values())
+            {
+               if (!task.isDone() && task.getElapsed() >= TimeUnit.MILLISECONDS.toNanos(timeout))
+               {
+                  logger.warning("Addon [" + task.addon + "] did not stop within " + timeout
+                           + "ms. Interrupting it and continuing shutdown.");
+                  abandoned.add(task.addon);
+                  task.cancel(true);
+                  finished.add(task);
+               }
+            }
+
+            for (StopTask task : finished)
+            {
+               if (running.remove(task.addon) == null)
+                  continue;
+
+               remaining--;
+               times.put(task.addon, task.getElapsed());
+               for (Addon dependency : dependencies.get(task.addon))
+               {
+                  Integer count = waitingFor.get(dependency);
+                  if (count != null && dependents.get(dependency).contains(task.addon))
+                  {
+                     waitingFor.put(dependency, --count);
+                     if (count == 0)
+                        ready.add(dependency);
+                  }
+               }
+            }
+         }
+      }
+      finally
+      {
+         for (StopTask task : running.values())
+         {
+            task.cancel(true);
+         }
+      }
+
+      report(times, abandoned, System.nanoTime() - start);
+   }
+
+   /**
+    * Remove dependent edges that would form a cycle, since waiting on them would never complete.
+    */
+   private void breakCycles(Map<Addon, Set<Addon>> dependencies, Map<Addon, Set<Addon>> dependents)
+   {
+      Set<Addon> visited = new HashSet<Addon>();
+      for (Addon addon : dependencies.keySet())
+      {
+         breakCycles(addon, dependents, visited, new HashSet<Addon>());
+      }
+   }
+
+   private void breakCycles(Addon addon, Map<Addon, Set<Addon>> dependents, Set<Addon> visited, Set<Addon> path)
+   {
+      if (!visited.add(addon))
+         return;
+
+      path.add(addon);
+      for (Addon dependent : new ArrayList<Addon>(dependents.get(addon)))
+      {
+         if (path.contains(dependent))
+            dependents.get(addon).remove(dependent);
+         else
+            breakCycles(dependent, dependents, visited, path);
+      }
+      path.remove(addon);
+   }
+
+   private long getNextDeadline(Iterable<StopTask> running)
+   {
+      long result = TimeUnit.MILLISECONDS.toNanos(timeout);
+      for (StopTask task : running)
+      {
+         result = Math.min(result, TimeUnit.MILLISECONDS.toNanos(timeout) - task.getElapsed());
+      }
+      return Math.max(result, 0);
+   }
+
+   private void report(final Map<Addon, Long> times, List<Addon> abandoned, long elapsed)
+   {
+      List<Addon> slow = new ArrayList<Addon>();
+      for (Entry<Addon, Long> entry : times.entrySet())
+      {
+         if (entry.getValue() >= TimeUnit.MILLISECONDS.toNanos(slowThreshold) && !abandoned.contains(entry.getKey()))
+            slow.add(entry.getKey());
+      }
+
+      Collections.sort(slow, new Comparator<Addon>()
+      {
+         @Override
+         public int compare(Addon left, Addon right)
+         {
+            return times.get(right).compareTo(times.get(left));
+         }
+      });
+
+      for (Addon addon : slow)
+      {
+         logger.warning("Addon [" + addon + "] was slow to stop: "
+                  + TimeUnit.NANOSECONDS.toMillis(times.get(addon)) + "ms");
+      }
+
+      logger.log(Level.INFO, "Stopped [" + times.size() + "] addons in " + TimeUnit.NANOSECONDS.toMillis(elapsed)
+               + "ms (" + slow.size() + " slow, " + abandoned.size() + " timed out)");
+   }
+
+   /**
+    * Creates the {@link Callable} that stops an {@link Addon}.
+    */
+   interface StopTaskFactory
+   {
+      Callable<Void> create(Addon addon);
+   }
+
+   private static class StopTask extends FutureTask<Void>
+   {
+      private final Addon addon;
+      private final BlockingQueue<StopTask> completions;
+      private final long started = System.nanoTime();
+      private volatile long finished;
+
+      public StopTask(Addon addon, Callable<Void> callable, BlockingQueue<StopTask> completions)
+      {
+         super(callable);
+         this.addon = addon;
+         this.completions = completions;
+      }
+
+      @Override
+      protected void done()
+      {
+         finished = System.nanoTime();
+         try
+         {
+            get();
+         }
+         catch (CancellationException e)
+         {
+            // Timed out, and already reported as such
+         }
+         catch (ExecutionException e)
+         {
+            logger.log(Level.WARNING, "Failed to stop addon [" + addon + "]", e.getCause());
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+         }
+         completions.add(this);
+      }
+
+      /**
+       * Returns the time in nanoseconds since this task was submitted, or until it completed if it has.
+       */
+      public long getElapsed()
+      {
+         return (finished == 0 ? System.nanoTime() : finished) - started;
+      }
+   }
+
+   private static class ShutdownThreadFactory implements ThreadFactory
+   {
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable)
+      {
+         Thread result = new Thread(runnable, "furnace-shutdown-" + count.incrementAndGet());
+         result.setDaemon(true);
+         return result;
+      }
+   }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.forge.furnace.addons.Addon;
+
+/**
+ * The bounded pool on which {@link Addon} instances are started. A start that must block until other {@link Addon}
+ * instances have started does so through {@link #block(Runnable)}, which adds a thread to this pool for the duration
+ * of the wait, so that the awaited starts are never queued behind the threads waiting for them.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+final class AddonStartupExecutor extends ThreadPoolExecutor
+{
+   private final ThreadLocal<Boolean> running = new ThreadLocal<Boolean>();
+
+   public AddonStartupExecutor(int threads)
+   {
+      super(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new StartupThreadFactory());
+      allowCoreThreadTimeOut(true);
+   }
+
+   /**
+    * Run the given blocking wait. If called from a task of this pool, another thread is added to the pool until the
+    * wait returns.
+    */
+   public void block(Runnable wait)
+   {
+      boolean compensate = Boolean.TRUE.equals(running.get());
+      if (compensate)
+         resize(1);
+      try
+      {
+         wait.run();
+      }
+      finally
+      {
+         if (compensate)
+            resize(-1);
+      }
+   }
+
+   private synchronized void resize(int delta)
+   {
+      /*
+       * The core size may never exceed the maximum size.
+       */
+      if (delta > 0)
+      {
+         setMaximumPoolSize(getMaximumPoolSize() + delta);
+         setCorePoolSize(getCorePoolSize() + delta);
+      }
+      else
+      {
+         setCorePoolSize(getCorePoolSize() + delta);
+         setMaximumPoolSize(getMaximumPoolSize() + delta);
+      }
+   }
+
+   @Override
+   protected void beforeExecute(Thread thread, Runnable task)
+   {
+      running.set(Boolean.TRUE);
+   }
+
+   @Override
+   protected void afterExecute(Runnable task, Throwable failure)
+   {
+      running.remove();
+   }
+
+   private static class StartupThreadFactory implements ThreadFactory
+   {
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable)
+      {
+         return new Thread(runnable, "furnace-startup-" + count.incrementAndGet());
+      }
+   }
+}
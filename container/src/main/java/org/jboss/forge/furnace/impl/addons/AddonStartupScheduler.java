@@ -0,0 +1,336 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.forge.furnace.addons.Addon;
+
+/**
+ * Starts {@link Addon} instances in dependency order: each start is submitted to the {@link Executor} only once the
+ * starts of all of its dependencies that were scheduled through this {@link AddonStartupScheduler} have completed, so
+ * that no thread is held waiting for a dependency to start.
+ * <p>
+ * Starts are scheduled in batches. Once every start in a batch has completed, the total start time of the batch is
+ * logged along with the time taken by its critical path: the longest chain of dependent starts.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+final class AddonStartupScheduler
+{
+   private static final Logger logger = Logger.getLogger(AddonStartupScheduler.class.getName());
+
+   private final Executor executor;
+
+   /**
+    * Scheduled starts that have not yet completed. Guarded by this.
+    */
+   private final Map<Addon, StartupTask> scheduled = new HashMap<Addon, StartupTask>();
+
+   private volatile Batch lastBatch;
+
+   public AddonStartupScheduler(Executor executor)
+   {
+      this.executor = executor;
+   }
+
+   /**
+    * Create a new, empty {@link Batch}.
+    */
+   public Batch newBatch()
+   {
+      return new Batch();
+   }
+
+   /**
+    * Create the {@link FutureTask} that will start the given {@link Addon}, as part of the given {@link Batch}. The
+    * task will not be submitted until {@link Batch#submit()} is called.
+    */
+   public FutureTask<Void> add(Batch batch, Addon addon, Runnable runnable, Set<Addon> dependencies)
+   {
+      StartupTask task = new StartupTask(batch, addon, runnable);
+      batch.tasks.put(addon, task);
+      batch.dependencies.put(addon, dependencies);
+      return task;
+   }
+
+   /**
+    * Returns the most recently submitted {@link Batch}, or <code>null</code> if none has been submitted.
+    */
+   public Batch getLastBatch()
+   {
+      return lastBatch;
+   }
+
+   private synchronized void submit(Batch batch)
+   {
+      lastBatch = batch;
+      batch.submitted = System.nanoTime();
+      batch.remaining = batch.tasks.size();
+
+      for (StartupTask task : batch.tasks.values())
+      {
+         scheduled.put(task.addon, task);
+      }
+
+      List<StartupTask> ready = new ArrayList<StartupTask>();
+      for (StartupTask task : batch.tasks.values())
+      {
+         for (Addon dependency : batch.dependencies.get(task.addon))
+         {
+            StartupTask dependencyTask = scheduled.get(dependency);
+            if (dependencyTask != null && dependencyTask != task && !dependsOn(dependencyTask, task.addon))
+            {
+               dependencyTask.dependents.add(task);
+               task.waitingFor++;
+            }
+         }
+
+         if (task.waitingFor == 0)
+            ready.add(task);
+      }
+
+      if (batch.tasks.isEmpty())
+         batch.completed();
+
+      for (StartupTask task : ready)
+      {
+         execute(task);
+      }
+   }
+
+   /**
+    * Returns <code>true</code> if the given task waits, directly or transitively, for the given {@link Addon}. Such
+    * dependency cycles are not honored, since waiting on them would never complete.
+    */
+   private boolean dependsOn(StartupTask task, Addon addon)
+   {
+      Set<StartupTask> visited = new HashSet<StartupTask>();
+      List<StartupTask> queue = new ArrayList<StartupTask>();
+      queue.add(task);
+      while (!queue.isEmpty())
+      {
+         StartupTask current = queue.remove(queue.size() - 1);
+         if (current.addon.equals(addon))
+            return true;
+         if (visited.add(current))
+         {
+            Set<Addon> dependencies = current.batch.dependencies.get(current.addon);
+            for (Addon dependency : dependencies)
+            {
+               StartupTask dependencyTask = scheduled.get(dependency);
+               if (dependencyTask != null)
+                  queue.add(dependencyTask);
+            }
+         }
+      }
+      return false;
+   }
+
+   private void completed(StartupTask task)
+   {
+      List<StartupTask> ready = new ArrayList<StartupTask>();
+      synchronized (this)
+      {
+         if (scheduled.get(task.addon) == task)
+            scheduled.remove(task.addon);
+
+         for (StartupTask dependent : task.dependents)
+         {
+            if (--dependent.waitingFor == 0 && !dependent.isDone())
+               ready.add(dependent);
+         }
+         task.dependents.clear();
+
+         if (--task.batch.remaining == 0)
+            task.batch.completed();
+      }
+
+      for (StartupTask dependent : ready)
+      {
+         execute(dependent);
+      }
+   }
+
+   private void execute(StartupTask task)
+   {
+      try
+      {
+         executor.execute(task);
+      }
+      catch (RejectedExecutionException e)
+      {
+         task.cancel(false);
+      }
+   }
+
+   /**
+    * A set of {@link Addon} starts submitted together.
+    */
+   final class Batch
+   {
+      private final Map<Addon, StartupTask> tasks = new LinkedHashMap<Addon, StartupTask>();
+      private final Map<Addon, Set<Addon>> dependencies = new HashMap<Addon, Set<Addon>>();
+
+      private long submitted;
+      private int remaining;
+      private volatile long totalTime = -1;
+      private volatile long criticalPathTime = -1;
+
+      private Batch()
+      {
+      }
+
+      /**
+       * Submit all starts in this {@link Batch} whose dependencies have already completed.
+       */
+      public void submit()
+      {
+         AddonStartupScheduler.this.submit(this);
+      }
+
+      /**
+       * Returns the time in milliseconds from submission until the last start in this {@link Batch} completed, or
+       * <code>-1</code> if it has not yet completed.
+       */
+      public long getTotalTime()
+      {
+         return totalTime;
+      }
+
+      /**
+       * Returns the time in milliseconds taken by the longest chain of dependent starts in this {@link Batch}, or
+       * <code>-1</code> if it has not yet completed.
+       */
+      public long getCriticalPathTime()
+      {
+         return criticalPathTime;
+      }
+
+      private void completed()
+      {
+         long end = submitted;
+         Map<Addon, Long> paths = new HashMap<Addon, Long>();
+         long criticalPath = 0;
+         for (StartupTask task : tasks.values())
+         {
+            end = Math.max(end, task.finished);
+            criticalPath = Math.max(criticalPath, getPathTime(task, paths, new HashSet<Addon>()));
+         }
+
+         criticalPathTime = TimeUnit.NANOSECONDS.toMillis(criticalPath);
+         totalTime = TimeUnit.NANOSECONDS.toMillis(end - submitted);
+
+         if (!tasks.isEmpty())
+            logger.log(Level.INFO, "Started [" + tasks.size() + "] addons in " + totalTime + "ms (critical path "
+                     + criticalPathTime + "ms)");
+      }
+
+      private long getPathTime(StartupTask task, Map<Addon, Long> paths, Set<Addon> visiting)
+      {
+         Long result = paths.get(task.addon);
+         if (result == null)
+         {
+            long longest = 0;
+            if (visiting.add(task.addon))
+            {
+               for (Addon dependency : dependencies.get(task.addon))
+               {
+                  StartupTask dependencyTask = tasks.get(dependency);
+                  if (dependencyTask != null)
+                     longest = Math.max(longest, getPathTime(dependencyTask, paths, visiting));
+               }
+               visiting.remove(task.addon);
+            }
+            result = longest + task.getRunTime();
+            paths.put(task.addon, result);
+         }
+         return result;
+      }
+
+      @Override
+      public String toString()
+      {
+         return tasks.keySet().toString();
+      }
+   }
+
+   private class StartupTask extends FutureTask<Void>
+   {
+      private final Batch batch;
+      private final Addon addon;
+      private final Runnable runnable;
+
+      private final List<StartupTask> dependents = new ArrayList<StartupTask>();
+      private int waitingFor = 0;
+
+      private volatile long started;
+      private volatile long finished;
+
+      public StartupTask(Batch batch, Addon addon, Runnable runnable)
+      {
+         super(runnable, null);
+         this.batch = batch;
+         this.addon = addon;
+         this.runnable = runnable;
+      }
+
+      @Override
+      public void run()
+      {
+         started = System.nanoTime();
+         super.run();
+      }
+
+      @Override
+      protected void done()
+      {
+         finished = System.nanoTime();
+         if (runnable instanceof AddonRunnable)
+            ((AddonRunnable) runnable).completed();
+         completed(this);
+      }
+
+      public long getRunTime()
+      {
+         return started == 0 ? 0 : finished - started;
+      }
+
+      @Override
+      public String toString()
+      {
+         return addon.toString();
+      }
+   }
+
+   @Override
+   public String toString()
+   {
+      StringBuilder builder = new StringBuilder();
+      synchronized (this)
+      {
+         for (Entry<Addon, StartupTask> entry : scheduled.entrySet())
+         {
+            builder.append(entry.getKey()).append(" waiting for ").append(entry.getValue().waitingFor).append("\n");
+         }
+      }
+      return builder.toString();
+   }
+}
@@ -1,47 +1,82 @@
 package org.jboss.forge.furnace.impl.addons;
 
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 
 import org.jboss.forge.furnace.addons.AddonDependency;
+import org.jboss.forge.furnace.addons.AddonStatus;
 import org.jboss.forge.furnace.event.EventManager;
 import org.jboss.forge.furnace.impl.util.NullFuture;
 import org.jboss.forge.furnace.repositories.AddonRepository;
 import org.jboss.forge.furnace.spi.ServiceRegistry;
 import org.jboss.forge.furnace.util.Assert;
 
-public class AddonState
+/**
+ * An immutable snapshot of the state of an {@link org.jboss.forge.furnace.addons.Addon}. State changes are made by
+ * publishing a modified copy via the {@link AddonStateManager}, so readers never need to lock.
+ * <p>
+ * Copies share the latches that are released when the {@link org.jboss.forge.furnace.addons.Addon} described by them
+ * starts, or when they are replaced by an unrelated {@link AddonState}, so that threads waiting for a status
+ * transition block on these latches directly.
+ */
+public final class AddonState
 {
-   private Future<Void> future = new NullFuture<Void>(null);
-   private Set<AddonDependency> dependencies = new HashSet<AddonDependency>();
-   private Set<AddonDependency> missingDependencies = new HashSet<AddonDependency>();
-   private AddonRepository repository;
-   private ServiceRegistry registry = new NullServiceRegistry();
-   private EventManager eventManager = new NullEventManager();
-   private AddonRunnable runnable;
-   private ClassLoader loader;
+   private final Future<Void> future;
+   private final Set<AddonDependency> dependencies;
+   private final Set<AddonDependency> missingDependencies;
+   private final AddonRepository repository;
+   private final ServiceRegistry registry;
+   private final EventManager eventManager;
+   private final AddonRunnable runnable;
+   private final ClassLoader loader;
+   private final CountDownLatch started;
+   private final CountDownLatch superseded;
 
    public AddonState(Set<AddonDependency> dependencies, AddonRepository repository,
             ClassLoader loader)
    {
+      this(new NullFuture<Void>(null), dependencies, Collections.<AddonDependency> emptySet(), repository,
+               new NullServiceRegistry(), new NullEventManager(), null, loader, new CountDownLatch(1),
+               new CountDownLatch(1));
+
       Assert.notNull(dependencies, "Addon dependency set must not be null.");
       Assert.notNull(repository, "Addon repository must not be null.");
       Assert.notNull(loader, "Addon ClassLoader must not be null.");
-
-      this.dependencies = dependencies;
-      this.repository = repository;
-      this.loader = loader;
    }
 
    public AddonState(Set<AddonDependency> missingDependencies)
    {
+      this(new NullFuture<Void>(null), Collections.<AddonDependency> emptySet(), missingDependencies, null,
+               new NullServiceRegistry(), new NullEventManager(), null, null, new CountDownLatch(1),
+               new CountDownLatch(1));
+
       Assert.notNull(missingDependencies, "Missing dependency set must not be null.");
-      this.missingDependencies = missingDependencies;
    }
 
    public AddonState()
    {
+      this(new NullFuture<Void>(null), Collections.<AddonDependency> emptySet(),
+               Collections.<AddonDependency> emptySet(), null, new NullServiceRegistry(), new NullEventManager(), null,
+               null, new CountDownLatch(1), new CountDownLatch(1));
+   }
+
+   private AddonState(Future<Void> future, Set<AddonDependency> dependencies,
+            Set<AddonDependency> missingDependencies, AddonRepository repository, ServiceRegistry registry,
+            EventManager eventManager, AddonRunnable runnable, ClassLoader loader, CountDownLatch started,
+            CountDownLatch superseded)
+   {
+      this.future = future;
+      this.dependencies = dependencies;
+      this.missingDependencies = missingDependencies;
+      this.repository = repository;
+      this.registry = registry;
+      this.eventManager = eventManager;
+      this.runnable = runnable;
+      this.loader = loader;
+      this.started = started;
+      this.superseded = superseded;
    }
 
    public ClassLoader getClassLoader()
@@ -69,11 +104,6 @@ public class AddonState
       return future;
    }
 
-   public void setFuture(Future<Void> future)
-   {
-      this.future = future;
-   }
-
    public AddonRepository getRepository()
    {
       return repository;
@@ -84,24 +114,91 @@ public class AddonState
       return runnable;
    }
 
-   public void setRunnable(AddonRunnable runnable)
+   public ServiceRegistry getServiceRegistry()
    {
-      this.runnable = runnable;
+      return registry;
    }
 
-   public ServiceRegistry getServiceRegistry()
+   /**
+    * Get the {@link AddonStatus} described by this {@link AddonState}.
+    */
+   public AddonStatus getStatus()
    {
-      return registry;
+      AddonStatus result = AddonStatus.MISSING;
+
+      if (loader != null)
+         result = AddonStatus.LOADED;
+
+      if (future != null && !(future instanceof NullFuture))
+      {
+         if (future.isDone())
+            result = AddonStatus.STARTED;
+
+         if (future.isCancelled())
+            result = AddonStatus.FAILED;
+      }
+
+      return result;
+   }
+
+   /**
+    * Get the latch released once the status described by this {@link AddonState} becomes
+    * {@link AddonStatus#isStarted()} (if <code>started</code> is <code>true</code>), or once it stops being so (if
+    * <code>started</code> is <code>false</code>.) Since a started {@link AddonState} only stops being started when it
+    * is superseded, both latches are released then, after which waiting threads must re-read the current
+    * {@link AddonState}.
+    */
+   CountDownLatch getTransition(boolean started)
+   {
+      return started ? this.started : this.superseded;
+   }
+
+   /**
+    * Release the threads waiting for the status described by this {@link AddonState}. Called each time it is
+    * published by the {@link AddonStateManager}.
+    */
+   void published()
+   {
+      if (getStatus().isStarted())
+         started.countDown();
+   }
+
+   /**
+    * Release all threads waiting for a transition of this {@link AddonState}, once it has been replaced by an
+    * unrelated {@link AddonState} or removed.
+    */
+   void superseded()
+   {
+      started.countDown();
+      superseded.countDown();
+   }
+
+   /**
+    * Return a copy of this {@link AddonState} with the given start {@link Future} and {@link AddonRunnable}.
+    */
+   public AddonState withHandles(Future<Void> future, AddonRunnable runnable)
+   {
+      return new AddonState(future, dependencies, missingDependencies, repository, registry, eventManager, runnable,
+               loader, started, superseded);
    }
 
-   public void setServiceRegistry(ServiceRegistry registry)
+   /**
+    * Return a copy of this {@link AddonState} with the given {@link ServiceRegistry}.
+    */
+   public AddonState withServiceRegistry(ServiceRegistry registry)
    {
-      this.registry = (registry != null ? registry : new NullServiceRegistry());
+      return new AddonState(future, dependencies, missingDependencies, repository,
+               registry != null ? registry : new NullServiceRegistry(), eventManager, runnable, loader, started,
+               superseded);
    }
 
-   public void setEventManager(EventManager manager)
+   /**
+    * Return a copy of this {@link AddonState} with the given {@link EventManager}.
+    */
+   public AddonState withEventManager(EventManager manager)
    {
-      this.eventManager = (manager != null ? manager : new NullEventManager());
+      return new AddonState(future, dependencies, missingDependencies, repository, registry,
+               manager != null ? manager : new NullEventManager(), runnable, loader, started, superseded);
    }
 
 }
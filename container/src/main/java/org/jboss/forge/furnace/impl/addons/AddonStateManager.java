@@ -1,20 +1,27 @@
 package org.jboss.forge.furnace.impl.addons;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.jboss.forge.furnace.addons.Addon;
 import org.jboss.forge.furnace.addons.AddonDependency;
 import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonStatus;
 import org.jboss.forge.furnace.addons.AddonView;
 import org.jboss.forge.furnace.event.EventManager;
+import org.jboss.forge.furnace.impl.ScopedLockManager;
 import org.jboss.forge.furnace.impl.graph.AddonVertex;
 import org.jboss.forge.furnace.impl.graph.MasterGraph;
 import org.jboss.forge.furnace.impl.modules.AddonModuleLoader;
+import org.jboss.forge.furnace.impl.util.Locks;
 import org.jboss.forge.furnace.lock.LockManager;
 import org.jboss.forge.furnace.lock.LockMode;
 import org.jboss.forge.furnace.repositories.AddonRepository;
@@ -23,14 +30,31 @@ import org.jboss.forge.furnace.util.Assert;
 
 public class AddonStateManager
 {
-   private LockManager lock;
-   private MasterGraph graph;
-   private Map<Addon, AddonState> states = new HashMap<Addon, AddonState>();
+   private static final AddonState MISSING = new AddonState();
+
+   private ScopedLockManager lock;
+   private volatile MasterGraph graph;
+
+   /**
+    * The {@link AddonView} instances of each {@link Addon} in the current {@link MasterGraph}.
+    */
+   private volatile ConcurrentMap<Addon, Set<AddonView>> views = new ConcurrentHashMap<Addon, Set<AddonView>>();
+
+   /**
+    * Immutable {@link AddonState} snapshots, read without locking and replaced atomically.
+    */
+   private final ConcurrentMap<Addon, AddonState> states = new ConcurrentHashMap<Addon, AddonState>();
    private AddonModuleLoader loader;
 
+   /**
+    * Released and replaced each time an {@link AddonState} is set, waking threads waiting for an {@link Addon} that had
+    * no {@link AddonState} to start.
+    */
+   private final AtomicReference<CountDownLatch> stateSet = new AtomicReference<CountDownLatch>(new CountDownLatch(1));
+
    public AddonStateManager(LockManager lock)
    {
-      this.lock = lock;
+      this.lock = Locks.scoped(lock);
    }
 
    public void setModuleLoader(AddonModuleLoader loader)
@@ -78,46 +102,86 @@ public class AddonStateManager
       return getState(addon).getServiceRegistry();
    }
 
+   /**
+    * Get the immutable {@link Set} of {@link AddonView} instances in which the given {@link Addon} appears in the
+    * current {@link MasterGraph} (never <code>null</code>.)
+    */
    public Set<AddonView> getViewsOf(Addon addon)
    {
-      Set<AddonView> result = new HashSet<AddonView>();
-      for (AddonVertex vertex : graph.getGraph().vertexSet())
+      Set<AddonView> result = views.get(addon);
+      if (result == null)
+         result = Collections.emptySet();
+      return result;
+   }
+
+   /**
+    * Add the {@link AddonView} instances of the given {@link AddonVertex} to the views of its {@link Addon}. Must be
+    * called whenever an {@link Addon} is assigned to a vertex of the current {@link MasterGraph}, or a vertex is added
+    * to it.
+    */
+   public void indexViews(AddonVertex vertex)
+   {
+      indexViews(views, vertex);
+   }
+
+   private static void indexViews(ConcurrentMap<Addon, Set<AddonView>> index, AddonVertex vertex)
+   {
+      Addon addon = vertex.getAddon();
+      if (addon != null)
       {
-         if (addon.equals(vertex.getAddon()))
-         {
-            result.addAll(vertex.getViews());
-            break;
-         }
+         Set<AddonView> existing = index.get(addon);
+         Set<AddonView> result = new HashSet<AddonView>(vertex.getViews());
+         if (existing != null)
+            result.addAll(existing);
+         index.put(addon, Collections.unmodifiableSet(result));
       }
+   }
+
+   public AddonStatus getStatusOf(Addon addon)
+   {
+      return getState(addon).getStatus();
+   }
+
+   private AddonState getState(Addon addon)
+   {
+      AddonState result = states.get(addon);
+      if (result == null)
+         result = MISSING;
       return result;
    }
 
-   private AddonState getState(final Addon addon)
+   public void setState(Addon addon, AddonState state)
    {
-      return lock.performLocked(LockMode.READ, new Callable<AddonState>()
-      {
-         @Override
-         public AddonState call() throws Exception
-         {
-            AddonState result = states.get(addon);
-            if (result == null)
-               result = new AddonState();
-            return result;
-         }
-      });
+      AddonState previous = states.put(addon, state);
+      if (previous != null)
+         previous.superseded();
+      state.published();
+      stateSet.getAndSet(new CountDownLatch(1)).countDown();
    }
 
-   public void setState(final Addon addon, final AddonState state)
+   /**
+    * Atomically replace the current {@link AddonState} of the given {@link Addon} with the result of the given
+    * {@link StateUpdate}, retrying if the state is concurrently replaced, then release the threads waiting for the
+    * status it describes. Does nothing if the {@link Addon} has no state.
+    */
+   private void update(Addon addon, StateUpdate update)
    {
-      lock.performLocked(LockMode.WRITE, new Callable<Void>()
+      AddonState current;
+      AddonState updated;
+      do
       {
-         @Override
-         public Void call() throws Exception
-         {
-            states.put(addon, state);
-            return null;
-         }
-      });
+         current = states.get(addon);
+         if (current == null)
+            return;
+         updated = update.apply(current);
+      }
+      while (!states.replace(addon, current, updated));
+      updated.published();
+   }
+
+   private interface StateUpdate
+   {
+      AddonState apply(AddonState state);
    }
 
    public MasterGraph getCurrentGraph()
@@ -127,7 +191,7 @@ public class AddonStateManager
 
    public void setCurrentGraph(final MasterGraph graph)
    {
-      lock.performLocked(LockMode.WRITE, new Callable<Void>()
+      lock.performLocked(this, LockMode.WRITE, new Callable<Void>()
       {
          @Override
          public Void call() throws Exception
@@ -140,6 +204,15 @@ public class AddonStateManager
 
    private void setGraph(MasterGraph graph)
    {
+      ConcurrentMap<Addon, Set<AddonView>> index = new ConcurrentHashMap<Addon, Set<AddonView>>();
+      if (graph != null)
+      {
+         for (AddonVertex vertex : graph.getGraph().vertexSet())
+         {
+            indexViews(index, vertex);
+         }
+      }
+      this.views = index;
       this.graph = graph;
    }
 
@@ -206,19 +279,59 @@ public class AddonStateManager
       return result;
    }
 
-   private void reset(final Addon addon)
+   private void reset(Addon addon)
+   {
+      AddonState previous = states.remove(addon);
+      if (previous != null)
+         previous.superseded();
+   }
+
+   /**
+    * Publish the current {@link AddonState} of the given {@link Addon} again, since its {@link AddonStatus} may have
+    * changed without it being replaced, such as when its start {@link Future} completes.
+    */
+   void statusChanged(Addon addon)
    {
-      lock.performLocked(LockMode.WRITE, new Callable<Void>()
+      update(addon, new StateUpdate()
       {
          @Override
-         public Void call() throws Exception
+         public AddonState apply(AddonState state)
          {
-            states.remove(addon);
-            return null;
+            return state;
          }
       });
    }
 
+   /**
+    * Block until the given {@link Addon} is (or is not, if <code>started</code> is <code>false</code>)
+    * {@link AddonStatus#isStarted()}, or until the given timeout elapses. Waiting threads block on the transition
+    * latch of the current {@link AddonState} of the {@link Addon}, rather than polling.
+    *
+    * @return <code>true</code> if the {@link Addon} reached the requested status, <code>false</code> if the timeout
+    *         elapsed first.
+    */
+   public boolean awaitStatus(Addon addon, boolean started, long timeout, TimeUnit unit) throws InterruptedException
+   {
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      while (true)
+      {
+         /*
+          * Read the latch released by setState() before the state itself, so that a state set in between is not missed.
+          */
+         CountDownLatch transition = stateSet.get();
+         AddonState state = getState(addon);
+         if (state.getStatus().isStarted() == started)
+            return true;
+
+         if (state != MISSING)
+            transition = state.getTransition(started);
+
+         long remaining = deadline - System.nanoTime();
+         if (remaining <= 0 || !transition.await(remaining, TimeUnit.NANOSECONDS))
+            return getStatusOf(addon).isStarted() == started;
+      }
+   }
+
    public boolean canBeStarted(Addon addon)
    {
       return getRunnableOf(addon) == null
@@ -227,40 +340,36 @@ public class AddonStateManager
 
    public void setHandles(final Addon addon, final Future<Void> result, final AddonRunnable runnable)
    {
-      lock.performLocked(LockMode.WRITE, new Callable<Void>()
+      update(addon, new StateUpdate()
       {
          @Override
-         public Void call() throws Exception
+         public AddonState apply(AddonState state)
          {
-            getState(addon).setFuture(result);
-            getState(addon).setRunnable(runnable);
-            return null;
+            return state.withHandles(result, runnable);
          }
       });
    }
 
    public void setEventManager(final Addon addon, final EventManager manager)
    {
-      lock.performLocked(LockMode.WRITE, new Callable<Void>()
+      update(addon, new StateUpdate()
       {
          @Override
-         public Void call() throws Exception
+         public AddonState apply(AddonState state)
          {
-            getState(addon).setEventManager(manager);
-            return null;
+            return state.withEventManager(manager);
          }
       });
    }
 
    public void setServiceRegistry(final Addon addon, final ServiceRegistry registry)
    {
-      lock.performLocked(LockMode.WRITE, new Callable<Void>()
+      update(addon, new StateUpdate()
       {
          @Override
-         public Void call() throws Exception
+         public AddonState apply(AddonState state)
          {
-            getState(addon).setServiceRegistry(registry);
-            return null;
+            return state.withServiceRegistry(registry);
          }
       });
    }
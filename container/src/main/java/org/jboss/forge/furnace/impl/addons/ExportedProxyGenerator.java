@@ -0,0 +1,245 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+
+import org.jboss.forge.furnace.impl.util.Files;
+import org.jboss.forge.furnace.proxy.PrebuiltProxyClasses;
+import org.jboss.forge.furnace.services.Exported;
+import org.jboss.forge.furnace.util.Streams;
+
+/**
+ * Generates proxy types for the {@link Exported} types of a deployed addon, and for the types that implement or extend
+ * them, so that the first call across {@link ClassLoader} boundaries does not need to generate them at runtime. See
+ * {@link PrebuiltProxyClasses}.
+ * <p>
+ * Addon classes are inspected as bytecode, and only {@link Exported} types are loaded (in a throw-away
+ * {@link ClassLoader}). Types that cannot be loaded without the addon's dependencies are skipped, and left to runtime
+ * proxy generation.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+final class ExportedProxyGenerator
+{
+   private static final Logger logger = Logger.getLogger(ExportedProxyGenerator.class.getName());
+
+   private static final String CLASS_FILE_SUFFIX = ".class";
+
+   private ExportedProxyGenerator()
+   {
+   }
+
+   /**
+    * Generate proxy types for the {@link Exported} types found in the given addon resources into the given directory,
+    * replacing any proxy types previously generated there.
+    *
+    * @return the number of proxy types generated
+    */
+   public static int generate(Iterable<File> resources, File directory)
+   {
+      Files.delete(directory, true);
+
+      try
+      {
+         Map<String, byte[]> classes = new HashMap<String, byte[]>();
+         for (File resource : resources)
+         {
+            if (resource.isDirectory())
+               readClasses(resource, "", classes);
+            else if (resource.getName().endsWith(".jar") && resource.length() > 0)
+               readClasses(resource, classes);
+         }
+
+         Set<String> exported = findExportedTypes(classes);
+         if (exported.isEmpty())
+            return 0;
+
+         ClassLoader loader = new ByteArrayClassLoader(classes, ExportedProxyGenerator.class.getClassLoader());
+         List<Class<?>> types = new ArrayList<Class<?>>();
+         for (String name : exported)
+         {
+            try
+            {
+               types.add(loader.loadClass(name));
+            }
+            catch (ClassNotFoundException e)
+            {
+               logger.fine("Skipping proxy generation for [" + name + "]: " + e.getMessage());
+            }
+            catch (LinkageError e)
+            {
+               logger.fine("Skipping proxy generation for [" + name + "]: " + e);
+            }
+         }
+
+         directory.mkdirs();
+         return PrebuiltProxyClasses.generate(loader, types, directory);
+      }
+      catch (IOException e)
+      {
+         logger.log(Level.WARNING, "Could not generate proxy types into [" + directory + "]", e);
+         return 0;
+      }
+   }
+
+   /**
+    * Find all interfaces and concrete classes annotated with {@link Exported}, or extending or implementing such types.
+    */
+   private static Set<String> findExportedTypes(Map<String, byte[]> classes) throws IOException
+   {
+      Map<String, List<String>> supertypes = new HashMap<String, List<String>>();
+      Set<String> abstractClasses = new HashSet<String>();
+      Set<String> result = new HashSet<String>();
+      for (byte[] bytes : classes.values())
+      {
+         ClassFile classFile = new ClassFile(new DataInputStream(new ByteArrayInputStream(bytes)));
+         AnnotationsAttribute annotations = (AnnotationsAttribute) classFile.getAttribute(AnnotationsAttribute.visibleTag);
+         if (annotations != null && annotations.getAnnotation(Exported.class.getName()) != null)
+            result.add(classFile.getName());
+
+         if (classFile.isAbstract() && !classFile.isInterface())
+            abstractClasses.add(classFile.getName());
+
+         List<String> types = new ArrayList<String>();
+         types.add(classFile.getSuperclass());
+         for (String type : classFile.getInterfaces())
+         {
+            types.add(type);
+         }
+         supertypes.put(classFile.getName(), types);
+      }
+
+      boolean changed = true;
+      while (changed)
+      {
+         changed = false;
+         for (Map.Entry<String, List<String>> entry : supertypes.entrySet())
+         {
+            if (!result.contains(entry.getKey()))
+            {
+               for (String type : entry.getValue())
+               {
+                  if (result.contains(type))
+                  {
+                     result.add(entry.getKey());
+                     changed = true;
+                     break;
+                  }
+               }
+            }
+         }
+      }
+
+      result.removeAll(abstractClasses);
+      return result;
+   }
+
+   private static void readClasses(File directory, String packagePath, Map<String, byte[]> classes)
+            throws IOException
+   {
+      File[] files = directory.listFiles();
+      if (files != null)
+      {
+         for (File file : files)
+         {
+            if (file.isDirectory())
+               readClasses(file, packagePath + file.getName() + "/", classes);
+            else if (file.getName().endsWith(CLASS_FILE_SUFFIX))
+               classes.put(toClassName(packagePath + file.getName()), readBytes(new FileInputStream(file)));
+         }
+      }
+   }
+
+   private static void readClasses(File jar, Map<String, byte[]> classes) throws IOException
+   {
+      JarFile jarFile = new JarFile(jar);
+      try
+      {
+         Enumeration<JarEntry> entries = jarFile.entries();
+         while (entries.hasMoreElements())
+         {
+            JarEntry entry = entries.nextElement();
+            if (!entry.isDirectory() && entry.getName().endsWith(CLASS_FILE_SUFFIX))
+            {
+               classes.put(toClassName(entry.getName()), readBytes(jarFile.getInputStream(entry)));
+            }
+         }
+      }
+      finally
+      {
+         jarFile.close();
+      }
+   }
+
+   private static byte[] readBytes(InputStream stream) throws IOException
+   {
+      try
+      {
+         ByteArrayOutputStream result = new ByteArrayOutputStream();
+         byte[] buffer = new byte[8192];
+         int read;
+         while ((read = stream.read(buffer)) >= 0)
+         {
+            result.write(buffer, 0, read);
+         }
+         return result.toByteArray();
+      }
+      finally
+      {
+         Streams.closeQuietly(stream);
+      }
+   }
+
+   private static String toClassName(String path)
+   {
+      return path.substring(0, path.length() - CLASS_FILE_SUFFIX.length()).replace('/', '.');
+   }
+
+   /**
+    * Defines addon classes from their bytecode, without holding on to any addon resource files.
+    */
+   private static class ByteArrayClassLoader extends ClassLoader
+   {
+      private final Map<String, byte[]> classes;
+
+      public ByteArrayClassLoader(Map<String, byte[]> classes, ClassLoader parent)
+      {
+         super(parent);
+         this.classes = classes;
+      }
+
+      @Override
+      protected Class<?> findClass(String name) throws ClassNotFoundException
+      {
+         byte[] bytes = classes.get(name);
+         if (bytes == null)
+            throw new ClassNotFoundException(name);
+         return defineClass(name, bytes, 0, bytes.length);
+      }
+   }
+}
@@ -17,10 +17,9 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.jboss.forge.furnace.addons.Addon;
-import org.jboss.forge.furnace.addons.AddonRegistry;
 import org.jboss.forge.furnace.addons.AddonStatus;
 import org.jboss.forge.furnace.exception.ContainerException;
-import org.jboss.forge.furnace.lock.LockManager;
+import org.jboss.forge.furnace.impl.ScopedLockManager;
 import org.jboss.forge.furnace.lock.LockMode;
 import org.jboss.forge.furnace.services.Exported;
 import org.jboss.forge.furnace.services.Imported;
@@ -35,22 +34,27 @@ public class ImportedImpl<T> implements Imported<T>
    private Map<T, ExportedInstance<T>> instanceMap = new ConcurrentHashMap<T, ExportedInstance<T>>(
             new WeakHashMap<T, ExportedInstance<T>>(new IdentityHashMap<T, ExportedInstance<T>>()));
 
-   private AddonRegistry addonRegistry;
-   private LockManager lock;
+   private AddonRegistryImpl addonRegistry;
+   private AddonLifecycleManager manager;
+   private ScopedLockManager lock;
    private Class<T> type;
    private String typeName;
 
-   public ImportedImpl(AddonRegistry addonRegistry, LockManager lock, Class<T> type)
+   public ImportedImpl(AddonRegistryImpl addonRegistry, AddonLifecycleManager manager, ScopedLockManager lock,
+            Class<T> type)
    {
       this.addonRegistry = addonRegistry;
+      this.manager = manager;
       this.lock = lock;
       this.type = type;
       this.typeName = type.getName();
    }
 
-   public ImportedImpl(AddonRegistryImpl addonRegistry, LockManager lock, String typeName)
+   public ImportedImpl(AddonRegistryImpl addonRegistry, AddonLifecycleManager manager, ScopedLockManager lock,
+            String typeName)
    {
       this.addonRegistry = addonRegistry;
+      this.manager = manager;
       this.lock = lock;
       this.typeName = typeName;
    }
@@ -89,7 +93,8 @@ public class ImportedImpl<T> implements Imported<T>
 
    private ExportedInstance<T> getExportedInstance()
    {
-      return lock.performLocked(LockMode.READ, new Callable<ExportedInstance<T>>()
+      addonRegistry.activateProviders(type, typeName);
+      return lock.performLocked(manager, LockMode.READ, new Callable<ExportedInstance<T>>()
       {
          @Override
          public ExportedInstance<T> call() throws Exception
@@ -122,7 +127,8 @@ public class ImportedImpl<T> implements Imported<T>
 
    private Set<ExportedInstance<T>> getExportedInstances()
    {
-      return lock.performLocked(LockMode.READ, new Callable<Set<ExportedInstance<T>>>()
+      addonRegistry.activateProviders(type, typeName);
+      return lock.performLocked(manager, LockMode.READ, new Callable<Set<ExportedInstance<T>>>()
       {
          @SuppressWarnings({ "unchecked", "rawtypes" })
          @Override
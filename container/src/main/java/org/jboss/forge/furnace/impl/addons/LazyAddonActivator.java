@@ -0,0 +1,274 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.jar.JarFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.impl.graph.AddonDependencyEdge;
+import org.jboss.forge.furnace.impl.graph.AddonVertex;
+import org.jboss.forge.furnace.impl.graph.MasterGraph;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+import org.jboss.forge.furnace.util.Addons;
+import org.jboss.forge.furnace.util.Sets;
+import org.jgrapht.DirectedGraph;
+
+/**
+ * Tracks which lazily activated {@link Addon} instances have been activated, and finds the dormant {@link Addon}
+ * instances that may provide services of a requested type. See {@link AddonActivationPolicy}.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+final class LazyAddonActivator
+{
+   private static final Logger logger = Logger.getLogger(LazyAddonActivator.class.getName());
+
+   /**
+    * How long, in seconds, a service request waits for the {@link Addon} instances it activated to start.
+    */
+   private static final int START_TIMEOUT = 60;
+
+   private final AddonActivationPolicy policy;
+   private final Set<Addon> activated = Sets.getConcurrentSet();
+
+   /**
+    * Types for which dormant providers have already been activated in the current graph, by the {@link AddonView} in
+    * which they were requested.
+    */
+   private final ConcurrentMap<AddonView, Set<String>> resolvedTypes = new ConcurrentHashMap<AddonView, Set<String>>();
+
+   public LazyAddonActivator(AddonActivationPolicy policy)
+   {
+      this.policy = policy;
+   }
+
+   /**
+    * Returns <code>true</code> if the {@link Addon} of the given {@link AddonVertex} should be loaded and started: if
+    * it is activated eagerly, or has been activated on demand.
+    */
+   public boolean isActive(AddonVertex vertex)
+   {
+      if (!policy.isLazyEnabled())
+         return true;
+
+      Addon addon = vertex.getAddon();
+      if (addon != null && activated.contains(addon))
+         return true;
+
+      AddonRepository repository = null;
+      Iterator<AddonView> views = vertex.getViews().iterator();
+      if (views.hasNext())
+         repository = getRepository(views.next(), vertex.getAddonId());
+      return !policy.isLazy(repository, vertex.getAddonId());
+   }
+
+   /**
+    * Returns <code>true</code> if dormant providers of the given type may need to be activated in the given
+    * {@link AddonView}.
+    */
+   public boolean isActivationRequired(AddonView view, String typeName)
+   {
+      return policy.isLazyEnabled() && !isResolved(view, typeName);
+   }
+
+   /**
+    * Mark the dormant {@link Addon} instances in the given {@link AddonView} of the given {@link MasterGraph} that may
+    * provide services of the given type as activated: those that define the type, and those that depend directly or
+    * indirectly on the {@link Addon} that defines it.
+    *
+    * @return the newly activated {@link Addon} instances
+    */
+   public Set<Addon> activateProviders(MasterGraph graph, AddonView view, Class<?> type, String typeName)
+   {
+      Set<Addon> result = new HashSet<Addon>();
+      if (graph != null && !isResolved(view, typeName))
+      {
+         DirectedGraph<AddonVertex, AddonDependencyEdge> directedGraph = graph.getGraph();
+         Set<AddonVertex> defining = new HashSet<AddonVertex>();
+         List<AddonVertex> dormant = new ArrayList<AddonVertex>();
+         for (AddonVertex vertex : directedGraph.vertexSet())
+         {
+            Addon addon = vertex.getAddon();
+            if (addon == null || !vertex.getViews().contains(view))
+               continue;
+
+            if (addon.getStatus().isMissing())
+            {
+               dormant.add(vertex);
+               if (definesType(view, vertex.getAddonId(), typeName))
+                  defining.add(vertex);
+            }
+            else if (type != null ? addon.getClassLoader() == type.getClassLoader()
+                     : definesType(view, vertex.getAddonId(), typeName))
+            {
+               defining.add(vertex);
+            }
+         }
+
+         if (!defining.isEmpty())
+         {
+            for (AddonVertex vertex : dormant)
+            {
+               if (dependsOn(directedGraph, vertex, defining))
+                  result.add(vertex.getAddon());
+            }
+         }
+
+         activated.addAll(result);
+         getResolvedTypes(view).add(typeName);
+      }
+      return result;
+   }
+
+   /**
+    * Wait for the given activated {@link Addon} instances to start, if they were loaded.
+    */
+   public void awaitStarted(Set<Addon> addons)
+   {
+      for (Addon addon : addons)
+      {
+         try
+         {
+            if (!addon.getStatus().isMissing())
+               Addons.waitUntilStarted(addon, START_TIMEOUT, TimeUnit.SECONDS);
+         }
+         catch (TimeoutException e)
+         {
+            logger.warning("Timed out waiting for lazily activated addon [" + addon + "] to start.");
+         }
+      }
+   }
+
+   /**
+    * Notify this activator that the given {@link MasterGraph} has been installed, which may contain new dormant
+    * providers of previously requested types. Activated {@link Addon} instances that are no longer part of the graph
+    * are forgotten; those that are remain active.
+    */
+   public void graphChanged(MasterGraph graph)
+   {
+      resolvedTypes.clear();
+
+      Set<Addon> current = new HashSet<Addon>();
+      for (AddonVertex vertex : graph.getGraph().vertexSet())
+      {
+         Addon addon = vertex.getAddon();
+         if (addon != null)
+            current.add(addon);
+      }
+      activated.retainAll(current);
+   }
+
+   private boolean isResolved(AddonView view, String typeName)
+   {
+      Set<String> types = resolvedTypes.get(view);
+      return types != null && types.contains(typeName);
+   }
+
+   private Set<String> getResolvedTypes(AddonView view)
+   {
+      Set<String> result = resolvedTypes.get(view);
+      if (result == null)
+      {
+         Set<String> created = Sets.getConcurrentSet();
+         result = resolvedTypes.putIfAbsent(view, created);
+         if (result == null)
+            result = created;
+      }
+      return result;
+   }
+
+   private boolean dependsOn(DirectedGraph<AddonVertex, AddonDependencyEdge> graph, AddonVertex vertex,
+            Set<AddonVertex> targets)
+   {
+      Set<AddonVertex> visited = new HashSet<AddonVertex>();
+      LinkedList<AddonVertex> queue = new LinkedList<AddonVertex>();
+      queue.add(vertex);
+      while (!queue.isEmpty())
+      {
+         AddonVertex current = queue.removeFirst();
+         if (targets.contains(current))
+            return true;
+         if (visited.add(current))
+         {
+            for (AddonDependencyEdge edge : graph.outgoingEdgesOf(current))
+            {
+               queue.add(graph.getEdgeTarget(edge));
+            }
+         }
+      }
+      return false;
+   }
+
+   private AddonRepository getRepository(AddonView view, AddonId id)
+   {
+      for (AddonRepository repository : view.getRepositories())
+      {
+         if (repository.isEnabled(id) && repository.isDeployed(id))
+            return repository;
+      }
+      return null;
+   }
+
+   private boolean definesType(AddonView view, AddonId id, String typeName)
+   {
+      AddonRepository repository = getRepository(view, id);
+      if (repository != null)
+      {
+         String path = typeName.replace('.', '/') + ".class";
+         for (File resource : repository.getAddonResources(id))
+         {
+            if (resource.isDirectory())
+            {
+               if (new File(resource, path).isFile())
+                  return true;
+            }
+            else if (resource.getName().endsWith(".jar") && containsEntry(resource, path))
+            {
+               return true;
+            }
+         }
+      }
+      return false;
+   }
+
+   private boolean containsEntry(File jar, String path)
+   {
+      try
+      {
+         JarFile file = new JarFile(jar);
+         try
+         {
+            return file.getEntry(path) != null;
+         }
+         finally
+         {
+            file.close();
+         }
+      }
+      catch (IOException e)
+      {
+         logger.log(Level.FINE, "Could not read addon resource [" + jar + "]", e);
+         return false;
+      }
+   }
+}
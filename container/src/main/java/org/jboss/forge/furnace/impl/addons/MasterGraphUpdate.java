@@ -0,0 +1,274 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.exception.ContainerException;
+import org.jboss.forge.furnace.impl.graph.CompleteAddonGraph;
+import org.jboss.forge.furnace.impl.graph.EnabledAddons;
+import org.jboss.forge.furnace.impl.graph.GraphCache;
+import org.jboss.forge.furnace.impl.graph.MasterGraph;
+import org.jboss.forge.furnace.impl.graph.OptimizedAddonGraph;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+
+/**
+ * Builds the next {@link MasterGraph} from the current state of each {@link AddonView}, reusing the
+ * {@link OptimizedAddonGraph} of each {@link AddonView} whose enabled addons have not changed since the previous update.
+ * <p>
+ * An update is prepared without holding any lock, building the graphs of changed {@link AddonView} instances
+ * concurrently, and is then applied by the {@link AddonLifecycleManager} only if no other update was applied in the
+ * meantime.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+final class MasterGraphUpdate
+{
+   private static final Logger logger = Logger.getLogger(MasterGraphUpdate.class.getName());
+
+   private final int generation;
+   private final List<AddonView> views;
+
+   private final Map<AddonRepository, EnabledAddons> lastSnapshots;
+   private final Map<AddonView, Map<AddonId, Set<AddonDependencyEntry>>> lastViewAddons;
+   private final Map<AddonView, OptimizedAddonGraph> lastViewGraphs;
+
+   private final Map<AddonRepository, EnabledAddons> snapshots = new HashMap<AddonRepository, EnabledAddons>();
+   private final Map<AddonView, Map<AddonId, Set<AddonDependencyEntry>>> viewAddons = new HashMap<AddonView, Map<AddonId, Set<AddonDependencyEntry>>>();
+   private final Map<AddonView, OptimizedAddonGraph> viewGraphs = new LinkedHashMap<AddonView, OptimizedAddonGraph>();
+   private final Map<AddonView, Set<AddonId>> changed = new HashMap<AddonView, Set<AddonId>>();
+   private MasterGraph master;
+
+   /**
+    * Create an update of the given {@link AddonView} instances, following the given previously applied update, if any.
+    */
+   public MasterGraphUpdate(int generation, Collection<AddonView> views, MasterGraphUpdate previous)
+   {
+      this.generation = generation;
+      this.views = new ArrayList<AddonView>(views);
+      if (previous == null)
+      {
+         this.lastSnapshots = Collections.emptyMap();
+         this.lastViewAddons = Collections.emptyMap();
+         this.lastViewGraphs = Collections.emptyMap();
+      }
+      else
+      {
+         this.lastSnapshots = previous.snapshots;
+         this.lastViewAddons = previous.viewAddons;
+         this.lastViewGraphs = previous.viewGraphs;
+      }
+   }
+
+   /**
+    * Read the enabled addons of each {@link AddonView}, build the graphs of those that changed, using the given
+    * {@link ExecutorService} when there are several, and merge all into a new {@link MasterGraph}. If a cache
+    * directory is given, the graphs of {@link AddonView} instances not covered by the previous update are loaded from
+    * their {@link GraphCache} in that directory when it is current, and rebuilt graphs are stored in their
+    * {@link GraphCache}.
+    */
+   public void prepare(ExecutorService executor, boolean print, File cache)
+   {
+      Map<AddonView, Map<AddonId, Set<AddonDependencyEntry>>> rebuild = new LinkedHashMap<AddonView, Map<AddonId, Set<AddonDependencyEntry>>>();
+      Map<AddonView, GraphCache> caches = new HashMap<AddonView, GraphCache>();
+      Map<AddonView, OptimizedAddonGraph> loaded = new HashMap<AddonView, OptimizedAddonGraph>();
+      for (AddonView view : views)
+      {
+         Map<AddonId, Set<AddonDependencyEntry>> previous = lastViewAddons.get(view);
+
+         /*
+          * Fingerprint the repositories before reading them, so that changes made while reading invalidate the cache.
+          */
+         GraphCache graphCache = cache == null ? null : GraphCache.forRepositories(cache, view.getRepositories());
+         if (graphCache != null)
+         {
+            if (previous == null && graphCache.load(view))
+            {
+               viewAddons.put(view, graphCache.getEnabled());
+               loaded.put(view, graphCache.getGraph());
+               continue;
+            }
+            caches.put(view, graphCache);
+         }
+
+         List<EnabledAddons> viewSnapshots = new ArrayList<EnabledAddons>();
+         for (AddonRepository repository : view.getRepositories())
+         {
+            viewSnapshots.add(getSnapshot(repository));
+         }
+         Map<AddonId, Set<AddonDependencyEntry>> enabled = EnabledAddons.combine(viewSnapshots);
+
+         Set<AddonId> diff = previous == null ? enabled.keySet() : EnabledAddons.diff(previous, enabled);
+         if (!diff.isEmpty() || !lastViewGraphs.containsKey(view))
+         {
+            rebuild.put(view, enabled);
+            viewAddons.put(view, enabled);
+            if (previous != null)
+               changed.put(view, diff);
+         }
+         else
+         {
+            viewAddons.put(view, previous);
+         }
+      }
+
+      Map<AddonView, OptimizedAddonGraph> rebuilt = buildGraphs(executor, rebuild);
+      for (Entry<AddonView, OptimizedAddonGraph> entry : rebuilt.entrySet())
+      {
+         GraphCache graphCache = caches.get(entry.getKey());
+         if (graphCache != null)
+            graphCache.store(rebuild.get(entry.getKey()), entry.getValue());
+      }
+      rebuilt.putAll(loaded);
+
+      for (AddonView view : views)
+      {
+         OptimizedAddonGraph graph = rebuilt.get(view);
+         viewGraphs.put(view, graph == null ? lastViewGraphs.get(view) : graph);
+      }
+
+      master = new MasterGraph();
+      int i = 0;
+      for (OptimizedAddonGraph graph : viewGraphs.values())
+      {
+         master.merge(graph);
+
+         if (print)
+         {
+            logger.log(Level.INFO, " ------------ MASTER GRAPH v" + i++ + "------------ ");
+            logger.log(Level.INFO, master.toString());
+         }
+      }
+   }
+
+   private EnabledAddons getSnapshot(AddonRepository repository)
+   {
+      EnabledAddons result = snapshots.get(repository);
+      if (result == null)
+      {
+         result = lastSnapshots.get(repository);
+         if (result == null || !result.isCurrent(repository))
+            result = EnabledAddons.of(repository);
+         snapshots.put(repository, result);
+      }
+      return result;
+   }
+
+   private Map<AddonView, OptimizedAddonGraph> buildGraphs(ExecutorService executor,
+            Map<AddonView, Map<AddonId, Set<AddonDependencyEntry>>> rebuild)
+   {
+      Map<AddonView, OptimizedAddonGraph> result = new HashMap<AddonView, OptimizedAddonGraph>();
+      if (rebuild.size() > 1)
+      {
+         try
+         {
+            Map<AddonView, Future<OptimizedAddonGraph>> futures = new HashMap<AddonView, Future<OptimizedAddonGraph>>();
+            for (Entry<AddonView, Map<AddonId, Set<AddonDependencyEntry>>> entry : rebuild.entrySet())
+            {
+               futures.put(entry.getKey(), executor.submit(new BuildGraphCallable(entry.getKey(), entry.getValue())));
+            }
+            for (Entry<AddonView, Future<OptimizedAddonGraph>> entry : futures.entrySet())
+            {
+               result.put(entry.getKey(), entry.getValue().get());
+            }
+            return result;
+         }
+         catch (RejectedExecutionException e)
+         {
+            logger.log(Level.FINE, "Building addon graphs sequentially, since the executor is shut down.", e);
+            result.clear();
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            throw new ContainerException("Interrupted while building addon graphs.", e);
+         }
+         catch (ExecutionException e)
+         {
+            if (e.getCause() instanceof RuntimeException)
+               throw (RuntimeException) e.getCause();
+            throw new ContainerException("Failed to build addon graphs.", e.getCause());
+         }
+      }
+
+      for (Entry<AddonView, Map<AddonId, Set<AddonDependencyEntry>>> entry : rebuild.entrySet())
+      {
+         result.put(entry.getKey(), new BuildGraphCallable(entry.getKey(), entry.getValue()).call());
+      }
+      return result;
+   }
+
+   public int getGeneration()
+   {
+      return generation;
+   }
+
+   public List<AddonView> getViews()
+   {
+      return views;
+   }
+
+   /**
+    * Returns <code>true</code> if this update covers the same {@link AddonView} instances as the given previously
+    * applied update, so that the {@link AddonId} instances returned by {@link #getChanged()} are complete.
+    */
+   public boolean isIncremental(MasterGraphUpdate previous)
+   {
+      return previous != null && previous.viewGraphs.keySet().equals(viewGraphs.keySet());
+   }
+
+   /**
+    * Returns, for each {@link AddonView} whose enabled addons changed, the {@link AddonId} of each addon that was
+    * added, removed, or whose dependencies changed.
+    */
+   public Map<AddonView, Set<AddonId>> getChanged()
+   {
+      return changed;
+   }
+
+   public MasterGraph getMaster()
+   {
+      return master;
+   }
+
+   private static class BuildGraphCallable implements Callable<OptimizedAddonGraph>
+   {
+      private final AddonView view;
+      private final Map<AddonId, Set<AddonDependencyEntry>> enabled;
+
+      public BuildGraphCallable(AddonView view, Map<AddonId, Set<AddonDependencyEntry>> enabled)
+      {
+         this.view = view;
+         this.enabled = enabled;
+      }
+
+      @Override
+      public OptimizedAddonGraph call()
+      {
+         return new OptimizedAddonGraph(view, new CompleteAddonGraph(enabled).getGraph());
+      }
+   }
+}
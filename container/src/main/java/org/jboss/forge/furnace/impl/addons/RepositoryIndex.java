@@ -0,0 +1,351 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.impl.FurnaceImpl;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.util.Streams;
+import org.jboss.forge.furnace.versions.Versions;
+
+/**
+ * A compact binary index of the enabled addons of an {@link AddonRepositoryImpl}, holding for each addon its API
+ * version, the dependency entries of its descriptor, and the names of its resources. The index is a single file in
+ * the repository root directory, read in one pass and written atomically next to the XML registry whenever the
+ * registry changes.
+ * <p>
+ * The XML registry and addon descriptors remain the source of truth: the index is only used while the registry file
+ * has the modification time, size and checksum recorded in the index, and each descriptor and resource list only
+ * while its file or directory has the recorded modification time (and size).
+ * <p>
+ * An index is maintained for each repository that already has one, and created for every repository if the
+ * {@value AddonRepositoryImpl#INDEX_PROPERTY} system property is <code>true</code>. Run via <code>main</code> with
+ * the repository directories as arguments to create or rebuild their index from the XML.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public final class RepositoryIndex
+{
+   private static final Logger logger = Logger.getLogger(RepositoryIndex.class.getName());
+
+   /**
+    * The name of the index file within the repository root directory.
+    */
+   public static final String INDEX_FILENAME = "installed.idx";
+
+   private static final int MAGIC = 0x46524931;
+   private static final int FORMAT_VERSION = 1;
+
+   private final long registryLastModified;
+   private final long registryLength;
+   private final long registryChecksum;
+   private final List<Entry> entries;
+
+   RepositoryIndex(long registryLastModified, long registryLength, long registryChecksum, List<Entry> entries)
+   {
+      this.registryLastModified = registryLastModified;
+      this.registryLength = registryLength;
+      this.registryChecksum = registryChecksum;
+      this.entries = entries;
+   }
+
+   /**
+    * Create or rebuild the index of each repository directory given as argument.
+    */
+   public static void main(String[] args)
+   {
+      if (args.length == 0)
+      {
+         System.err.println("Usage: " + RepositoryIndex.class.getName() + " <repository directory>...");
+         System.exit(1);
+      }
+
+      FurnaceImpl furnace = new FurnaceImpl();
+      for (String arg : args)
+      {
+         AddonRepositoryImpl repository = (AddonRepositoryImpl) AddonRepositoryImpl.forDirectory(furnace,
+                  new File(arg));
+         int count = repository.rebuildIndex();
+         System.out.println("Indexed [" + count + "] enabled addons in [" + repository + "]");
+      }
+   }
+
+   /**
+    * Returns <code>true</code> if this index was written for the current state of the given registry file.
+    */
+   boolean isCurrent(File registryFile)
+   {
+      if (registryLastModified != registryFile.lastModified() || registryLength != registryFile.length())
+         return false;
+
+      try
+      {
+         return registryChecksum == checksum(registryFile);
+      }
+      catch (IOException e)
+      {
+         logger.log(Level.FINE, "Could not read registry [" + registryFile + "]", e);
+         return false;
+      }
+   }
+
+   long getRegistryLastModified()
+   {
+      return registryLastModified;
+   }
+
+   long getRegistryLength()
+   {
+      return registryLength;
+   }
+
+   /**
+    * Returns the enabled addons of this index, in registry order.
+    */
+   List<Entry> getEntries()
+   {
+      return entries;
+   }
+
+   /**
+    * Read the given index file, returning <code>null</code> if it does not exist or cannot be read.
+    */
+   static RepositoryIndex read(File file)
+   {
+      if (!file.isFile())
+         return null;
+
+      FileInputStream in = null;
+      try
+      {
+         in = new FileInputStream(file);
+         FileChannel channel = in.getChannel();
+         /*
+          * Read into the heap rather than mapping the file, since a mapping keeps the file locked on some platforms
+          * until it is collected, which would prevent replacing the index.
+          */
+         ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+         while (buffer.hasRemaining())
+         {
+            if (channel.read(buffer) == -1)
+               throw new IOException("Unexpected end of file");
+         }
+         buffer.flip();
+         if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION)
+            return null;
+
+         long registryLastModified = buffer.getLong();
+         long registryLength = buffer.getLong();
+         long registryChecksum = buffer.getLong();
+
+         int count = buffer.getInt();
+         List<Entry> entries = new ArrayList<Entry>(count);
+         for (int i = 0; i < count; i++)
+         {
+            AddonId id = AddonId.from(readString(buffer), readString(buffer), readString(buffer));
+
+            long descriptorLastModified = buffer.getLong();
+            long descriptorLength = buffer.getLong();
+            Set<AddonDependencyEntry> dependencies = null;
+            int dependencyCount = buffer.getInt();
+            if (dependencyCount >= 0)
+            {
+               dependencies = new HashSet<AddonDependencyEntry>();
+               for (int j = 0; j < dependencyCount; j++)
+               {
+                  dependencies.add(AddonDependencyEntry.create(readString(buffer),
+                           Versions.parseMultipleVersionRange(readString(buffer)), buffer.get() != 0,
+                           buffer.get() != 0));
+               }
+            }
+
+            long resourcesLastModified = buffer.getLong();
+            List<String> resources = null;
+            int resourceCount = buffer.getInt();
+            if (resourceCount >= 0)
+            {
+               resources = new ArrayList<String>(resourceCount);
+               for (int j = 0; j < resourceCount; j++)
+               {
+                  resources.add(readString(buffer));
+               }
+            }
+
+            entries.add(new Entry(id, descriptorLastModified, descriptorLength, dependencies, resourcesLastModified,
+                     resources));
+         }
+         return new RepositoryIndex(registryLastModified, registryLength, registryChecksum,
+                  Collections.unmodifiableList(entries));
+      }
+      catch (Exception e)
+      {
+         logger.log(Level.FINE, "Could not read repository index [" + file + "]", e);
+         return null;
+      }
+      finally
+      {
+         Streams.closeQuietly(in);
+      }
+   }
+
+   /**
+    * Write this index to the given file through a temporary file, replacing any existing index. Failures are logged
+    * and the existing index is deleted, since the index can always be rebuilt from the XML.
+    */
+   void write(File file)
+   {
+      File temp = null;
+      DataOutputStream out = null;
+      try
+      {
+         temp = File.createTempFile(".installed", ".tmp", file.getParentFile());
+         out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+         out.writeInt(MAGIC);
+         out.writeInt(FORMAT_VERSION);
+         out.writeLong(registryLastModified);
+         out.writeLong(registryLength);
+         out.writeLong(registryChecksum);
+
+         out.writeInt(entries.size());
+         for (Entry entry : entries)
+         {
+            writeString(out, entry.id.getName());
+            writeString(out, entry.id.getVersion().toString());
+            writeString(out, entry.id.getApiVersion() == null ? "" : entry.id.getApiVersion().toString());
+
+            out.writeLong(entry.descriptorLastModified);
+            out.writeLong(entry.descriptorLength);
+            if (entry.dependencies == null)
+            {
+               out.writeInt(-1);
+            }
+            else
+            {
+               out.writeInt(entry.dependencies.size());
+               for (AddonDependencyEntry dependency : entry.dependencies)
+               {
+                  writeString(out, dependency.getName());
+                  writeString(out, dependency.getVersionRange().toString());
+                  out.writeBoolean(dependency.isExported());
+                  out.writeBoolean(dependency.isOptional());
+               }
+            }
+
+            out.writeLong(entry.resourcesLastModified);
+            if (entry.resources == null)
+            {
+               out.writeInt(-1);
+            }
+            else
+            {
+               out.writeInt(entry.resources.size());
+               for (String resource : entry.resources)
+               {
+                  writeString(out, resource);
+               }
+            }
+         }
+         out.close();
+         out = null;
+
+         if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file)))
+            throw new IOException("Could not rename [" + temp + "] to [" + file + "]");
+         temp = null;
+      }
+      catch (IOException e)
+      {
+         logger.log(Level.FINE, "Could not write repository index [" + file + "]", e);
+         file.delete();
+      }
+      finally
+      {
+         Streams.closeQuietly(out);
+         if (temp != null)
+            temp.delete();
+      }
+   }
+
+   /**
+    * Returns the CRC-32 checksum of the contents of the given file.
+    */
+   static long checksum(File file) throws IOException
+   {
+      InputStream in = null;
+      try
+      {
+         in = new FileInputStream(file);
+         CRC32 crc = new CRC32();
+         byte[] buffer = new byte[8192];
+         for (int read = in.read(buffer); read != -1; read = in.read(buffer))
+         {
+            crc.update(buffer, 0, read);
+         }
+         return crc.getValue();
+      }
+      finally
+      {
+         Streams.closeQuietly(in);
+      }
+   }
+
+   private static String readString(ByteBuffer buffer) throws IOException
+   {
+      byte[] bytes = new byte[buffer.getInt()];
+      buffer.get(bytes);
+      return new String(bytes, "UTF-8");
+   }
+
+   private static void writeString(DataOutputStream out, String value) throws IOException
+   {
+      byte[] bytes = value.getBytes("UTF-8");
+      out.writeInt(bytes.length);
+      out.write(bytes);
+   }
+
+   /**
+    * An enabled addon of the index, with the dependencies of its descriptor and the names of its resources, each
+    * <code>null</code> if not known when the index was written.
+    */
+   static class Entry
+   {
+      final AddonId id;
+      final long descriptorLastModified;
+      final long descriptorLength;
+      final Set<AddonDependencyEntry> dependencies;
+      final long resourcesLastModified;
+      final List<String> resources;
+
+      Entry(AddonId id, long descriptorLastModified, long descriptorLength, Set<AddonDependencyEntry> dependencies,
+               long resourcesLastModified, List<String> resources)
+      {
+         this.id = id;
+         this.descriptorLastModified = descriptorLastModified;
+         this.descriptorLength = descriptorLength;
+         this.dependencies = dependencies;
+         this.resourcesLastModified = resourcesLastModified;
+         this.resources = resources;
+      }
+   }
+}
@@ -1,7 +1,7 @@
 package org.jboss.forge.furnace.impl.addons;
 
+import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -16,23 +16,29 @@ public class StartEnabledAddonCallable implements Callable<Void>
    private Furnace furnace;
    private AddonLifecycleManager lifecycleManager;
    private AddonStateManager stateManager;
-   private ExecutorService executor;
+   private AddonStartupScheduler.Batch batch;
+   private AddonStartupScheduler scheduler;
    private AtomicInteger starting;
    private Addon addon;
+   private Set<Addon> dependencies;
 
-   public StartEnabledAddonCallable(Furnace furnace,
+   StartEnabledAddonCallable(Furnace furnace,
             AddonLifecycleManager lifecycleManager,
             AddonStateManager stateManager,
-            ExecutorService executor,
+            AddonStartupScheduler scheduler,
+            AddonStartupScheduler.Batch batch,
             AtomicInteger starting,
-            Addon toStart)
+            Addon toStart,
+            Set<Addon> dependencies)
    {
       this.furnace = furnace;
       this.lifecycleManager = lifecycleManager;
       this.stateManager = stateManager;
-      this.executor = executor;
+      this.scheduler = scheduler;
+      this.batch = batch;
       this.starting = starting;
       this.addon = toStart;
+      this.dependencies = dependencies;
    }
 
    @Override
@@ -40,7 +46,7 @@ public class StartEnabledAddonCallable implements Callable<Void>
    {
       if (stateManager.canBeStarted(addon))
       {
-         if (executor.isShutdown())
+         if (lifecycleManager.isShutdown())
          {
             throw new IllegalStateException("Cannot start additional addons once Shutdown has been initiated.");
          }
@@ -50,7 +56,7 @@ public class StartEnabledAddonCallable implements Callable<Void>
          {
             starting.incrementAndGet();
             AddonRunnable runnable = new AddonRunnable(furnace, lifecycleManager, stateManager, addon);
-            result = executor.submit(runnable, null);
+            result = scheduler.add(batch, addon, runnable, dependencies);
             stateManager.setHandles(addon, result, runnable);
          }
       }
@@ -1,5 +1,8 @@
 package org.jboss.forge.furnace.impl.graph;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.jboss.forge.furnace.versions.SingleVersion;
 import org.jboss.forge.furnace.versions.Version;
 import org.jgrapht.DirectedGraph;
@@ -9,23 +12,23 @@ public abstract class AddonGraph<T extends AddonGraph<T>>
 {
    public abstract DirectedGraph<AddonVertex, AddonDependencyEdge> getGraph();
 
+   /*
+    * Vertices by name and version, maintained by addLocalVertex and removeLocalVertex.
+    */
+   private final Map<String, Map<Version, AddonVertex>> vertices = new HashMap<String, Map<Version, AddonVertex>>();
+
    protected AddonVertex getVertex(String name, Version version)
    {
-      AddonVertex result = null;
-      for (AddonVertex vertex : getGraph().vertexSet())
-      {
-         String vertexName = vertex.getName();
-         // FIXME some weird CLAC javassist issue requiring this unwrapping?
-         Version vertexVersion = new SingleVersion(vertex.getVersion().toString());
-         if (vertexName.equals(name)
-                  && new SingleVersion(version.toString())
-                           .compareTo(new SingleVersion(vertexVersion.toString())) == 0)
-         {
-            result = vertex;
-            break;
-         }
-      }
-      return result;
+      Map<Version, AddonVertex> versions = vertices.get(name);
+      if (versions == null)
+         return null;
+      return versions.get(toIndexVersion(version));
+   }
+
+   private static Version toIndexVersion(Version version)
+   {
+      // FIXME some weird CLAC javassist issue requiring this unwrapping?
+      return new SingleVersion(version.toString());
    }
 
    protected AddonVertex getOrCreateVertex(String name, Version version)
@@ -42,6 +45,31 @@ public abstract class AddonGraph<T extends AddonGraph<T>>
    protected void addLocalVertex(AddonVertex vertex)
    {
       getGraph().addVertex(vertex);
+
+      Map<Version, AddonVertex> versions = vertices.get(vertex.getName());
+      if (versions == null)
+      {
+         versions = new HashMap<Version, AddonVertex>();
+         vertices.put(vertex.getName(), versions);
+      }
+      Version version = toIndexVersion(vertex.getVersion());
+      if (!versions.containsKey(version))
+         versions.put(version, vertex);
+   }
+
+   protected void removeLocalVertex(AddonVertex vertex)
+   {
+      getGraph().removeVertex(vertex);
+
+      Map<Version, AddonVertex> versions = vertices.get(vertex.getName());
+      if (versions != null)
+      {
+         Version version = toIndexVersion(vertex.getVersion());
+         if (vertex.equals(versions.get(version)))
+            versions.remove(version);
+         if (versions.isEmpty())
+            vertices.remove(vertex.getName());
+      }
    }
 
    @Override
@@ -1,14 +1,16 @@
 package org.jboss.forge.furnace.impl.graph;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import org.jboss.forge.furnace.addons.AddonId;
-import org.jboss.forge.furnace.impl.addons.AddonRepositoryImpl;
 import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
 import org.jboss.forge.furnace.repositories.AddonRepository;
 import org.jboss.forge.furnace.versions.EmptyVersion;
@@ -23,19 +25,15 @@ public class CompleteAddonGraph extends AddonGraph<CompleteAddonGraph>
 
    public CompleteAddonGraph(Collection<AddonRepository> repositories)
    {
-      Set<AddonId> enabled = getAllEnabledAddonsInAllRepositories(repositories);
-      Map<AddonId, Set<AddonDependencyEntry>> dependencyMap = new LinkedHashMap<AddonId, Set<AddonDependencyEntry>>();
-      for (AddonId id : enabled)
-      {
-         for (AddonRepository repository : repositories)
-         {
-            if (repository.isEnabled(id))
-            {
-               Set<AddonDependencyEntry> dependencies = repository.getAddonDependencies(id);
-               dependencyMap.put(id, dependencies);
-            }
-         }
-      }
+      this(getDependencyMap(repositories));
+   }
+
+   /**
+    * Create the graph of the given enabled addons, mapped to their declared dependencies.
+    */
+   public CompleteAddonGraph(Map<AddonId, Set<AddonDependencyEntry>> dependencyMap)
+   {
+      Map<String, List<AddonId>> enabled = getEnabledByName(dependencyMap.keySet());
 
       for (Entry<AddonId, Set<AddonDependencyEntry>> entry : dependencyMap.entrySet())
       {
@@ -44,9 +42,10 @@ public class CompleteAddonGraph extends AddonGraph<CompleteAddonGraph>
          for (AddonDependencyEntry dependency : entry.getValue())
          {
             boolean satisfied = false;
-            for (AddonId id : enabled)
+            List<AddonId> candidates = enabled.get(dependency.getName());
+            for (AddonId id : candidates == null ? Collections.<AddonId> emptyList() : candidates)
             {
-               if (dependency.getName().equals(id.getName()) && dependency.getVersionRange().includes(id.getVersion()))
+               if (dependency.getVersionRange().includes(id.getVersion()))
                {
                   AddonVertex dependencyVertex = getOrCreateVertex(id.getName(), id.getVersion());
                   graph.addEdge(vertex, dependencyVertex, new AddonDependencyEdge(dependency.getVersionRange(),
@@ -57,8 +56,7 @@ public class CompleteAddonGraph extends AddonGraph<CompleteAddonGraph>
 
             if (!satisfied && !dependency.isOptional())
             {
-               AddonVertex missingVertex = new AddonVertex(dependency.getName(), EmptyVersion.getInstance());
-               graph.addVertex(missingVertex);
+               AddonVertex missingVertex = getOrCreateVertex(dependency.getName(), EmptyVersion.getInstance());
                graph.addEdge(vertex, missingVertex,
                         new AddonDependencyEdge(dependency.getVersionRange(), dependency.isExported()));
             }
@@ -73,15 +71,47 @@ public class CompleteAddonGraph extends AddonGraph<CompleteAddonGraph>
       }
    }
 
-   private Set<AddonId> getAllEnabledAddonsInAllRepositories(Collection<AddonRepository> repositories)
+   /**
+    * Returns the enabled addons of the given repositories, mapped to their declared dependencies, reading each
+    * {@link AddonRepository} once. Where an addon is enabled in several repositories, the last one wins.
+    */
+   private static Map<AddonId, Set<AddonDependencyEntry>> getDependencyMap(Collection<AddonRepository> repositories)
    {
-      Set<AddonId> result = new HashSet<AddonId>();
+      List<EnabledAddons> snapshots = new ArrayList<EnabledAddons>();
       for (AddonRepository repository : repositories)
       {
-         for (AddonId enabled : repository.listEnabledCompatibleWithVersion(AddonRepositoryImpl.getRuntimeAPIVersion()))
+         snapshots.add(EnabledAddons.of(repository));
+      }
+      return EnabledAddons.combine(snapshots);
+   }
+
+   /**
+    * Returns the given addons grouped by name, each group sorted by version.
+    */
+   private static Map<String, List<AddonId>> getEnabledByName(Set<AddonId> enabled)
+   {
+      Map<String, List<AddonId>> result = new HashMap<String, List<AddonId>>();
+      for (AddonId id : enabled)
+      {
+         List<AddonId> versions = result.get(id.getName());
+         if (versions == null)
          {
-            result.add(enabled);
+            versions = new ArrayList<AddonId>();
+            result.put(id.getName(), versions);
          }
+         versions.add(id);
+      }
+
+      for (List<AddonId> versions : result.values())
+      {
+         Collections.sort(versions, new Comparator<AddonId>()
+         {
+            @Override
+            public int compare(AddonId left, AddonId right)
+            {
+               return left.getVersion().compareTo(right.getVersion());
+            }
+         });
       }
       return result;
    }
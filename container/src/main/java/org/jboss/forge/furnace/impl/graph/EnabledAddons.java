@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.graph;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.impl.addons.AddonRepositoryImpl;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+
+/**
+ * A snapshot of the enabled, API compatible addons of an {@link AddonRepository}, and their declared dependencies, as
+ * of a given version of that {@link AddonRepository}. Snapshots of the same {@link AddonRepository} may be compared to
+ * find the addons that have changed between versions, without rebuilding any addon graph.
+ */
+public class EnabledAddons
+{
+   private final int version;
+   private final long lastModified;
+   private final Map<AddonId, Set<AddonDependencyEntry>> dependencies;
+
+   private EnabledAddons(int version, long lastModified, Map<AddonId, Set<AddonDependencyEntry>> dependencies)
+   {
+      this.version = version;
+      this.lastModified = lastModified;
+      this.dependencies = Collections.unmodifiableMap(dependencies);
+   }
+
+   /**
+    * Take a snapshot of the enabled, API compatible addons of the given {@link AddonRepository}.
+    */
+   public static EnabledAddons of(AddonRepository repository)
+   {
+      /*
+       * Read the version first, so that changes made while the snapshot is taken produce a newer version.
+       */
+      int version = repository.getVersion();
+      long lastModified = repository.getLastModified().getTime();
+
+      Map<AddonId, Set<AddonDependencyEntry>> dependencies = new LinkedHashMap<AddonId, Set<AddonDependencyEntry>>();
+      for (AddonId id : repository.listEnabledCompatibleWithVersion(AddonRepositoryImpl.getRuntimeAPIVersion()))
+      {
+         dependencies.put(id, repository.getAddonDependencies(id));
+      }
+      return new EnabledAddons(version, lastModified, dependencies);
+   }
+
+   /**
+    * Returns <code>true</code> if this snapshot was taken at the current version of the given {@link AddonRepository}.
+    */
+   public boolean isCurrent(AddonRepository repository)
+   {
+      return version == repository.getVersion() && lastModified == repository.getLastModified().getTime();
+   }
+
+   /**
+    * Returns the enabled addons of this snapshot, mapped to their declared dependencies.
+    */
+   public Map<AddonId, Set<AddonDependencyEntry>> getDependencies()
+   {
+      return dependencies;
+   }
+
+   /**
+    * Combine the given snapshots, taken of the {@link AddonRepository} instances of a single view, into the enabled
+    * addons of that view, mapped to their declared dependencies.
+    */
+   public static Map<AddonId, Set<AddonDependencyEntry>> combine(Collection<EnabledAddons> snapshots)
+   {
+      Map<AddonId, Set<AddonDependencyEntry>> result = new LinkedHashMap<AddonId, Set<AddonDependencyEntry>>();
+      for (EnabledAddons snapshot : snapshots)
+      {
+         result.putAll(snapshot.dependencies);
+      }
+      return result;
+   }
+
+   /**
+    * Returns the {@link AddonId} of each addon that was added, removed, or whose declared dependencies changed between
+    * the given enabled addons.
+    */
+   public static Set<AddonId> diff(Map<AddonId, Set<AddonDependencyEntry>> previous,
+            Map<AddonId, Set<AddonDependencyEntry>> current)
+   {
+      Set<AddonId> result = new HashSet<AddonId>();
+      for (Entry<AddonId, Set<AddonDependencyEntry>> entry : current.entrySet())
+      {
+         Set<AddonDependencyEntry> last = previous.get(entry.getKey());
+         if (last == null || !toStrings(last).equals(toStrings(entry.getValue())))
+            result.add(entry.getKey());
+      }
+      for (AddonId id : previous.keySet())
+      {
+         if (!current.containsKey(id))
+            result.add(id);
+      }
+      return result;
+   }
+
+   /**
+    * {@link AddonDependencyEntry} equality considers only the dependency name, so compare the full entries by their
+    * string form, which includes the version range, and the exported and optional flags.
+    */
+   private static Set<String> toStrings(Set<AddonDependencyEntry> entries)
+   {
+      Set<String> result = new HashSet<String>();
+      for (AddonDependencyEntry entry : entries)
+      {
+         result.add(entry.toString());
+      }
+      return result;
+   }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.impl.addons.AddonRepositoryImpl;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+import org.jboss.forge.furnace.util.Streams;
+import org.jboss.forge.furnace.versions.EmptyVersion;
+import org.jboss.forge.furnace.versions.EmptyVersionRange;
+import org.jboss.forge.furnace.versions.SingleVersion;
+import org.jboss.forge.furnace.versions.Version;
+import org.jboss.forge.furnace.versions.VersionRange;
+import org.jboss.forge.furnace.versions.Versions;
+
+/**
+ * A compiled snapshot of the enabled addons and {@link OptimizedAddonGraph} of a set of {@link AddonRepository}
+ * instances, stored in a binary file in a dedicated cache directory, never in the {@link AddonRepository} directories
+ * themselves, which may be read-only or shared.
+ * <p>
+ * The snapshot is keyed by a fingerprint of the modification times and sizes of the registry and addon descriptor
+ * files of every {@link AddonRepository}, taken when this cache is created, so that a snapshot is only used if no
+ * descriptor has changed since it was stored.
+ */
+public class GraphCache
+{
+   private static final Logger logger = Logger.getLogger(GraphCache.class.getName());
+
+   private static final int MAGIC = 0x46474331;
+   private static final int FORMAT_VERSION = 1;
+
+   private static final AtomicBoolean writeFailureReported = new AtomicBoolean();
+
+   private final File file;
+   private final byte[] fingerprint;
+
+   private Map<AddonId, Set<AddonDependencyEntry>> enabled;
+   private OptimizedAddonGraph graph;
+
+   private GraphCache(File file, byte[] fingerprint)
+   {
+      this.file = file;
+      this.fingerprint = fingerprint;
+   }
+
+   /**
+    * Returns the {@link GraphCache} of the given {@link AddonRepository} instances in the given cache directory,
+    * fingerprinted with their current state, or <code>null</code> if they cannot be cached.
+    */
+   public static GraphCache forRepositories(File directory, Collection<AddonRepository> repositories)
+   {
+      if (repositories.isEmpty())
+         return null;
+
+      MessageDigest paths = newDigest();
+      MessageDigest fingerprint = newDigest();
+      update(fingerprint, String.valueOf(FORMAT_VERSION));
+      update(fingerprint, String.valueOf(AddonRepositoryImpl.getRuntimeAPIVersion()));
+      for (AddonRepository repository : repositories)
+      {
+         if (!(repository instanceof AddonRepositoryImpl))
+            return null;
+
+         update(paths, repository.getRootDirectory().getAbsolutePath());
+         update(fingerprint, repository.getRootDirectory().getAbsolutePath());
+         for (File descriptor : ((AddonRepositoryImpl) repository).getDescriptorFiles())
+         {
+            update(fingerprint, descriptor.getAbsolutePath() + ":" + descriptor.lastModified() + ":"
+                     + descriptor.length());
+         }
+      }
+
+      File file = new File(directory, "graph-" + toHex(paths.digest(), 8) + ".cache");
+      return new GraphCache(file, fingerprint.digest());
+   }
+
+   /**
+    * Load the stored snapshot for the given {@link AddonView}.
+    *
+    * @return <code>true</code> if a snapshot was stored with a matching fingerprint, and could be read.
+    */
+   public boolean load(AddonView view)
+   {
+      if (!file.isFile())
+         return false;
+
+      DataInputStream in = null;
+      try
+      {
+         in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+         if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+            return false;
+
+         byte[] stored = new byte[in.readInt()];
+         in.readFully(stored);
+         if (!Arrays.equals(stored, fingerprint))
+            return false;
+
+         Map<AddonId, Set<AddonDependencyEntry>> addons = new LinkedHashMap<AddonId, Set<AddonDependencyEntry>>();
+         int addonCount = in.readInt();
+         for (int i = 0; i < addonCount; i++)
+         {
+            AddonId id = AddonId.from(in.readUTF(), in.readUTF(), in.readUTF());
+            Set<AddonDependencyEntry> dependencies = new HashSet<AddonDependencyEntry>();
+            int dependencyCount = in.readInt();
+            for (int j = 0; j < dependencyCount; j++)
+            {
+               dependencies.add(AddonDependencyEntry.create(in.readUTF(),
+                        Versions.parseMultipleVersionRange(in.readUTF()), in.readBoolean(), in.readBoolean()));
+            }
+            addons.put(id, dependencies);
+         }
+
+         OptimizedAddonGraph result = new OptimizedAddonGraph(view);
+         List<AddonVertex> vertices = new ArrayList<AddonVertex>();
+         int vertexCount = in.readInt();
+         for (int i = 0; i < vertexCount; i++)
+         {
+            AddonVertex vertex = new AddonVertex(in.readUTF(), readVersion(in.readUTF()));
+            result.addLocalVertex(vertex);
+            vertices.add(vertex);
+         }
+         int edgeCount = in.readInt();
+         for (int i = 0; i < edgeCount; i++)
+         {
+            AddonVertex source = vertices.get(in.readInt());
+            AddonVertex target = vertices.get(in.readInt());
+            VersionRange range = in.readBoolean() ? new EmptyVersionRange() : Versions.parseMultipleVersionRange(in
+                     .readUTF());
+            result.getGraph().addEdge(source, target, new AddonDependencyEdge(range, in.readBoolean()));
+         }
+
+         this.enabled = addons;
+         this.graph = result;
+         return true;
+      }
+      catch (Exception e)
+      {
+         logger.log(Level.FINE, "Could not read addon graph cache [" + file + "]", e);
+         return false;
+      }
+      finally
+      {
+         Streams.closeQuietly(in);
+      }
+   }
+
+   /**
+    * Store a snapshot of the given enabled addons and their {@link OptimizedAddonGraph}, replacing any existing
+    * snapshot. Failures are otherwise ignored, since the snapshot can always be rebuilt, and only the first is logged
+    * as a warning.
+    */
+   public void store(Map<AddonId, Set<AddonDependencyEntry>> enabled, OptimizedAddonGraph graph)
+   {
+      File temp = null;
+      DataOutputStream out = null;
+      try
+      {
+         file.getParentFile().mkdirs();
+         temp = File.createTempFile("graph", ".tmp", file.getParentFile());
+         out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+         out.writeInt(MAGIC);
+         out.writeInt(FORMAT_VERSION);
+         out.writeInt(fingerprint.length);
+         out.write(fingerprint);
+
+         out.writeInt(enabled.size());
+         for (Entry<AddonId, Set<AddonDependencyEntry>> entry : enabled.entrySet())
+         {
+            AddonId id = entry.getKey();
+            out.writeUTF(id.getName());
+            out.writeUTF(id.getVersion().toString());
+            out.writeUTF(id.getApiVersion() == null ? "" : id.getApiVersion().toString());
+            out.writeInt(entry.getValue().size());
+            for (AddonDependencyEntry dependency : entry.getValue())
+            {
+               out.writeUTF(dependency.getName());
+               out.writeUTF(dependency.getVersionRange().toString());
+               out.writeBoolean(dependency.isExported());
+               out.writeBoolean(dependency.isOptional());
+            }
+         }
+
+         Map<AddonVertex, Integer> indexes = new HashMap<AddonVertex, Integer>();
+         out.writeInt(graph.getGraph().vertexSet().size());
+         for (AddonVertex vertex : graph.getGraph().vertexSet())
+         {
+            indexes.put(vertex, indexes.size());
+            out.writeUTF(vertex.getName());
+            out.writeUTF(vertex.getVersion().toString());
+         }
+         out.writeInt(graph.getGraph().edgeSet().size());
+         for (AddonDependencyEdge edge : graph.getGraph().edgeSet())
+         {
+            out.writeInt(indexes.get(graph.getGraph().getEdgeSource(edge)));
+            out.writeInt(indexes.get(graph.getGraph().getEdgeTarget(edge)));
+            boolean empty = edge.getVersionRange() instanceof EmptyVersionRange;
+            out.writeBoolean(empty);
+            if (!empty)
+               out.writeUTF(edge.getVersionRange().toString());
+            out.writeBoolean(edge.isExported());
+         }
+         out.close();
+         out = null;
+
+         if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file)))
+            throw new IOException("Could not rename [" + temp + "] to [" + file + "]");
+         temp = null;
+      }
+      catch (IOException e)
+      {
+         Level level = writeFailureReported.compareAndSet(false, true) ? Level.WARNING : Level.FINE;
+         logger.log(level, "Could not write addon graph cache [" + file + "]", e);
+      }
+      finally
+      {
+         Streams.closeQuietly(out);
+         if (temp != null)
+            temp.delete();
+      }
+   }
+
+   /**
+    * Returns the enabled addons, mapped to their declared dependencies, read by {@link #load(AddonView)}.
+    */
+   public Map<AddonId, Set<AddonDependencyEntry>> getEnabled()
+   {
+      return enabled;
+   }
+
+   /**
+    * Returns the {@link OptimizedAddonGraph} read by {@link #load(AddonView)}.
+    */
+   public OptimizedAddonGraph getGraph()
+   {
+      return graph;
+   }
+
+   private static Version readVersion(String version)
+   {
+      return version.isEmpty() ? EmptyVersion.getInstance() : new SingleVersion(version);
+   }
+
+   private static MessageDigest newDigest()
+   {
+      try
+      {
+         return MessageDigest.getInstance("SHA-1");
+      }
+      catch (NoSuchAlgorithmException e)
+      {
+         throw new IllegalStateException("SHA-1 is not supported by this JVM", e);
+      }
+   }
+
+   private static void update(MessageDigest digest, String value)
+   {
+      try
+      {
+         digest.update(value.getBytes("UTF-8"));
+         digest.update((byte) 0);
+      }
+      catch (IOException e)
+      {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   private static String toHex(byte[] bytes, int length)
+   {
+      StringBuilder result = new StringBuilder();
+      for (int i = 0; i < length && i < bytes.length; i++)
+      {
+         result.append(String.format("%02x", bytes[i]));
+      }
+      return result.toString();
+   }
+}
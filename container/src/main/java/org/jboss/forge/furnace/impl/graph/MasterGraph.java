@@ -3,25 +3,91 @@ package org.jboss.forge.furnace.impl.graph;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.jboss.forge.furnace.addons.AddonView;
 import org.jboss.forge.furnace.util.Streams;
 import org.jboss.forge.furnace.versions.SingleVersion;
 import org.jboss.forge.furnace.versions.Version;
 import org.jgrapht.DirectedGraph;
+import org.jgrapht.event.GraphVertexChangeEvent;
 import org.jgrapht.event.TraversalListenerAdapter;
+import org.jgrapht.event.VertexSetListener;
 import org.jgrapht.event.VertexTraversalEvent;
 import org.jgrapht.ext.DOTExporter;
 import org.jgrapht.ext.IntegerNameProvider;
+import org.jgrapht.graph.ListenableDirectedGraph;
 import org.jgrapht.graph.SimpleDirectedGraph;
 import org.jgrapht.traverse.DepthFirstIterator;
 
 public class MasterGraph
 {
-   private DirectedGraph<AddonVertex, AddonDependencyEdge> graph = new SimpleDirectedGraph<AddonVertex, AddonDependencyEdge>(
-            AddonDependencyEdge.class);
+   private ListenableDirectedGraph<AddonVertex, AddonDependencyEdge> graph = new ListenableDirectedGraph<AddonVertex, AddonDependencyEdge>(
+            new SimpleDirectedGraph<AddonVertex, AddonDependencyEdge>(AddonDependencyEdge.class));
+
+   /*
+    * Vertices by name and version, maintained as vertices are added to and removed from the graph.
+    */
+   private Map<String, Map<Version, Set<AddonVertex>>> index = new HashMap<String, Map<Version, Set<AddonVertex>>>();
+
+   /*
+    * Subtree equivalence results, by compared graph. Vertices of this graph are not modified once their subtree has been
+    * added, and replaced vertices are never compared again, so results remain valid as this graph is merged.
+    */
+   private Map<DirectedGraph<AddonVertex, AddonDependencyEdge>, Map<AddonVertex, Map<AddonVertex, Boolean>>> equivalence = new WeakHashMap<DirectedGraph<AddonVertex, AddonDependencyEdge>, Map<AddonVertex, Map<AddonVertex, Boolean>>>();
+
+   public MasterGraph()
+   {
+      graph.addVertexSetListener(new VertexSetListener<AddonVertex>()
+      {
+         @Override
+         public void vertexAdded(GraphVertexChangeEvent<AddonVertex> event)
+         {
+            AddonVertex vertex = event.getVertex();
+            Map<Version, Set<AddonVertex>> versions = index.get(vertex.getName());
+            if (versions == null)
+            {
+               versions = new HashMap<Version, Set<AddonVertex>>();
+               index.put(vertex.getName(), versions);
+            }
+
+            Version version = toIndexVersion(vertex.getVersion());
+            Set<AddonVertex> vertices = versions.get(version);
+            if (vertices == null)
+            {
+               vertices = new HashSet<AddonVertex>();
+               versions.put(version, vertices);
+            }
+            vertices.add(vertex);
+         }
+
+         @Override
+         public void vertexRemoved(GraphVertexChangeEvent<AddonVertex> event)
+         {
+            AddonVertex vertex = event.getVertex();
+            Map<Version, Set<AddonVertex>> versions = index.get(vertex.getName());
+            if (versions != null)
+            {
+               Version version = toIndexVersion(vertex.getVersion());
+               Set<AddonVertex> vertices = versions.get(version);
+               if (vertices != null)
+               {
+                  vertices.remove(vertex);
+                  if (vertices.isEmpty())
+                     versions.remove(version);
+               }
+               if (versions.isEmpty())
+                  index.remove(vertex.getName());
+            }
+         }
+      });
+   }
 
    public DirectedGraph<AddonVertex, AddonDependencyEdge> getGraph()
    {
@@ -102,24 +168,57 @@ public class MasterGraph
 
    public Set<AddonVertex> getVertices(String name, Version version)
    {
-      Set<AddonVertex> result = new HashSet<AddonVertex>();
-      for (AddonVertex vertex : getGraph().vertexSet())
-      {
-         String vertexName = vertex.getName();
-         // FIXME some weird CLAC javassist issue requiring this unwrapping?
-         Version vertexVersion = new SingleVersion(vertex.getVersion().toString());
-         if (vertexName.equals(name)
-                  && new SingleVersion(version.toString())
-                           .compareTo(new SingleVersion(vertexVersion.toString())) == 0)
-         {
-            result.add(vertex);
-         }
+      Map<Version, Set<AddonVertex>> versions = index.get(name);
+      if (versions != null)
+      {
+         Set<AddonVertex> vertices = versions.get(toIndexVersion(version));
+         if (vertices != null)
+            return new HashSet<AddonVertex>(vertices);
       }
-      return result;
+      return Collections.emptySet();
+   }
+
+   private static Version toIndexVersion(Version version)
+   {
+      // FIXME some weird CLAC javassist issue requiring this unwrapping?
+      return new SingleVersion(version.toString());
    }
 
    public boolean isSubtreeEquivalent(AddonVertex localVertex,
             DirectedGraph<AddonVertex, AddonDependencyEdge> otherGraph, AddonVertex otherVertex)
+   {
+      Map<AddonVertex, Map<AddonVertex, Boolean>> results = equivalence.get(otherGraph);
+      if (results == null)
+      {
+         results = new IdentityHashMap<AddonVertex, Map<AddonVertex, Boolean>>();
+         equivalence.put(otherGraph, results);
+      }
+      return isSubtreeEquivalent(localVertex, otherGraph, otherVertex, results);
+   }
+
+   private boolean isSubtreeEquivalent(AddonVertex localVertex,
+            DirectedGraph<AddonVertex, AddonDependencyEdge> otherGraph, AddonVertex otherVertex,
+            Map<AddonVertex, Map<AddonVertex, Boolean>> equivalent)
+   {
+      Map<AddonVertex, Boolean> results = equivalent.get(localVertex);
+      if (results == null)
+      {
+         results = new IdentityHashMap<AddonVertex, Boolean>();
+         equivalent.put(localVertex, results);
+      }
+
+      Boolean result = results.get(otherVertex);
+      if (result == null)
+      {
+         result = compareSubtrees(localVertex, otherGraph, otherVertex, equivalent);
+         results.put(otherVertex, result);
+      }
+      return result;
+   }
+
+   private boolean compareSubtrees(AddonVertex localVertex,
+            DirectedGraph<AddonVertex, AddonDependencyEdge> otherGraph, AddonVertex otherVertex,
+            Map<AddonVertex, Map<AddonVertex, Boolean>> equivalent)
    {
       Set<AddonDependencyEdge> otherOutgoing = otherGraph.outgoingEdgesOf(otherVertex);
       Set<AddonDependencyEdge> localOutgoing = graph.outgoingEdgesOf(localVertex);
@@ -128,7 +227,7 @@ public class MasterGraph
       {
          for (AddonDependencyEdge otherEdge : otherOutgoing)
          {
-            AddonVertex otherTarget = graph.getEdgeTarget(otherEdge);
+            AddonVertex otherTarget = otherGraph.getEdgeTarget(otherEdge);
             Set<AddonVertex> localCandidates = getVertices(otherTarget.getName(), otherTarget.getVersion());
 
             boolean found = false;
@@ -137,7 +236,7 @@ public class MasterGraph
                for (AddonVertex candidate : localCandidates)
                {
                   AddonDependencyEdge localEdge = graph.getEdge(localVertex, candidate);
-                  if (localEdge != null && isSubtreeEquivalent(candidate, otherGraph, otherTarget))
+                  if (localEdge != null && isSubtreeEquivalent(candidate, otherGraph, otherTarget, equivalent))
                   {
                      found = true;
                      break;
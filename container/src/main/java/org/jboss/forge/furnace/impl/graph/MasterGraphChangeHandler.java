@@ -1,5 +1,11 @@
 package org.jboss.forge.furnace.impl.graph;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.jboss.forge.furnace.addons.Addon;
@@ -16,6 +22,8 @@ public class MasterGraphChangeHandler
    private AddonLifecycleManager lifecycleManager;
    private MasterGraph lastMasterGraph;
    private MasterGraph graph;
+   private Map<AddonView, Set<AddonId>> changed;
+   private Set<AddonVertex> active = new HashSet<AddonVertex>();
 
    public MasterGraphChangeHandler(AddonLifecycleManager lifefycleManager,
             MasterGraph currentGraph, MasterGraph graph)
@@ -25,18 +33,85 @@ public class MasterGraphChangeHandler
       this.graph = graph;
    }
 
+   /**
+    * Create a handler for a change from the current graph to the given graph, in which only the given addons of each
+    * view have been added, removed, or had their dependencies changed. Only those addons, and their transitive
+    * dependents, are restarted, without comparing the subtrees of the two graphs.
+    */
+   public MasterGraphChangeHandler(AddonLifecycleManager lifefycleManager,
+            MasterGraph currentGraph, MasterGraph graph, Map<AddonView, Set<AddonId>> changed)
+   {
+      this(lifefycleManager, currentGraph, graph);
+      this.changed = changed;
+   }
+
    public void hotSwapChanges()
    {
       initGraph();
-      markDirty();
-      markRemovedDirty();
+      markChanges();
       stopDirty();
       stopRemoved();
+      markActive();
       loadAddons();
       startupIncremental();
       clearDirtyStatus();
    }
 
+   /**
+    * Mark dirty the vertices of both graphs whose {@link Addon} must be stopped. Without a set of changed addons, every
+    * vertex of the new graph is compared against the current graph.
+    */
+   void markChanges()
+   {
+      if (changed == null)
+      {
+         markDirty();
+         markRemovedDirty();
+      }
+      else
+      {
+         markChangedDirty();
+      }
+   }
+
+   /**
+    * Load and start any {@link Addon} instances in the current graph that have become active (see
+    * {@link AddonLifecycleManager#isActive(AddonVertex)}) since it was installed.
+    */
+   public void activateChanges()
+   {
+      markActive();
+      loadAddons();
+      startupIncremental();
+   }
+
+   /**
+    * Determine which vertices are active: those whose {@link Addon} is activated eagerly or has been activated on
+    * demand, and all of their dependencies.
+    */
+   private void markActive()
+   {
+      active = new HashSet<AddonVertex>();
+      LinkedList<AddonVertex> queue = new LinkedList<AddonVertex>();
+      for (AddonVertex vertex : graph.getGraph().vertexSet())
+      {
+         if (lifecycleManager.isActive(vertex))
+            queue.add(vertex);
+      }
+
+      while (!queue.isEmpty())
+      {
+         AddonVertex vertex = queue.removeFirst();
+         if (active.add(vertex))
+         {
+            for (AddonDependencyEdge edge : graph.getGraph().outgoingEdgesOf(vertex))
+            {
+               queue.add(graph.getGraph().getEdgeTarget(edge));
+            }
+         }
+      }
+   }
+
    private void initGraph()
    {
       if (lastMasterGraph != null)
@@ -71,6 +146,7 @@ public class MasterGraphChangeHandler
             {
                graph.getGraph().addVertex(last);
                last.setDirty(true);
+               lifecycleManager.addonAssigned(last);
             }
          }
       }
@@ -102,6 +178,7 @@ public class MasterGraphChangeHandler
                }
 
                vertex.setAddon(addon);
+               lifecycleManager.addonAssigned(vertex);
             }
          };
       });
@@ -130,6 +207,7 @@ public class MasterGraphChangeHandler
                   addon = lifecycleManager.getAddon(view, addonId);
 
                vertex.setAddon(addon);
+               lifecycleManager.addonAssigned(vertex);
             }
          };
       });
@@ -186,6 +264,70 @@ public class MasterGraphChangeHandler
          iterator.next();
    }
 
+   /**
+    * Mark dirty the vertices of both graphs whose addon has changed in any of their views, the vertices of the current
+    * graph whose addon is missing or failed, and all of their transitive dependents.
+    */
+   private void markChangedDirty()
+   {
+      markDependentsDirty(graph, getChangedVertices(graph, true));
+      if (lastMasterGraph != null)
+         markDependentsDirty(lastMasterGraph, getChangedVertices(lastMasterGraph, false));
+   }
+
+   private LinkedList<AddonVertex> getChangedVertices(MasterGraph master, boolean includeMissing)
+   {
+      Map<AddonView, Set<String>> names = new HashMap<AddonView, Set<String>>();
+      for (Entry<AddonView, Set<AddonId>> entry : changed.entrySet())
+      {
+         Set<String> viewNames = new HashSet<String>();
+         for (AddonId id : entry.getValue())
+         {
+            viewNames.add(id.getName());
+         }
+         names.put(entry.getKey(), viewNames);
+      }
+
+      LinkedList<AddonVertex> result = new LinkedList<AddonVertex>();
+      for (AddonVertex vertex : master.getGraph().vertexSet())
+      {
+         Addon addon = vertex.getAddon();
+         if (includeMissing && (addon.getStatus().isMissing() || addon.getStatus().isFailed()))
+         {
+            result.add(vertex);
+            continue;
+         }
+
+         for (AddonView view : vertex.getViews())
+         {
+            Set<String> viewNames = names.get(view);
+            if (viewNames != null && viewNames.contains(vertex.getName()))
+            {
+               result.add(vertex);
+               break;
+            }
+         }
+      }
+      return result;
+   }
+
+   private void markDependentsDirty(MasterGraph master, LinkedList<AddonVertex> queue)
+   {
+      Set<AddonVertex> visited = new HashSet<AddonVertex>();
+      while (!queue.isEmpty())
+      {
+         AddonVertex vertex = queue.removeFirst();
+         if (visited.add(vertex))
+         {
+            vertex.setDirty(true);
+            for (AddonDependencyEdge edge : master.getGraph().incomingEdgesOf(vertex))
+            {
+               queue.add(master.getGraph().getEdgeSource(edge));
+            }
+         }
+      }
+   }
+
    private void markRemovedDirty()
    {
       if (lastMasterGraph != null)
@@ -286,7 +428,7 @@ public class MasterGraphChangeHandler
          public void vertexFinished(VertexTraversalEvent<AddonVertex> event)
          {
             Addon addon = event.getVertex().getAddon();
-            if (addon.getStatus().isMissing())
+            if (addon.getStatus().isMissing() && active.contains(event.getVertex()))
                lifecycleManager.loadAddon(addon);
          };
       });
@@ -297,6 +439,7 @@ public class MasterGraphChangeHandler
 
    private void startupIncremental()
    {
+      final Map<Addon, Set<Addon>> toStart = new LinkedHashMap<Addon, Set<Addon>>();
       DepthFirstIterator<AddonVertex, AddonDependencyEdge> iterator = new DepthFirstIterator<AddonVertex, AddonDependencyEdge>(
                graph.getGraph());
 
@@ -305,14 +448,24 @@ public class MasterGraphChangeHandler
          @Override
          public void vertexFinished(VertexTraversalEvent<AddonVertex> event)
          {
-            Addon addon = event.getVertex().getAddon();
+            AddonVertex vertex = event.getVertex();
+            Addon addon = vertex.getAddon();
             if (addon.getStatus().isLoaded())
-               lifecycleManager.startAddon(addon);
+            {
+               Set<Addon> dependencies = new HashSet<Addon>();
+               for (AddonDependencyEdge edge : graph.getGraph().outgoingEdgesOf(vertex))
+               {
+                  dependencies.add(graph.getGraph().getEdgeTarget(edge).getAddon());
+               }
+               toStart.put(addon, dependencies);
+            }
          };
       });
 
       while (iterator.hasNext())
          iterator.next();
+
+      lifecycleManager.startAddons(toStart);
    }
 
    private void clearDirtyStatus()
@@ -1,6 +1,9 @@
 package org.jboss.forge.furnace.impl.graph;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -21,6 +24,14 @@ public class OptimizedAddonGraph extends AddonGraph<OptimizedAddonGraph>
             AddonDependencyEdge.class);
    private AddonView view;
 
+   /**
+    * Create an empty graph, to be populated by {@link GraphCache}.
+    */
+   OptimizedAddonGraph(AddonView view)
+   {
+      this.view = view;
+   }
+
    public OptimizedAddonGraph(AddonView view, final DirectedGraph<AddonVertex, AddonDependencyEdge> completeGraph)
    {
       this.view = view;
@@ -56,14 +67,25 @@ public class OptimizedAddonGraph extends AddonGraph<OptimizedAddonGraph>
       while (iterator.hasNext())
          iterator.next();
 
+      Map<String, List<AddonVertex>> completeVertices = new HashMap<String, List<AddonVertex>>();
+      for (AddonVertex vertex : completeGraph.vertexSet())
+      {
+         List<AddonVertex> named = completeVertices.get(vertex.getName());
+         if (named == null)
+         {
+            named = new ArrayList<AddonVertex>();
+            completeVertices.put(vertex.getName(), named);
+         }
+         named.add(vertex);
+      }
+
       Map<AddonVertex, AddonVertex> replacements = new LinkedHashMap<AddonVertex, AddonVertex>();
       for (AddonVertex localVertex : graph.vertexSet())
       {
-         for (AddonVertex vertex : completeGraph.vertexSet())
+         for (AddonVertex vertex : completeVertices.get(localVertex.getName()))
          {
-            if (localVertex.getName().equals(vertex.getName())
-                     && (localVertex.getVersion() instanceof EmptyVersion || localVertex.getVersion().compareTo(
-                              vertex.getVersion()) < 1))
+            if (localVertex.getVersion() instanceof EmptyVersion
+                     || localVertex.getVersion().compareTo(vertex.getVersion()) < 1)
             {
                if (replacements.get(localVertex) == null || replacements.get(localVertex).getVersion().compareTo(
                         vertex.getVersion()) < 1)
@@ -112,7 +134,7 @@ public class OptimizedAddonGraph extends AddonGraph<OptimizedAddonGraph>
                   new AddonDependencyEdge(edge.getVersionRange(), edge.isExported()));
       }
 
-      graph.removeVertex(original);
+      removeLocalVertex(original);
    }
 
    @Override
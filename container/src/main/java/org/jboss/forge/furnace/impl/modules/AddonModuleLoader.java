@@ -26,8 +26,11 @@ import org.jboss.forge.furnace.impl.addons.AddonStateManager;
 import org.jboss.forge.furnace.impl.modules.providers.FurnaceContainerSpec;
 import org.jboss.forge.furnace.impl.modules.providers.SystemClasspathSpec;
 import org.jboss.forge.furnace.impl.modules.providers.XPathJDKClasspathSpec;
+import org.jboss.forge.furnace.proxy.PrebuiltProxyClasses;
+import org.jboss.forge.furnace.proxy.ProxyClassCache;
 import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
 import org.jboss.forge.furnace.repositories.AddonRepository;
+import org.jboss.forge.furnace.util.ClassVisibilityCache;
 import org.jboss.forge.furnace.versions.Version;
 import org.jboss.modules.DependencySpec;
 import org.jboss.modules.Module;
@@ -186,6 +189,9 @@ public class AddonModuleLoader extends ModuleLoader
 
    private void addLocalResources(AddonRepository repository, AddonId found, Builder builder, ModuleIdentifier id)
    {
+      PrebuiltProxyClasses.register(new File(repository.getAddonBaseDir(found),
+               AddonRepositoryImpl.PROXY_CLASSES_DIR_NAME));
+
       List<File> resources = repository.getAddonResources(found);
       for (File file : resources)
       {
@@ -302,8 +308,15 @@ public class AddonModuleLoader extends ModuleLoader
       moduleJarFileCache.closeJarFileReferences(id);
       Module loadedModule = findLoadedModuleLocal(id);
       if (loadedModule != null)
+      {
+         ProxyClassCache.evict(loadedModule.getClassLoader());
+         ClassVisibilityCache.evict(loadedModule.getClassLoader());
          unloadModuleLocal(loadedModule);
+      }
       moduleCache.clear(addon);
+      if (addon.getRepository() != null)
+         PrebuiltProxyClasses.unregister(new File(addon.getRepository().getAddonBaseDir(addon.getId()),
+                  AddonRepositoryImpl.PROXY_CLASSES_DIR_NAME));
    }
 
    /**
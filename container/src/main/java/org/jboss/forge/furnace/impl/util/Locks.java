@@ -0,0 +1,52 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.util;
+
+import java.util.concurrent.Callable;
+
+import org.jboss.forge.furnace.impl.ScopedLockManager;
+import org.jboss.forge.furnace.lock.LockManager;
+import org.jboss.forge.furnace.lock.LockMode;
+import org.jboss.forge.furnace.util.Assert;
+
+/**
+ * Utilities for working with {@link LockManager} instances.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public final class Locks
+{
+   private Locks()
+   {
+   }
+
+   /**
+    * Return the given {@link LockManager} as a {@link ScopedLockManager}. If it is not one already, every scope shares
+    * its single lock domain.
+    */
+   public static ScopedLockManager scoped(final LockManager lock)
+   {
+      Assert.notNull(lock, "LockManager must not be null.");
+      if (lock instanceof ScopedLockManager)
+         return (ScopedLockManager) lock;
+
+      return new ScopedLockManager()
+      {
+         @Override
+         public <T> T performLocked(LockMode mode, Callable<T> task)
+         {
+            return lock.performLocked(mode, task);
+         }
+
+         @Override
+         public <T> T performLocked(Object scope, LockMode mode, Callable<T> task)
+         {
+            return lock.performLocked(mode, task);
+         }
+      };
+   }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace;
+
+import java.io.File;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.impl.FurnaceImpl;
+import org.jboss.forge.furnace.impl.addons.AddonRepositoryChangeMonitor;
+import org.jboss.forge.furnace.impl.addons.AddonRepositoryImpl;
+import org.jboss.forge.furnace.repositories.MutableAddonRepository;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddonRepositoryChangeMonitorTest
+{
+   @Test
+   public void testTimeoutWithoutChanges() throws Exception
+   {
+      AddonRepositoryChangeMonitor monitor = new AddonRepositoryChangeMonitor();
+      Assert.assertFalse(monitor.awaitChange(10));
+   }
+
+   @Test
+   public void testBurstOfChangesIsCoalesced() throws Exception
+   {
+      final AddonRepositoryChangeMonitor monitor = new AddonRepositoryChangeMonitor();
+      monitor.setDebounce(50);
+
+      Thread writer = new Thread()
+      {
+         @Override
+         public void run()
+         {
+            for (int i = 0; i < 5; i++)
+            {
+               monitor.repositoryChanged(null);
+               try
+               {
+                  Thread.sleep(5);
+               }
+               catch (InterruptedException e)
+               {
+                  return;
+               }
+            }
+         }
+      };
+      writer.start();
+
+      Assert.assertTrue(monitor.awaitChange(5000));
+      writer.join();
+      Assert.assertFalse(monitor.awaitChange(10));
+   }
+
+   @Test
+   public void testChangeBeforeWaitIsNotLost() throws Exception
+   {
+      AddonRepositoryChangeMonitor monitor = new AddonRepositoryChangeMonitor();
+      monitor.setDebounce(0);
+      monitor.repositoryChanged(null);
+      Assert.assertTrue(monitor.awaitChange(5000));
+      Assert.assertFalse(monitor.awaitChange(10));
+   }
+
+   @Test
+   public void testRepositorySignalsInjectedMonitor() throws Exception
+   {
+      File temp = File.createTempFile("addonDir", "test");
+      temp.deleteOnExit();
+      AddonRepositoryChangeMonitor monitor = new AddonRepositoryChangeMonitor();
+      monitor.setDebounce(0);
+      MutableAddonRepository repository = AddonRepositoryImpl.forDirectory(new FurnaceImpl(), temp, monitor);
+
+      repository.enable(AddonId.from("1", "2"));
+      Assert.assertTrue(monitor.awaitChange(5000));
+
+      AddonRepositoryImpl.forDirectory(new FurnaceImpl(), temp).disable(AddonId.from("1", "2"));
+      Assert.assertFalse(monitor.awaitChange(10));
+   }
+}
@@ -8,14 +8,22 @@
 package org.jboss.forge.furnace;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 
 import org.jboss.forge.furnace.addons.AddonId;
 import org.jboss.forge.furnace.impl.FurnaceImpl;
 import org.jboss.forge.furnace.impl.addons.AddonRepositoryImpl;
+import org.jboss.forge.furnace.impl.addons.RepositoryIndex;
+import org.jboss.forge.furnace.proxy.PrebuiltProxyClasses;
 import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
 import org.jboss.forge.furnace.repositories.MutableAddonRepository;
+import org.jboss.forge.furnace.services.Exported;
+import org.jboss.forge.furnace.util.Streams;
 import org.jboss.forge.furnace.versions.SingleVersion;
 import org.junit.Assert;
 import org.junit.Test;
@@ -149,4 +157,127 @@ public class AddonRepositoryImplTest
       Assert.assertTrue(repository.getAddonDependencies(addon).contains(dependency0));
       Assert.assertTrue(repository.getAddonDependencies(addon).contains(dependency1));
    }
+
+   @Test
+   public void testCachedDescriptorsReflectChanges() throws Exception
+   {
+      File temp = File.createTempFile("addonDir", "test");
+      temp.deleteOnExit();
+      MutableAddonRepository repository = AddonRepositoryImpl.forDirectory(new FurnaceImpl(), temp);
+
+      AddonId addon = AddonId.from("1", "2");
+      repository.deploy(addon, new ArrayList<AddonDependencyEntry>(), new ArrayList<File>());
+      Assert.assertFalse(repository.isEnabled(addon));
+      Assert.assertEquals(0, repository.getAddonDependencies(addon).size());
+
+      repository.enable(addon);
+      Assert.assertTrue(repository.isEnabled(addon));
+
+      FileOutputStream out = new FileOutputStream(repository.getAddonDescriptor(addon));
+      try
+      {
+         out.write("<addon><dependencies><dependency name=\"nm\" version=\"ver\"/></dependencies></addon>"
+                  .getBytes("UTF-8"));
+      }
+      finally
+      {
+         Streams.closeQuietly(out);
+      }
+      Set<AddonDependencyEntry> dependencies = repository.getAddonDependencies(addon);
+      Assert.assertEquals(1, dependencies.size());
+      try
+      {
+         dependencies.add(AddonDependencyEntry.create("other"));
+         Assert.fail("Dependency sets should be immutable");
+      }
+      catch (UnsupportedOperationException e)
+      {
+         // expected
+      }
+
+      repository.disable(addon);
+      Assert.assertFalse(repository.isEnabled(addon));
+      Assert.assertTrue(repository.listEnabled().isEmpty());
+   }
+
+   @Test
+   public void testIndexMatchesRegistry() throws Exception
+   {
+      File temp = File.createTempFile("addonDir", "test");
+      temp.deleteOnExit();
+      FurnaceImpl furnace = new FurnaceImpl();
+      AddonRepositoryImpl repository = (AddonRepositoryImpl) AddonRepositoryImpl.forDirectory(furnace, temp);
+
+      AddonId addon = AddonId.from("1", "2");
+      AddonDependencyEntry dependency = AddonDependencyEntry.create("nm", "[1,2)", true, false);
+      repository.deploy(addon, Arrays.asList(dependency), new ArrayList<File>());
+      repository.enable(addon);
+      Assert.assertFalse(new File(temp, RepositoryIndex.INDEX_FILENAME).exists());
+
+      Assert.assertEquals(1, repository.rebuildIndex());
+      Assert.assertTrue(new File(temp, RepositoryIndex.INDEX_FILENAME).isFile());
+
+      AddonRepositoryImpl indexed = (AddonRepositoryImpl) AddonRepositoryImpl.forDirectory(furnace, temp);
+      Assert.assertEquals(Arrays.asList(addon), indexed.listEnabled());
+      Assert.assertEquals(dependency.toString(), indexed.getAddonDependencies(addon).iterator().next().toString());
+      Assert.assertEquals(repository.getAddonResources(addon), indexed.getAddonResources(addon));
+
+      AddonId other = AddonId.from("3", "4");
+      repository.deploy(other, new ArrayList<AddonDependencyEntry>(), new ArrayList<File>());
+      repository.enable(other);
+      repository.disable(addon);
+
+      indexed = (AddonRepositoryImpl) AddonRepositoryImpl.forDirectory(furnace, temp);
+      Assert.assertEquals(Arrays.asList(other), indexed.listEnabled());
+      Assert.assertTrue(indexed.getAddonDependencies(other).isEmpty());
+   }
+
+   @Test
+   public void testDeployAddonGeneratesExportedProxyTypes() throws Exception
+   {
+      File temp = File.createTempFile("addonDir", "test");
+      temp.deleteOnExit();
+      MutableAddonRepository repository = AddonRepositoryImpl.forDirectory(new FurnaceImpl(), temp);
+
+      AddonId addon = AddonId.from("1", "2");
+      File tempJar = File.createTempFile("addon" + addon.getName(), ".jar");
+      tempJar.deleteOnExit();
+      JarOutputStream jar = new JarOutputStream(new FileOutputStream(tempJar));
+      try
+      {
+         for (Class<?> type : Arrays.<Class<?>> asList(ExportedMockService.class, ExportedMockServiceImpl.class))
+         {
+            String name = type.getName().replace('.', '/') + ".class";
+            jar.putNextEntry(new JarEntry(name));
+            Streams.write(type.getClassLoader().getResourceAsStream(name), jar);
+            jar.closeEntry();
+         }
+      }
+      finally
+      {
+         jar.close();
+      }
+
+      repository.deploy(addon, new ArrayList<AddonDependencyEntry>(), Arrays.asList(tempJar));
+
+      File proxies = new File(repository.getAddonBaseDir(addon), AddonRepositoryImpl.PROXY_CLASSES_DIR_NAME);
+      Assert.assertTrue(new File(proxies, PrebuiltProxyClasses.INDEX_FILE_NAME).isFile());
+      Assert.assertFalse(repository.getAddonResources(addon).contains(proxies));
+      Assert.assertEquals(1, repository.getAddonResources(addon).size());
+   }
+
+   @Exported
+   public interface ExportedMockService
+   {
+      String getName();
+   }
+
+   public static class ExportedMockServiceImpl implements ExportedMockService
+   {
+      @Override
+      public String getName()
+      {
+         return "mock";
+      }
+   }
 }
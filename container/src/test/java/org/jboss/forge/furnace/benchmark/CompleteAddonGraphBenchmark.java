@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.impl.FurnaceImpl;
+import org.jboss.forge.furnace.impl.addons.AddonRepositoryImpl;
+import org.jboss.forge.furnace.impl.graph.CompleteAddonGraph;
+import org.jboss.forge.furnace.impl.graph.OptimizedAddonGraph;
+import org.jboss.forge.furnace.impl.util.Files;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+import org.jboss.forge.furnace.repositories.MutableAddonRepository;
+
+/**
+ * Measures building the {@link CompleteAddonGraph} and {@link OptimizedAddonGraph} of 1,000 synthetic addons spread
+ * across three repositories, and reading their enabled addons and dependencies from disk, compared with checking
+ * {@link AddonRepository#isEnabled(AddonId)} for each addon in each repository.
+ * <p>
+ * Not run as part of the test suite. Run via <code>main</code> from the test classpath.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class CompleteAddonGraphBenchmark
+{
+   private static final int ADDONS = 1000;
+   private static final int REPOSITORIES = 3;
+   private static final int MAX_DEPENDENCIES = 6;
+   private static final int ITERATIONS = 10;
+
+   public static void main(String[] args) throws Exception
+   {
+      Map<AddonId, Set<AddonDependencyEntry>> addons = SyntheticAddons.create(ADDONS, MAX_DEPENDENCIES, 42);
+
+      File root = File.createTempFile("furnace", "benchmark");
+      root.delete();
+      try
+      {
+         FurnaceImpl furnace = new FurnaceImpl();
+         List<AddonRepository> repositories = new ArrayList<AddonRepository>();
+         for (int i = 0; i < REPOSITORIES; i++)
+         {
+            repositories.add(AddonRepositoryImpl.forDirectory(furnace, new File(root, "repository" + i)));
+         }
+
+         int i = 0;
+         for (Entry<AddonId, Set<AddonDependencyEntry>> entry : addons.entrySet())
+         {
+            MutableAddonRepository repository = (MutableAddonRepository) repositories.get(i++ % REPOSITORIES);
+            repository.deploy(entry.getKey(), entry.getValue(), null);
+            repository.enable(entry.getKey());
+         }
+
+         run(addons, repositories, 2);
+         run(addons, repositories, ITERATIONS);
+      }
+      finally
+      {
+         Files.delete(root, true);
+      }
+   }
+
+   private static void run(Map<AddonId, Set<AddonDependencyEntry>> addons, List<AddonRepository> repositories,
+            int iterations)
+   {
+      long build = 0;
+      long read = 0;
+      long perAddon = 0;
+
+      for (int i = 0; i < iterations; i++)
+      {
+         long start = System.nanoTime();
+         new OptimizedAddonGraph(SyntheticAddons.view("view"), new CompleteAddonGraph(addons).getGraph());
+         build += System.nanoTime() - start;
+
+         start = System.nanoTime();
+         new CompleteAddonGraph(repositories);
+         read += System.nanoTime() - start;
+      }
+
+      /*
+       * Checking each addon against each repository parses the registry once per check, so measure it only once.
+       */
+      long start = System.nanoTime();
+      readPerAddon(repositories);
+      perAddon += System.nanoTime() - start;
+
+      System.out.println(String.format(
+               "%d addons: build %.2f ms, read and build %.2f ms (per addon enabled checks %.2f ms)",
+               addons.size(), millis(build, iterations), millis(read, iterations), millis(perAddon, 1)));
+   }
+
+   /**
+    * Read the enabled addons and their dependencies by checking each addon against each {@link AddonRepository}, as
+    * {@link CompleteAddonGraph} did before reading each {@link AddonRepository} once.
+    */
+   private static Map<AddonId, Set<AddonDependencyEntry>> readPerAddon(List<AddonRepository> repositories)
+   {
+      Set<AddonId> enabled = new HashSet<AddonId>();
+      for (AddonRepository repository : repositories)
+      {
+         enabled.addAll(repository.listEnabledCompatibleWithVersion(AddonRepositoryImpl.getRuntimeAPIVersion()));
+      }
+
+      Map<AddonId, Set<AddonDependencyEntry>> result = new LinkedHashMap<AddonId, Set<AddonDependencyEntry>>();
+      for (AddonId id : enabled)
+      {
+         for (AddonRepository repository : repositories)
+         {
+            if (repository.isEnabled(id))
+               result.put(id, repository.getAddonDependencies(id));
+         }
+      }
+      return result;
+   }
+
+   private static double millis(long nanos, int iterations)
+   {
+      return nanos / 1000000.0 / iterations;
+   }
+}
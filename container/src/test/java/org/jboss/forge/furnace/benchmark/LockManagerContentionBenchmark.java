@@ -0,0 +1,160 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.forge.furnace.impl.LockManagerImpl;
+import org.jboss.forge.furnace.impl.ScopedLockManager;
+import org.jboss.forge.furnace.impl.ScopedLockManagerImpl;
+import org.jboss.forge.furnace.impl.util.Locks;
+import org.jboss.forge.furnace.lock.LockMode;
+
+/**
+ * Compares read throughput and worst-case read latency of {@link LockManagerImpl} and {@link ScopedLockManagerImpl}
+ * while reader threads perform service-lookup-like reads (a read of the lifecycle graph followed by a read of an addon
+ * state) concurrently with writers to repositories, addon states, and (occasionally, as during a hot-swap) the
+ * lifecycle graph.
+ * <p>
+ * Not run as part of the test suite. Run via <code>main</code> from the test classpath.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class LockManagerContentionBenchmark
+{
+   private static final int READERS = 8;
+   private static final int ADDONS = 50;
+   private static final int REPOSITORIES = 3;
+   private static final long DURATION = TimeUnit.SECONDS.toMillis(3);
+
+   public static void main(String[] args) throws Exception
+   {
+      run("warmup", Locks.scoped(new LockManagerImpl()));
+      run("warmup", new ScopedLockManagerImpl());
+
+      run("global", Locks.scoped(new LockManagerImpl()));
+      run("scoped", new ScopedLockManagerImpl());
+   }
+
+   private static void run(String name, final ScopedLockManager lock) throws InterruptedException
+   {
+      final Object graph = new Object();
+      final Object[] repositories = newScopes(REPOSITORIES);
+      final Object[] addons = newScopes(ADDONS);
+
+      final AtomicLong reads = new AtomicLong();
+      final AtomicLong maxLatency = new AtomicLong();
+      final long end = System.currentTimeMillis() + DURATION;
+
+      List<Thread> threads = new ArrayList<Thread>();
+      for (int i = 0; i < READERS; i++)
+      {
+         final Random random = new Random(i);
+         threads.add(new Thread()
+         {
+            @Override
+            public void run()
+            {
+               while (System.currentTimeMillis() < end)
+               {
+                  long start = System.nanoTime();
+                  lock.performLocked(graph, LockMode.READ, work(1));
+                  lock.performLocked(addons[random.nextInt(ADDONS)], LockMode.READ, work(2));
+                  long latency = System.nanoTime() - start;
+
+                  reads.incrementAndGet();
+                  long max;
+                  while (latency > (max = maxLatency.get()) && !maxLatency.compareAndSet(max, latency))
+                  {
+                     // Retry
+                  }
+               }
+            }
+         });
+      }
+
+      threads.add(writer(lock, repositories, end, 200, 0));
+      threads.add(writer(lock, addons, end, 50, 0));
+      threads.add(writer(lock, new Object[] { graph }, end, 2000, 50));
+
+      for (Thread thread : threads)
+      {
+         thread.start();
+      }
+      for (Thread thread : threads)
+      {
+         thread.join();
+      }
+
+      System.out.println(String.format("%-8s %12d reads/s %10.2f ms max read latency", name,
+               reads.get() * 1000 / DURATION, maxLatency.get() / 1000000.0));
+   }
+
+   /**
+    * Create a thread that repeatedly holds a {@link LockMode#WRITE} lock in one of the given scopes for the given number
+    * of microseconds, pausing for the given number of milliseconds between writes.
+    */
+   private static Thread writer(final ScopedLockManager lock, final Object[] scopes, final long end,
+            final long micros, final long pause)
+   {
+      return new Thread()
+      {
+         @Override
+         public void run()
+         {
+            Random random = new Random();
+            while (System.currentTimeMillis() < end)
+            {
+               lock.performLocked(scopes[random.nextInt(scopes.length)], LockMode.WRITE, work(micros));
+               if (pause > 0)
+               {
+                  try
+                  {
+                     Thread.sleep(pause);
+                  }
+                  catch (InterruptedException e)
+                  {
+                     return;
+                  }
+               }
+            }
+         }
+      };
+   }
+
+   private static Callable<Void> work(final long micros)
+   {
+      return new Callable<Void>()
+      {
+         @Override
+         public Void call() throws Exception
+         {
+            long end = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(micros);
+            while (System.nanoTime() < end)
+            {
+               // Simulate work while holding the lock
+            }
+            return null;
+         }
+      };
+   }
+
+   private static Object[] newScopes(int count)
+   {
+      Object[] result = new Object[count];
+      for (int i = 0; i < count; i++)
+      {
+         result[i] = new Object();
+      }
+      return result;
+   }
+}
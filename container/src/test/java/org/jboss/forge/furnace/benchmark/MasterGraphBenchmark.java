@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.impl.graph.AddonVertex;
+import org.jboss.forge.furnace.impl.graph.CompleteAddonGraph;
+import org.jboss.forge.furnace.impl.graph.MasterGraph;
+import org.jboss.forge.furnace.impl.graph.OptimizedAddonGraph;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.versions.SingleVersion;
+import org.jboss.forge.furnace.versions.Version;
+
+/**
+ * Measures building a {@link MasterGraph} of 500 synthetic addons from three overlapping views, comparing it against
+ * the previous {@link MasterGraph} as a hot-swap does, and looking up its vertices by name and version, compared with
+ * a scan of the vertex set.
+ * <p>
+ * Not run as part of the test suite. Run via <code>main</code> from the test classpath.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class MasterGraphBenchmark
+{
+   private static final int ADDONS = 500;
+   private static final int MAX_DEPENDENCIES = 6;
+   private static final int ITERATIONS = 20;
+
+   public static void main(String[] args) throws Exception
+   {
+      Map<AddonId, Set<AddonDependencyEntry>> addons = SyntheticAddons.create(ADDONS, MAX_DEPENDENCIES, 42);
+
+      List<OptimizedAddonGraph> views = new ArrayList<OptimizedAddonGraph>();
+      views.add(optimize("all", addons));
+      views.add(optimize("partial", SyntheticAddons.without(addons, 100, 150)));
+      views.add(optimize("core", SyntheticAddons.without(addons, 300, ADDONS)));
+
+      run(views, 3);
+      run(views, ITERATIONS);
+   }
+
+   private static void run(List<OptimizedAddonGraph> views, int iterations)
+   {
+      long merge = 0;
+      long compare = 0;
+      long index = 0;
+      long scan = 0;
+
+      MasterGraph last = merge(views);
+      for (int i = 0; i < iterations; i++)
+      {
+         long start = System.nanoTime();
+         MasterGraph master = merge(views);
+         merge += System.nanoTime() - start;
+
+         start = System.nanoTime();
+         int equivalent = 0;
+         for (AddonVertex vertex : master.getGraph().vertexSet())
+         {
+            for (AddonVertex lastVertex : last.getVertices(vertex.getName(), vertex.getVersion()))
+            {
+               if (master.isSubtreeEquivalent(vertex, last.getGraph(), lastVertex))
+               {
+                  equivalent++;
+                  break;
+               }
+            }
+         }
+         compare += System.nanoTime() - start;
+         if (equivalent != master.getGraph().vertexSet().size())
+            throw new IllegalStateException("Expected identical graphs");
+
+         start = System.nanoTime();
+         for (AddonVertex vertex : master.getGraph().vertexSet())
+         {
+            master.getVertices(vertex.getName(), vertex.getVersion());
+         }
+         index += System.nanoTime() - start;
+
+         start = System.nanoTime();
+         for (AddonVertex vertex : master.getGraph().vertexSet())
+         {
+            scan(master, vertex.getName(), vertex.getVersion());
+         }
+         scan += System.nanoTime() - start;
+
+         last = master;
+      }
+
+      System.out.println(String.format("%d vertices: merge %.2f ms, compare %.2f ms, lookups %.3f ms (scan %.2f ms)",
+               last.getGraph().vertexSet().size(), millis(merge, iterations), millis(compare, iterations),
+               millis(index, iterations), millis(scan, iterations)));
+   }
+
+   private static OptimizedAddonGraph optimize(String name, Map<AddonId, Set<AddonDependencyEntry>> addons)
+   {
+      return new OptimizedAddonGraph(SyntheticAddons.view(name), new CompleteAddonGraph(addons).getGraph());
+   }
+
+   private static MasterGraph merge(List<OptimizedAddonGraph> views)
+   {
+      MasterGraph result = new MasterGraph();
+      for (OptimizedAddonGraph view : views)
+      {
+         result.merge(view);
+      }
+      return result;
+   }
+
+   /**
+    * Find vertices by scanning the vertex set, as {@link MasterGraph#getVertices(String, Version)} did before it was
+    * indexed.
+    */
+   private static Set<AddonVertex> scan(MasterGraph master, String name, Version version)
+   {
+      Set<AddonVertex> result = new HashSet<AddonVertex>();
+      for (AddonVertex vertex : master.getGraph().vertexSet())
+      {
+         if (vertex.getName().equals(name)
+                  && new SingleVersion(version.toString()).compareTo(new SingleVersion(vertex.getVersion().toString())) == 0)
+         {
+            result.add(vertex);
+         }
+      }
+      return result;
+   }
+
+   private static double millis(long nanos, int iterations)
+   {
+      return nanos / 1000000.0 / iterations;
+   }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.benchmark;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.impl.FurnaceImpl;
+import org.jboss.forge.furnace.impl.addons.AddonRepositoryImpl;
+import org.jboss.forge.furnace.impl.addons.RepositoryIndex;
+import org.jboss.forge.furnace.impl.util.Files;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+
+/**
+ * Measures a cold listing of 1,000 synthetic addons, reading the enabled addons, and the dependencies and resources of
+ * each, through a new {@link AddonRepositoryImpl} every iteration, first from the XML registry and descriptors, then
+ * from a {@link RepositoryIndex}.
+ * <p>
+ * Not run as part of the test suite. Run via <code>main</code> from the test classpath.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class RepositoryIndexBenchmark
+{
+   private static final int ADDONS = 1000;
+   private static final int MAX_DEPENDENCIES = 6;
+   private static final int ITERATIONS = 10;
+
+   public static void main(String[] args) throws Exception
+   {
+      Map<AddonId, Set<AddonDependencyEntry>> addons = SyntheticAddons.create(ADDONS, MAX_DEPENDENCIES, 42);
+
+      File root = File.createTempFile("furnace", "benchmark");
+      root.delete();
+      try
+      {
+         FurnaceImpl furnace = new FurnaceImpl();
+         AddonRepositoryImpl repository = (AddonRepositoryImpl) AddonRepositoryImpl.forDirectory(furnace, root);
+         for (Entry<AddonId, Set<AddonDependencyEntry>> entry : addons.entrySet())
+         {
+            repository.deploy(entry.getKey(), entry.getValue(), Collections.<File> emptyList());
+            repository.enable(entry.getKey());
+         }
+
+         run("xml", furnace, root, 2);
+         run("xml", furnace, root, ITERATIONS);
+
+         long start = System.nanoTime();
+         repository.rebuildIndex();
+         System.out.println(String.format("rebuild index %.2f ms", millis(System.nanoTime() - start, 1)));
+
+         run("index", furnace, root, 2);
+         run("index", furnace, root, ITERATIONS);
+      }
+      finally
+      {
+         Files.delete(root, true);
+      }
+   }
+
+   private static void run(String name, FurnaceImpl furnace, File root, int iterations)
+   {
+      long elapsed = 0;
+      int count = 0;
+      for (int i = 0; i < iterations; i++)
+      {
+         long start = System.nanoTime();
+         AddonRepository repository = AddonRepositoryImpl.forDirectory(furnace, root);
+         for (AddonId id : repository.listEnabledCompatibleWithVersion(AddonRepositoryImpl.getRuntimeAPIVersion()))
+         {
+            count += repository.getAddonDependencies(id).size();
+            count += repository.getAddonResources(id).size();
+         }
+         elapsed += System.nanoTime() - start;
+      }
+
+      System.out.println(String.format("%s: %d addons, cold listing %.2f ms (%d entries)", name, ADDONS,
+               millis(elapsed, iterations), count / iterations));
+   }
+
+   private static double millis(long nanos, int iterations)
+   {
+      return nanos / 1000000.0 / iterations;
+   }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.benchmark;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonFilter;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+
+/**
+ * Generates synthetic, acyclic addon dependency graphs for benchmarks.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+final class SyntheticAddons
+{
+   private SyntheticAddons()
+   {
+   }
+
+   public static AddonId id(int index)
+   {
+      return AddonId.from("org.example:addon-" + index, "1.0.0.Final");
+   }
+
+   /**
+    * Create the given number of addons, each depending on up to the given number of addons with a lower index, mapped
+    * to their declared dependencies.
+    */
+   public static Map<AddonId, Set<AddonDependencyEntry>> create(int count, int maxDependencies, long seed)
+   {
+      Random random = new Random(seed);
+      Map<AddonId, Set<AddonDependencyEntry>> result = new LinkedHashMap<AddonId, Set<AddonDependencyEntry>>();
+      for (int i = 0; i < count; i++)
+      {
+         Set<AddonDependencyEntry> dependencies = new HashSet<AddonDependencyEntry>();
+         int dependencyCount = i == 0 ? 0 : random.nextInt(Math.min(i, maxDependencies) + 1);
+         for (int j = 0; j < dependencyCount; j++)
+         {
+            dependencies.add(AddonDependencyEntry.create(id(random.nextInt(i)).getName(), "[1.0.0.Final,2.0.0.Final)",
+                     random.nextBoolean()));
+         }
+         result.put(id(i), dependencies);
+      }
+      return result;
+   }
+
+   /**
+    * Returns the given addons, without those with an index in the given range and the addons that depend on them.
+    */
+   public static Map<AddonId, Set<AddonDependencyEntry>> without(Map<AddonId, Set<AddonDependencyEntry>> addons,
+            int from, int to)
+   {
+      Set<String> removed = new HashSet<String>();
+      for (int i = from; i < to; i++)
+      {
+         removed.add(id(i).getName());
+      }
+
+      Map<AddonId, Set<AddonDependencyEntry>> result = new LinkedHashMap<AddonId, Set<AddonDependencyEntry>>();
+      for (Map.Entry<AddonId, Set<AddonDependencyEntry>> entry : addons.entrySet())
+      {
+         boolean excluded = removed.contains(entry.getKey().getName());
+         for (AddonDependencyEntry dependency : entry.getValue())
+         {
+            excluded |= removed.contains(dependency.getName());
+         }
+
+         if (excluded)
+            removed.add(entry.getKey().getName());
+         else
+            result.put(entry.getKey(), entry.getValue());
+      }
+      return result;
+   }
+
+   /**
+    * Create an {@link AddonView} with the given name and no repositories or addons.
+    */
+   public static AddonView view(final String name)
+   {
+      return new AddonView()
+      {
+         @Override
+         public String getName()
+         {
+            return name;
+         }
+
+         @Override
+         public void dispose()
+         {
+         }
+
+         @Override
+         public Addon getAddon(AddonId id)
+         {
+            return null;
+         }
+
+         @Override
+         public Set<Addon> getAddons()
+         {
+            return Collections.emptySet();
+         }
+
+         @Override
+         public Set<Addon> getAddons(AddonFilter filter)
+         {
+            return Collections.emptySet();
+         }
+
+         @Override
+         public Set<AddonRepository> getRepositories()
+         {
+            return Collections.emptySet();
+         }
+
+         @Override
+         public String toString()
+         {
+            return name;
+         }
+      };
+   }
+}
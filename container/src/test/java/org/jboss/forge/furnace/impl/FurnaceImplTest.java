@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jboss.forge.furnace.impl.addons.AddonLifecycleManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FurnaceImplTest
+{
+   @Test
+   public void testConcurrentFirstUseSharesOneLifecycleManager() throws Exception
+   {
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      try
+      {
+         for (int attempt = 0; attempt < 20; attempt++)
+         {
+            final FurnaceImpl furnace = new FurnaceImpl();
+            final CountDownLatch go = new CountDownLatch(1);
+
+            List<Future<AddonLifecycleManager>> managers = new ArrayList<Future<AddonLifecycleManager>>();
+            for (int i = 0; i < 8; i++)
+            {
+               managers.add(executor.submit(new Callable<AddonLifecycleManager>()
+               {
+                  @Override
+                  public AddonLifecycleManager call() throws Exception
+                  {
+                     go.await();
+                     return furnace.getAddonLifecycleManager();
+                  }
+               }));
+            }
+            go.countDown();
+
+            for (Future<AddonLifecycleManager> manager : managers)
+            {
+               Assert.assertSame(furnace.getAddonLifecycleManager(), manager.get());
+            }
+         }
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jboss.forge.furnace.exception.ContainerException;
+import org.jboss.forge.furnace.impl.addons.AddonRepositoryImpl;
+import org.jboss.forge.furnace.impl.addons.AddonStateManager;
+import org.jboss.forge.furnace.lock.LockMode;
+import org.jboss.forge.furnace.mock.MockLockManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ScopedLockManagerImplTest
+{
+   private final ScopedLockManagerImpl lock = new ScopedLockManagerImpl();
+   private final ExecutorService executor = Executors.newCachedThreadPool();
+
+   @After
+   public void tearDown()
+   {
+      executor.shutdownNow();
+   }
+
+   @Test
+   public void testWriterDoesNotBlockReaderInOtherScope() throws Exception
+   {
+      final Object first = new Object();
+      final Object second = new Object();
+      final CountDownLatch release = new CountDownLatch(1);
+
+      Future<Void> writer = hold(first, LockMode.WRITE, release);
+      try
+      {
+         Assert.assertEquals("read", read(second).get(5, TimeUnit.SECONDS));
+      }
+      finally
+      {
+         release.countDown();
+      }
+      writer.get(5, TimeUnit.SECONDS);
+   }
+
+   @Test
+   public void testGlobalWriterBlocksScopedReader() throws Exception
+   {
+      final CountDownLatch release = new CountDownLatch(1);
+
+      Future<Void> writer = hold(null, LockMode.WRITE, release);
+      Future<String> reader = read(new Object());
+      try
+      {
+         reader.get(100, TimeUnit.MILLISECONDS);
+         Assert.fail("Scoped reader should wait for the global writer");
+      }
+      catch (TimeoutException e)
+      {
+         // expected
+      }
+      finally
+      {
+         release.countDown();
+      }
+      writer.get(5, TimeUnit.SECONDS);
+      Assert.assertEquals("read", reader.get(5, TimeUnit.SECONDS));
+   }
+
+   @Test
+   public void testWriterBlocksReaderInSameScope() throws Exception
+   {
+      final Object scope = new Object();
+      final CountDownLatch release = new CountDownLatch(1);
+
+      Future<Void> writer = hold(scope, LockMode.WRITE, release);
+      Future<String> reader = read(scope);
+      try
+      {
+         reader.get(100, TimeUnit.MILLISECONDS);
+         Assert.fail("Reader should wait for the writer in the same scope");
+      }
+      catch (TimeoutException e)
+      {
+         // expected
+      }
+      finally
+      {
+         release.countDown();
+      }
+      writer.get(5, TimeUnit.SECONDS);
+      Assert.assertEquals("read", reader.get(5, TimeUnit.SECONDS));
+   }
+
+   @Test(expected = ContainerException.class)
+   public void testUpgradeFailsInsteadOfDeadlocking() throws Exception
+   {
+      final Object scope = new Object();
+      lock.performLocked(scope, LockMode.READ, new Callable<Void>()
+      {
+         @Override
+         public Void call() throws Exception
+         {
+            return lock.performLocked(scope, LockMode.WRITE, new Callable<Void>()
+            {
+               @Override
+               public Void call() throws Exception
+               {
+                  return null;
+               }
+            });
+         }
+      });
+   }
+
+   @Test
+   public void testDomainsInOrderMayBeNested() throws Exception
+   {
+      FurnaceImpl furnace = new FurnaceImpl();
+      Object graph = furnace.getAddonLifecycleManager();
+      Object state = new AddonStateManager(new MockLockManager());
+      Object repository = AddonRepositoryImpl.forDirectory(furnace, new File("target/scoped-lock"));
+
+      Assert.assertEquals("nested", nest(LockMode.READ, graph, state, repository, repository));
+      Assert.assertEquals("nested", nest(LockMode.WRITE, graph, state, repository));
+      Assert.assertEquals("nested", nest(LockMode.READ, new Object(), graph, new Object(), state, repository));
+   }
+
+   @Test(expected = ContainerException.class)
+   public void testDomainsOutOfOrderFailInsteadOfDeadlocking() throws Exception
+   {
+      FurnaceImpl furnace = new FurnaceImpl();
+      Object state = new AddonStateManager(new MockLockManager());
+      Object repository = AddonRepositoryImpl.forDirectory(furnace, new File("target/scoped-lock"));
+
+      nest(LockMode.READ, repository, state);
+   }
+
+   @Test
+   public void testHeldLockMayBeReacquiredOutOfOrder() throws Exception
+   {
+      FurnaceImpl furnace = new FurnaceImpl();
+      Object graph = furnace.getAddonLifecycleManager();
+      Object state = new AddonStateManager(new MockLockManager());
+
+      Assert.assertEquals("nested", nest(LockMode.READ, graph, state, graph));
+   }
+
+   /**
+    * Acquire a lock in each of the given scopes in turn, each while holding the previous ones.
+    */
+   private String nest(final LockMode mode, final Object... scopes)
+   {
+      if (scopes.length == 0)
+         return "nested";
+
+      return lock.performLocked(scopes[0], mode, new Callable<String>()
+      {
+         @Override
+         public String call() throws Exception
+         {
+            Object[] remaining = new Object[scopes.length - 1];
+            System.arraycopy(scopes, 1, remaining, 0, remaining.length);
+            return nest(mode, remaining);
+         }
+      });
+   }
+
+   private Future<Void> hold(final Object scope, final LockMode mode, final CountDownLatch release)
+            throws InterruptedException
+   {
+      final CountDownLatch acquired = new CountDownLatch(1);
+      Future<Void> result = executor.submit(new Callable<Void>()
+      {
+         @Override
+         public Void call() throws Exception
+         {
+            return lock.performLocked(scope, mode, new Callable<Void>()
+            {
+               @Override
+               public Void call() throws Exception
+               {
+                  acquired.countDown();
+                  release.await();
+                  return null;
+               }
+            });
+         }
+      });
+      Assert.assertTrue(acquired.await(5, TimeUnit.SECONDS));
+      return result;
+   }
+
+   private Future<String> read(final Object scope)
+   {
+      return executor.submit(new Callable<String>()
+      {
+         @Override
+         public String call() throws Exception
+         {
+            return lock.performLocked(scope, LockMode.READ, new Callable<String>()
+            {
+               @Override
+               public String call() throws Exception
+               {
+                  return "read";
+               }
+            });
+         }
+      });
+   }
+}
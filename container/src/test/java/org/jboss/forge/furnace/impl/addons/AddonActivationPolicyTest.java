@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.File;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.impl.FurnaceImpl;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddonActivationPolicyTest
+{
+   private final AddonId id = AddonId.from("com.example:addon", "1.0.0.Final");
+
+   @Test
+   public void testEagerByDefault() throws Exception
+   {
+      AddonActivationPolicy policy = new AddonActivationPolicy();
+      Assert.assertFalse(policy.isLazyEnabled());
+      Assert.assertFalse(policy.isLazy(null, id));
+   }
+
+   @Test
+   public void testAddonSettingOverridesRepositorySetting() throws Exception
+   {
+      AddonRepository repository = AddonRepositoryImpl.forDirectory(new FurnaceImpl(), new File("target/lazy"));
+      AddonRepository other = AddonRepositoryImpl.forDirectory(new FurnaceImpl(), new File("target/eager"));
+
+      AddonActivationPolicy policy = new AddonActivationPolicy();
+      policy.setLazy(repository, true);
+      Assert.assertTrue(policy.isLazyEnabled());
+      Assert.assertTrue(policy.isLazy(repository, id));
+      Assert.assertFalse(policy.isLazy(other, id));
+
+      policy.setLazy(id.getName(), false);
+      Assert.assertFalse(policy.isLazy(repository, id));
+
+      policy.setLazy(true);
+      Assert.assertTrue(policy.isLazy(other, AddonId.from("com.example:other", "1.0.0.Final")));
+      Assert.assertFalse(policy.isLazy(other, id));
+   }
+}
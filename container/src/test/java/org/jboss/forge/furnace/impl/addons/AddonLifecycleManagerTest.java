@@ -0,0 +1,78 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.impl.FurnaceImpl;
+import org.jboss.forge.furnace.impl.util.Files;
+import org.jboss.forge.furnace.mock.MockAddonView;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.repositories.MutableAddonRepository;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddonLifecycleManagerTest
+{
+   @Test
+   public void testUpdatePreparedBeforeViewChangedIsNotApplied() throws Exception
+   {
+      File dir = new File("target/lifecycle-manager");
+      Files.delete(dir, true);
+      try
+      {
+         FurnaceImpl furnace = new FurnaceImpl();
+         furnace.getActivationPolicy().setLazy(true);
+         MutableAddonRepository repository = AddonRepositoryImpl.forDirectory(furnace, dir);
+         AddonId a = AddonId.from("com.example:a", "1.0.0.Final");
+         AddonId b = AddonId.from("com.example:b", "1.0.0.Final");
+         repository.deploy(a, Collections.<AddonDependencyEntry> emptySet(), null);
+         repository.deploy(b, Collections.<AddonDependencyEntry> emptySet(), null);
+         repository.enable(a);
+
+         AddonLifecycleManager manager = new AddonLifecycleManager(furnace);
+         AddonView view = new MockAddonView("view", repository);
+         manager.addView(view);
+
+         MasterGraphUpdate stale = manager.newUpdate();
+         stale.prepare(null, false, null);
+
+         repository.enable(b);
+         manager.forceUpdate();
+         Assert.assertEquals(new HashSet<AddonId>(Arrays.asList(a, b)), getIds(manager.getAddons(view)));
+
+         Assert.assertFalse(manager.apply(stale));
+         Assert.assertEquals(new HashSet<AddonId>(Arrays.asList(a, b)), getIds(manager.getAddons(view)));
+
+         MasterGraphUpdate current = manager.newUpdate();
+         current.prepare(null, false, null);
+         Assert.assertTrue(manager.apply(current));
+         manager.stopAll();
+      }
+      finally
+      {
+         Files.delete(dir, true);
+      }
+   }
+
+   private Set<AddonId> getIds(Set<Addon> addons)
+   {
+      Set<AddonId> result = new HashSet<AddonId>();
+      for (Addon addon : addons)
+      {
+         result.add(addon.getId());
+      }
+      return result;
+   }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.mock.MockLockManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddonShutdownSchedulerTest
+{
+   private final AddonStateManager stateManager = new AddonStateManager(new MockLockManager());
+
+   @Test
+   public void testDependentsStopBeforeDependencies() throws Exception
+   {
+      final List<String> events = new CopyOnWriteArrayList<String>();
+
+      Addon a = addon("a");
+      Addon b = addon("b");
+      Addon c = addon("c");
+
+      Map<Addon, Set<Addon>> dependencies = new LinkedHashMap<Addon, Set<Addon>>();
+      dependencies.put(a, Collections.<Addon> emptySet());
+      dependencies.put(b, dependencies(a));
+      dependencies.put(c, dependencies(a, b));
+
+      new AddonShutdownScheduler(4, 5000, 1000).stop(dependencies, new AddonShutdownScheduler.StopTaskFactory()
+      {
+         @Override
+         public Callable<Void> create(Addon addon)
+         {
+            return new Recorder(addon.getId().getName(), events, null);
+         }
+      });
+
+      Assert.assertEquals("[c+, c-, b+, b-, a+, a-]", events.toString());
+   }
+
+   @Test
+   public void testTimedOutAddonReleasesDependencies() throws Exception
+   {
+      final List<String> events = new CopyOnWriteArrayList<String>();
+      final CountDownLatch never = new CountDownLatch(1);
+
+      Addon a = addon("a");
+      final Addon b = addon("b");
+
+      Map<Addon, Set<Addon>> dependencies = new LinkedHashMap<Addon, Set<Addon>>();
+      dependencies.put(a, Collections.<Addon> emptySet());
+      dependencies.put(b, dependencies(a));
+
+      long start = System.currentTimeMillis();
+      new AddonShutdownScheduler(4, 200, 100).stop(dependencies, new AddonShutdownScheduler.StopTaskFactory()
+      {
+         @Override
+         public Callable<Void> create(Addon addon)
+         {
+            return new Recorder(addon.getId().getName(), events, addon.equals(b) ? never : null);
+         }
+      });
+
+      Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+      Assert.assertEquals("[b+, a+, a-]", events.toString());
+   }
+
+   @Test
+   public void testAbandonedAddonDoesNotKeepOnlyThread() throws Exception
+   {
+      final List<String> events = new CopyOnWriteArrayList<String>();
+      final CountDownLatch never = new CountDownLatch(1);
+
+      final Addon a = addon("a");
+      Addon b = addon("b");
+      Addon c = addon("c");
+
+      Map<Addon, Set<Addon>> dependencies = new LinkedHashMap<Addon, Set<Addon>>();
+      dependencies.put(a, dependencies(b, c));
+      dependencies.put(b, Collections.<Addon> emptySet());
+      dependencies.put(c, Collections.<Addon> emptySet());
+
+      long start = System.currentTimeMillis();
+      new AddonShutdownScheduler(1, 200, 100).stop(dependencies, new AddonShutdownScheduler.StopTaskFactory()
+      {
+         @Override
+         public Callable<Void> create(Addon addon)
+         {
+            return new Recorder(addon.getId().getName(), events, addon.equals(a) ? never : null);
+         }
+      });
+
+      Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+      Assert.assertTrue(events.contains("b-"));
+      Assert.assertTrue(events.contains("c-"));
+      Assert.assertFalse(events.contains("a-"));
+   }
+
+   private Addon addon(String name)
+   {
+      return new AddonImpl(stateManager, AddonId.from(name, "1.0.0.Final"));
+   }
+
+   private Set<Addon> dependencies(Addon... addons)
+   {
+      Set<Addon> result = new HashSet<Addon>();
+      Collections.addAll(result, addons);
+      return result;
+   }
+
+   private static class Recorder implements Callable<Void>
+   {
+      private final String name;
+      private final List<String> events;
+      private final CountDownLatch hang;
+
+      public Recorder(String name, List<String> events, CountDownLatch hang)
+      {
+         this.name = name;
+         this.events = events;
+         this.hang = hang;
+      }
+
+      @Override
+      public Void call() throws Exception
+      {
+         events.add(name + "+");
+         if (hang != null)
+         {
+            while (true)
+            {
+               try
+               {
+                  hang.await();
+               }
+               catch (InterruptedException e)
+               {
+                  // Ignore interruption, as a misbehaving addon might
+               }
+            }
+         }
+         Thread.sleep(20);
+         events.add(name + "-");
+         return null;
+      }
+   }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.mock.MockLockManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddonStartupSchedulerTest
+{
+   private final AddonStateManager stateManager = new AddonStateManager(new MockLockManager());
+
+   @Test
+   public void testDependenciesCompleteBeforeDependentsStart() throws Exception
+   {
+      ExecutorService executor = Executors.newFixedThreadPool(2);
+      try
+      {
+         AddonStartupScheduler scheduler = new AddonStartupScheduler(executor);
+         List<String> events = new CopyOnWriteArrayList<String>();
+
+         Addon a = addon("a");
+         Addon b = addon("b");
+         Addon c = addon("c");
+
+         AddonStartupScheduler.Batch batch = scheduler.newBatch();
+         Future<Void> fa = scheduler.add(batch, a, new Recorder("a", events), Collections.<Addon> emptySet());
+         Future<Void> fb = scheduler.add(batch, b, new Recorder("b", events), dependencies(a));
+         Future<Void> fc = scheduler.add(batch, c, new Recorder("c", events), dependencies(a, b));
+         Assert.assertTrue(events.isEmpty());
+
+         batch.submit();
+         fc.get(5, TimeUnit.SECONDS);
+
+         Assert.assertTrue(fa.isDone());
+         Assert.assertTrue(fb.isDone());
+         Assert.assertEquals("[a+, a-, b+, b-, c+, c-]", events.toString());
+
+         long timeout = System.currentTimeMillis() + 5000;
+         while (batch.getTotalTime() < 0 && System.currentTimeMillis() < timeout)
+         {
+            Thread.sleep(10);
+         }
+         Assert.assertTrue(batch.getCriticalPathTime() >= 0);
+         Assert.assertTrue(batch.getTotalTime() >= batch.getCriticalPathTime());
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   @Test
+   public void testCancelledDependencyReleasesDependents() throws Exception
+   {
+      ExecutorService executor = Executors.newFixedThreadPool(2);
+      try
+      {
+         AddonStartupScheduler scheduler = new AddonStartupScheduler(executor);
+         List<String> events = new CopyOnWriteArrayList<String>();
+
+         Addon a = addon("a");
+         Addon b = addon("b");
+
+         AddonStartupScheduler.Batch first = scheduler.newBatch();
+         Future<Void> fa = scheduler.add(first, a, new Recorder("a", events), Collections.<Addon> emptySet());
+
+         AddonStartupScheduler.Batch second = scheduler.newBatch();
+         Future<Void> fb = scheduler.add(second, b, new Recorder("b", events), dependencies(a));
+         fa.cancel(false);
+         second.submit();
+
+         fb.get(5, TimeUnit.SECONDS);
+         Assert.assertEquals("[b+, b-]", events.toString());
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   @Test
+   public void testMoreBlockingStartsThanThreads() throws Exception
+   {
+      final AddonStartupExecutor executor = new AddonStartupExecutor(2);
+      try
+      {
+         AddonStartupScheduler scheduler = new AddonStartupScheduler(executor);
+         final CountDownLatch providerStarted = new CountDownLatch(1);
+
+         /*
+          * Each consumer blocks until the provider has started, as when it requests a lazily activated service. The
+          * consumers are scheduled first, so they occupy every thread of the pool.
+          */
+         AddonStartupScheduler.Batch batch = scheduler.newBatch();
+         List<Future<Void>> consumers = new ArrayList<Future<Void>>();
+         for (int i = 0; i < 4; i++)
+         {
+            consumers.add(scheduler.add(batch, addon("consumer" + i), new Runnable()
+            {
+               @Override
+               public void run()
+               {
+                  executor.block(new Runnable()
+                  {
+                     @Override
+                     public void run()
+                     {
+                        try
+                        {
+                           providerStarted.await();
+                        }
+                        catch (InterruptedException e)
+                        {
+                           Thread.currentThread().interrupt();
+                        }
+                     }
+                  });
+               }
+            }, Collections.<Addon> emptySet()));
+         }
+         scheduler.add(batch, addon("provider"), new Runnable()
+         {
+            @Override
+            public void run()
+            {
+               providerStarted.countDown();
+            }
+         }, Collections.<Addon> emptySet());
+         batch.submit();
+
+         for (Future<Void> consumer : consumers)
+         {
+            consumer.get(5, TimeUnit.SECONDS);
+         }
+         Assert.assertEquals(2, executor.getCorePoolSize());
+         Assert.assertEquals(2, executor.getMaximumPoolSize());
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   private Addon addon(String name)
+   {
+      return new AddonImpl(stateManager, AddonId.from(name, "1.0.0.Final"));
+   }
+
+   private Set<Addon> dependencies(Addon... addons)
+   {
+      Set<Addon> result = new HashSet<Addon>();
+      Collections.addAll(result, addons);
+      return result;
+   }
+
+   private static class Recorder implements Runnable
+   {
+      private final String name;
+      private final List<String> events;
+
+      public Recorder(String name, List<String> events)
+      {
+         this.name = name;
+         this.events = events;
+      }
+
+      @Override
+      public void run()
+      {
+         events.add(name + "+");
+         try
+         {
+            Thread.sleep(20);
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+         }
+         events.add(name + "-");
+      }
+   }
+}
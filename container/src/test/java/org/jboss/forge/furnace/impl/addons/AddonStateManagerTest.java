@@ -0,0 +1,296 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonDependency;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.event.EventManager;
+import org.jboss.forge.furnace.impl.graph.AddonVertex;
+import org.jboss.forge.furnace.impl.graph.CompleteAddonGraph;
+import org.jboss.forge.furnace.impl.graph.MasterGraph;
+import org.jboss.forge.furnace.impl.graph.OptimizedAddonGraph;
+import org.jboss.forge.furnace.mock.MockAddonView;
+import org.jboss.forge.furnace.mock.MockLockManager;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.spi.ServiceRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddonStateManagerTest
+{
+   private final AddonStateManager manager = new AddonStateManager(new MockLockManager());
+   private final Addon addon = new AddonImpl(manager, AddonId.from("com.example:a", "1.0.0.Final"));
+   private final ExecutorService executor = Executors.newCachedThreadPool();
+
+   @After
+   public void tearDown()
+   {
+      executor.shutdownNow();
+   }
+
+   @Test
+   public void testAwaitStartedIsReleasedWhenStartCompletes() throws Exception
+   {
+      manager.setState(addon, new AddonState(Collections.<AddonDependency> emptySet()));
+      FutureTask<Void> start = task();
+      manager.setHandles(addon, start, null);
+
+      Future<Boolean> waiter = await(true);
+      Thread.sleep(50);
+      Assert.assertFalse(waiter.isDone());
+
+      start.run();
+      manager.statusChanged(addon);
+      Assert.assertTrue(waiter.get(5, TimeUnit.SECONDS));
+   }
+
+   @Test
+   public void testAwaitStartedIsReleasedWhenStateIsSet() throws Exception
+   {
+      Future<Boolean> waiter = await(true);
+      Thread.sleep(50);
+      Assert.assertFalse(waiter.isDone());
+
+      manager.setState(addon, new AddonState(Collections.<AddonDependency> emptySet()));
+      manager.setHandles(addon, started(), null);
+      Assert.assertTrue(waiter.get(5, TimeUnit.SECONDS));
+   }
+
+   @Test
+   public void testAwaitStoppedIsReleasedWhenStateIsReplaced() throws Exception
+   {
+      manager.setState(addon, new AddonState(Collections.<AddonDependency> emptySet()));
+      manager.setHandles(addon, started(), null);
+      Assert.assertTrue(addon.getStatus().isStarted());
+
+      Future<Boolean> waiter = await(false);
+      Thread.sleep(50);
+      Assert.assertFalse(waiter.isDone());
+
+      manager.setState(addon, new AddonState());
+      Assert.assertTrue(waiter.get(5, TimeUnit.SECONDS));
+   }
+
+   @Test
+   public void testAwaitTimesOut() throws Exception
+   {
+      manager.setState(addon, new AddonState(Collections.<AddonDependency> emptySet()));
+      Assert.assertFalse(manager.awaitStatus(addon, true, 50, TimeUnit.MILLISECONDS));
+      Assert.assertTrue(manager.awaitStatus(addon, false, 50, TimeUnit.MILLISECONDS));
+   }
+
+   @Test
+   public void testConcurrentUpdatesAreNotLost() throws Exception
+   {
+      manager.setState(addon, new AddonState(Collections.<AddonDependency> emptySet()));
+
+      final int updates = 2000;
+      final List<Future<Void>> handles = new ArrayList<Future<Void>>();
+      final List<ServiceRegistry> registries = new ArrayList<ServiceRegistry>();
+      final List<EventManager> eventManagers = new ArrayList<EventManager>();
+      for (int i = 0; i < updates; i++)
+      {
+         handles.add(task());
+         registries.add(new NullServiceRegistry());
+         eventManagers.add(new NullEventManager());
+      }
+
+      final CountDownLatch go = new CountDownLatch(1);
+      List<Future<?>> updaters = new ArrayList<Future<?>>();
+      updaters.add(executor.submit(new Callable<Void>()
+      {
+         @Override
+         public Void call() throws Exception
+         {
+            go.await();
+            for (Future<Void> future : handles)
+            {
+               manager.setHandles(addon, future, null);
+            }
+            return null;
+         }
+      }));
+      updaters.add(executor.submit(new Callable<Void>()
+      {
+         @Override
+         public Void call() throws Exception
+         {
+            go.await();
+            for (ServiceRegistry registry : registries)
+            {
+               manager.setServiceRegistry(addon, registry);
+            }
+            return null;
+         }
+      }));
+      updaters.add(executor.submit(new Callable<Void>()
+      {
+         @Override
+         public Void call() throws Exception
+         {
+            go.await();
+            for (EventManager eventManager : eventManagers)
+            {
+               manager.setEventManager(addon, eventManager);
+            }
+            return null;
+         }
+      }));
+
+      go.countDown();
+      for (Future<?> updater : updaters)
+      {
+         updater.get(30, TimeUnit.SECONDS);
+      }
+
+      Assert.assertSame(handles.get(updates - 1), manager.getFutureOf(addon));
+      Assert.assertSame(registries.get(updates - 1), manager.getServiceRegistryOf(addon));
+      Assert.assertSame(eventManagers.get(updates - 1), manager.getEventManagerOf(addon));
+   }
+
+   @Test
+   public void testViewsFollowReplacedGraph() throws Exception
+   {
+      AddonView first = new MockAddonView("first");
+      AddonView second = new MockAddonView("second");
+      Map<AddonId, Addon> addons = new HashMap<AddonId, Addon>();
+
+      MasterGraph master = graph(addons, first, second);
+      manager.setCurrentGraph(master);
+      assertViewsMatch(master, addons.values());
+      Assert.assertEquals(2, manager.getViewsOf(addons.get(AddonId.from("a", "1"))).size());
+
+      MasterGraph replaced = graph(addons, first);
+      manager.setCurrentGraph(replaced);
+      assertViewsMatch(replaced, addons.values());
+      Assert.assertEquals(Collections.singleton(first), manager.getViewsOf(addons.get(AddonId.from("a", "1"))));
+
+      manager.setCurrentGraph(null);
+      for (Addon addon : addons.values())
+      {
+         Assert.assertTrue(manager.getViewsOf(addon).isEmpty());
+      }
+   }
+
+   @Test
+   public void testViewsFollowAssignedVertices() throws Exception
+   {
+      AddonView first = new MockAddonView("first");
+      AddonView second = new MockAddonView("second");
+      Map<AddonId, Addon> addons = new HashMap<AddonId, Addon>();
+
+      MasterGraph master = graph(null, first, second);
+      manager.setCurrentGraph(master);
+      for (AddonVertex vertex : master.getGraph().vertexSet())
+      {
+         Addon addon = new AddonImpl(manager, vertex.getAddonId());
+         addons.put(vertex.getAddonId(), addon);
+         vertex.setAddon(addon);
+         manager.indexViews(vertex);
+      }
+      assertViewsMatch(master, addons.values());
+   }
+
+   /**
+    * Build a {@link MasterGraph} in which, in each of the given views, a:1 depends on b:1. If the given map is not
+    * <code>null</code>, each vertex is assigned the {@link Addon} of its {@link AddonId} from the map, which is created
+    * if necessary.
+    */
+   private MasterGraph graph(Map<AddonId, Addon> addons, AddonView... views)
+   {
+      Map<AddonId, Set<AddonDependencyEntry>> dependencies = new HashMap<AddonId, Set<AddonDependencyEntry>>();
+      dependencies.put(AddonId.from("a", "1"), Collections.singleton(AddonDependencyEntry.create("b", "1")));
+      dependencies.put(AddonId.from("b", "1"), Collections.<AddonDependencyEntry> emptySet());
+
+      MasterGraph result = new MasterGraph();
+      for (AddonView view : views)
+      {
+         result.merge(new OptimizedAddonGraph(view, new CompleteAddonGraph(dependencies).getGraph()));
+      }
+
+      if (addons != null)
+      {
+         for (AddonVertex vertex : result.getGraph().vertexSet())
+         {
+            Addon addon = addons.get(vertex.getAddonId());
+            if (addon == null)
+            {
+               addon = new AddonImpl(manager, vertex.getAddonId());
+               addons.put(vertex.getAddonId(), addon);
+            }
+            vertex.setAddon(addon);
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Assert that the indexed views of each given {@link Addon} are those found by scanning the given
+    * {@link MasterGraph}.
+    */
+   private void assertViewsMatch(MasterGraph master, Iterable<Addon> addons)
+   {
+      for (Addon addon : addons)
+      {
+         Set<AddonView> scanned = new HashSet<AddonView>();
+         for (AddonVertex vertex : master.getGraph().vertexSet())
+         {
+            if (addon.equals(vertex.getAddon()))
+               scanned.addAll(vertex.getViews());
+         }
+         Assert.assertEquals(scanned, manager.getViewsOf(addon));
+      }
+   }
+
+   private Future<Boolean> await(final boolean started)
+   {
+      return executor.submit(new Callable<Boolean>()
+      {
+         @Override
+         public Boolean call() throws Exception
+         {
+            return manager.awaitStatus(addon, started, 10, TimeUnit.SECONDS);
+         }
+      });
+   }
+
+   private Future<Void> started()
+   {
+      FutureTask<Void> result = task();
+      result.run();
+      return result;
+   }
+
+   private FutureTask<Void> task()
+   {
+      return new FutureTask<Void>(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+         }
+      }, null);
+   }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonRegistry;
+import org.jboss.forge.furnace.impl.FurnaceImpl;
+import org.jboss.forge.furnace.impl.util.Files;
+import org.jboss.forge.furnace.lifecycle.AddonLifecycleProvider;
+import org.jboss.forge.furnace.mock.services.MockService;
+import org.jboss.forge.furnace.mock.services.MockServiceLifecycleProvider;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.repositories.AddonRepositoryMode;
+import org.jboss.forge.furnace.repositories.MutableAddonRepository;
+import org.jboss.forge.furnace.util.Streams;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LazyAddonActivationTest
+{
+   private static final String SERVICE = MockService.class.getName();
+
+   private final File dir = new File("target/lazy-activation");
+   private final AddonId provider = AddonId.from("com.example:provider", "1.0.0.Final");
+   private FurnaceImpl furnace;
+
+   @Before
+   public void setUp()
+   {
+      Files.delete(dir, true);
+      furnace = new FurnaceImpl();
+      furnace.getActivationPolicy().setLazy(true);
+   }
+
+   @After
+   public void tearDown()
+   {
+      if (furnace.getStatus().isStarted())
+         furnace.stop();
+      Files.delete(dir, true);
+   }
+
+   @Test
+   public void testServiceRequestActivatesLazyProvider() throws Exception
+   {
+      MutableAddonRepository repository = addRepository("repository");
+      AddonId consumer = AddonId.from("com.example:consumer", "1.0.0.Final");
+      furnace.getActivationPolicy().setLazy(consumer.getName(), false);
+      deploy(repository, provider, true);
+      deploy(repository, consumer, false);
+      start();
+
+      AddonRegistry registry = furnace.getAddonRegistry(repository);
+      Assert.assertTrue(registry.getAddon(consumer).getStatus().isStarted());
+      Assert.assertFalse(registry.getAddon(provider).getStatus().isStarted());
+
+      Assert.assertTrue(registry.getServices(SERVICE).isSatisfied());
+      Assert.assertTrue(registry.getAddon(provider).getStatus().isStarted());
+   }
+
+   @Test
+   public void testServiceRequestActivatesProviderOfEachView() throws Exception
+   {
+      MutableAddonRepository left = addRepository("left");
+      MutableAddonRepository right = addRepository("right");
+      AddonId other = AddonId.from(provider.getName(), "2.0.0.Final");
+      deploy(left, provider, true);
+      deploy(right, other, true);
+      start();
+
+      AddonRegistry leftRegistry = furnace.getAddonRegistry(left);
+      AddonRegistry rightRegistry = furnace.getAddonRegistry(right);
+
+      Assert.assertTrue(leftRegistry.getServices(SERVICE).isSatisfied());
+      Assert.assertTrue(leftRegistry.getAddon(provider).getStatus().isStarted());
+      Assert.assertFalse(rightRegistry.getAddon(other).getStatus().isStarted());
+
+      Assert.assertTrue(rightRegistry.getServices(SERVICE).isSatisfied());
+      Assert.assertTrue(rightRegistry.getAddon(other).getStatus().isStarted());
+   }
+
+   @Test
+   public void testServiceRequestActivatesDependencyChain() throws Exception
+   {
+      MutableAddonRepository repository = addRepository("repository");
+      AddonId library = AddonId.from("com.example:library", "1.0.0.Final");
+      AddonId dependent = AddonId.from("com.example:dependent", "1.0.0.Final");
+      deploy(repository, library, false);
+      deploy(repository, provider, true, library);
+      deploy(repository, dependent, false, provider);
+      start();
+
+      AddonRegistry registry = furnace.getAddonRegistry(repository);
+      Assert.assertFalse(registry.getAddon(library).getStatus().isStarted());
+      Assert.assertFalse(registry.getAddon(dependent).getStatus().isStarted());
+
+      Assert.assertTrue(registry.getServices(SERVICE).isSatisfied());
+      Assert.assertTrue(registry.getAddon(library).getStatus().isStarted());
+      Assert.assertTrue(registry.getAddon(provider).getStatus().isStarted());
+      Assert.assertTrue(registry.getAddon(dependent).getStatus().isStarted());
+   }
+
+   private MutableAddonRepository addRepository(String name)
+   {
+      return (MutableAddonRepository) furnace.addRepository(AddonRepositoryMode.MUTABLE, new File(dir, name));
+   }
+
+   /**
+    * Deploy and enable the given addon. An addon that provides services contains the classes of {@link MockService},
+    * along with a {@link MockServiceLifecycleProvider} exporting it.
+    */
+   private void deploy(MutableAddonRepository repository, AddonId addon, boolean providesServices,
+            AddonId... dependencies) throws Exception
+   {
+      Set<AddonDependencyEntry> entries = new HashSet<AddonDependencyEntry>();
+      for (AddonId dependency : dependencies)
+      {
+         entries.add(AddonDependencyEntry.create(dependency.getName(), dependency.getVersion().toString()));
+      }
+      repository.deploy(addon, entries, providesServices ? Arrays.asList(getServiceClasses()) : null);
+      repository.enable(addon);
+   }
+
+   private File getServiceClasses() throws Exception
+   {
+      File result = new File(dir, "classes/services");
+      if (!result.exists())
+      {
+         String path = MockService.class.getPackage().getName().replace('.', '/');
+         File source = new File(MockService.class.getResource(MockService.class.getSimpleName() + ".class").toURI())
+                  .getParentFile();
+         Files.copyDirectory(source, new File(result, path));
+
+         File services = new File(result, "META-INF/services/" + AddonLifecycleProvider.class.getName());
+         services.getParentFile().mkdirs();
+         FileOutputStream out = new FileOutputStream(services);
+         try
+         {
+            Streams.write(Streams.fromString(MockServiceLifecycleProvider.class.getName()), out);
+         }
+         finally
+         {
+            Streams.closeQuietly(out);
+         }
+      }
+      return result;
+   }
+
+   private void start() throws Exception
+   {
+      furnace.startAsync();
+      long deadline = System.currentTimeMillis() + 10000;
+      while (!furnace.getStatus().isStarted())
+      {
+         Assert.assertTrue("Furnace did not start", System.currentTimeMillis() < deadline);
+         Thread.sleep(10);
+      }
+   }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.impl.FurnaceImpl;
+import org.jboss.forge.furnace.impl.util.Files;
+import org.jboss.forge.furnace.mock.MockAddonView;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.repositories.MutableAddonRepository;
+import org.jboss.forge.furnace.versions.SingleVersion;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MasterGraphUpdateTest
+{
+   private final File dir = new File("target/master-graph-update");
+   private final AddonId a = AddonId.from("com.example:a", "1.0.0.Final");
+   private final AddonId b = AddonId.from("com.example:b", "1.0.0.Final");
+
+   private MutableAddonRepository repository;
+   private MutableAddonRepository otherRepository;
+
+   @Before
+   public void setUp()
+   {
+      Files.delete(dir, true);
+      FurnaceImpl furnace = new FurnaceImpl();
+      repository = AddonRepositoryImpl.forDirectory(furnace, new File(dir, "repository"));
+      otherRepository = AddonRepositoryImpl.forDirectory(furnace, new File(dir, "other"));
+      repository.deploy(a, Collections.<AddonDependencyEntry> emptySet(), null);
+      repository.deploy(b, Collections.<AddonDependencyEntry> emptySet(), null);
+      repository.enable(a);
+   }
+
+   @After
+   public void tearDown()
+   {
+      Files.delete(dir, true);
+   }
+
+   @Test
+   public void testUnchangedViewHasNoChangedAddons()
+   {
+      AddonView view = new MockAddonView("view", repository);
+      MasterGraphUpdate first = prepare(0, null, view);
+      MasterGraphUpdate second = prepare(1, first, view);
+
+      Assert.assertTrue(second.isIncremental(first));
+      Assert.assertTrue(second.getChanged().isEmpty());
+      Assert.assertEquals(1, second.getMaster().getVertices(a.getName(), new SingleVersion("1.0.0.Final")).size());
+   }
+
+   @Test
+   public void testChangedAddonsAreReported()
+   {
+      AddonView view = new MockAddonView("view", repository);
+      MasterGraphUpdate first = prepare(0, null, view);
+      Assert.assertFalse(first.isIncremental(null));
+
+      repository.enable(b);
+      MasterGraphUpdate second = prepare(1, first, view);
+
+      Assert.assertTrue(second.isIncremental(first));
+      Assert.assertEquals(Collections.singletonMap(view, Collections.singleton(b)), second.getChanged());
+      Assert.assertEquals(1, second.getMaster().getVertices(b.getName(), new SingleVersion("1.0.0.Final")).size());
+   }
+
+   @Test
+   public void testAddedViewFallsBackToFullUpdate()
+   {
+      AddonView view = new MockAddonView("view", repository);
+      MasterGraphUpdate first = prepare(0, null, view);
+
+      AddonView other = new MockAddonView("other", otherRepository);
+      MasterGraphUpdate second = prepare(1, first, view, other);
+
+      Assert.assertFalse(second.isIncremental(first));
+      Set<AddonView> changedViews = second.getChanged().keySet();
+      Assert.assertFalse(changedViews.contains(view));
+   }
+
+   private MasterGraphUpdate prepare(int generation, MasterGraphUpdate previous, AddonView... views)
+   {
+      MasterGraphUpdate result = new MasterGraphUpdate(generation, Arrays.asList(views), previous);
+      result.prepare(null, false, null);
+      return result;
+   }
+}
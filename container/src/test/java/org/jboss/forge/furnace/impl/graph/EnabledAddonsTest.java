@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.graph;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.impl.FurnaceImpl;
+import org.jboss.forge.furnace.impl.addons.AddonRepositoryImpl;
+import org.jboss.forge.furnace.impl.util.Files;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.repositories.MutableAddonRepository;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EnabledAddonsTest
+{
+   private final AddonId a = AddonId.from("com.example:a", "1.0.0.Final");
+   private final AddonId b = AddonId.from("com.example:b", "1.0.0.Final");
+   private final AddonId c = AddonId.from("com.example:c", "1.0.0.Final");
+
+   @Test
+   public void testDiffOfUnchangedAddonsIsEmpty()
+   {
+      Map<AddonId, Set<AddonDependencyEntry>> previous = enabled(a, dependency("[1.0.0.Final,2.0.0.Final)", false));
+      Map<AddonId, Set<AddonDependencyEntry>> current = enabled(a, dependency("[1.0.0.Final,2.0.0.Final)", false));
+
+      Assert.assertTrue(EnabledAddons.diff(previous, current).isEmpty());
+   }
+
+   @Test
+   public void testDiffFindsAddedAndRemovedAddons()
+   {
+      Map<AddonId, Set<AddonDependencyEntry>> previous = enabled(a);
+      previous.put(b, Collections.<AddonDependencyEntry> emptySet());
+      Map<AddonId, Set<AddonDependencyEntry>> current = enabled(a);
+      current.put(c, Collections.<AddonDependencyEntry> emptySet());
+
+      Assert.assertEquals(new HashSet<AddonId>(Arrays.asList(b, c)), EnabledAddons.diff(previous, current));
+   }
+
+   @Test
+   public void testDiffFindsChangedDependencies()
+   {
+      Map<AddonId, Set<AddonDependencyEntry>> previous = enabled(a, dependency("[1.0.0.Final,2.0.0.Final)", false));
+
+      Assert.assertEquals(Collections.singleton(a),
+               EnabledAddons.diff(previous, enabled(a, dependency("[1.0.0.Final,3.0.0.Final)", false))));
+      Assert.assertEquals(Collections.singleton(a),
+               EnabledAddons.diff(previous, enabled(a, dependency("[1.0.0.Final,2.0.0.Final)", true))));
+      Assert.assertEquals(Collections.singleton(a), EnabledAddons.diff(previous, enabled(a)));
+   }
+
+   @Test
+   public void testSnapshotIsCurrentUntilRepositoryChanges() throws Exception
+   {
+      File dir = new File("target/enabled-addons");
+      Files.delete(dir, true);
+      try
+      {
+         MutableAddonRepository repository = AddonRepositoryImpl.forDirectory(new FurnaceImpl(), dir);
+         repository.deploy(a, Collections.<AddonDependencyEntry> emptySet(), null);
+         repository.deploy(b, Arrays.asList(AddonDependencyEntry.create(a.getName(), "[1.0.0.Final,2.0.0.Final)",
+                  false)), null);
+         repository.enable(a);
+         repository.enable(b);
+
+         EnabledAddons snapshot = EnabledAddons.of(repository);
+         Assert.assertTrue(snapshot.isCurrent(repository));
+         Assert.assertEquals(new HashSet<AddonId>(Arrays.asList(a, b)), snapshot.getDependencies().keySet());
+         Assert.assertEquals(1, snapshot.getDependencies().get(b).size());
+
+         repository.disable(b);
+         Assert.assertFalse(snapshot.isCurrent(repository));
+         Assert.assertEquals(Collections.singleton(b),
+                  EnabledAddons.diff(snapshot.getDependencies(), EnabledAddons.of(repository).getDependencies()));
+      }
+      finally
+      {
+         Files.delete(dir, true);
+      }
+   }
+
+   private Map<AddonId, Set<AddonDependencyEntry>> enabled(AddonId id, AddonDependencyEntry... dependencies)
+   {
+      Map<AddonId, Set<AddonDependencyEntry>> result = new LinkedHashMap<AddonId, Set<AddonDependencyEntry>>();
+      result.put(id, new HashSet<AddonDependencyEntry>(Arrays.asList(dependencies)));
+      return result;
+   }
+
+   private AddonDependencyEntry dependency(String range, boolean exported)
+   {
+      return AddonDependencyEntry.create(c.getName(), range, exported);
+   }
+}
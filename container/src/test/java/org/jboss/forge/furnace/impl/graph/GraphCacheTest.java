@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.graph;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.impl.FurnaceImpl;
+import org.jboss.forge.furnace.impl.addons.AddonRepositoryImpl;
+import org.jboss.forge.furnace.impl.util.Files;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+import org.jboss.forge.furnace.repositories.MutableAddonRepository;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GraphCacheTest
+{
+   @Test
+   public void testLoadsStoredGraphUntilDescriptorsChange() throws Exception
+   {
+      File dir = new File("target/graph-cache");
+      Files.delete(dir, true);
+      try
+      {
+         File repositoryDir = new File(dir, "repository");
+         File cacheDir = new File(dir, "cache");
+         MutableAddonRepository repository = AddonRepositoryImpl.forDirectory(new FurnaceImpl(), repositoryDir);
+         AddonId a = AddonId.from("com.example:a", "1.0.0.Final");
+         AddonId b = AddonId.from("com.example:b", "1.0.0.Final");
+         repository.deploy(a, Collections.<AddonDependencyEntry> emptySet(), null);
+         repository.deploy(b, Arrays.asList(AddonDependencyEntry.create(a.getName(), "[1.0.0.Final,2.0.0.Final)",
+                  true)), null);
+         repository.enable(a);
+         repository.enable(b);
+
+         List<AddonRepository> repositories = Arrays.<AddonRepository> asList(repository);
+         Map<AddonId, Set<AddonDependencyEntry>> enabled = EnabledAddons.of(repository).getDependencies();
+         OptimizedAddonGraph graph = new OptimizedAddonGraph(null, new CompleteAddonGraph(enabled).getGraph());
+
+         Assert.assertFalse(GraphCache.forRepositories(cacheDir, repositories).load(null));
+         GraphCache.forRepositories(cacheDir, repositories).store(enabled, graph);
+         Assert.assertEquals(1, cacheDir.list().length);
+
+         GraphCache cache = GraphCache.forRepositories(cacheDir, repositories);
+         Assert.assertTrue(cache.load(null));
+         Assert.assertEquals(enabled.keySet(), cache.getEnabled().keySet());
+         Assert.assertEquals(graph.toString(), cache.getGraph().toString());
+         Assert.assertEquals(graph.getGraph().edgeSet().size(), cache.getGraph().getGraph().edgeSet().size());
+
+         for (String name : repositoryDir.list())
+         {
+            Assert.assertFalse(name.endsWith(".cache") || name.endsWith(".tmp"));
+         }
+
+         repository.disable(b);
+         Assert.assertFalse(GraphCache.forRepositories(cacheDir, repositories).load(null));
+      }
+      finally
+      {
+         Files.delete(dir, true);
+      }
+   }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonStatus;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.mock.MockAddon;
+import org.jboss.forge.furnace.mock.MockAddonView;
+import org.jboss.forge.furnace.versions.EmptyVersionRange;
+import org.jboss.forge.furnace.versions.SingleVersion;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MasterGraphChangeHandlerTest
+{
+   private final AddonView view = new MockAddonView("view");
+
+   @Test
+   public void testChangedAddonsAndDependentsAreDirty()
+   {
+      MasterGraph last = master("1");
+      MasterGraph current = master("2");
+      Map<AddonView, Set<AddonId>> changed = Collections.<AddonView, Set<AddonId>> singletonMap(view,
+               new HashSet<AddonId>(Arrays.asList(AddonId.from("b", "1"), AddonId.from("b", "2"))));
+
+      new MasterGraphChangeHandler(null, last, current, changed).markChanges();
+
+      assertDirty(last, "a", "b");
+      assertDirty(current, "a", "b");
+   }
+
+   @Test
+   public void testOnlyChangedAddonsAreDirty()
+   {
+      MasterGraph last = master("1");
+      MasterGraph current = master("1");
+      Map<AddonView, Set<AddonId>> changed = Collections.<AddonView, Set<AddonId>> singletonMap(view,
+               Collections.singleton(AddonId.from("a", "1")));
+
+      new MasterGraphChangeHandler(null, last, current, changed).markChanges();
+
+      assertDirty(last, "a");
+      assertDirty(current, "a");
+   }
+
+   @Test
+   public void testFullComparisonWithoutChangedAddons()
+   {
+      MasterGraph last = master("1");
+      MasterGraph current = master("2");
+
+      new MasterGraphChangeHandler(null, last, current).markChanges();
+
+      assertDirty(last, "b");
+      assertDirty(current, "a", "b");
+   }
+
+   /**
+    * a:1 depends on b:<version>, and c:1 is independent.
+    */
+   private MasterGraph master(String dependencyVersion)
+   {
+      OptimizedAddonGraph graph = new OptimizedAddonGraph(view);
+      AddonVertex a = vertex("a", "1");
+      AddonVertex b = vertex("b", dependencyVersion);
+      graph.addLocalVertex(a);
+      graph.addLocalVertex(b);
+      graph.addLocalVertex(vertex("c", "1"));
+      graph.getGraph().addEdge(a, b, new AddonDependencyEdge(new EmptyVersionRange(), false));
+
+      MasterGraph result = new MasterGraph();
+      result.merge(graph);
+      return result;
+   }
+
+   private AddonVertex vertex(String name, String version)
+   {
+      AddonVertex result = new AddonVertex(name, new SingleVersion(version));
+      result.setAddon(new MockAddon(result.getAddonId(), AddonStatus.STARTED));
+      return result;
+   }
+
+   private void assertDirty(MasterGraph master, String... names)
+   {
+      Set<String> dirty = new HashSet<String>();
+      for (AddonVertex vertex : master.getGraph().vertexSet())
+      {
+         if (vertex.isDirty())
+            dirty.add(vertex.getName());
+      }
+      Assert.assertEquals(new HashSet<String>(Arrays.asList(names)), dirty);
+   }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.graph;
+
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.mock.MockAddonView;
+import org.jboss.forge.furnace.versions.EmptyVersionRange;
+import org.jboss.forge.furnace.versions.SingleVersion;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MasterGraphTest
+{
+   @Test
+   public void testVerticesAreIndexedByNameAndVersion()
+   {
+      MasterGraph master = new MasterGraph();
+      AddonView view = new MockAddonView("view");
+      master.merge(chain(view, "1"));
+
+      Assert.assertEquals(1, master.getVertices("a", new SingleVersion("1")).size());
+      Assert.assertEquals(1, master.getVertices("b", new SingleVersion("1")).size());
+      Assert.assertTrue(master.getVertices("a", new SingleVersion("2")).isEmpty());
+      Assert.assertTrue(master.getVertices("c", new SingleVersion("1")).isEmpty());
+   }
+
+   @Test
+   public void testIndexFollowsReplacedVertices()
+   {
+      MasterGraph master = new MasterGraph();
+      AddonView first = new MockAddonView("first");
+      AddonView second = new MockAddonView("second");
+      master.merge(chain(first, "1"));
+      master.merge(chain(second, "1"));
+
+      Set<AddonVertex> vertices = master.getVertices("a", new SingleVersion("1"));
+      Assert.assertEquals(1, vertices.size());
+      AddonVertex vertex = vertices.iterator().next();
+      Assert.assertTrue(master.getGraph().containsVertex(vertex));
+      Assert.assertTrue(vertex.getViews().contains(first));
+      Assert.assertTrue(vertex.getViews().contains(second));
+      Assert.assertEquals(2, master.getGraph().vertexSet().size());
+   }
+
+   @Test
+   public void testDifferentSubtreesAreNotShared()
+   {
+      MasterGraph master = new MasterGraph();
+      master.merge(chain(new MockAddonView("first"), "1"));
+      master.merge(chain(new MockAddonView("second"), "2"));
+
+      Assert.assertEquals(2, master.getVertices("a", new SingleVersion("1")).size());
+      Assert.assertEquals(1, master.getVertices("b", new SingleVersion("1")).size());
+      Assert.assertEquals(1, master.getVertices("b", new SingleVersion("2")).size());
+   }
+
+   @Test
+   public void testSubtreeEquivalence()
+   {
+      MasterGraph master = new MasterGraph();
+      master.merge(chain(new MockAddonView("first"), "1"));
+      AddonVertex local = master.getVertices("a", new SingleVersion("1")).iterator().next();
+
+      OptimizedAddonGraph same = chain(new MockAddonView("second"), "1");
+      OptimizedAddonGraph different = chain(new MockAddonView("third"), "2");
+
+      Assert.assertTrue(master.isSubtreeEquivalent(local, same.getGraph(), root(same)));
+      Assert.assertFalse(master.isSubtreeEquivalent(local, different.getGraph(), root(different)));
+   }
+
+   @Test
+   public void testSubtreeEquivalenceIsMemoizedPerComparedGraph()
+   {
+      MasterGraph master = new MasterGraph();
+      master.merge(chain(new MockAddonView("first"), "1"));
+      AddonVertex local = master.getVertices("a", new SingleVersion("1")).iterator().next();
+
+      OptimizedAddonGraph other = chain(new MockAddonView("second"), "1");
+      Assert.assertTrue(master.isSubtreeEquivalent(local, other.getGraph(), root(other)));
+
+      /*
+       * Compared graphs are not expected to change, so a changed graph still yields the remembered result.
+       */
+      AddonVertex extra = new AddonVertex("c", new SingleVersion("1"));
+      other.addLocalVertex(extra);
+      other.getGraph().addEdge(root(other), extra, new AddonDependencyEdge(new EmptyVersionRange(), false));
+      Assert.assertTrue(master.isSubtreeEquivalent(local, other.getGraph(), root(other)));
+
+      OptimizedAddonGraph copy = chain(new MockAddonView("third"), "1");
+      copy.addLocalVertex(extra);
+      copy.getGraph().addEdge(root(copy), extra, new AddonDependencyEdge(new EmptyVersionRange(), false));
+      Assert.assertFalse(master.isSubtreeEquivalent(local, copy.getGraph(), root(copy)));
+   }
+
+   /**
+    * a:1 depends on b:<version>
+    */
+   private OptimizedAddonGraph chain(AddonView view, String dependencyVersion)
+   {
+      OptimizedAddonGraph result = new OptimizedAddonGraph(view);
+      AddonVertex a = new AddonVertex("a", new SingleVersion("1"));
+      AddonVertex b = new AddonVertex("b", new SingleVersion(dependencyVersion));
+      result.addLocalVertex(a);
+      result.addLocalVertex(b);
+      result.getGraph().addEdge(a, b, new AddonDependencyEdge(new EmptyVersionRange(), false));
+      return result;
+   }
+
+   private AddonVertex root(OptimizedAddonGraph graph)
+   {
+      for (AddonVertex vertex : graph.getGraph().vertexSet())
+      {
+         if ("a".equals(vertex.getName()))
+            return vertex;
+      }
+      throw new IllegalStateException("No root vertex in " + graph);
+   }
+}
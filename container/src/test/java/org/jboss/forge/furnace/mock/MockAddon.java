@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.mock;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonDependency;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonStatus;
+import org.jboss.forge.furnace.event.EventManager;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+import org.jboss.forge.furnace.spi.ServiceRegistry;
+
+/**
+ * An {@link Addon} with the given {@link AddonId} and {@link AddonStatus}, and no runtime state.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class MockAddon implements Addon
+{
+   private final AddonId id;
+   private volatile AddonStatus status;
+
+   public MockAddon(AddonId id, AddonStatus status)
+   {
+      this.id = id;
+      this.status = status;
+   }
+
+   @Override
+   public AddonId getId()
+   {
+      return id;
+   }
+
+   @Override
+   public ClassLoader getClassLoader()
+   {
+      return null;
+   }
+
+   @Override
+   public EventManager getEventManager()
+   {
+      return null;
+   }
+
+   @Override
+   public ServiceRegistry getServiceRegistry()
+   {
+      return null;
+   }
+
+   @Override
+   public AddonRepository getRepository()
+   {
+      return null;
+   }
+
+   @Override
+   public AddonStatus getStatus()
+   {
+      return status;
+   }
+
+   public void setStatus(AddonStatus status)
+   {
+      this.status = status;
+   }
+
+   @Override
+   public Set<AddonDependency> getDependencies()
+   {
+      return Collections.emptySet();
+   }
+
+   @Override
+   public Future<Void> getFuture()
+   {
+      return null;
+   }
+
+   @Override
+   public String toString()
+   {
+      return id.toCoordinates() + " +" + status;
+   }
+}
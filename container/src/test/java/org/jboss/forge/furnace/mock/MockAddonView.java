@@ -0,0 +1,76 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonFilter;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+
+/**
+ * An {@link AddonView} of the given {@link AddonRepository} instances, holding no {@link Addon} instances.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class MockAddonView implements AddonView
+{
+   private final String name;
+   private final Set<AddonRepository> repositories;
+
+   public MockAddonView(String name, AddonRepository... repositories)
+   {
+      this.name = name;
+      this.repositories = new LinkedHashSet<AddonRepository>(Arrays.asList(repositories));
+   }
+
+   @Override
+   public String getName()
+   {
+      return name;
+   }
+
+   @Override
+   public void dispose()
+   {
+   }
+
+   @Override
+   public Addon getAddon(AddonId id)
+   {
+      return null;
+   }
+
+   @Override
+   public Set<Addon> getAddons()
+   {
+      return Collections.emptySet();
+   }
+
+   @Override
+   public Set<Addon> getAddons(AddonFilter filter)
+   {
+      return Collections.emptySet();
+   }
+
+   @Override
+   public Set<AddonRepository> getRepositories()
+   {
+      return repositories;
+   }
+
+   @Override
+   public String toString()
+   {
+      return name;
+   }
+}
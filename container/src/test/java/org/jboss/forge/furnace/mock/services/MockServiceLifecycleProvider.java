@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.mock.services;
+
+import java.lang.annotation.Annotation;
+
+import org.jboss.forge.furnace.Furnace;
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonRegistry;
+import org.jboss.forge.furnace.event.EventException;
+import org.jboss.forge.furnace.event.EventManager;
+import org.jboss.forge.furnace.lifecycle.AddonLifecycleProvider;
+import org.jboss.forge.furnace.lifecycle.ControlType;
+import org.jboss.forge.furnace.spi.ServiceRegistry;
+
+/**
+ * An {@link AddonLifecycleProvider} for an addon whose classes include this package, exporting a {@link MockService}.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class MockServiceLifecycleProvider implements AddonLifecycleProvider, EventManager
+{
+   @Override
+   public void initialize(Furnace furnace, AddonRegistry registry, Addon self) throws Exception
+   {
+   }
+
+   @Override
+   public void start(Addon addon) throws Exception
+   {
+   }
+
+   @Override
+   public void stop(Addon addon) throws Exception
+   {
+   }
+
+   @Override
+   public ServiceRegistry getServiceRegistry(Addon addon) throws Exception
+   {
+      return new MockServiceRegistry();
+   }
+
+   @Override
+   public EventManager getEventManager(Addon addon) throws Exception
+   {
+      return this;
+   }
+
+   @Override
+   public void postStartup(Addon addon) throws Exception
+   {
+   }
+
+   @Override
+   public void preShutdown(Addon addon) throws Exception
+   {
+   }
+
+   @Override
+   public ControlType getControlType()
+   {
+      return ControlType.SELF;
+   }
+
+   @Override
+   public void fireEvent(Object event, Annotation... qualifiers) throws EventException
+   {
+   }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.mock.services;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jboss.forge.furnace.spi.ExportedInstance;
+import org.jboss.forge.furnace.spi.ServiceRegistry;
+
+/**
+ * A {@link ServiceRegistry} exporting only {@link MockService}.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class MockServiceRegistry implements ServiceRegistry
+{
+   @Override
+   public <T> Set<ExportedInstance<T>> getExportedInstances(Class<T> clazz)
+   {
+      return getExportedInstances(clazz.getName());
+   }
+
+   @Override
+   public <T> Set<ExportedInstance<T>> getExportedInstances(String clazz)
+   {
+      Set<ExportedInstance<T>> result = new HashSet<ExportedInstance<T>>();
+      ExportedInstance<T> instance = getExportedInstance(clazz);
+      if (instance != null)
+         result.add(instance);
+      return result;
+   }
+
+   @Override
+   public <T> ExportedInstance<T> getExportedInstance(Class<T> type)
+   {
+      return getExportedInstance(type.getName());
+   }
+
+   @Override
+   public <T> ExportedInstance<T> getExportedInstance(String type)
+   {
+      if (!hasService(type))
+         return null;
+
+      return new ExportedInstance<T>()
+      {
+         @Override
+         @SuppressWarnings("unchecked")
+         public T get()
+         {
+            return (T) new MockService();
+         }
+
+         @Override
+         public void release(T instance)
+         {
+         }
+      };
+   }
+
+   @Override
+   public Set<Class<?>> getExportedTypes()
+   {
+      return Collections.<Class<?>> singleton(MockService.class);
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public <T> Set<Class<T>> getExportedTypes(Class<T> type)
+   {
+      Set<Class<T>> result = new HashSet<Class<T>>();
+      if (type.isAssignableFrom(MockService.class))
+         result.add((Class<T>) MockService.class);
+      return result;
+   }
+
+   @Override
+   public boolean hasService(Class<?> clazz)
+   {
+      return hasService(clazz.getName());
+   }
+
+   @Override
+   public boolean hasService(String clazz)
+   {
+      return MockService.class.getName().equals(clazz);
+   }
+}
@@ -7,6 +7,7 @@
 
 package org.jboss.forge.furnace.manager.impl.request;
 
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import org.jboss.forge.furnace.Furnace;
@@ -16,6 +17,7 @@ import org.jboss.forge.furnace.repositories.MutableAddonRepository;
 import org.jboss.forge.furnace.spi.ContainerLifecycleListener;
 import org.jboss.forge.furnace.spi.ListenerRegistration;
 import org.jboss.forge.furnace.util.Assert;
+import org.jboss.forge.furnace.util.Furnaces;
 
 /**
  * Abstract class for {@link AddonActionRequest} implementations
@@ -57,16 +59,14 @@ public abstract class AbstractAddonActionRequest implements AddonActionRequest
          execute();
          if (!furnace.getStatus().isStopped())
          {
-            while (furnace.getStatus().isStarting() || !listener.isConfigurationScanned())
+            try
             {
-               try
-               {
-                  Thread.sleep(100);
-               }
-               catch (InterruptedException e)
-               {
-                  throw new RuntimeException(e);
-               }
+               if (listener.awaitConfigurationScanned(Long.MAX_VALUE, TimeUnit.NANOSECONDS))
+                  Furnaces.waitUntilStable(furnace);
+            }
+            catch (InterruptedException e)
+            {
+               throw new RuntimeException(e);
             }
          }
       }
@@ -6,6 +6,9 @@
  */
 package org.jboss.forge.furnace.manager.impl.request;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.jboss.forge.furnace.Furnace;
 import org.jboss.forge.furnace.exception.ContainerException;
 import org.jboss.forge.furnace.spi.ContainerLifecycleListener;
@@ -15,7 +18,8 @@ import org.jboss.forge.furnace.spi.ContainerLifecycleListener;
  */
 public class ConfigurationScanListener implements ContainerLifecycleListener
 {
-   private boolean configurationScanned = false;
+   private volatile boolean configurationScanned = false;
+   private final CountDownLatch scannedOrStopped = new CountDownLatch(1);
 
    @Override
    public void beforeStart(Furnace furnace) throws ContainerException
@@ -31,6 +35,7 @@ public class ConfigurationScanListener implements ContainerLifecycleListener
    public void afterConfigurationScan(Furnace furnace) throws ContainerException
    {
       configurationScanned = true;
+      scannedOrStopped.countDown();
    }
 
    @Override
@@ -41,6 +46,7 @@ public class ConfigurationScanListener implements ContainerLifecycleListener
    @Override
    public void afterStop(Furnace furnace) throws ContainerException
    {
+      scannedOrStopped.countDown();
    }
 
    public boolean isConfigurationScanned()
@@ -48,4 +54,16 @@ public class ConfigurationScanListener implements ContainerLifecycleListener
       return configurationScanned;
    }
 
+   /**
+    * Block until the configuration has been scanned, or the {@link Furnace} container has stopped, or the given
+    * timeout elapses.
+    *
+    * @return <code>true</code> if the configuration has been scanned.
+    */
+   public boolean awaitConfigurationScanned(long timeout, TimeUnit unit) throws InterruptedException
+   {
+      scannedOrStopped.await(timeout, unit);
+      return configurationScanned;
+   }
+
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.classloader.mock;
+
+/**
+ * An enum whose constants have class bodies, and so are instances of anonymous subclasses of {@link BodyEnum}.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public enum BodyEnum
+{
+   STARTED
+   {
+      @Override
+      public boolean isRunning()
+      {
+         return true;
+      }
+   },
+   STOPPED
+   {
+      @Override
+      public boolean isRunning()
+      {
+         return false;
+      }
+   };
+
+   public abstract boolean isRunning();
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.classloader.mock;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.forge.furnace.util.AwaitableAddon;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class MockAwaitableAddon implements AwaitableAddon
+{
+   @Override
+   public boolean awaitStarted(long timeout, TimeUnit unit)
+   {
+      return TimeUnit.SECONDS.equals(unit);
+   }
+
+   @Override
+   public boolean awaitStopped(long timeout, TimeUnit unit)
+   {
+      return TimeUnit.MILLISECONDS.equals(unit);
+   }
+}
@@ -6,6 +6,11 @@
  */
 package org.jboss.forge.classloader.mock;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import net.sf.cglib.proxy.Enhancer;
 import net.sf.cglib.proxy.LazyLoader;
 
@@ -15,11 +20,40 @@ import net.sf.cglib.proxy.LazyLoader;
  */
 public class MockService implements MockInterface1, MockInterface2
 {
+   private final MockResult sharedResult = new MockResult();
+   private final List<MockResult> resultList = new ArrayList<MockResult>();
+   private final Map<String, MockResult> resultMap = new HashMap<String, MockResult>();
+
+   public MockService()
+   {
+      for (int i = 0; i < 3; i++)
+      {
+         MockResult result = new MockResult();
+         resultList.add(result);
+         resultMap.put(String.valueOf(i), result);
+      }
+   }
+
    public MockResult getResult()
    {
       return new MockResult();
    }
 
+   public MockResult getSharedResult()
+   {
+      return sharedResult;
+   }
+
+   public List<MockResult> getResultList()
+   {
+      return resultList;
+   }
+
+   public Map<String, MockResult> getResultMap()
+   {
+      return resultMap;
+   }
+
    public MockResult getResultEnhanced()
    {
       final MockResult internal = new MockResult();
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.classloader;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.jboss.forge.classloader.mock.MockResult;
+import org.jboss.forge.classloader.mock.MockService;
+import org.jboss.forge.furnace.proxy.ClassLoaderAdapterBuilder;
+import org.jboss.forge.furnace.proxy.Proxies;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class ClassLoaderAdapterCollectionTest
+{
+   @Test
+   public void testListElementsAreTranslatedOnce() throws Exception
+   {
+      ClassLoader loader = MockService.class.getClassLoader();
+      MockService internal = new MockService();
+      MockService adapter = ClassLoaderAdapterBuilder.callingLoader(loader).delegateLoader(loader)
+               .enhance(internal);
+
+      List<MockResult> list = adapter.getResultList();
+      Assert.assertTrue(Proxies.isForgeProxy(list));
+      Assert.assertSame(internal.getResultList(), Proxies.unwrap(list));
+      Assert.assertEquals(3, list.size());
+      Assert.assertEquals(3, list.toArray().length);
+
+      MockResult first = list.get(0);
+      Assert.assertTrue(Proxies.isForgeProxy(first));
+      Assert.assertSame(internal.getResultList().get(0), Proxies.unwrap(first));
+      Assert.assertSame(first, list.get(0));
+      Assert.assertSame(first, list.iterator().next());
+      Assert.assertTrue(list.contains(first));
+      Assert.assertEquals(1, list.indexOf(list.get(1)));
+      Assert.assertEquals(1, list.subList(1, 3).indexOf(list.get(2)));
+   }
+
+   @Test
+   public void testRemovedListElementsAreNotRetained() throws Exception
+   {
+      ClassLoader loader = MockService.class.getClassLoader();
+      MockService internal = new MockService();
+      MockService adapter = ClassLoaderAdapterBuilder.callingLoader(loader).delegateLoader(loader)
+               .enhance(internal);
+      internal.getResultMap().clear();
+
+      List<MockResult> list = adapter.getResultList();
+      List<WeakReference<MockResult>> references = new ArrayList<WeakReference<MockResult>>();
+      for (MockResult result : list)
+      {
+         references.add(new WeakReference<MockResult>((MockResult) Proxies.unwrap(result)));
+      }
+      list.clear();
+      Assert.assertTrue(internal.getResultList().isEmpty());
+
+      for (int i = 0; i < 50 && !isCleared(references); i++)
+      {
+         System.gc();
+         Thread.sleep(10);
+      }
+      Assert.assertTrue(isCleared(references));
+      Assert.assertTrue(list.isEmpty());
+   }
+
+   @Test
+   public void testMapValuesAreTranslatedOnce() throws Exception
+   {
+      ClassLoader loader = MockService.class.getClassLoader();
+      MockService internal = new MockService();
+      MockService adapter = ClassLoaderAdapterBuilder.callingLoader(loader).delegateLoader(loader)
+               .enhance(internal);
+
+      Map<String, MockResult> map = adapter.getResultMap();
+      Assert.assertTrue(Proxies.isForgeProxy(map));
+      Assert.assertEquals(3, map.size());
+      Assert.assertTrue(map.containsKey("0"));
+
+      MockResult value = map.get("0");
+      Assert.assertTrue(Proxies.isForgeProxy(value));
+      Assert.assertSame(value, map.get("0"));
+      Assert.assertTrue(map.containsValue(value));
+
+      Iterator<Entry<String, MockResult>> iterator = map.entrySet().iterator();
+      Entry<String, MockResult> entry = iterator.next();
+      Assert.assertSame(map.get(entry.getKey()), entry.getValue());
+   }
+
+   private boolean isCleared(List<WeakReference<MockResult>> references)
+   {
+      for (WeakReference<MockResult> reference : references)
+      {
+         if (reference.get() != null)
+            return false;
+      }
+      return true;
+   }
+}
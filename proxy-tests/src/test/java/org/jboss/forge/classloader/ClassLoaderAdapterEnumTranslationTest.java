@@ -7,16 +7,22 @@
 
 package org.jboss.forge.classloader;
 
+import java.util.concurrent.TimeUnit;
+
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
 import org.jboss.forge.arquillian.archive.ForgeArchive;
 import org.jboss.forge.arquillian.services.LocalServices;
+import org.jboss.forge.classloader.mock.BodyEnum;
+import org.jboss.forge.classloader.mock.BodyEnumFactory;
+import org.jboss.forge.classloader.mock.MockAwaitableAddon;
 import org.jboss.forge.classloader.mock.SimpleEnum;
 import org.jboss.forge.classloader.mock.SimpleEnumFactory;
 import org.jboss.forge.furnace.addons.AddonId;
 import org.jboss.forge.furnace.addons.AddonRegistry;
 import org.jboss.forge.furnace.proxy.ClassLoaderAdapterBuilder;
 import org.jboss.forge.furnace.proxy.Proxies;
+import org.jboss.forge.furnace.util.AwaitableAddon;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.junit.Assert;
 import org.junit.Test;
@@ -31,7 +37,8 @@ public class ClassLoaderAdapterEnumTranslationTest
       ForgeArchive archive = ShrinkWrap
                .create(ForgeArchive.class)
                .addBeansXML()
-               .addClasses(SimpleEnum.class, SimpleEnumFactory.class)
+               .addClasses(SimpleEnum.class, SimpleEnumFactory.class, BodyEnum.class, BodyEnumFactory.class,
+                        MockAwaitableAddon.class)
                .addAsLocalServices(ClassLoaderAdapterEnumTranslationTest.class);
 
       return archive;
@@ -41,7 +48,8 @@ public class ClassLoaderAdapterEnumTranslationTest
    public static ForgeArchive getDeploymentDep1()
    {
       ForgeArchive archive = ShrinkWrap.create(ForgeArchive.class)
-               .addClasses(SimpleEnum.class, SimpleEnumFactory.class)
+               .addClasses(SimpleEnum.class, SimpleEnumFactory.class, BodyEnum.class, BodyEnumFactory.class,
+                        MockAwaitableAddon.class)
                .addBeansXML();
 
       return archive;
@@ -82,4 +90,42 @@ public class ClassLoaderAdapterEnumTranslationTest
 
       enhancedFactory.useEnum(SimpleEnum.STOPPED);
    }
+
+   @Test
+   public void testEnumWithConstantBodies() throws Exception
+   {
+      AddonRegistry registry = LocalServices.getFurnace(getClass().getClassLoader())
+               .getAddonRegistry();
+      ClassLoader thisLoader = ClassLoaderAdapterEnumTranslationTest.class.getClassLoader();
+      ClassLoader dep1Loader = registry.getAddon(AddonId.from("dep", "1")).getClassLoader();
+
+      Class<?> foreignType = dep1Loader.loadClass(BodyEnumFactory.class.getName());
+      Object delegate = foreignType.newInstance();
+      BodyEnumFactory enhancedFactory = (BodyEnumFactory) ClassLoaderAdapterBuilder.callingLoader(thisLoader)
+               .delegateLoader(dep1Loader).enhance(delegate);
+
+      BodyEnum enhancedInstance = enhancedFactory.getEnum();
+      Assert.assertFalse(Proxies.isForgeProxy(enhancedInstance));
+      Assert.assertSame(BodyEnum.STARTED, enhancedInstance);
+
+      Assert.assertTrue(enhancedFactory.useEnum(BodyEnum.STARTED));
+      Assert.assertFalse(enhancedFactory.useEnum(BodyEnum.STOPPED));
+   }
+
+   @Test
+   public void testTimeUnitParameterOfAwaitableAddon() throws Exception
+   {
+      AddonRegistry registry = LocalServices.getFurnace(getClass().getClassLoader())
+               .getAddonRegistry();
+      ClassLoader thisLoader = ClassLoaderAdapterEnumTranslationTest.class.getClassLoader();
+      ClassLoader dep1Loader = registry.getAddon(AddonId.from("dep", "1")).getClassLoader();
+
+      Class<?> foreignType = dep1Loader.loadClass(MockAwaitableAddon.class.getName());
+      Object delegate = foreignType.newInstance();
+      AwaitableAddon enhanced = (AwaitableAddon) ClassLoaderAdapterBuilder.callingLoader(thisLoader)
+               .delegateLoader(dep1Loader).enhance(delegate);
+
+      Assert.assertTrue(enhanced.awaitStarted(1, TimeUnit.SECONDS));
+      Assert.assertTrue(enhanced.awaitStopped(1, TimeUnit.MILLISECONDS));
+   }
 }
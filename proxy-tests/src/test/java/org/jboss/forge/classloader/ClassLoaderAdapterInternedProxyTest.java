@@ -0,0 +1,50 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.classloader;
+
+import org.jboss.forge.classloader.mock.MockResult;
+import org.jboss.forge.classloader.mock.MockService;
+import org.jboss.forge.furnace.proxy.ClassLoaderAdapterBuilder;
+import org.jboss.forge.furnace.proxy.Proxies;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class ClassLoaderAdapterInternedProxyTest
+{
+   @Test
+   public void testRepeatedResultsAreNotInternedByDefault() throws Exception
+   {
+      ClassLoader loader = MockService.class.getClassLoader();
+      MockService adapter = ClassLoaderAdapterBuilder.callingLoader(loader).delegateLoader(loader)
+               .enhance(new MockService());
+
+      MockResult first = adapter.getSharedResult();
+      Assert.assertTrue(Proxies.isForgeProxy(first));
+      Assert.assertNotSame(first, adapter.getSharedResult());
+   }
+
+   @Test
+   public void testRepeatedResultsAreInterned() throws Exception
+   {
+      ClassLoader loader = MockService.class.getClassLoader();
+      MockService internal = new MockService();
+      MockService adapter = ClassLoaderAdapterBuilder.callingLoader(loader).delegateLoader(loader)
+               .internProxies(true).enhance(internal);
+
+      MockResult first = adapter.getSharedResult();
+      Assert.assertTrue(Proxies.isForgeProxy(first));
+      Assert.assertSame(first, adapter.getSharedResult());
+      Assert.assertSame(internal.getSharedResult(), Proxies.unwrap(first));
+      Assert.assertNotSame(adapter.getResult(), adapter.getResult());
+
+      Assert.assertSame(adapter, ClassLoaderAdapterBuilder.callingLoader(loader).delegateLoader(loader)
+               .internProxies(true).enhance(internal));
+   }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.classloader;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.jboss.forge.furnace.proxy.ClassLoaderAdapterBuilder;
+import org.jboss.forge.furnace.proxy.ClassLoaderAdapterCallback;
+import org.jboss.forge.furnace.proxy.PrebuiltProxyClasses;
+import org.jboss.forge.furnace.proxy.Proxies;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class ClassLoaderAdapterPrebuiltProxyTest
+{
+   @Test
+   public void testPrebuiltProxyTypeIsUsed() throws Exception
+   {
+      ClassLoader loader = PrebuiltService.class.getClassLoader();
+      File directory = File.createTempFile("proxies", "test");
+      directory.delete();
+      directory.mkdirs();
+      directory.deleteOnExit();
+
+      Assert.assertEquals(2, PrebuiltProxyClasses.generate(loader,
+               Arrays.<Class<?>> asList(PrebuiltServiceImpl.class), directory));
+      Assert.assertTrue(new File(directory, PrebuiltProxyClasses.INDEX_FILE_NAME).isFile());
+
+      PrebuiltProxyClasses.register(directory);
+      try
+      {
+         PrebuiltService adapter = ClassLoaderAdapterBuilder.callingLoader(loader).delegateLoader(loader)
+                  .enhance(new PrebuiltServiceImpl());
+
+         Assert.assertTrue(Proxies.isForgeProxy(adapter));
+         Assert.assertEquals("prebuilt", adapter.getName());
+         Assert.assertTrue(new File(directory, adapter.getClass().getName().replace('.', File.separatorChar)
+                  + ".class").isFile());
+      }
+      finally
+      {
+         PrebuiltProxyClasses.unregister(directory);
+      }
+   }
+
+   @Test
+   public void testPrebuiltProxyTypeDoesNotCollideWithRuntimeProxyType() throws Exception
+   {
+      ClassLoader loader = PrebuiltService.class.getClassLoader();
+      File directory = File.createTempFile("proxies", "test");
+      directory.delete();
+      directory.mkdirs();
+      directory.deleteOnExit();
+
+      PrebuiltProxyClasses.generate(loader, Arrays.<Class<?>> asList(PrebuiltServiceImpl.class), directory);
+      PrebuiltProxyClasses.register(directory);
+      try
+      {
+         PrebuiltService prebuilt = ClassLoaderAdapterBuilder.callingLoader(loader).delegateLoader(loader)
+                  .enhance(new PrebuiltServiceImpl());
+         Assert.assertTrue(prebuilt.getClass().getName()
+                  .startsWith(PrebuiltServiceImpl.class.getName() + "_$$_prebuilt_"));
+
+         PrebuiltService generated = ClassLoaderAdapterCallback.enhance(loader, loader, new PrebuiltServiceImpl(),
+                  PrebuiltServiceImpl.class, PrebuiltService.class, Cloneable.class);
+         Assert.assertTrue(generated instanceof Cloneable);
+         Assert.assertNotSame(prebuilt.getClass(), generated.getClass());
+         Assert.assertEquals("prebuilt", prebuilt.getName());
+         Assert.assertEquals("prebuilt", generated.getName());
+      }
+      finally
+      {
+         PrebuiltProxyClasses.unregister(directory);
+      }
+   }
+
+   public interface PrebuiltService
+   {
+      String getName();
+   }
+
+   public static class PrebuiltServiceImpl implements PrebuiltService
+   {
+      @Override
+      public String getName()
+      {
+         return "prebuilt";
+      }
+   }
+}
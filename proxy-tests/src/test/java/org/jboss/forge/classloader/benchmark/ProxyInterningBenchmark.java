@@ -0,0 +1,89 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.classloader.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.forge.classloader.mock.MockResult;
+import org.jboss.forge.classloader.mock.MockService;
+import org.jboss.forge.furnace.proxy.ClassLoaderAdapterBuilder;
+
+/**
+ * Measures allocation and retained heap when the same service result repeatedly crosses a {@link ClassLoader} boundary
+ * (as when a caller repeatedly obtains the same service instance from another addon) with and without proxy interning.
+ * <p>
+ * Not run as part of the test suite. Run via <code>main</code> from the test classpath.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class ProxyInterningBenchmark
+{
+   private static final int WARMUP = 50000;
+   private static final int ITERATIONS = 200000;
+   private static final int RETAINED = 10000;
+
+   public static void main(String[] args) throws Exception
+   {
+      ClassLoader loader = ProxyInterningBenchmark.class.getClassLoader();
+      MockService plain = ClassLoaderAdapterBuilder.callingLoader(loader).delegateLoader(loader)
+               .enhance(new MockService());
+      MockService interned = ClassLoaderAdapterBuilder.callingLoader(loader).delegateLoader(loader)
+               .internProxies(true).enhance(new MockService());
+
+      report("plain", plain);
+      report("interned", interned);
+   }
+
+   private static void report(String name, MockService service)
+   {
+      for (int i = 0; i < WARMUP; i++)
+      {
+         service.getSharedResult();
+      }
+
+      long allocated = getAllocatedBytes();
+      long start = System.nanoTime();
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         service.getSharedResult();
+      }
+      long elapsed = System.nanoTime() - start;
+      allocated = getAllocatedBytes() - allocated;
+
+      long before = getUsedHeap();
+      List<MockResult> cached = new ArrayList<MockResult>(RETAINED);
+      for (int i = 0; i < RETAINED; i++)
+      {
+         cached.add(service.getSharedResult());
+      }
+      long retained = getUsedHeap() - before;
+
+      System.out.println(String.format("%-10s %10.1f ns/call %10d bytes allocated/call %10d bytes retained/"
+               + RETAINED + " results (%s)", name, (double) elapsed / ITERATIONS, allocated / ITERATIONS,
+               retained, cached.get(0) == cached.get(RETAINED - 1) ? "identical" : "distinct"));
+   }
+
+   private static long getAllocatedBytes()
+   {
+      java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      if (bean instanceof com.sun.management.ThreadMXBean)
+         return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+      return 0;
+   }
+
+   private static long getUsedHeap()
+   {
+      Runtime runtime = Runtime.getRuntime();
+      for (int i = 0; i < 3; i++)
+      {
+         System.gc();
+      }
+      return runtime.totalMemory() - runtime.freeMemory();
+   }
+}
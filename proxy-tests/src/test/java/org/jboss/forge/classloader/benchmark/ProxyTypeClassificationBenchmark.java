@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.classloader.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.forge.classloader.mock.MockResult;
+import org.jboss.forge.classloader.mock.MockService;
+import org.jboss.forge.furnace.proxy.ClassLoaderAdapterCallback;
+import org.jboss.forge.furnace.proxy.Proxies;
+
+/**
+ * Measures the per-call cost of type classification ({@link Proxies#isPassthroughType(Class)} and
+ * {@link Proxies#isLanguageType(Class)}) against the previous regex-based implementation, and the resulting
+ * per-invocation cost of proxied calls that go through result enhancement (<code>getResult()</code>) and parameter
+ * enhancement (<code>echo(String)</code>).
+ * <p>
+ * Not run as part of the test suite. Run via <code>main</code> from the test classpath.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class ProxyTypeClassificationBenchmark
+{
+   private static final int WARMUP = 200000;
+   private static final int ITERATIONS = 2000000;
+
+   private static final List<Class<?>> TYPES = new ArrayList<Class<?>>();
+   static
+   {
+      TYPES.add(String.class);
+      TYPES.add(MockResult.class);
+      TYPES.add(List.class);
+      TYPES.add(Iterable.class);
+      TYPES.add(int[].class);
+      TYPES.add(MockService.class);
+   }
+
+   private static volatile Object sink;
+
+   public static void main(String[] args) throws Exception
+   {
+      ClassLoader loader = ProxyTypeClassificationBenchmark.class.getClassLoader();
+      final MockService service = ClassLoaderAdapterCallback.enhance(loader, loader, new MockService(),
+               MockService.class);
+
+      Task regex = new Task()
+      {
+         @Override
+         public void run(int i)
+         {
+            Class<?> type = TYPES.get(i % TYPES.size());
+            sink = isPassthroughTypeRegex(type) || isLanguageTypeRegex(type);
+         }
+      };
+      Task cached = new Task()
+      {
+         @Override
+         public void run(int i)
+         {
+            Class<?> type = TYPES.get(i % TYPES.size());
+            sink = Proxies.isPassthroughType(type) || Proxies.isLanguageType(type);
+         }
+      };
+      Task enhanceResult = new Task()
+      {
+         @Override
+         public void run(int i)
+         {
+            sink = service.getResult();
+         }
+      };
+      Task enhanceParameter = new Task()
+      {
+         @Override
+         public void run(int i)
+         {
+            sink = service.echo("value");
+         }
+      };
+
+      report("classification (regex)", regex, ITERATIONS);
+      report("classification (cached)", cached, ITERATIONS);
+      report("proxied getResult()", enhanceResult, ITERATIONS / 10);
+      report("proxied echo(String)", enhanceParameter, ITERATIONS / 10);
+   }
+
+   private static void report(String name, Task task, int iterations)
+   {
+      for (int i = 0; i < WARMUP; i++)
+      {
+         task.run(i);
+      }
+
+      long start = System.nanoTime();
+      for (int i = 0; i < iterations; i++)
+      {
+         task.run(i);
+      }
+      long elapsed = System.nanoTime() - start;
+      System.out.println(String.format("%-28s %10.1f ns/call", name, (double) elapsed / iterations));
+   }
+
+   /**
+    * The classification previously used by {@link Proxies#isPassthroughType(Class)}.
+    */
+   private static boolean isPassthroughTypeRegex(Class<?> type)
+   {
+      boolean result = type.isArray()
+               || type.getName().matches("^(java\\.lang).*")
+               || type.getName().matches("^(java\\.io).*")
+               || type.getName().matches("^(java\\.net).*")
+               || type.isPrimitive();
+      return result && !(Iterable.class.getName().equals(type.getName()));
+   }
+
+   /**
+    * The classification previously used by {@link Proxies#isLanguageType(Class)}.
+    */
+   private static boolean isLanguageTypeRegex(Class<?> type)
+   {
+      return type.isArray() || type.getName().matches("^(java\\.).*") || type.isPrimitive();
+   }
+
+   private interface Task
+   {
+      void run(int iteration);
+   }
+}
@@ -15,6 +15,7 @@ public class ClassLoaderAdapterBuilder implements ClassLoaderAdapterBuilderCalli
 {
    private ClassLoader callingLoader;
    private ClassLoader delegateLoader;
+   private boolean internProxies;
 
    public static ClassLoaderAdapterBuilderCallingLoader callingLoader(ClassLoader callingLoader)
    {
@@ -30,10 +31,17 @@ public class ClassLoaderAdapterBuilder implements ClassLoaderAdapterBuilderCalli
       return this;
    }
 
+   @Override
+   public ClassLoaderAdapterBuilderDelegateLoader internProxies(boolean internProxies)
+   {
+      this.internProxies = internProxies;
+      return this;
+   }
+
    @Override
    public <T> T enhance(T delegate)
    {
-      return ClassLoaderAdapterCallback.enhance(callingLoader, delegateLoader, delegate);
+      return ClassLoaderAdapterCallback.enhance(callingLoader, delegateLoader, internProxies, delegate);
    }
 
 }
@@ -12,5 +12,13 @@ package org.jboss.forge.furnace.proxy;
  */
 public interface ClassLoaderAdapterBuilderDelegateLoader
 {
+   /**
+    * If <code>true</code>, return the same proxy instance each time the same delegate, or the same result or parameter
+    * instance of an invocation on the resulting proxy, crosses into the calling {@link ClassLoader}, for as long as that
+    * proxy remains reachable. This preserves <code>==</code> identity for callers that cache results. Defaults to
+    * <code>false</code>.
+    */
+   ClassLoaderAdapterBuilderDelegateLoader internProxies(boolean internProxies);
+
    <T> T enhance(T delegate);
 }
@@ -6,13 +6,14 @@
  */
 package org.jboss.forge.furnace.proxy;
 
-import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.logging.Logger;
@@ -23,6 +24,7 @@ import javassist.util.proxy.ProxyFactory;
 import javassist.util.proxy.ProxyObject;
 
 import org.jboss.forge.furnace.exception.ContainerException;
+import org.jboss.forge.furnace.util.ClassLoaderTask;
 import org.jboss.forge.furnace.util.ClassLoaders;
 
 /**
@@ -32,6 +34,35 @@ public class ClassLoaderAdapterCallback implements MethodHandler
 {
    private static final ClassLoader JAVASSIST_LOADER = ProxyObject.class.getClassLoader();
 
+   private static final Method ELEMENT_METHOD;
+   private static final Method PARAMETER_METHOD;
+   static
+   {
+      try
+      {
+         ELEMENT_METHOD = Iterator.class.getMethod("next");
+         PARAMETER_METHOD = Collection.class.getMethod("contains", Object.class);
+      }
+      catch (NoSuchMethodException e)
+      {
+         throw new ExceptionInInitializerError(e);
+      }
+   }
+
+   static final MethodFilter PROXY_METHOD_FILTER = new MethodFilter()
+   {
+      @Override
+      public boolean isHandled(Method method)
+      {
+         if (!method.getDeclaringClass().getName().contains("java.lang")
+                  || !Proxies.isPassthroughType(method.getDeclaringClass())
+                  || ("toString".equals(method.getName()) && method.getParameterTypes().length == 0)
+                  || isEquals(method))
+            return true;
+         return false;
+      }
+   };
+
    private final Object delegate;
 
    private final ClassLoader callingLoader;
@@ -41,104 +72,194 @@ public class ClassLoaderAdapterCallback implements MethodHandler
    private final Class<?> unwrappedDelegateType;
    private final ClassLoader unwrappedDelegateLoader;
 
-   public ClassLoaderAdapterCallback(ClassLoader callingLoader, ClassLoader delegateLoader, Object delegate)
-   {
-      this.callingLoader = callingLoader;
-      this.delegateLoader = delegateLoader;
-      this.delegate = delegate;
+   private final DelegateMethodCache methodCache;
+   private final boolean internProxies;
 
-      unwrappedDelegate = Proxies.unwrap(delegate);
-      unwrappedDelegateType = Proxies.unwrapProxyTypes(unwrappedDelegate.getClass(), callingLoader, delegateLoader,
-               unwrappedDelegate.getClass().getClassLoader());
-      unwrappedDelegateLoader = unwrappedDelegateType.getClassLoader();
-   }
-
-   @Override
-   public Object invoke(final Object obj, final Method thisMethod, final Method proceed, final Object[] args)
-            throws Throwable
+   private final ClassLoaderTask<Method, Object[], Object> invocation = new ClassLoaderTask<Method, Object[], Object>()
    {
-      return ClassLoaders.executeIn(delegateLoader, new Callable<Object>()
+      @Override
+      public Object call(Method thisMethod, Object[] args) throws Exception
       {
-         @Override
-         public Object call() throws Exception
+         try
          {
-            try
+            Class<?> declaringClass = thisMethod.getDeclaringClass();
+            if (ForgeProxy.class.getName().equals(declaringClass.getName())
+                     && declaringClass.equals(callingLoader.loadClass(ForgeProxy.class.getName())))
             {
-               if (thisMethod.getDeclaringClass().equals(callingLoader.loadClass(ForgeProxy.class.getName())))
-               {
-                  return delegate;
-               }
+               return delegate;
             }
-            catch (Exception e)
-            {
-            }
-
-            Method delegateMethod = getDelegateMethod(thisMethod);
+         }
+         catch (Exception e)
+         {
+         }
 
-            List<Object> parameterValues = enhanceParameterValues(args, delegateMethod);
+         Method delegateMethod = getDelegateMethod(thisMethod);
 
-            AccessibleObject.setAccessible(new AccessibleObject[] { delegateMethod }, true);
-            try
-            {
-               Object[] parameterValueArray = parameterValues.toArray();
-               Object result = delegateMethod.invoke(delegate, parameterValueArray);
-               return enhanceResult(thisMethod, result);
-            }
-            catch (InvocationTargetException e)
-            {
-               if (e.getCause() instanceof Exception)
-                  throw enhanceException(delegateMethod, (Exception) e.getCause());
-               throw enhanceException(delegateMethod, e);
-            }
+         List<Object> parameterValues = enhanceParameterValues(args, delegateMethod);
 
+         Object result;
+         try
+         {
+            Object[] parameterValueArray = parameterValues.toArray();
+            result = methodCache.getInvoker(delegateMethod).invoke(delegate, parameterValueArray);
          }
-
-         private Method getDelegateMethod(final Method proxy) throws ClassNotFoundException, NoSuchMethodException
+         catch (Exception e)
+         {
+            throw enhanceException(delegateMethod, e);
+         }
+         catch (Throwable e)
          {
+            throw enhanceException(delegateMethod, new InvocationTargetException(e));
+         }
+         return enhanceResult(thisMethod, result);
 
-            Method delegateMethod = null;
-            try
-            {
-               List<Class<?>> parameterTypes = translateParameterTypes(proxy);
-               delegateMethod = delegate.getClass().getMethod(proxy.getName(),
-                        parameterTypes.toArray(new Class<?>[parameterTypes.size()]));
-            }
-            catch (ClassNotFoundException e)
+      }
+
+      private Method getDelegateMethod(final Method proxy) throws ClassNotFoundException, NoSuchMethodException
+      {
+         Method delegateMethod = methodCache.get(proxy);
+         if (delegateMethod == null)
+            delegateMethod = methodCache.put(proxy, resolveDelegateMethod(proxy));
+         return delegateMethod;
+      }
+
+      private Method resolveDelegateMethod(final Method proxy) throws ClassNotFoundException,
+               NoSuchMethodException
+      {
+         Method delegateMethod = null;
+         try
+         {
+            List<Class<?>> parameterTypes = translateParameterTypes(proxy);
+            delegateMethod = delegate.getClass().getMethod(proxy.getName(),
+                     parameterTypes.toArray(new Class<?>[parameterTypes.size()]));
+         }
+         catch (ClassNotFoundException e)
+         {
+            method: for (Method m : delegate.getClass().getMethods())
             {
-               method: for (Method m : delegate.getClass().getMethods())
+               String methodName = proxy.getName();
+               String delegateMethodName = m.getName();
+               if (methodName.equals(delegateMethodName))
                {
-                  String methodName = proxy.getName();
-                  String delegateMethodName = m.getName();
-                  if (methodName.equals(delegateMethodName))
-                  {
-                     Class<?>[] methodParameterTypes = proxy.getParameterTypes();
-                     Class<?>[] delegateParameterTypes = m.getParameterTypes();
+                  Class<?>[] methodParameterTypes = proxy.getParameterTypes();
+                  Class<?>[] delegateParameterTypes = m.getParameterTypes();
 
-                     if (methodParameterTypes.length == delegateParameterTypes.length)
+                  if (methodParameterTypes.length == delegateParameterTypes.length)
+                  {
+                     for (int i = 0; i < methodParameterTypes.length; i++)
                      {
-                        for (int i = 0; i < methodParameterTypes.length; i++)
-                        {
-                           Class<?> methodType = methodParameterTypes[i];
-                           Class<?> delegateType = delegateParameterTypes[i];
+                        Class<?> methodType = methodParameterTypes[i];
+                        Class<?> delegateType = delegateParameterTypes[i];
 
-                           if (!methodType.getName().equals(delegateType.getName()))
-                           {
-                              continue method;
-                           }
+                        if (!methodType.getName().equals(delegateType.getName()))
+                        {
+                           continue method;
                         }
-
-                        delegateMethod = m;
-                        break;
                      }
+
+                     delegateMethod = m;
+                     break;
                   }
                }
-               if (delegateMethod == null)
-                  throw e;
             }
-
-            return delegateMethod;
+            if (delegateMethod == null)
+               throw e;
          }
-      });
+
+         return delegateMethod;
+      }
+   };
+
+   public ClassLoaderAdapterCallback(ClassLoader callingLoader, ClassLoader delegateLoader, Object delegate)
+   {
+      this(callingLoader, delegateLoader, delegate, false);
+   }
+
+   /**
+    * Create a callback that, if <code>internProxies</code> is <code>true</code>, returns the same proxy instance each
+    * time the same result or parameter instance crosses its {@link ClassLoader} boundary.
+    */
+   ClassLoaderAdapterCallback(ClassLoader callingLoader, ClassLoader delegateLoader, Object delegate,
+            boolean internProxies)
+   {
+      this.internProxies = internProxies;
+      this.callingLoader = callingLoader;
+      this.delegateLoader = delegateLoader;
+      this.delegate = delegate;
+
+      unwrappedDelegate = Proxies.unwrap(delegate);
+      unwrappedDelegateType = Proxies.unwrapProxyTypes(unwrappedDelegate.getClass(), callingLoader, delegateLoader,
+               unwrappedDelegate.getClass().getClassLoader());
+      unwrappedDelegateLoader = unwrappedDelegateType.getClassLoader();
+
+      methodCache = DelegateMethodCache.forType(delegate.getClass());
+   }
+
+   private final ClassLoaderTask<Object, Void, Object> elementTask = new ClassLoaderTask<Object, Void, Object>()
+   {
+      @Override
+      public Object call(Object element, Void unused) throws Exception
+      {
+         return enhanceResult(ELEMENT_METHOD, element);
+      }
+   };
+
+   private final ClassLoaderTask<Object, Void, Object> parameterTask = new ClassLoaderTask<Object, Void, Object>()
+   {
+      @Override
+      public Object call(Object value, Void unused) throws Exception
+      {
+         return enhanceSingleParamterValue(PARAMETER_METHOD, Object.class, value);
+      }
+   };
+
+   /**
+    * Get the delegate instance of proxies handled by this callback, without going through proxy invocation.
+    */
+   Object getDelegate()
+   {
+      return delegate;
+   }
+
+   @Override
+   public Object invoke(final Object obj, final Method thisMethod, final Method proceed, final Object[] args)
+            throws Throwable
+   {
+      return ClassLoaders.executeIn(delegateLoader, invocation, thisMethod, args);
+   }
+
+   /**
+    * Enhance an element of a collection adapted by {@link CollectionAdapters}, as if it were returned by an invocation
+    * on a proxy handled by this callback.
+    */
+   Object enhanceElement(Object element)
+   {
+      return executeIn(elementTask, element);
+   }
+
+   /**
+    * Enhance a value passed to a collection adapted by {@link CollectionAdapters}, as if it were passed as an
+    * {@link Object} parameter to an invocation on a proxy handled by this callback.
+    */
+   Object enhanceParameter(Object value)
+   {
+      return executeIn(parameterTask, value);
+   }
+
+   private Object executeIn(ClassLoaderTask<Object, Void, Object> task, Object value)
+   {
+      try
+      {
+         return ClassLoaders.executeIn(delegateLoader, task, value, null);
+      }
+      catch (RuntimeException e)
+      {
+         throw e;
+      }
+      catch (Exception e)
+      {
+         throw new ContainerException("Failed to enhance collection element [" + value + "]", e);
+      }
    }
 
    private Object enhanceResult(final Method method, Object result)
@@ -163,17 +284,24 @@ public class ClassLoaderAdapterCallback implements MethodHandler
          Class<?> returnType = method.getReturnType();
          if (returnTypeNeedsEnhancement(returnType, result, unwrappedResultType))
          {
+            Object adapted = CollectionAdapters.adapt(this, returnType, result, unwrappedResultType);
+            if (adapted != null)
+               return adapted;
+
             Class<?>[] resultHierarchy = ProxyTypeInspector.getCompatibleClassHierarchy(callingLoader,
                      Proxies.unwrapProxyTypes(result.getClass(), callingLoader, delegateLoader, resultInstanceLoader));
 
             Class<?>[] returnTypeHierarchy = ProxyTypeInspector.getCompatibleClassHierarchy(callingLoader,
                      Proxies.unwrapProxyTypes(returnType, callingLoader, delegateLoader, resultInstanceLoader));
 
-            if (!Modifier.isFinal(returnType.getModifiers()))
+            /*
+             * Enums whose constants have class bodies are not final, but must not be proxied either
+             */
+            if (!Modifier.isFinal(returnType.getModifiers()) && !returnType.isEnum())
             {
                if (Object.class.equals(returnType) && !Object.class.equals(result))
                {
-                  result = enhance(callingLoader, resultInstanceLoader, method, result, resultHierarchy);
+                  result = enhance(callingLoader, resultInstanceLoader, method, internProxies, result, resultHierarchy);
                }
                else
                {
@@ -181,16 +309,16 @@ public class ClassLoaderAdapterCallback implements MethodHandler
                   {
                      returnTypeHierarchy = new Class[] { returnType };
                   }
-                  result = enhance(callingLoader, resultInstanceLoader, method, result,
+                  result = enhance(callingLoader, resultInstanceLoader, method, internProxies, result,
                            mergeHierarchies(returnTypeHierarchy, resultHierarchy));
                }
             }
             else
             {
-               if (result.getClass().isEnum())
+               if (result instanceof Enum)
                   result = enhanceEnum(callingLoader, result);
                else
-                  result = enhance(callingLoader, resultInstanceLoader, method, returnTypeHierarchy);
+                  result = enhance(callingLoader, resultInstanceLoader, method, false, returnTypeHierarchy);
             }
          }
       }
@@ -224,7 +352,7 @@ public class ClassLoaderAdapterCallback implements MethodHandler
 
                if (!Modifier.isFinal(unwrappedExceptionType.getModifiers()))
                {
-                  exception = enhance(callingLoader, exceptionLoader, method, exception, exceptionHierarchy);
+                  exception = enhance(callingLoader, exceptionLoader, method, false, exception, exceptionHierarchy);
                }
             }
          }
@@ -243,7 +371,10 @@ public class ClassLoaderAdapterCallback implements MethodHandler
    {
       try
       {
-         Class<Enum> callingType = (Class<Enum>) loader.loadClass(instance.getClass().getName());
+         /*
+          * Constants with class bodies are instances of anonymous subclasses of their enum
+          */
+         Class<Enum> callingType = (Class<Enum>) loader.loadClass(((Enum) instance).getDeclaringClass().getName());
          return Enum.valueOf(callingType, ((Enum) instance).name());
       }
       catch (ClassNotFoundException e)
@@ -328,10 +459,11 @@ public class ClassLoaderAdapterCallback implements MethodHandler
 
    private List<Object> enhanceParameterValues(final Object[] args, Method delegateMethod)
    {
-      List<Object> parameterValues = new ArrayList<Object>();
-      for (int i = 0; i < delegateMethod.getParameterTypes().length; i++)
+      Class<?>[] delegateParameterTypes = delegateMethod.getParameterTypes();
+      List<Object> parameterValues = new ArrayList<Object>(delegateParameterTypes.length);
+      for (int i = 0; i < delegateParameterTypes.length; i++)
       {
-         final Class<?> delegateParameterType = delegateMethod.getParameterTypes()[i];
+         final Class<?> delegateParameterType = delegateParameterTypes[i];
          final Object parameterValue = args[i];
 
          parameterValues.add(enhanceSingleParamterValue(delegateMethod, delegateParameterType, parameterValue));
@@ -440,8 +572,8 @@ public class ClassLoaderAdapterCallback implements MethodHandler
                         compatibleClassHierarchy = new Class[] { delegateParameterType };
                      }
 
-                     Object delegateParameterValue = enhance(valueDelegateLoader, valueCallingLoader, parameterValue,
-                              compatibleClassHierarchy);
+                     Object delegateParameterValue = enhance(valueDelegateLoader, valueCallingLoader, null,
+                              internProxies, parameterValue, compatibleClassHierarchy);
 
                      return delegateParameterValue;
                   }
@@ -490,12 +622,18 @@ public class ClassLoaderAdapterCallback implements MethodHandler
             final Object delegate,
             final Class<?>... types)
    {
-      return enhance(callingLoader, delegateLoader, null, delegate, types);
+      return enhance(callingLoader, delegateLoader, null, false, delegate, types);
+   }
+
+   static <T> T enhance(final ClassLoader callingLoader, final ClassLoader delegateLoader,
+            final boolean internProxies, final Object delegate, final Class<?>... types)
+   {
+      return enhance(callingLoader, delegateLoader, null, internProxies, delegate, types);
    }
 
    @SuppressWarnings("unchecked")
    private static <T> T enhance(final ClassLoader callingLoader, final ClassLoader delegateLoader,
-            final Method sourceMethod,
+            final Method sourceMethod, final boolean internProxies,
             final Object delegate, final Class<?>... types)
    {
       // TODO consider removing option to set type hierarchy here. Instead it might just be
@@ -528,40 +666,13 @@ public class ClassLoaderAdapterCallback implements MethodHandler
                   else
                      hierarchy = Arrays.copy(types, new Class<?>[types.length]);
 
-                  MethodFilter filter = new MethodFilter()
-                  {
-                     @Override
-                     public boolean isHandled(Method method)
-                     {
-                        if (!method.getDeclaringClass().getName().contains("java.lang")
-                                 || !Proxies.isPassthroughType(method.getDeclaringClass())
-                                 || ("toString".equals(method.getName()) && method.getParameterTypes().length == 0)
-                                 || isEquals(method))
-                           return true;
-                        return false;
-                     }
-                  };
-
                   Object enhancedResult = null;
 
-                  ProxyFactory f = new ProxyFactory()
-                  {
-                     @Override
-                     protected ClassLoader getClassLoader0()
-                     {
-                        ClassLoader result = callingLoader;
-                        if (!ClassLoaders.containsClass(result, ProxyObject.class))
-                           result = super.getClassLoader0();
-                        return result;
-                     };
-                  };
-
-                  f.setUseCache(true);
-
+                  Class<?> superclass = null;
                   Class<?> first = hierarchy[0];
                   if (!first.isInterface())
                   {
-                     f.setSuperclass(Proxies.unwrapProxyTypes(first, callingLoader, delegateLoader));
+                     superclass = Proxies.unwrapProxyTypes(first, callingLoader, delegateLoader);
                      hierarchy = Arrays.shiftLeft(hierarchy, new Class<?>[hierarchy.length - 1]);
                   }
 
@@ -574,17 +685,53 @@ public class ClassLoaderAdapterCallback implements MethodHandler
                   if (!Proxies.isProxyType(first) && !Arrays.contains(hierarchy, ForgeProxy.class))
                      hierarchy = Arrays.append(hierarchy, ForgeProxy.class);
 
-                  if (hierarchy.length > 0)
-                     f.setInterfaces(hierarchy);
+                  Class<?> c = ProxyClassCache.get(callingLoader, superclass, hierarchy);
+                  if (c == null)
+                  {
+                     c = PrebuiltProxyClasses.define(callingLoader, superclass, hierarchy);
+                     if (c == null)
+                     {
+                        ProxyFactory f = new ProxyFactory()
+                        {
+                           @Override
+                           protected ClassLoader getClassLoader0()
+                           {
+                              ClassLoader result = callingLoader;
+                              if (!ClassLoaders.containsClass(result, ProxyObject.class))
+                                 result = super.getClassLoader0();
+                              return result;
+                           };
+                        };
+
+                        f.setUseCache(true);
+
+                        if (superclass != null)
+                           f.setSuperclass(superclass);
+
+                        if (hierarchy.length > 0)
+                           f.setInterfaces(hierarchy);
+
+                        f.setFilter(PROXY_METHOD_FILTER);
+                        c = f.createClass();
+                     }
+                     ProxyClassCache.put(callingLoader, superclass, hierarchy, c);
+                  }
+
+                  if (internProxies)
+                  {
+                     Object interned = ProxyInstanceCache.get(callingLoader, delegate);
+                     if (interned != null && interned.getClass() == c && isHandledBy(interned, delegateLoader))
+                        return (T) interned;
+                  }
 
-                  f.setFilter(filter);
-                  Class<?> c = f.createClass();
                   enhancedResult = c.newInstance();
 
                   try
                   {
-                     ((ProxyObject) enhancedResult)
-                              .setHandler(new ClassLoaderAdapterCallback(callingLoader, delegateLoader, delegate));
+                     ((ProxyObject) enhancedResult).setHandler(new ClassLoaderAdapterCallback(callingLoader,
+                              delegateLoader, delegate, internProxies));
+                     if (internProxies)
+                        ProxyInstanceCache.put(callingLoader, delegate, enhancedResult);
                   }
                   catch (ClassCastException e)
                   {
@@ -622,4 +769,11 @@ public class ClassLoaderAdapterCallback implements MethodHandler
          throw new ContainerException("Failed to create proxy for type [" + delegateType + "]", e);
       }
    }
+
+   private static boolean isHandledBy(Object proxy, ClassLoader delegateLoader)
+   {
+      MethodHandler handler = ((ProxyObject) proxy).getHandler();
+      return handler instanceof ClassLoaderAdapterCallback
+               && ((ClassLoaderAdapterCallback) handler).delegateLoader == delegateLoader;
+   }
 }
@@ -8,8 +8,8 @@ package org.jboss.forge.furnace.proxy;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.concurrent.Callable;
 
+import org.jboss.forge.furnace.util.ClassLoaderTask;
 import org.jboss.forge.furnace.util.ClassLoaders;
 
 /**
@@ -19,49 +19,51 @@ public class ClassLoaderInterceptor implements ForgeProxy
 {
    private ClassLoader loader;
    private Object delegate;
+   private DelegateMethodCache methodCache;
+
+   private final ClassLoaderTask<Method, Object[], Object> invocation = new ClassLoaderTask<Method, Object[], Object>()
+   {
+      @Override
+      public Object call(Method thisMethod, Object[] args) throws Exception
+      {
+         try
+         {
+            if (thisMethod.getDeclaringClass().getName().equals(ForgeProxy.class.getName()))
+            {
+               return delegate;
+            }
+         }
+         catch (Exception e)
+         {
+         }
+
+         Object result;
+         try
+         {
+            result = methodCache.getInvoker(thisMethod).invoke(delegate, args);
+         }
+         catch (Throwable e)
+         {
+            if (e instanceof Exception)
+               throw (Exception) e;
+            throw new InvocationTargetException(e);
+         }
+         return result;
+      }
+   };
 
    public ClassLoaderInterceptor(ClassLoader loader, Object delegate)
    {
       this.loader = loader;
       this.delegate = delegate;
+      this.methodCache = DelegateMethodCache.forType(delegate.getClass());
    }
 
    @Override
    public Object invoke(final Object self, final Method thisMethod, final Method proceed, final Object[] args)
             throws Throwable
    {
-      Callable<Object> task = new Callable<Object>()
-      {
-         @Override
-         public Object call() throws Exception
-         {
-            try
-            {
-               if (thisMethod.getDeclaringClass().getName().equals(ForgeProxy.class.getName()))
-               {
-                  return delegate;
-               }
-            }
-            catch (Exception e)
-            {
-            }
-
-            Object result;
-            try
-            {
-               result = thisMethod.invoke(delegate, args);
-            }
-            catch (InvocationTargetException e)
-            {
-               if (e.getCause() instanceof Exception)
-                  throw (Exception) e.getCause();
-               throw e;
-            }
-            return result;
-         }
-      };
-
-      return ClassLoaders.executeIn(loader, task);
+      return ClassLoaders.executeIn(loader, invocation, thisMethod, args);
    }
 
    @Override
@@ -0,0 +1,695 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.jboss.forge.furnace.util.ConcurrentWeakIdentityMap;
+
+/**
+ * Adapters for JDK {@link Iterable}, {@link Collection}, {@link List}, {@link Set} and {@link Map} instances returned
+ * across a {@link ClassLoader} boundary. Instead of proxying the collection itself, and fully enhancing each element on
+ * every access, these adapters implement the <code>java.util</code> interfaces directly, translate elements lazily as
+ * they are accessed, and cache the translated wrapper of each element for as long as both remain reachable.
+ * <p>
+ * Operations that do not expose elements ({@link Collection#size()}, {@link Collection#isEmpty()},
+ * {@link Collection#toArray()}, {@link Collection#contains(Object)}, ...) pass straight through to the underlying
+ * collection, without creating any element proxies. As with proxied arrays, {@link Collection#toArray()} returns the
+ * underlying elements.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+final class CollectionAdapters
+{
+   private CollectionAdapters()
+   {
+   }
+
+   /**
+    * Adapt the given result of an invocation on a proxy handled by the given {@link ClassLoaderAdapterCallback}, if
+    * the declared return type is a supported collection interface and the result is a JDK implementation of that
+    * interface. Returns <code>null</code> if the result cannot be adapted.
+    */
+   @SuppressWarnings("unchecked")
+   public static Object adapt(ClassLoaderAdapterCallback callback, Class<?> returnType, Object result,
+            Class<?> unwrappedResultType)
+   {
+      if (!returnType.isInterface() || !Proxies.isLanguageType(unwrappedResultType))
+         return null;
+
+      if (List.class.equals(returnType) && result instanceof List)
+         return new AdapterList(new ElementTranslator(callback), (List<Object>) result);
+      else if (Set.class.equals(returnType) && result instanceof Set)
+         return new AdapterSet(new ElementTranslator(callback), (Set<Object>) result);
+      else if (Collection.class.equals(returnType) && result instanceof Collection)
+         return new AdapterCollection(new ElementTranslator(callback), (Collection<Object>) result);
+      else if (Iterable.class.equals(returnType) && result instanceof Iterable)
+         return new AdapterIterable(new ElementTranslator(callback), (Iterable<Object>) result);
+      else if (Map.class.equals(returnType) && result instanceof Map)
+         return new AdapterMap(new ElementTranslator(callback), (Map<Object, Object>) result);
+      return null;
+   }
+
+   /**
+    * Translates values between the calling and delegate sides of an adapter.
+    */
+   interface Translator
+   {
+      Object toCaller(Object value);
+
+      Object toDelegate(Object value);
+   }
+
+   /**
+    * Translates elements via the owning {@link ClassLoaderAdapterCallback}, remembering the translated wrapper of each
+    * element (and vice versa) so that each element is enhanced at most once. Neither elements nor wrappers are strongly
+    * referenced, so that elements removed from a long-lived collection are not retained by its adapter.
+    */
+   static class ElementTranslator implements Translator
+   {
+      private final ClassLoaderAdapterCallback callback;
+      private final ConcurrentWeakIdentityMap<Object, WeakReference<Object>> wrappers =
+               new ConcurrentWeakIdentityMap<Object, WeakReference<Object>>();
+      private final ConcurrentWeakIdentityMap<Object, WeakReference<Object>> elements =
+               new ConcurrentWeakIdentityMap<Object, WeakReference<Object>>();
+
+      public ElementTranslator(ClassLoaderAdapterCallback callback)
+      {
+         this.callback = callback;
+      }
+
+      @Override
+      public Object toCaller(Object element)
+      {
+         if (element == null)
+            return null;
+
+         Object result = get(wrappers, element);
+         if (result != null)
+            return result;
+
+         result = callback.enhanceElement(element);
+         if (result != element)
+         {
+            Object existing = putIfAbsent(wrappers, element, result);
+            if (existing != null)
+               return existing;
+            putIfAbsent(elements, result, element);
+         }
+         return result;
+      }
+
+      @Override
+      public Object toDelegate(Object value)
+      {
+         if (value == null)
+            return null;
+         else if (value instanceof AdapterIterable)
+            return ((AdapterIterable) value).getDelegate();
+         else if (value instanceof AdapterMap)
+            return ((AdapterMap) value).getDelegate();
+
+         Object result = get(elements, value);
+         if (result != null)
+            return result;
+         return callback.enhanceParameter(value);
+      }
+
+      private static Object get(ConcurrentWeakIdentityMap<Object, WeakReference<Object>> map, Object key)
+      {
+         WeakReference<Object> reference = map.get(key);
+         return reference == null ? null : reference.get();
+      }
+
+      /**
+       * Map the given value to the given key, unless a value that has not been collected is already mapped to it.
+       *
+       * @return the value already mapped to the given key, or <code>null</code> if the given value was mapped.
+       */
+      private static Object putIfAbsent(ConcurrentWeakIdentityMap<Object, WeakReference<Object>> map, Object key,
+               Object value)
+      {
+         WeakReference<Object> created = new WeakReference<Object>(value);
+         while (true)
+         {
+            WeakReference<Object> reference = map.putIfAbsent(key, created);
+            if (reference == null)
+               return null;
+
+            Object existing = reference.get();
+            if (existing != null)
+               return existing;
+            if (map.replace(key, reference, created))
+               return null;
+         }
+      }
+   }
+
+   /**
+    * Translates {@link Entry} elements of a {@link Map#entrySet()}.
+    */
+   static class EntryTranslator implements Translator
+   {
+      private final Translator translator;
+
+      public EntryTranslator(Translator translator)
+      {
+         this.translator = translator;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public Object toCaller(Object value)
+      {
+         if (value == null)
+            return null;
+         return new AdapterEntry(translator, (Entry<Object, Object>) value);
+      }
+
+      @Override
+      public Object toDelegate(Object value)
+      {
+         if (value instanceof AdapterEntry)
+            return ((AdapterEntry) value).getDelegate();
+         else if (value instanceof Entry)
+         {
+            Entry<?, ?> entry = (Entry<?, ?>) value;
+            return new SimpleEntry<Object, Object>(translator.toDelegate(entry.getKey()),
+                     translator.toDelegate(entry.getValue()));
+         }
+         return value;
+      }
+   }
+
+   static class AdapterIterable implements Iterable<Object>, ForgeProxy
+   {
+      protected final Translator translator;
+      private final Iterable<Object> delegate;
+
+      public AdapterIterable(Translator translator, Iterable<Object> delegate)
+      {
+         this.translator = translator;
+         this.delegate = delegate;
+      }
+
+      @Override
+      public Iterator<Object> iterator()
+      {
+         return new AdapterIterator(translator, delegate.iterator());
+      }
+
+      @Override
+      public Object getDelegate()
+      {
+         return delegate;
+      }
+
+      @Override
+      public Object invoke(Object self, Method thisMethod, Method proceed, Object[] args) throws Throwable
+      {
+         return thisMethod.invoke(this, args);
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         return delegate.equals(translator.toDelegate(obj));
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return delegate.hashCode();
+      }
+
+      @Override
+      public String toString()
+      {
+         return delegate.toString();
+      }
+   }
+
+   static class AdapterCollection extends AdapterIterable implements Collection<Object>
+   {
+      private final Collection<Object> delegate;
+
+      public AdapterCollection(Translator translator, Collection<Object> delegate)
+      {
+         super(translator, delegate);
+         this.delegate = delegate;
+      }
+
+      @Override
+      public int size()
+      {
+         return delegate.size();
+      }
+
+      @Override
+      public boolean isEmpty()
+      {
+         return delegate.isEmpty();
+      }
+
+      @Override
+      public boolean contains(Object o)
+      {
+         return delegate.contains(translator.toDelegate(o));
+      }
+
+      @Override
+      public Object[] toArray()
+      {
+         return delegate.toArray();
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public <T> T[] toArray(T[] a)
+      {
+         try
+         {
+            return delegate.toArray(a);
+         }
+         catch (ArrayStoreException e)
+         {
+            int size = delegate.size();
+            T[] result = a.length >= size ? a : (T[]) Array.newInstance(a.getClass().getComponentType(), size);
+            int i = 0;
+            for (Object element : delegate)
+            {
+               result[i++] = (T) translator.toCaller(element);
+            }
+            if (result.length > size)
+               result[size] = null;
+            return result;
+         }
+      }
+
+      @Override
+      public boolean add(Object e)
+      {
+         return delegate.add(translator.toDelegate(e));
+      }
+
+      @Override
+      public boolean remove(Object o)
+      {
+         return delegate.remove(translator.toDelegate(o));
+      }
+
+      @Override
+      public boolean containsAll(Collection<?> c)
+      {
+         return delegate.containsAll(toDelegate(c));
+      }
+
+      @Override
+      public boolean addAll(Collection<? extends Object> c)
+      {
+         return delegate.addAll(toDelegate(c));
+      }
+
+      @Override
+      public boolean removeAll(Collection<?> c)
+      {
+         return delegate.removeAll(toDelegate(c));
+      }
+
+      @Override
+      public boolean retainAll(Collection<?> c)
+      {
+         return delegate.retainAll(toDelegate(c));
+      }
+
+      @Override
+      public void clear()
+      {
+         delegate.clear();
+      }
+
+      @SuppressWarnings("unchecked")
+      protected Collection<Object> toDelegate(Collection<?> c)
+      {
+         if (c instanceof AdapterCollection)
+            return (Collection<Object>) ((AdapterCollection) c).getDelegate();
+
+         List<Object> result = new ArrayList<Object>(c.size());
+         for (Object element : c)
+         {
+            result.add(translator.toDelegate(element));
+         }
+         return result;
+      }
+   }
+
+   static class AdapterSet extends AdapterCollection implements Set<Object>
+   {
+      public AdapterSet(Translator translator, Set<Object> delegate)
+      {
+         super(translator, delegate);
+      }
+   }
+
+   static class AdapterList extends AdapterCollection implements List<Object>
+   {
+      private final List<Object> delegate;
+
+      public AdapterList(Translator translator, List<Object> delegate)
+      {
+         super(translator, delegate);
+         this.delegate = delegate;
+      }
+
+      @Override
+      public Object get(int index)
+      {
+         return translator.toCaller(delegate.get(index));
+      }
+
+      @Override
+      public Object set(int index, Object element)
+      {
+         return translator.toCaller(delegate.set(index, translator.toDelegate(element)));
+      }
+
+      @Override
+      public void add(int index, Object element)
+      {
+         delegate.add(index, translator.toDelegate(element));
+      }
+
+      @Override
+      public Object remove(int index)
+      {
+         return translator.toCaller(delegate.remove(index));
+      }
+
+      @Override
+      public boolean addAll(int index, Collection<? extends Object> c)
+      {
+         return delegate.addAll(index, toDelegate(c));
+      }
+
+      @Override
+      public int indexOf(Object o)
+      {
+         return delegate.indexOf(translator.toDelegate(o));
+      }
+
+      @Override
+      public int lastIndexOf(Object o)
+      {
+         return delegate.lastIndexOf(translator.toDelegate(o));
+      }
+
+      @Override
+      public ListIterator<Object> listIterator()
+      {
+         return new AdapterListIterator(translator, delegate.listIterator());
+      }
+
+      @Override
+      public ListIterator<Object> listIterator(int index)
+      {
+         return new AdapterListIterator(translator, delegate.listIterator(index));
+      }
+
+      @Override
+      public List<Object> subList(int fromIndex, int toIndex)
+      {
+         return new AdapterList(translator, delegate.subList(fromIndex, toIndex));
+      }
+   }
+
+   static class AdapterMap implements Map<Object, Object>, ForgeProxy
+   {
+      private final Translator translator;
+      private final Map<Object, Object> delegate;
+
+      public AdapterMap(Translator translator, Map<Object, Object> delegate)
+      {
+         this.translator = translator;
+         this.delegate = delegate;
+      }
+
+      @Override
+      public int size()
+      {
+         return delegate.size();
+      }
+
+      @Override
+      public boolean isEmpty()
+      {
+         return delegate.isEmpty();
+      }
+
+      @Override
+      public boolean containsKey(Object key)
+      {
+         return delegate.containsKey(translator.toDelegate(key));
+      }
+
+      @Override
+      public boolean containsValue(Object value)
+      {
+         return delegate.containsValue(translator.toDelegate(value));
+      }
+
+      @Override
+      public Object get(Object key)
+      {
+         return translator.toCaller(delegate.get(translator.toDelegate(key)));
+      }
+
+      @Override
+      public Object put(Object key, Object value)
+      {
+         return translator.toCaller(delegate.put(translator.toDelegate(key), translator.toDelegate(value)));
+      }
+
+      @Override
+      public Object remove(Object key)
+      {
+         return translator.toCaller(delegate.remove(translator.toDelegate(key)));
+      }
+
+      @Override
+      public void putAll(Map<? extends Object, ? extends Object> m)
+      {
+         for (Entry<? extends Object, ? extends Object> entry : m.entrySet())
+         {
+            put(entry.getKey(), entry.getValue());
+         }
+      }
+
+      @Override
+      public void clear()
+      {
+         delegate.clear();
+      }
+
+      @Override
+      public Set<Object> keySet()
+      {
+         return new AdapterSet(translator, delegate.keySet());
+      }
+
+      @Override
+      public Collection<Object> values()
+      {
+         return new AdapterCollection(translator, delegate.values());
+      }
+
+      @Override
+      @SuppressWarnings({ "unchecked", "rawtypes" })
+      public Set<Entry<Object, Object>> entrySet()
+      {
+         return (Set) new AdapterSet(new EntryTranslator(translator), (Set) delegate.entrySet());
+      }
+
+      @Override
+      public Object getDelegate()
+      {
+         return delegate;
+      }
+
+      @Override
+      public Object invoke(Object self, Method thisMethod, Method proceed, Object[] args) throws Throwable
+      {
+         return thisMethod.invoke(this, args);
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         return delegate.equals(translator.toDelegate(obj));
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return delegate.hashCode();
+      }
+
+      @Override
+      public String toString()
+      {
+         return delegate.toString();
+      }
+   }
+
+   static class AdapterEntry implements Entry<Object, Object>
+   {
+      private final Translator translator;
+      private final Entry<Object, Object> delegate;
+
+      public AdapterEntry(Translator translator, Entry<Object, Object> delegate)
+      {
+         this.translator = translator;
+         this.delegate = delegate;
+      }
+
+      public Entry<Object, Object> getDelegate()
+      {
+         return delegate;
+      }
+
+      @Override
+      public Object getKey()
+      {
+         return translator.toCaller(delegate.getKey());
+      }
+
+      @Override
+      public Object getValue()
+      {
+         return translator.toCaller(delegate.getValue());
+      }
+
+      @Override
+      public Object setValue(Object value)
+      {
+         return translator.toCaller(delegate.setValue(translator.toDelegate(value)));
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if (obj instanceof AdapterEntry)
+            return delegate.equals(((AdapterEntry) obj).getDelegate());
+         else if (obj instanceof Entry)
+         {
+            Entry<?, ?> entry = (Entry<?, ?>) obj;
+            return delegate.equals(new SimpleEntry<Object, Object>(translator.toDelegate(entry.getKey()),
+                     translator.toDelegate(entry.getValue())));
+         }
+         return false;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return delegate.hashCode();
+      }
+
+      @Override
+      public String toString()
+      {
+         return delegate.toString();
+      }
+   }
+
+   static class AdapterIterator implements Iterator<Object>
+   {
+      protected final Translator translator;
+      private final Iterator<Object> delegate;
+
+      public AdapterIterator(Translator translator, Iterator<Object> delegate)
+      {
+         this.translator = translator;
+         this.delegate = delegate;
+      }
+
+      @Override
+      public boolean hasNext()
+      {
+         return delegate.hasNext();
+      }
+
+      @Override
+      public Object next()
+      {
+         return translator.toCaller(delegate.next());
+      }
+
+      @Override
+      public void remove()
+      {
+         delegate.remove();
+      }
+   }
+
+   static class AdapterListIterator extends AdapterIterator implements ListIterator<Object>
+   {
+      private final ListIterator<Object> delegate;
+
+      public AdapterListIterator(Translator translator, ListIterator<Object> delegate)
+      {
+         super(translator, delegate);
+         this.delegate = delegate;
+      }
+
+      @Override
+      public boolean hasPrevious()
+      {
+         return delegate.hasPrevious();
+      }
+
+      @Override
+      public Object previous()
+      {
+         return translator.toCaller(delegate.previous());
+      }
+
+      @Override
+      public int nextIndex()
+      {
+         return delegate.nextIndex();
+      }
+
+      @Override
+      public int previousIndex()
+      {
+         return delegate.previousIndex();
+      }
+
+      @Override
+      public void set(Object e)
+      {
+         delegate.set(translator.toDelegate(e));
+      }
+
+      @Override
+      public void add(Object e)
+      {
+         delegate.add(translator.toDelegate(e));
+      }
+   }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.forge.furnace.util.ConcurrentWeakIdentityMap;
+
+/**
+ * Caches the resolved delegate {@link Method} for each proxied {@link Method} invoked against a given delegate
+ * {@link Class}. Since the proxied {@link Method} already identifies the proxy-side type hierarchy, one cache per
+ * delegate type is effectively keyed by (proxy class, delegate class).
+ * <p>
+ * The global registry only holds weak references to each cache; {@link ClassLoaderAdapterCallback} instances keep
+ * their cache strongly reachable for as long as the proxy itself is alive, so that addon {@link ClassLoader} instances
+ * are not retained once all of their proxies have been released. Looking up a cache does not lock.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+class DelegateMethodCache
+{
+   private static final ConcurrentWeakIdentityMap<Class<?>, WeakReference<DelegateMethodCache>> caches =
+            new ConcurrentWeakIdentityMap<Class<?>, WeakReference<DelegateMethodCache>>();
+
+   private final ConcurrentMap<Method, Method> methods = new ConcurrentHashMap<Method, Method>();
+   private final ConcurrentMap<Method, MethodInvoker> invokers = new ConcurrentHashMap<Method, MethodInvoker>();
+
+   private DelegateMethodCache()
+   {
+   }
+
+   /**
+    * Get the {@link DelegateMethodCache} for the given delegate {@link Class} type, creating it if necessary.
+    */
+   public static DelegateMethodCache forType(Class<?> delegateType)
+   {
+      while (true)
+      {
+         WeakReference<DelegateMethodCache> reference = caches.get(delegateType);
+         DelegateMethodCache result = reference == null ? null : reference.get();
+         if (result != null)
+            return result;
+
+         /*
+          * Either no cache was registered, or it has been collected; replace it unless another thread did first.
+          */
+         result = new DelegateMethodCache();
+         WeakReference<DelegateMethodCache> created = new WeakReference<DelegateMethodCache>(result);
+         if (reference == null ? caches.putIfAbsent(delegateType, created) == null
+                  : caches.replace(delegateType, reference, created))
+            return result;
+      }
+   }
+
+   /**
+    * Get the resolved delegate {@link Method} for the given proxied {@link Method}, or <code>null</code> if it has not
+    * yet been resolved.
+    */
+   public Method get(Method proxied)
+   {
+      return methods.get(proxied);
+   }
+
+   /**
+    * Store the resolved delegate {@link Method} for the given proxied {@link Method}. The delegate {@link Method} is
+    * made accessible once, here, instead of on every invocation. Returns the {@link Method} that ended up in the
+    * cache.
+    */
+   public Method put(Method proxied, Method delegate)
+   {
+      delegate.setAccessible(true);
+      Method existing = methods.putIfAbsent(proxied, delegate);
+      return existing == null ? delegate : existing;
+   }
+
+   /**
+    * Get the {@link MethodInvoker} for the given resolved delegate {@link Method}, creating it via
+    * {@link MethodInvokers} if necessary.
+    */
+   public MethodInvoker getInvoker(Method delegate)
+   {
+      MethodInvoker result = invokers.get(delegate);
+      if (result == null)
+      {
+         result = MethodInvokers.create(delegate);
+         MethodInvoker existing = invokers.putIfAbsent(delegate, result);
+         if (existing != null)
+            result = existing;
+      }
+      return result;
+   }
+}
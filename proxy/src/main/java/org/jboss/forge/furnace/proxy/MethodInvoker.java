@@ -0,0 +1,28 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Invokes a single resolved delegate {@link Method}. Unlike {@link Method#invoke(Object, Object...)}, any
+ * {@link Throwable} thrown by the target method is propagated as-is, and never wrapped in an
+ * {@link InvocationTargetException}.
+ * <p>
+ * This type must remain public, since generated implementations are defined in other {@link ClassLoader} instances.
+ *
+ * @see MethodInvokers
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface MethodInvoker
+{
+   /**
+    * Invoke the underlying {@link Method} on the given target instance, with the given arguments.
+    */
+   Object invoke(Object target, Object[] args) throws Throwable;
+}
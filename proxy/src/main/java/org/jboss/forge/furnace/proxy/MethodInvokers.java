@@ -0,0 +1,274 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+
+/**
+ * Creates {@link MethodInvoker} instances for resolved delegate {@link Method} instances.
+ * <p>
+ * By default, invocation is performed reflectively. Setting the {@value #INVOKER_PROPERTY} system property to
+ * {@value #INVOKER_GENERATED} instead generates a small javassist class per {@link Method} that calls the target
+ * directly, with statically typed arguments, so that the call site can be inlined by the JIT. Methods that cannot be
+ * called directly from generated code (non-public types or members, static methods, or methods declared on proxy
+ * types) always fall back to reflection.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+class MethodInvokers
+{
+   /**
+    * The system property used to select the {@link MethodInvoker} implementation.
+    */
+   public static final String INVOKER_PROPERTY = "furnace.proxy.invoker";
+
+   /**
+    * Use {@link Method#invoke(Object, Object...)} (the default.)
+    */
+   public static final String INVOKER_REFLECTION = "reflection";
+
+   /**
+    * Use generated javassist invoker classes where possible.
+    */
+   public static final String INVOKER_GENERATED = "generated";
+
+   private static final Logger logger = Logger.getLogger(MethodInvokers.class.getName());
+
+   private static final String INVOKER_CLASS_PREFIX = MethodInvoker.class.getName() + "$$Generated$$";
+   private static final AtomicInteger counter = new AtomicInteger();
+
+   private static final Map<ClassLoader, WeakReference<InvokerClassLoader>> loaders = new WeakHashMap<ClassLoader, WeakReference<InvokerClassLoader>>();
+
+   /**
+    * Create a {@link MethodInvoker} for the given {@link Method}, using the implementation selected by the
+    * {@value #INVOKER_PROPERTY} system property.
+    */
+   public static MethodInvoker create(Method method)
+   {
+      if (INVOKER_GENERATED.equals(System.getProperty(INVOKER_PROPERTY, INVOKER_REFLECTION)))
+         return createGenerated(method);
+      return new ReflectionMethodInvoker(method);
+   }
+
+   /**
+    * Create a generated {@link MethodInvoker} for the given {@link Method}, regardless of the {@value #INVOKER_PROPERTY}
+    * system property, falling back to reflection only if the {@link Method} cannot be called from generated code.
+    */
+   public static MethodInvoker createGenerated(Method method)
+   {
+      if (isGeneratable(method))
+      {
+         try
+         {
+            return generate(method);
+         }
+         catch (Exception e)
+         {
+            logger.log(Level.FINE, "Could not generate invoker for [" + method
+                     + "], falling back to reflection.", e);
+         }
+      }
+      return new ReflectionMethodInvoker(method);
+   }
+
+   private static boolean isGeneratable(Method method)
+   {
+      Class<?> declaringClass = method.getDeclaringClass();
+      if (Modifier.isStatic(method.getModifiers())
+               || !Modifier.isPublic(method.getModifiers())
+               || !isAccessible(declaringClass)
+               || Proxies.isProxyType(declaringClass))
+         return false;
+
+      for (Class<?> type : method.getParameterTypes())
+      {
+         if (!isAccessible(type))
+            return false;
+      }
+      return true;
+   }
+
+   private static boolean isAccessible(Class<?> type)
+   {
+      while (type.isArray())
+         type = type.getComponentType();
+      return type.isPrimitive() || Modifier.isPublic(type.getModifiers());
+   }
+
+   private static MethodInvoker generate(Method method) throws Exception
+   {
+      Class<?> declaringClass = method.getDeclaringClass();
+      ClassLoader declaringLoader = declaringClass.getClassLoader();
+
+      ClassPool pool = new ClassPool(false);
+      pool.appendSystemPath();
+      pool.appendClassPath(new ClassClassPath(MethodInvoker.class));
+      if (declaringLoader != null)
+         pool.appendClassPath(new LoaderClassPath(declaringLoader));
+
+      String name = INVOKER_CLASS_PREFIX + counter.incrementAndGet();
+      CtClass invokerClass = pool.makeClass(name);
+      invokerClass.addInterface(pool.get(MethodInvoker.class.getName()));
+      invokerClass.addMethod(CtNewMethod.make(getInvokeSource(method), invokerClass));
+
+      byte[] bytecode = invokerClass.toBytecode();
+      invokerClass.detach();
+
+      Class<?> result = getInvokerClassLoader(declaringLoader).define(name, bytecode);
+      return (MethodInvoker) result.newInstance();
+   }
+
+   private static String getInvokeSource(Method method)
+   {
+      StringBuilder call = new StringBuilder();
+      call.append("((").append(getSourceName(method.getDeclaringClass())).append(") target).")
+               .append(method.getName()).append("(");
+
+      Class<?>[] parameterTypes = method.getParameterTypes();
+      for (int i = 0; i < parameterTypes.length; i++)
+      {
+         if (i > 0)
+            call.append(", ");
+         call.append(unbox("args[" + i + "]", parameterTypes[i]));
+      }
+      call.append(")");
+
+      StringBuilder source = new StringBuilder();
+      source.append("public Object invoke(Object target, Object[] args) throws Throwable { ");
+      if (void.class.equals(method.getReturnType()))
+         source.append(call).append("; return null;");
+      else
+         source.append("return ").append(box(call.toString(), method.getReturnType())).append(";");
+      source.append(" }");
+      return source.toString();
+   }
+
+   private static String unbox(String value, Class<?> type)
+   {
+      if (type.isPrimitive())
+         return "((" + getWrapperType(type).getName() + ") " + value + ")." + type.getName() + "Value()";
+      return "(" + getSourceName(type) + ") " + value;
+   }
+
+   private static String box(String value, Class<?> type)
+   {
+      if (type.isPrimitive())
+         return getWrapperType(type).getName() + ".valueOf(" + value + ")";
+      return value;
+   }
+
+   private static Class<?> getWrapperType(Class<?> type)
+   {
+      if (boolean.class.equals(type))
+         return Boolean.class;
+      else if (byte.class.equals(type))
+         return Byte.class;
+      else if (char.class.equals(type))
+         return Character.class;
+      else if (short.class.equals(type))
+         return Short.class;
+      else if (int.class.equals(type))
+         return Integer.class;
+      else if (long.class.equals(type))
+         return Long.class;
+      else if (float.class.equals(type))
+         return Float.class;
+      else if (double.class.equals(type))
+         return Double.class;
+      throw new IllegalArgumentException("Not a primitive type: " + type);
+   }
+
+   private static String getSourceName(Class<?> type)
+   {
+      if (type.isArray())
+         return getSourceName(type.getComponentType()) + "[]";
+      return type.getName();
+   }
+
+   private static InvokerClassLoader getInvokerClassLoader(ClassLoader parent)
+   {
+      synchronized (loaders)
+      {
+         InvokerClassLoader result = null;
+         WeakReference<InvokerClassLoader> reference = loaders.get(parent);
+         if (reference != null)
+            result = reference.get();
+
+         if (result == null)
+         {
+            result = new InvokerClassLoader(parent);
+            loaders.put(parent, new WeakReference<InvokerClassLoader>(result));
+         }
+         return result;
+      }
+   }
+
+   /**
+    * Defines generated invoker classes. Sees every type visible to the {@link ClassLoader} of the invoked
+    * {@link Method}, as well as the {@link MethodInvoker} interface itself.
+    */
+   private static class InvokerClassLoader extends ClassLoader
+   {
+      public InvokerClassLoader(ClassLoader parent)
+      {
+         super(parent);
+      }
+
+      @Override
+      protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
+      {
+         if (MethodInvoker.class.getName().equals(name))
+            return MethodInvoker.class;
+         return super.loadClass(name, resolve);
+      }
+
+      public synchronized Class<?> define(String name, byte[] bytecode)
+      {
+         return defineClass(name, bytecode, 0, bytecode.length, MethodInvoker.class.getProtectionDomain());
+      }
+   }
+
+   /**
+    * Invokes the underlying {@link Method} reflectively, unwrapping any {@link InvocationTargetException}.
+    */
+   private static class ReflectionMethodInvoker implements MethodInvoker
+   {
+      private final Method method;
+
+      public ReflectionMethodInvoker(Method method)
+      {
+         this.method = method;
+      }
+
+      @Override
+      public Object invoke(Object target, Object[] args) throws Throwable
+      {
+         try
+         {
+            return method.invoke(target, args);
+         }
+         catch (InvocationTargetException e)
+         {
+            throw e.getCause();
+         }
+      }
+   }
+}
@@ -0,0 +1,535 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javassist.bytecode.BadBytecode;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.CodeAttribute;
+import javassist.bytecode.CodeIterator;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.Opcode;
+import javassist.bytecode.SourceFileAttribute;
+import javassist.util.proxy.FactoryHelper;
+import javassist.util.proxy.ProxyFactory;
+import javassist.util.proxy.ProxyObject;
+
+import org.jboss.forge.furnace.util.ClassLoaders;
+
+/**
+ * Generates proxy {@link Class} types ahead of time (typically when an addon is deployed), and defines them at runtime
+ * in place of generating them with a javassist {@link ProxyFactory}.
+ * <p>
+ * Proxy types are generated into a directory for the same type hierarchies that {@link ProxyTypeInspector} computes
+ * at runtime, and recorded in an index in that directory. Once the directory has been registered via
+ * {@link #register(File)}, {@link ClassLoaderAdapterCallback} defines the pre-built proxy type whenever a calling
+ * {@link ClassLoader} requests a matching hierarchy, and only falls back to generating one if no pre-built type
+ * matches. Hierarchies are matched by type names and a fingerprint of their methods, so that a pre-built proxy type is
+ * never used for a different version of the same types.
+ * <p>
+ * Pre-built proxy types are named after the hierarchy they were generated for, rather than by javassist, so that a
+ * proxy type defined from a previous run never collides with one that javassist generates in the same
+ * {@link ClassLoader} at runtime.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public final class PrebuiltProxyClasses
+{
+   private static final Logger logger = Logger.getLogger(PrebuiltProxyClasses.class.getName());
+
+   /**
+    * The name of the index file written to, and read from, a pre-built proxy class directory.
+    */
+   public static final String INDEX_FILE_NAME = "proxies.index";
+
+   private static final String JAVASSIST_INFIX = "_$$_javassist_";
+   private static final String PREBUILT_INFIX = "_$$_prebuilt_";
+
+   private static final Map<String, Map<String, PrebuiltClass>> index =
+            new HashMap<String, Map<String, PrebuiltClass>>();
+
+   private PrebuiltProxyClasses()
+   {
+   }
+
+   /**
+    * Generate proxy types for each of the given types, as loaded by the given {@link ClassLoader}, into the given
+    * directory. Types for which no proxy type can be generated are skipped.
+    *
+    * @return the number of proxy types generated
+    */
+   public static int generate(final ClassLoader loader, Iterable<Class<?>> types, File directory) throws IOException
+   {
+      Properties entries = readIndex(directory);
+      int result = 0;
+      for (Class<?> type : types)
+      {
+         Class<?>[] hierarchy = ProxyTypeInspector.getCompatibleClassHierarchy(loader, type);
+         if (hierarchy.length == 0)
+            continue;
+
+         List<Class<?>[]> variants = new ArrayList<Class<?>[]>();
+         variants.add(hierarchy);
+         if (!hierarchy[0].isInterface() && hierarchy.length > 1)
+         {
+            /*
+             * Calling ClassLoaders that cannot see the implementation type only see its interfaces.
+             */
+            variants.add(Arrays.shiftLeft(hierarchy, new Class<?>[hierarchy.length - 1]));
+         }
+
+         for (Class<?>[] variant : variants)
+         {
+            Class<?> superclass = null;
+            Class<?>[] interfaces = variant;
+            if (!variant[0].isInterface())
+            {
+               superclass = variant[0];
+               interfaces = Arrays.shiftLeft(variant, new Class<?>[variant.length - 1]);
+            }
+
+            int index = Arrays.indexOf(interfaces, ProxyObject.class);
+            if (index >= 0)
+               interfaces = Arrays.removeElementAtIndex(interfaces, index);
+
+            if (!Arrays.contains(interfaces, ForgeProxy.class))
+               interfaces = Arrays.append(interfaces, ForgeProxy.class);
+
+            String key = getKey(superclass, interfaces);
+            if (entries.containsKey(key))
+               continue;
+
+            try
+            {
+               ProxyFactory f = new ProxyFactory()
+               {
+                  @Override
+                  protected ClassLoader getClassLoader0()
+                  {
+                     return loader;
+                  }
+               };
+               f.setUseCache(false);
+               f.writeDirectory = directory.getAbsolutePath();
+               if (superclass != null)
+                  f.setSuperclass(superclass);
+               f.setInterfaces(interfaces);
+               f.setFilter(ClassLoaderAdapterCallback.PROXY_METHOD_FILTER);
+
+               entries.setProperty(key, rename(directory, f.createClass().getName(), key));
+               result++;
+            }
+            catch (BadBytecode e)
+            {
+               logger.log(Level.FINE, "Could not generate proxy type for [" + key + "]", e);
+            }
+            catch (RuntimeException e)
+            {
+               logger.log(Level.FINE, "Could not generate proxy type for [" + key + "]", e);
+            }
+            catch (LinkageError e)
+            {
+               logger.log(Level.FINE, "Could not generate proxy type for [" + key + "]", e);
+            }
+         }
+      }
+
+      if (result > 0)
+         writeIndex(directory, entries);
+      return result;
+   }
+
+   /**
+    * Make the pre-built proxy types in the given directory available to {@link ClassLoaderAdapterCallback}. Does
+    * nothing if the given directory contains no index.
+    */
+   public static void register(File directory)
+   {
+      Properties entries;
+      try
+      {
+         entries = readIndex(directory);
+      }
+      catch (IOException e)
+      {
+         logger.log(Level.WARNING, "Could not read pre-built proxy index in [" + directory + "]", e);
+         return;
+      }
+
+      synchronized (index)
+      {
+         for (Entry<Object, Object> entry : entries.entrySet())
+         {
+            String key = (String) entry.getKey();
+            int separator = key.lastIndexOf('#');
+            String names = key.substring(0, separator);
+            Map<String, PrebuiltClass> classes = index.get(names);
+            if (classes == null)
+            {
+               classes = new HashMap<String, PrebuiltClass>();
+               index.put(names, classes);
+            }
+            classes.put(key.substring(separator + 1), new PrebuiltClass(directory, (String) entry.getValue()));
+         }
+      }
+   }
+
+   /**
+    * Remove all pre-built proxy types in the given directory from further use.
+    */
+   public static void unregister(File directory)
+   {
+      synchronized (index)
+      {
+         Iterator<Map<String, PrebuiltClass>> iterator = index.values().iterator();
+         while (iterator.hasNext())
+         {
+            Map<String, PrebuiltClass> classes = iterator.next();
+            Iterator<PrebuiltClass> classIterator = classes.values().iterator();
+            while (classIterator.hasNext())
+            {
+               if (classIterator.next().directory.equals(directory))
+                  classIterator.remove();
+            }
+            if (classes.isEmpty())
+               iterator.remove();
+         }
+      }
+   }
+
+   /**
+    * Define the pre-built proxy type for the given superclass and interfaces in the given calling {@link ClassLoader},
+    * or return <code>null</code> if there is no matching pre-built proxy type.
+    */
+   static Class<?> define(ClassLoader callingLoader, Class<?> superclass, Class<?>[] interfaces)
+   {
+      PrebuiltClass prebuilt;
+      String names = getNames(superclass, interfaces);
+      synchronized (index)
+      {
+         if (index.isEmpty())
+            return null;
+         Map<String, PrebuiltClass> classes = index.get(names);
+         if (classes == null)
+            return null;
+         prebuilt = classes.get(getFingerprint(superclass, interfaces));
+      }
+
+      if (prebuilt == null || !ClassLoaders.containsClass(callingLoader, ProxyObject.class))
+         return null;
+
+      Class<?> result = null;
+      try
+      {
+         result = prebuilt.define(callingLoader);
+         if (!isProxyOf(result, superclass, interfaces))
+         {
+            logger.fine("Pre-built proxy type [" + prebuilt.className + "] does not match [" + names + "]");
+            result = null;
+         }
+      }
+      catch (Exception e)
+      {
+         logger.log(Level.FINE, "Could not define pre-built proxy type [" + prebuilt.className + "]", e);
+      }
+      catch (LinkageError e)
+      {
+         logger.log(Level.FINE, "Could not define pre-built proxy type [" + prebuilt.className + "]", e);
+      }
+
+      if (result == null)
+      {
+         synchronized (index)
+         {
+            Map<String, PrebuiltClass> classes = index.get(names);
+            if (classes != null)
+               classes.values().remove(prebuilt);
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Rename the proxy type of the given name, generated into the given directory for the hierarchy of the given key,
+    * to a name derived from that key.
+    *
+    * @return the new name of the proxy type
+    */
+   private static String rename(File directory, String className, String key) throws IOException, BadBytecode
+   {
+      String prefix = className;
+      int infix = className.indexOf(JAVASSIST_INFIX);
+      if (infix >= 0)
+         prefix = className.substring(0, infix);
+      String result = prefix + PREBUILT_INFIX + Long.toHexString(hash(key, 17));
+
+      File source = getClassFile(directory, className);
+      ClassFile classFile = readClassFile(source);
+      classFile.setName(result);
+      classFile.addAttribute(new SourceFileAttribute(classFile.getConstPool(),
+               result.substring(result.lastIndexOf('.') + 1) + ".java"));
+      renameStringConstants(classFile, className, result);
+
+      File target = getClassFile(directory, result);
+      DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(target)));
+      try
+      {
+         classFile.write(stream);
+      }
+      finally
+      {
+         stream.close();
+      }
+      source.delete();
+      return result;
+   }
+
+   /**
+    * Replace the given old name with the given new name wherever it is loaded as a {@link String} constant, as
+    * javassist proxy types do in order to look up their own {@link Class} in their static initializer.
+    */
+   private static void renameStringConstants(ClassFile classFile, String oldName, String newName) throws BadBytecode
+   {
+      ConstPool pool = classFile.getConstPool();
+      int index = pool.addStringInfo(newName);
+      for (Object method : classFile.getMethods())
+      {
+         CodeAttribute code = ((MethodInfo) method).getCodeAttribute();
+         if (code == null)
+            continue;
+
+         List<Integer> positions = new ArrayList<Integer>();
+         CodeIterator iterator = code.iterator();
+         while (iterator.hasNext())
+         {
+            int position = iterator.next();
+            int opcode = iterator.byteAt(position);
+            if ((opcode == Opcode.LDC && isString(pool, iterator.byteAt(position + 1), oldName))
+                     || (opcode == Opcode.LDC_W && isString(pool, iterator.u16bitAt(position + 1), oldName)))
+               positions.add(position);
+         }
+
+         /*
+          * Patch from the end, so that widening an instruction does not move those not yet patched.
+          */
+         Collections.reverse(positions);
+         for (int position : positions)
+         {
+            if (iterator.byteAt(position) == Opcode.LDC_W)
+            {
+               iterator.write16bit(index, position + 1);
+            }
+            else if (index <= 0xFF)
+            {
+               iterator.writeByte(index, position + 1);
+            }
+            else
+            {
+               int start = position + iterator.insertGap(position, 1) - 1;
+               iterator.writeByte(Opcode.LDC_W, start);
+               iterator.write16bit(index, start + 1);
+            }
+         }
+      }
+   }
+
+   private static boolean isString(ConstPool pool, int index, String value)
+   {
+      return pool.getTag(index) == ConstPool.CONST_String && value.equals(pool.getStringInfo(index));
+   }
+
+   private static File getClassFile(File directory, String className)
+   {
+      return new File(directory, className.replace('.', File.separatorChar) + ".class");
+   }
+
+   private static ClassFile readClassFile(File file) throws IOException
+   {
+      DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try
+      {
+         return new ClassFile(stream);
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   private static boolean isProxyOf(Class<?> proxyType, Class<?> superclass, Class<?>[] interfaces)
+   {
+      if (proxyType.getSuperclass() != (superclass == null ? Object.class : superclass))
+         return false;
+      Class<?>[] proxyInterfaces = proxyType.getInterfaces();
+      for (Class<?> type : interfaces)
+      {
+         if (!Arrays.contains(proxyInterfaces, type))
+            return false;
+      }
+      return true;
+   }
+
+   private static String getKey(Class<?> superclass, Class<?>[] interfaces)
+   {
+      return getNames(superclass, interfaces) + "#" + getFingerprint(superclass, interfaces);
+   }
+
+   private static String getNames(Class<?> superclass, Class<?>[] interfaces)
+   {
+      StringBuilder result = new StringBuilder();
+      if (superclass != null)
+         result.append(superclass.getName());
+      for (Class<?> type : interfaces)
+      {
+         result.append(';').append(type.getName());
+      }
+      return result.toString();
+   }
+
+   /**
+    * Compute a fingerprint of all non-private methods declared by the given types and their supertypes.
+    */
+   private static String getFingerprint(Class<?> superclass, Class<?>[] interfaces)
+   {
+      List<String> methods = new ArrayList<String>();
+      Set<Class<?>> visited = new HashSet<Class<?>>();
+      collectMethods(superclass, methods, visited);
+      for (Class<?> type : interfaces)
+      {
+         collectMethods(type, methods, visited);
+      }
+      Collections.sort(methods);
+
+      long hash = 17;
+      for (String method : methods)
+      {
+         hash = hash(method, hash);
+      }
+      return Long.toHexString(hash);
+   }
+
+   private static long hash(String value, long seed)
+   {
+      long result = seed;
+      for (int i = 0; i < value.length(); i++)
+      {
+         result = 31 * result + value.charAt(i);
+      }
+      return result;
+   }
+
+   private static void collectMethods(Class<?> type, List<String> methods, Set<Class<?>> visited)
+   {
+      if (type == null || Object.class.equals(type) || !visited.add(type))
+         return;
+
+      for (Method method : type.getDeclaredMethods())
+      {
+         if (!Modifier.isPrivate(method.getModifiers()))
+            methods.add(method.toString());
+      }
+      collectMethods(type.getSuperclass(), methods, visited);
+      for (Class<?> iface : type.getInterfaces())
+      {
+         collectMethods(iface, methods, visited);
+      }
+   }
+
+   private static Properties readIndex(File directory) throws IOException
+   {
+      Properties result = new Properties();
+      File file = new File(directory, INDEX_FILE_NAME);
+      if (file.isFile())
+      {
+         InputStream stream = new FileInputStream(file);
+         try
+         {
+            result.load(stream);
+         }
+         finally
+         {
+            stream.close();
+         }
+      }
+      return result;
+   }
+
+   private static void writeIndex(File directory, Properties entries) throws IOException
+   {
+      OutputStream stream = new FileOutputStream(new File(directory, INDEX_FILE_NAME));
+      try
+      {
+         entries.store(stream, "Pre-built proxy types");
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   private static class PrebuiltClass
+   {
+      private final File directory;
+      private final String className;
+
+      public PrebuiltClass(File directory, String className)
+      {
+         this.directory = directory;
+         this.className = className;
+      }
+
+      public Class<?> define(ClassLoader loader) throws Exception
+      {
+         try
+         {
+            return loader.loadClass(className);
+         }
+         catch (ClassNotFoundException e)
+         {
+            // Not yet defined in this ClassLoader
+         }
+
+         ClassFile classFile = readClassFile(getClassFile(directory, className));
+         synchronized (ProxyClassCache.getDefinitionLock(loader))
+         {
+            try
+            {
+               return loader.loadClass(className);
+            }
+            catch (ClassNotFoundException e)
+            {
+               return FactoryHelper.toClass(classFile, loader);
+            }
+         }
+      }
+   }
+}
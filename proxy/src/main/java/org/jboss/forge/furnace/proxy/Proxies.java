@@ -6,10 +6,12 @@
  */
 package org.jboss.forge.furnace.proxy;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Collection;
 
 import javassist.util.proxy.MethodFilter;
+import javassist.util.proxy.MethodHandler;
 import javassist.util.proxy.ProxyFactory;
 import javassist.util.proxy.ProxyObject;
 
@@ -18,6 +20,8 @@ import javassist.util.proxy.ProxyObject;
  */
 public class Proxies
 {
+   private static final Object[] NO_ARGS = new Object[0];
+
    /**
     * Create a proxy for the given {@link Class} type.
     */
@@ -183,11 +187,7 @@ public class Proxies
 
    public static boolean isProxyType(Class<?> type)
    {
-      if (type.getName().contains("$$EnhancerByCGLIB$$") || type.getName().contains("_javassist_"))
-      {
-         return true;
-      }
-      return false;
+      return TypeClassification.of(type).isProxyType();
    }
 
    /**
@@ -197,7 +197,7 @@ public class Proxies
    @SuppressWarnings("unchecked")
    public static <T> T unwrap(Object object)
    {
-      T result = (T) object;
+      Object result = object;
 
       if (object != null)
       {
@@ -205,9 +205,7 @@ public class Proxies
          {
             try
             {
-               Method method = result.getClass().getMethod("getDelegate");
-               method.setAccessible(true);
-               result = (T) method.invoke(result);
+               result = getDelegate(result);
             }
             catch (Exception e)
             {
@@ -216,15 +214,15 @@ public class Proxies
          }
 
          if (result == null)
-            result = (T) object;
+            result = object;
       }
-      return result;
+      return (T) result;
    }
 
    @SuppressWarnings("unchecked")
    public static <T> T unwrapOnce(Object object)
    {
-      T result = (T) object;
+      Object result = object;
 
       if (object != null)
       {
@@ -232,9 +230,7 @@ public class Proxies
          {
             try
             {
-               Method method = result.getClass().getMethod("getDelegate");
-               method.setAccessible(true);
-               result = (T) method.invoke(result);
+               result = getDelegate(result);
             }
             catch (Exception e)
             {
@@ -242,9 +238,41 @@ public class Proxies
          }
 
          if (result == null)
-            result = (T) object;
+            result = object;
+      }
+      return (T) result;
+   }
+
+   /**
+    * Get the delegate of the given {@link ForgeProxy}. Proxies sharing this {@link ClassLoader}'s {@link ForgeProxy}
+    * type are unwrapped directly through their handler; proxies from a foreign {@link ClassLoader} are unwrapped through
+    * a {@link MethodInvoker} cached per proxy {@link Class}.
+    */
+   private static Object getDelegate(Object proxy) throws Exception
+   {
+      if (proxy instanceof ProxyObject)
+      {
+         MethodHandler handler = ((ProxyObject) proxy).getHandler();
+         if (handler instanceof ClassLoaderAdapterCallback)
+            return ((ClassLoaderAdapterCallback) handler).getDelegate();
+         if (handler instanceof ForgeProxy)
+            return ((ForgeProxy) handler).getDelegate();
+      }
+
+      if (proxy instanceof ForgeProxy)
+         return ((ForgeProxy) proxy).getDelegate();
+
+      Class<?> type = proxy.getClass();
+      try
+      {
+         return TypeClassification.of(type).getDelegateAccessor(type).invoke(proxy, NO_ARGS);
+      }
+      catch (Throwable e)
+      {
+         if (e instanceof Exception)
+            throw (Exception) e;
+         throw new InvocationTargetException(e);
       }
-      return result;
    }
 
    /**
@@ -252,19 +280,11 @@ public class Proxies
     */
    public static boolean isForgeProxy(Object object)
    {
-      if (object != null)
+      if (object instanceof ForgeProxy)
+         return true;
+      else if (object != null)
       {
-         Class<?>[] interfaces = object.getClass().getInterfaces();
-         if (interfaces != null)
-         {
-            for (Class<?> iface : interfaces)
-            {
-               if (iface.getName().equals(ForgeProxy.class.getName()))
-               {
-                  return true;
-               }
-            }
-         }
+         return TypeClassification.of(object.getClass()).isForgeProxy();
       }
       return false;
    }
@@ -383,21 +403,7 @@ public class Proxies
    {
       if (type != null)
       {
-         try
-         {
-            if (type.isInterface())
-               return true;
-            type.getConstructor();
-            return true;
-         }
-         catch (SecurityException e)
-         {
-            return false;
-         }
-         catch (NoSuchMethodException e)
-         {
-            return false;
-         }
+         return TypeClassification.of(type).isInstantiable(type);
       }
       return false;
    }
@@ -407,24 +413,15 @@ public class Proxies
     */
    public static boolean isPassthroughType(Class<?> type)
    {
-      boolean result = type.isArray()
-               || type.getName().matches("^(java\\.lang).*")
-               || type.getName().matches("^(java\\.io).*")
-               || type.getName().matches("^(java\\.net).*")
-               || type.isPrimitive();
-
-      result = result && !(Iterable.class.getName().equals(type.getName()));
-
-      return result;
+      return TypeClassification.of(type).isPassthrough();
    }
 
+   /**
+    * Determine if the given {@link Class} type is an array, primitive, or JDK type.
+    */
    public static boolean isLanguageType(Class<?> type)
    {
-      boolean result = type.isArray()
-               || type.getName().matches("^(java\\.).*")
-               || type.isPrimitive();
-
-      return result;
+      return TypeClassification.of(type).isLanguageType();
    }
 
    public static boolean isCollectionType(Object instance)
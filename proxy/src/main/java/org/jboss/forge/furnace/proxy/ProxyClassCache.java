@@ -0,0 +1,195 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jboss.forge.furnace.util.ConcurrentWeakIdentityMap;
+
+/**
+ * Caches generated proxy {@link Class} types by calling {@link ClassLoader}, superclass, and interface hierarchy, so
+ * that wrapping an instance whose proxy type has already been generated does not require a new javassist
+ * {@link javassist.util.proxy.ProxyFactory}.
+ * <p>
+ * Neither calling {@link ClassLoader} instances, hierarchy types, nor proxy types are strongly referenced by this
+ * cache. Entries should still be evicted via {@link #evict(ClassLoader)} as soon as a {@link ClassLoader} is released,
+ * so that no proxy type referring to it is handed out again.
+ * <p>
+ * Lookups and insertions do not lock; only {@link #evict(ClassLoader)} walks all entries.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public final class ProxyClassCache
+{
+   private static final ConcurrentWeakIdentityMap<ClassLoader, ProxyTypes> cache =
+            new ConcurrentWeakIdentityMap<ClassLoader, ProxyTypes>();
+
+   private ProxyClassCache()
+   {
+   }
+
+   /**
+    * Get the cached proxy {@link Class} for the given calling {@link ClassLoader} and type hierarchy, or
+    * <code>null</code> if no such proxy type has been cached.
+    */
+   static Class<?> get(ClassLoader callingLoader, Class<?> superclass, Class<?>[] interfaces)
+   {
+      ProxyTypes types = cache.get(callingLoader);
+      if (types != null)
+      {
+         WeakReference<Class<?>> reference = types.get(new ProxyTypeKey(superclass, interfaces));
+         if (reference != null)
+            return reference.get();
+      }
+      return null;
+   }
+
+   /**
+    * Cache the given proxy {@link Class} for the given calling {@link ClassLoader} and type hierarchy.
+    */
+   static void put(ClassLoader callingLoader, Class<?> superclass, Class<?>[] interfaces, Class<?> proxyType)
+   {
+      getTypes(callingLoader).put(new ProxyTypeKey(superclass, interfaces),
+               new WeakReference<Class<?>>(proxyType));
+   }
+
+   /**
+    * Returns the object to synchronize on while defining a proxy {@link Class} in the given calling
+    * {@link ClassLoader}, so that each proxy type is only defined once.
+    */
+   static Object getDefinitionLock(ClassLoader callingLoader)
+   {
+      return getTypes(callingLoader);
+   }
+
+   /**
+    * Evict all proxy types created for the given calling {@link ClassLoader}, or whose type hierarchy contains types
+    * defined by the given {@link ClassLoader}, along with any cached type classifications and interned proxy instances
+    * referring to it.
+    */
+   public static void evict(ClassLoader loader)
+   {
+      TypeClassification.evict(loader);
+      ProxyInstanceCache.evict(loader);
+      cache.remove(loader);
+      for (ProxyTypes types : cache.values())
+      {
+         Iterator<Entry<ProxyTypeKey, WeakReference<Class<?>>>> iterator = types.entrySet().iterator();
+         while (iterator.hasNext())
+         {
+            Entry<ProxyTypeKey, WeakReference<Class<?>>> entry = iterator.next();
+            Class<?> proxyType = entry.getValue().get();
+            if (proxyType == null || proxyType.getClassLoader() == loader || entry.getKey().references(loader))
+               iterator.remove();
+         }
+      }
+   }
+
+   /**
+    * Returns the number of proxy types currently cached.
+    */
+   public static int size()
+   {
+      int result = 0;
+      for (ProxyTypes types : cache.values())
+      {
+         result += types.size();
+      }
+      return result;
+   }
+
+   private static ProxyTypes getTypes(ClassLoader callingLoader)
+   {
+      ProxyTypes result = cache.get(callingLoader);
+      if (result == null)
+      {
+         ProxyTypes created = new ProxyTypes();
+         result = cache.putIfAbsent(callingLoader, created);
+         if (result == null)
+            result = created;
+      }
+      return result;
+   }
+
+   /**
+    * The proxy types cached for a single calling {@link ClassLoader}.
+    */
+   private static class ProxyTypes extends ConcurrentHashMap<ProxyTypeKey, WeakReference<Class<?>>>
+   {
+      private static final long serialVersionUID = 1L;
+   }
+
+   /**
+    * Identifies a proxy type hierarchy by identity, without strongly referencing any of its types.
+    */
+   private static class ProxyTypeKey
+   {
+      private final List<WeakReference<Class<?>>> types;
+      private final boolean hasSuperclass;
+      private final int hashCode;
+
+      public ProxyTypeKey(Class<?> superclass, Class<?>[] interfaces)
+      {
+         types = new ArrayList<WeakReference<Class<?>>>(interfaces.length + 1);
+         types.add(new WeakReference<Class<?>>(superclass));
+         hasSuperclass = superclass != null;
+
+         int hash = (superclass == null ? 0 : superclass.hashCode());
+         for (Class<?> type : interfaces)
+         {
+            types.add(new WeakReference<Class<?>>(type));
+            hash = 31 * hash + type.hashCode();
+         }
+         hashCode = hash;
+      }
+
+      public boolean references(ClassLoader loader)
+      {
+         for (WeakReference<Class<?>> reference : types)
+         {
+            Class<?> type = reference.get();
+            if (type != null && type.getClassLoader() == loader)
+               return true;
+         }
+         return false;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return hashCode;
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if (this == obj)
+            return true;
+         if (!(obj instanceof ProxyTypeKey))
+            return false;
+
+         ProxyTypeKey other = (ProxyTypeKey) obj;
+         if (hashCode != other.hashCode || hasSuperclass != other.hasSuperclass
+                  || types.size() != other.types.size())
+            return false;
+
+         for (int i = 0; i < types.size(); i++)
+         {
+            Class<?> type = types.get(i).get();
+            Class<?> otherType = other.types.get(i).get();
+            if (type != otherType || ((i > 0 || hasSuperclass) && type == null))
+               return false;
+         }
+         return true;
+      }
+   }
+}
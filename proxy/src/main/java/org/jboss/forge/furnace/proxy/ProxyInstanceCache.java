@@ -0,0 +1,179 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.forge.furnace.util.ConcurrentWeakIdentityMap;
+
+/**
+ * Interns proxy instances by delegate identity and calling {@link ClassLoader}, so that a delegate crossing the same
+ * {@link ClassLoader} boundary repeatedly is represented by the same proxy instance, for as long as that proxy is
+ * reachable. Used by {@link ClassLoaderAdapterCallback} when enabled via
+ * {@link ClassLoaderAdapterBuilderDelegateLoader#internProxies(boolean)}.
+ * <p>
+ * Neither calling {@link ClassLoader} instances, delegates, nor proxies are strongly referenced by this cache. Lookups
+ * and insertions do not lock.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+final class ProxyInstanceCache
+{
+   private static final ConcurrentWeakIdentityMap<ClassLoader, InstanceMap> cache =
+            new ConcurrentWeakIdentityMap<ClassLoader, InstanceMap>();
+
+   private ProxyInstanceCache()
+   {
+   }
+
+   /**
+    * Get the interned proxy of the given delegate for the given calling {@link ClassLoader}, or <code>null</code> if no
+    * such proxy is currently reachable.
+    */
+   public static Object get(ClassLoader callingLoader, Object delegate)
+   {
+      InstanceMap instances = cache.get(callingLoader);
+      if (instances != null)
+         return instances.get(delegate);
+      return null;
+   }
+
+   /**
+    * Intern the given proxy of the given delegate for the given calling {@link ClassLoader}.
+    */
+   public static void put(ClassLoader callingLoader, Object delegate, Object proxy)
+   {
+      getInstances(callingLoader).put(delegate, proxy);
+   }
+
+   /**
+    * Evict all proxies interned for the given calling {@link ClassLoader}, as well as all proxies or delegates whose
+    * types are defined by the given {@link ClassLoader}.
+    */
+   public static void evict(ClassLoader loader)
+   {
+      cache.remove(loader);
+      for (InstanceMap instances : cache.values())
+      {
+         instances.evict(loader);
+      }
+   }
+
+   /**
+    * Returns the number of proxies currently interned.
+    */
+   public static int size()
+   {
+      int result = 0;
+      for (InstanceMap instances : cache.values())
+      {
+         result += instances.size();
+      }
+      return result;
+   }
+
+   private static InstanceMap getInstances(ClassLoader callingLoader)
+   {
+      InstanceMap result = cache.get(callingLoader);
+      if (result == null)
+      {
+         InstanceMap created = new InstanceMap();
+         result = cache.putIfAbsent(callingLoader, created);
+         if (result == null)
+            result = created;
+      }
+      return result;
+   }
+
+   /**
+    * A concurrent map with weak, identity-compared keys and weak values.
+    */
+   private static class InstanceMap
+   {
+      private final ConcurrentMap<IdentityKey, WeakReference<Object>> map = new ConcurrentHashMap<IdentityKey, WeakReference<Object>>();
+      private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+      public Object get(Object key)
+      {
+         WeakReference<Object> reference = map.get(new IdentityKey(key, null));
+         return reference == null ? null : reference.get();
+      }
+
+      public void put(Object key, Object value)
+      {
+         expunge();
+         map.put(new IdentityKey(key, queue), new WeakReference<Object>(value));
+      }
+
+      public void evict(ClassLoader loader)
+      {
+         Iterator<Entry<IdentityKey, WeakReference<Object>>> iterator = map.entrySet().iterator();
+         while (iterator.hasNext())
+         {
+            Entry<IdentityKey, WeakReference<Object>> entry = iterator.next();
+            Object key = entry.getKey().get();
+            Object value = entry.getValue().get();
+            if (key == null || value == null || key.getClass().getClassLoader() == loader
+                     || value.getClass().getClassLoader() == loader)
+               iterator.remove();
+         }
+      }
+
+      public int size()
+      {
+         expunge();
+         return map.size();
+      }
+
+      private void expunge()
+      {
+         Reference<?> reference;
+         while ((reference = queue.poll()) != null)
+         {
+            map.remove(reference);
+         }
+      }
+   }
+
+   /**
+    * A weak reference compared by the identity of its referent.
+    */
+   private static class IdentityKey extends WeakReference<Object>
+   {
+      private final int hashCode;
+
+      public IdentityKey(Object referent, ReferenceQueue<Object> queue)
+      {
+         super(referent, queue);
+         this.hashCode = System.identityHashCode(referent);
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return hashCode;
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if (this == obj)
+            return true;
+         if (!(obj instanceof IdentityKey))
+            return false;
+
+         Object referent = get();
+         return referent != null && referent == ((IdentityKey) obj).get();
+      }
+   }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.lang.reflect.Method;
+
+import org.jboss.forge.furnace.util.ConcurrentWeakIdentityMap;
+
+/**
+ * Memoized classification of a {@link Class} type, as used by {@link Proxies} and {@link ClassLoaderAdapterCallback}
+ * for every parameter, result and exception of every proxied invocation.
+ * <p>
+ * Classifications only hold primitive flags, so the weakly keyed cache does not prevent {@link Class} types (or their
+ * {@link ClassLoader}) from being collected, and is read without locking. The only exception is the delegate accessor
+ * of a {@link ForgeProxy} type from a foreign {@link ClassLoader}, which is released via {@link #evict(ClassLoader)}.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+final class TypeClassification
+{
+   private static final ConcurrentWeakIdentityMap<Class<?>, TypeClassification> cache =
+            new ConcurrentWeakIdentityMap<Class<?>, TypeClassification>();
+
+   private final boolean passthrough;
+   private final boolean languageType;
+   private final boolean proxyType;
+   private final boolean forgeProxy;
+
+   /*
+    * Resolving constructors may fail for types with missing dependencies, so only do it when asked.
+    */
+   private volatile Boolean instantiable;
+   private volatile MethodInvoker delegateAccessor;
+
+   private TypeClassification(Class<?> type)
+   {
+      String name = type.getName();
+
+      boolean result = type.isArray()
+               || name.startsWith("java.lang")
+               || name.startsWith("java.io")
+               || name.startsWith("java.net")
+               || type.isPrimitive();
+      this.passthrough = result && !(Iterable.class.getName().equals(name));
+
+      this.languageType = type.isArray() || name.startsWith("java.") || type.isPrimitive();
+      this.proxyType = name.contains("$$EnhancerByCGLIB$$") || name.contains("_javassist_");
+      this.forgeProxy = implementsForgeProxy(type);
+   }
+
+   /**
+    * Get the {@link TypeClassification} of the given {@link Class} type.
+    */
+   public static TypeClassification of(Class<?> type)
+   {
+      TypeClassification result = cache.get(type);
+      if (result == null)
+      {
+         result = new TypeClassification(type);
+         TypeClassification existing = cache.putIfAbsent(type, result);
+         if (existing != null)
+            result = existing;
+      }
+      return result;
+   }
+
+   /**
+    * Evict all classifications of types defined by the given {@link ClassLoader}, as well as all cached delegate
+    * accessors.
+    */
+   public static void evict(ClassLoader loader)
+   {
+      for (Class<?> type : cache.keys())
+      {
+         TypeClassification classification = cache.get(type);
+         if (type.getClassLoader() == loader || (classification != null && classification.delegateAccessor != null))
+            cache.remove(type);
+      }
+   }
+
+   private static boolean implementsForgeProxy(Class<?> type)
+   {
+      return getForgeProxyInterface(type) != null;
+   }
+
+   private static Class<?> getForgeProxyInterface(Class<?> type)
+   {
+      Class<?>[] interfaces = type.getInterfaces();
+      if (interfaces != null)
+      {
+         for (Class<?> iface : interfaces)
+         {
+            if (iface.getName().equals(ForgeProxy.class.getName()))
+               return iface;
+         }
+      }
+      return null;
+   }
+
+   private static boolean hasDefaultConstructor(Class<?> type)
+   {
+      try
+      {
+         type.getConstructor();
+         return true;
+      }
+      catch (NoSuchMethodException e)
+      {
+         return false;
+      }
+      catch (SecurityException e)
+      {
+         return false;
+      }
+      catch (LinkageError e)
+      {
+         return false;
+      }
+   }
+
+   /**
+    * @see Proxies#isPassthroughType(Class)
+    */
+   public boolean isPassthrough()
+   {
+      return passthrough;
+   }
+
+   /**
+    * @see Proxies#isLanguageType(Class)
+    */
+   public boolean isLanguageType()
+   {
+      return languageType;
+   }
+
+   /**
+    * @see Proxies#isProxyType(Class)
+    */
+   public boolean isProxyType()
+   {
+      return proxyType;
+   }
+
+   /**
+    * Returns <code>true</code> if this type directly implements {@link ForgeProxy}, from any {@link ClassLoader}.
+    */
+   public boolean isForgeProxy()
+   {
+      return forgeProxy;
+   }
+
+   /**
+    * Get a {@link MethodInvoker} for {@link ForgeProxy#getDelegate()}, as declared by the (possibly foreign)
+    * {@link ForgeProxy} interface implemented by the given type, which must be the type of this classification.
+    */
+   public MethodInvoker getDelegateAccessor(Class<?> type) throws NoSuchMethodException
+   {
+      MethodInvoker result = delegateAccessor;
+      if (result == null)
+      {
+         Class<?> iface = getForgeProxyInterface(type);
+         if (iface == null)
+            throw new NoSuchMethodException("Type [" + type.getName() + "] does not implement "
+                     + ForgeProxy.class.getName());
+
+         Method method = iface.getMethod("getDelegate");
+         method.setAccessible(true);
+         result = MethodInvokers.createGenerated(method);
+         delegateAccessor = result;
+      }
+      return result;
+   }
+
+   /**
+    * Returns <code>true</code> if the given type, which must be the type of this classification, is an interface or has
+    * a public default constructor.
+    *
+    * @see Proxies#isInstantiable(Class)
+    */
+   public boolean isInstantiable(Class<?> type)
+   {
+      Boolean result = instantiable;
+      if (result == null)
+      {
+         result = type.isInterface() || hasDefaultConstructor(type);
+         instantiable = result;
+      }
+      return result;
+   }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.lang.reflect.Method;
+
+import org.jboss.forge.furnace.proxy.test.Bean;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DelegateMethodCacheTest
+{
+   @Test
+   public void testSameCacheReturnedForSameType()
+   {
+      DelegateMethodCache cache = DelegateMethodCache.forType(Bean.class);
+      Assert.assertSame(cache, DelegateMethodCache.forType(Bean.class));
+      Assert.assertNotSame(cache, DelegateMethodCache.forType(String.class));
+   }
+
+   @Test
+   public void testFirstResolvedMethodWins() throws Exception
+   {
+      DelegateMethodCache cache = DelegateMethodCache.forType(Bean.class);
+      Method proxied = Bean.class.getMethod("getAtt");
+      Assert.assertNull(cache.get(proxied));
+
+      Method first = Bean.class.getMethod("getAtt");
+      Method second = Bean.class.getMethod("getAtt");
+      Assert.assertSame(first, cache.put(proxied, first));
+      Assert.assertSame(first, cache.put(proxied, second));
+      Assert.assertSame(first, cache.get(proxied));
+      Assert.assertTrue(first.isAccessible());
+   }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.forge.furnace.proxy.test.Bean;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MethodInvokersTest
+{
+   @Before
+   public void before()
+   {
+      System.setProperty(MethodInvokers.INVOKER_PROPERTY, MethodInvokers.INVOKER_GENERATED);
+   }
+
+   @After
+   public void after()
+   {
+      System.clearProperty(MethodInvokers.INVOKER_PROPERTY);
+   }
+
+   @Test
+   public void testGeneratedInvokerForApplicationType() throws Throwable
+   {
+      MethodInvoker setter = MethodInvokers.create(Bean.class.getMethod("setAtt", String.class));
+      MethodInvoker getter = MethodInvokers.create(Bean.class.getMethod("getAtt"));
+      Assert.assertTrue(setter.getClass().getName().contains("$$Generated$$"));
+
+      Bean bean = new Bean();
+      Assert.assertNull(setter.invoke(bean, new Object[] { "value" }));
+      Assert.assertEquals("value", getter.invoke(bean, new Object[0]));
+   }
+
+   @Test
+   public void testGeneratedInvokerBoxesPrimitives() throws Throwable
+   {
+      List<String> list = new ArrayList<String>();
+      list.add("a");
+
+      MethodInvoker get = MethodInvokers.create(List.class.getMethod("get", int.class));
+      MethodInvoker size = MethodInvokers.create(List.class.getMethod("size"));
+      Assert.assertEquals("a", get.invoke(list, new Object[] { 0 }));
+      Assert.assertEquals(1, size.invoke(list, new Object[0]));
+   }
+
+   @Test(expected = IndexOutOfBoundsException.class)
+   public void testGeneratedInvokerDoesNotWrapExceptions() throws Throwable
+   {
+      MethodInvoker get = MethodInvokers.create(List.class.getMethod("get", int.class));
+      get.invoke(new ArrayList<String>(), new Object[] { 5 });
+   }
+
+   @Test(expected = IndexOutOfBoundsException.class)
+   public void testReflectionInvokerDoesNotWrapExceptions() throws Throwable
+   {
+      System.setProperty(MethodInvokers.INVOKER_PROPERTY, MethodInvokers.INVOKER_REFLECTION);
+      MethodInvoker get = MethodInvokers.create(List.class.getMethod("get", int.class));
+      Assert.assertFalse(get.getClass().getName().contains("$$Generated$$"));
+      get.invoke(new ArrayList<String>(), new Object[] { 5 });
+   }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.jboss.forge.furnace.proxy.test.Bean;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProxyClassCacheTest
+{
+   @Test
+   public void testCachedByHierarchy()
+   {
+      ClassLoader loader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+      Class<?>[] interfaces = new Class<?>[] { Runnable.class, Serializable.class };
+
+      Assert.assertNull(ProxyClassCache.get(loader, Bean.class, interfaces));
+      ProxyClassCache.put(loader, Bean.class, interfaces, ProxyClassCacheTest.class);
+
+      Assert.assertEquals(ProxyClassCacheTest.class, ProxyClassCache.get(loader, Bean.class,
+               new Class<?>[] { Runnable.class, Serializable.class }));
+      Assert.assertNull(ProxyClassCache.get(loader, null, interfaces));
+      Assert.assertNull(ProxyClassCache.get(loader, Bean.class, new Class<?>[] { Runnable.class }));
+      Assert.assertNull(ProxyClassCache.get(getClass().getClassLoader(), Bean.class, interfaces));
+
+      ProxyClassCache.evict(loader);
+      Assert.assertNull(ProxyClassCache.get(loader, Bean.class, interfaces));
+   }
+
+   @Test
+   public void testEvictionOfHierarchyLoader()
+   {
+      ClassLoader loader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+      Class<?>[] interfaces = new Class<?>[] { Runnable.class };
+
+      ProxyClassCache.put(loader, Bean.class, interfaces, ProxyClassCacheTest.class);
+      ProxyClassCache.evict(Bean.class.getClassLoader());
+      Assert.assertNull(ProxyClassCache.get(loader, Bean.class, interfaces));
+   }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.jboss.forge.furnace.proxy.test.Bean;
+import org.jboss.forge.furnace.proxy.test.TypeWithNonDefaultConstructor;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TypeClassificationTest
+{
+   @Test
+   public void testClassificationIsCached()
+   {
+      Assert.assertSame(TypeClassification.of(Bean.class), TypeClassification.of(Bean.class));
+      Assert.assertTrue(TypeClassification.of(String.class).isPassthrough());
+      Assert.assertFalse(TypeClassification.of(Bean.class).isPassthrough());
+   }
+
+   @Test
+   public void testInstantiable()
+   {
+      Assert.assertTrue(Proxies.isInstantiable(Runnable.class));
+      Assert.assertTrue(Proxies.isInstantiable(Bean.class));
+      Assert.assertFalse(Proxies.isInstantiable(TypeWithNonDefaultConstructor.class));
+   }
+
+   @Test
+   public void testUnresolvableConstructorIsNotInstantiable() throws Exception
+   {
+      Class<?> type = new MissingDependencyClassLoader().loadClass(HasMissingDependency.class.getName());
+
+      Assert.assertFalse(TypeClassification.of(type).isPassthrough());
+      Assert.assertFalse(Proxies.isInstantiable(type));
+   }
+
+   public static class MissingDependency
+   {
+   }
+
+   public static class HasMissingDependency
+   {
+      public HasMissingDependency(MissingDependency dependency)
+      {
+      }
+   }
+
+   /**
+    * Defines {@link HasMissingDependency} itself, but cannot load {@link MissingDependency}.
+    */
+   private static class MissingDependencyClassLoader extends ClassLoader
+   {
+      public MissingDependencyClassLoader()
+      {
+         super(TypeClassificationTest.class.getClassLoader());
+      }
+
+      @Override
+      protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
+      {
+         if (MissingDependency.class.getName().equals(name))
+            throw new ClassNotFoundException(name);
+         if (!HasMissingDependency.class.getName().equals(name))
+            return super.loadClass(name, resolve);
+
+         Class<?> result = findLoadedClass(name);
+         if (result == null)
+         {
+            try
+            {
+               InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class");
+               ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+               byte[] buffer = new byte[4096];
+               for (int read = in.read(buffer); read != -1; read = in.read(buffer))
+               {
+                  bytes.write(buffer, 0, read);
+               }
+               in.close();
+               result = defineClass(name, bytes.toByteArray(), 0, bytes.size());
+            }
+            catch (IOException e)
+            {
+               throw new ClassNotFoundException(name, e);
+            }
+         }
+         return result;
+      }
+   }
+}
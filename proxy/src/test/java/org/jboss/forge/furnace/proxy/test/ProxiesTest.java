@@ -14,6 +14,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.jboss.forge.furnace.proxy.ClassLoaderAdapterCallback;
 import org.jboss.forge.furnace.proxy.ForgeProxy;
 import org.jboss.forge.furnace.proxy.Proxies;
 import org.junit.Assert;
@@ -148,4 +149,19 @@ public class ProxiesTest
       Assert.assertFalse(Proxies.isPassthroughType(Map.class));
    }
 
+   @Test
+   public void testUnwrapNestedProxies() throws Exception
+   {
+      ClassLoader loader = getClass().getClassLoader();
+      Bean bean = new Bean();
+      Bean once = ClassLoaderAdapterCallback.enhance(loader, loader, bean, Bean.class);
+      Bean twice = ClassLoaderAdapterCallback.enhance(loader, loader, once, Bean.class);
+
+      Assert.assertTrue(Proxies.isForgeProxy(twice));
+      Assert.assertSame(once, Proxies.unwrapOnce(twice));
+      Assert.assertSame(bean, Proxies.unwrap(twice));
+      Assert.assertSame(bean, Proxies.unwrap(bean));
+      Assert.assertNull(Proxies.unwrap(null));
+   }
+
 }
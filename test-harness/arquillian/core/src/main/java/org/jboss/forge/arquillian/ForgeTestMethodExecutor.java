@@ -24,6 +24,7 @@ import org.jboss.forge.furnace.spi.ExportedInstance;
 import org.jboss.forge.furnace.spi.ServiceRegistry;
 import org.jboss.forge.furnace.util.Annotations;
 import org.jboss.forge.furnace.util.ClassLoaders;
+import org.jboss.forge.furnace.util.Furnaces;
 
 /**
  * @author <a href="mailto:aslak@conduct.no">Aslak Knutsen</a>
@@ -222,9 +223,6 @@ public class ForgeTestMethodExecutor implements ContainerMethodExecutor
 
    private void waitUntilStable(Furnace furnace) throws InterruptedException
    {
-      while (furnace.getStatus().isStarting())
-      {
-         Thread.sleep(10);
-      }
+      Furnaces.waitUntilStable(furnace);
    }
 }
\ No newline at end of file